@@ -0,0 +1,76 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures evaluating the log prob of a model at a batch of values of its first latent, either with one call to
+ * {@link KeanuProbabilisticModel#logProbBatch(Map)} or with a call to {@link KeanuProbabilisticModel#logProb(Map)}
+ * per point.
+ */
+@State(Scope.Benchmark)
+public class BatchLogProbBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private KeanuProbabilisticModel model;
+    private Map<VariableReference, DoubleTensor> batch;
+    private List<Map<VariableReference, DoubleTensor>> points;
+
+    @Setup
+    public void createModel() {
+        KeanuRandom random = new KeanuRandom(1);
+        BayesianNetwork bayesNet = graph.build(size, random);
+        model = new KeanuProbabilisticModel(bayesNet);
+
+        Vertex<?> firstLatent = bayesNet.getLatentVertices().get(0);
+        long[] pointShape = firstLatent.getShape();
+        DoubleTensor batchValues = random.nextGaussian(TensorShape.concat(new long[]{batchSize}, pointShape));
+        batch = Collections.singletonMap(firstLatent.getId(), batchValues);
+
+        int pointLength = TensorShape.getLengthAsInt(pointShape);
+        double[] flatBatchValues = batchValues.asFlatDoubleArray();
+        points = new ArrayList<>();
+        for (int point = 0; point < batchSize; point++) {
+            double[] pointValues = new double[pointLength];
+            System.arraycopy(flatBatchValues, point * pointLength, pointValues, 0, pointLength);
+            points.add(Collections.singletonMap(firstLatent.getId(), DoubleTensor.create(pointValues, pointShape)));
+        }
+    }
+
+    @Benchmark
+    public double[] logProbBatch() {
+        return model.logProbBatch(batch);
+    }
+
+    @Benchmark
+    public double[] logProbPerPoint() {
+        double[] logProbs = new double[points.size()];
+        for (int point = 0; point < logProbs.length; point++) {
+            logProbs[point] = model.logProb(points.get(point));
+        }
+        return logProbs;
+    }
+}
@@ -0,0 +1,92 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.CascadeSchedule;
+import io.improbable.keanu.algorithms.graphtraversal.GraphOptimisation;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures cascading a change through the non-probabilistic vertices of a model, either from the first latent in
+ * topological order (what a single variable MCMC proposal does) or from every latent at once.
+ * <p>
+ * Each cascade is measured as a traversal of the graph, as a replay of a {@link CascadeSchedule} built once up front
+ * and as a replay of a schedule built with a {@link GraphOptimisation} of the whole model.
+ */
+@State(Scope.Benchmark)
+public class CascadeUpdateBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<Vertex> latentVertices;
+    private Vertex firstLatent;
+
+    private CascadeSchedule oneLatentSchedule;
+    private CascadeSchedule allLatentsSchedule;
+    private CascadeSchedule optimisedOneLatentSchedule;
+    private CascadeSchedule optimisedAllLatentsSchedule;
+
+    @Setup
+    public void createGraph() {
+        BayesianNetwork bayesNet = graph.build(size, new KeanuRandom(1));
+        latentVertices = TopologicalSort.sort(bayesNet.getLatentVertices());
+        firstLatent = latentVertices.get(0);
+
+        oneLatentSchedule = CascadeSchedule.of(Collections.singletonList(firstLatent));
+        allLatentsSchedule = CascadeSchedule.of(latentVertices);
+
+        GraphOptimisation optimisation = GraphOptimisation.of(bayesNet.getAllVertices());
+        optimisedOneLatentSchedule = CascadeSchedule.of(Collections.singletonList(firstLatent), optimisation);
+        optimisedAllLatentsSchedule = CascadeSchedule.of(latentVertices, optimisation);
+    }
+
+    @Benchmark
+    public Object cascadeFromOneLatent() {
+        VertexValuePropagation.cascadeUpdate(firstLatent);
+        return firstLatent.getValue();
+    }
+
+    @Benchmark
+    public Object cascadeFromAllLatents() {
+        VertexValuePropagation.cascadeUpdate(latentVertices);
+        return firstLatent.getValue();
+    }
+
+    @Benchmark
+    public Object replayScheduleFromOneLatent() {
+        oneLatentSchedule.apply();
+        return firstLatent.getValue();
+    }
+
+    @Benchmark
+    public Object replayScheduleFromAllLatents() {
+        allLatentsSchedule.apply();
+        return firstLatent.getValue();
+    }
+
+    @Benchmark
+    public Object replayOptimisedScheduleFromOneLatent() {
+        optimisedOneLatentSchedule.apply();
+        return firstLatent.getValue();
+    }
+
+    @Benchmark
+    public Object replayOptimisedScheduleFromAllLatents() {
+        optimisedAllLatentsSchedule.apply();
+        return firstLatent.getValue();
+    }
+}
@@ -0,0 +1,48 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.CompiledLogProb;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Measures summing the log probabilities of every latent and observed vertex of a model, either by walking the
+ * vertices as {@link ProbabilityCalculator} does or with a {@link CompiledLogProb} built once up front.
+ */
+@State(Scope.Benchmark)
+public class CompiledLogProbBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<Vertex> latentOrObservedVertices;
+    private CompiledLogProb compiledLogProb;
+
+    @Setup
+    public void createGraph() {
+        BayesianNetwork bayesNet = graph.build(size, new KeanuRandom(1));
+        latentOrObservedVertices = bayesNet.getLatentOrObservedVertices();
+        compiledLogProb = CompiledLogProb.of(latentOrObservedVertices);
+    }
+
+    @Benchmark
+    public double probabilityCalculator() {
+        return ProbabilityCalculator.calculateLogProbFor(latentOrObservedVertices);
+    }
+
+    @Benchmark
+    public double compiledLogProb() {
+        return compiledLogProb.evaluate();
+    }
+}
@@ -0,0 +1,51 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.MultiplicationVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+/**
+ * Measures the partial derivative of a vector with respect to a vector latent that it is calculated from by a few
+ * element-wise operators. A dense partial derivative of the vector grows with the square of the length of the latent.
+ */
+@State(Scope.Benchmark)
+public class ElementWiseGradientBenchmark {
+
+    @Param({"100", "1000", "3000"})
+    public int length;
+
+    private GaussianVertex latent;
+    private MultiplicationVertex output;
+
+    @Setup
+    public void createGraph() {
+        long[] shape = new long[]{length};
+
+        latent = new GaussianVertex(shape, 0.0, 1.0);
+        latent.setValue(new KeanuRandom(1).nextGaussian(shape));
+
+        output = latent.times(2.0).plus(1.0).sigmoid().times(latent);
+        output.getValue();
+    }
+
+    @Benchmark
+    public Map<VertexId, PartialDerivative> reverseMode() {
+        return Differentiator.reverseModeAutoDiff(output, latent).asMap();
+    }
+
+    @Benchmark
+    public DoubleTensor forwardMode() {
+        return Differentiator.forwardModeAutoDiff(latent, output).of(output);
+    }
+}
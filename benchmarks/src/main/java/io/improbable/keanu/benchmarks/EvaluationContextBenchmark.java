@@ -0,0 +1,86 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.EvaluationContext;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Measures what reading and writing vertex states through {@link EvaluationContext} costs single threaded code.
+ * The outside of a context cases run on a graph that no context has been created for, which is the path that code
+ * which never uses contexts takes, so running them on a build from before contexts were added gives the baseline they
+ * should be compared with. The outside of its context cases run on a graph that has a context but outside of it.
+ */
+@State(Scope.Benchmark)
+public class EvaluationContextBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private Vertex plainFirstLatent;
+    private List<Vertex> plainLatentOrObservedVertices;
+
+    private Vertex firstLatent;
+    private List<Vertex> latentOrObservedVertices;
+    private EvaluationContext context;
+
+    @Setup
+    public void createGraph() {
+        BayesianNetwork plainBayesNet = graph.build(size, new KeanuRandom(1));
+        plainFirstLatent = TopologicalSort.sort(plainBayesNet.getLatentVertices()).get(0);
+        plainLatentOrObservedVertices = plainBayesNet.getLatentOrObservedVertices();
+
+        BayesianNetwork bayesNet = graph.build(size, new KeanuRandom(1));
+        firstLatent = TopologicalSort.sort(bayesNet.getLatentVertices()).get(0);
+        latentOrObservedVertices = bayesNet.getLatentOrObservedVertices();
+        context = EvaluationContext.forVertices(bayesNet.getAllVertices());
+    }
+
+    @Benchmark
+    public Object cascadeOutsideContext() {
+        VertexValuePropagation.cascadeUpdate(plainFirstLatent);
+        return plainFirstLatent.getValue();
+    }
+
+    @Benchmark
+    public double logProbOutsideContext() {
+        return ProbabilityCalculator.calculateLogProbFor(plainLatentOrObservedVertices);
+    }
+
+    @Benchmark
+    public Object cascadeOutsideItsContext() {
+        VertexValuePropagation.cascadeUpdate(firstLatent);
+        return firstLatent.getValue();
+    }
+
+    @Benchmark
+    public double logProbOutsideItsContext() {
+        return ProbabilityCalculator.calculateLogProbFor(latentOrObservedVertices);
+    }
+
+    @Benchmark
+    public Object cascadeInContext() {
+        return context.call(() -> {
+            VertexValuePropagation.cascadeUpdate(firstLatent);
+            return firstLatent.getValue();
+        });
+    }
+
+    @Benchmark
+    public double logProbInContext() {
+        return context.call(() -> ProbabilityCalculator.calculateLogProbFor(latentOrObservedVertices));
+    }
+}
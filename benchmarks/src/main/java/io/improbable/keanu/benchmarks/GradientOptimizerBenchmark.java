@@ -0,0 +1,57 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.GradientOptimizer;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Measures finding the maximum a posteriori with the gradient optimizer, starting each invocation from the same
+ * values so that every invocation takes the same path.
+ * <p>
+ * The hierarchical graph is left out because its density grows without bound as the shared scale goes to zero, so it
+ * has no maximum a posteriori and the optimizer runs out of evaluations.
+ */
+@State(Scope.Benchmark)
+public class GradientOptimizerBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<Vertex> latentVertices;
+    private GradientOptimizer optimizer;
+
+    @Setup
+    public void createOptimizer() {
+        BayesianNetwork bayesNet = graph.build(size, new KeanuRandom(1));
+        latentVertices = TopologicalSort.sort(bayesNet.getLatentVertices());
+
+        optimizer = GradientOptimizer.builder()
+            .probabilisticModel(new KeanuProbabilisticModelWithGradient(bayesNet))
+            .maxEvaluations(1000)
+            .build();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetLatents() {
+        BayesianNetwork.setFromSampleAndCascade(latentVertices, new KeanuRandom(2));
+    }
+
+    @Benchmark
+    public double maxAPosteriori() {
+        return optimizer.maxAPosteriori();
+    }
+}
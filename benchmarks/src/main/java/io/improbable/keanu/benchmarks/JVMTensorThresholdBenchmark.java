@@ -0,0 +1,58 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.tensor.JVMTensorThreshold;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.dbl.JVMDoubleTensor;
+import io.improbable.keanu.tensor.dbl.Nd4jDoubleTensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the Java array and Nd4j tensors on a few element-wise operations, broadcasting and a sum, to show where
+ * the default of {@link JVMTensorThreshold} should lie.
+ */
+@State(Scope.Benchmark)
+public class JVMTensorThresholdBenchmark {
+
+    public enum Backend {
+        JVM,
+        ND4J
+    }
+
+    @Param({"JVM", "ND4J"})
+    public Backend backend;
+
+    @Param({"4", "16", "64", "256", "1024"})
+    public int length;
+
+    private DoubleTensor left;
+    private DoubleTensor right;
+    private DoubleTensor row;
+
+    @Setup
+    public void createTensors() {
+        JVMTensorThreshold.setMaxLength(backend == Backend.JVM ? Long.MAX_VALUE : 0);
+
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = 0.1 * i;
+        }
+        long[] shape = new long[]{length / 4, 4};
+
+        left = create(values, shape);
+        right = create(values, shape).plusInPlace(1.0);
+        row = create(new double[]{1, 2, 3, 4}, new long[]{4});
+    }
+
+    private DoubleTensor create(double[] values, long[] shape) {
+        return backend == Backend.JVM ? JVMDoubleTensor.create(values, shape) : Nd4jDoubleTensor.create(values, shape);
+    }
+
+    @Benchmark
+    public double operations() {
+        return left.times(right).plusInPlace(row).expInPlace().sum();
+    }
+}
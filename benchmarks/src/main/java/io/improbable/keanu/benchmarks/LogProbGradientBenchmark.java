@@ -0,0 +1,44 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+/**
+ * Measures the gradient of the joint log prob with respect to every latent, which NUTS and the gradient optimizer
+ * calculate once per leapfrog or evaluation.
+ */
+@State(Scope.Benchmark)
+public class LogProbGradientBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private LogProbGradientCalculator gradientCalculator;
+
+    @Setup
+    public void createGraph() {
+        BayesianNetwork bayesNet = graph.build(size, new KeanuRandom(1));
+        gradientCalculator = new LogProbGradientCalculator(
+            bayesNet.getLatentOrObservedVertices(),
+            bayesNet.getContinuousLatentVertices()
+        );
+    }
+
+    @Benchmark
+    public Map<VertexId, DoubleTensor> jointLogProbGradient() {
+        return gradientCalculator.getJointLogProbGradientWrtLatents();
+    }
+}
@@ -0,0 +1,52 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.Keanu;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.util.status.StatusBar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+
+/**
+ * Measures taking one sample with the default Metropolis Hastings configuration, i.e. one step that proposes a new
+ * value for one latent, cascades it and calculates the log prob of the affected vertices.
+ * <p>
+ * See {@link MetropolisHastingsStepBenchmark} for the step on its own.
+ */
+@State(Scope.Benchmark)
+public class MetropolisHastingsBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private Iterator<NetworkSample> samples;
+
+    @Setup
+    public void createSampler() {
+        StatusBar.disable();
+        KeanuRandom random = new KeanuRandom(1);
+
+        BayesianNetwork bayesNet = graph.build(size, random);
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(bayesNet);
+
+        samples = Keanu.Sampling.MetropolisHastings.withDefaultConfigFor(model, random)
+            .generatePosteriorSamples(model, bayesNet.getLatentVertices())
+            .stream()
+            .iterator();
+    }
+
+    @Benchmark
+    public double sample() {
+        return samples.next().getLogOfMasterP();
+    }
+}
@@ -0,0 +1,76 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.algorithms.mcmc.RollbackAndCascadeOnRejection;
+import io.improbable.keanu.algorithms.mcmc.proposal.GaussianProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.proposal.PriorProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.util.status.StatusBar;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Measures a single Metropolis Hastings step on a small scalar model. No variables are sampled so each
+ * iteration is one step plus the recording of its log prob.
+ * <p>
+ * Run with "-prof gc" to see the bytes allocated per step (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+public class MetropolisHastingsStepBenchmark {
+
+    public enum ProposalType {
+        PRIOR,
+        GAUSSIAN
+    }
+
+    @Param({"PRIOR", "GAUSSIAN"})
+    public ProposalType proposalType;
+
+    private Iterator<NetworkSample> samples;
+
+    @Setup
+    public void createSampler() {
+        StatusBar.disable();
+        KeanuRandom random = new KeanuRandom(1);
+
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = A.times(2).plus(1);
+        DoubleVertex C = new GaussianVertex(B, 1);
+        C.observe(5.0);
+        A.setValue(0.5);
+
+        BayesianNetwork bayesNet = new BayesianNetwork(A.getConnectedGraph());
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(bayesNet);
+
+        ProposalDistribution proposalDistribution = proposalType == ProposalType.PRIOR ?
+            new PriorProposalDistribution(bayesNet.getLatentVertices()) :
+            new GaussianProposalDistribution(DoubleTensor.scalar(0.5));
+
+        samples = MetropolisHastings.builder()
+            .proposalDistribution(proposalDistribution)
+            .rejectionStrategy(new RollbackAndCascadeOnRejection(bayesNet.getLatentVertices()))
+            .random(random)
+            .build()
+            .generatePosteriorSamples(model, Collections.emptyList())
+            .stream()
+            .iterator();
+    }
+
+    @Benchmark
+    public double step() {
+        return samples.next().getLogOfMasterP();
+    }
+}
@@ -0,0 +1,60 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.mcmc.nuts.NUTS;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
+import io.improbable.keanu.util.status.StatusBar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+
+/**
+ * Measures taking one NUTS sample, which builds a tree of leapfrog steps and calculates the log prob gradient at each
+ * of them. The step size keeps adapting during the measurement as it would during warmup.
+ * <p>
+ * Compare packLatents to see the effect of updating flat arrays in place rather than allocating tensors per leapfrog.
+ */
+@State(Scope.Benchmark)
+public class NUTSBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean packLatents;
+
+    private Iterator<NetworkSample> samples;
+
+    @Setup
+    public void createSampler() {
+        StatusBar.disable();
+        KeanuRandom random = new KeanuRandom(1);
+
+        BayesianNetwork bayesNet = graph.build(size, random);
+        KeanuProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(bayesNet);
+
+        NUTS nuts = NUTS.builder()
+            .random(random)
+            .maxTreeHeight(6)
+            .packLatents(packLatents)
+            .build();
+
+        samples = nuts.generatePosteriorSamples(model, bayesNet.getLatentVertices())
+            .stream()
+            .iterator();
+    }
+
+    @Benchmark
+    public double sample() {
+        return samples.next().getLogOfMasterP();
+    }
+}
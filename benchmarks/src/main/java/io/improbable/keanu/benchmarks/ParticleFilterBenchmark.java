@@ -0,0 +1,50 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.particlefiltering.ParticleFilter;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Measures running a particle filter over the whole of a model, from the first observation to the last.
+ */
+@State(Scope.Benchmark)
+public class ParticleFilterBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    @Param({"100"})
+    public int numParticles;
+
+    private List<Vertex> vertices;
+    private KeanuRandom random;
+
+    @Setup
+    public void createGraph() {
+        random = new KeanuRandom(1);
+        BayesianNetwork bayesNet = graph.build(size, random);
+        vertices = bayesNet.getAllVertices();
+    }
+
+    @Benchmark
+    public double filter() {
+        ParticleFilter particleFilter = ParticleFilter.ofGraph(vertices)
+            .withNumParticles(numParticles)
+            .withResamplingCycles(3)
+            .withRandom(random)
+            .build();
+
+        return particleFilter.getMostProbableParticle().logProb();
+    }
+}
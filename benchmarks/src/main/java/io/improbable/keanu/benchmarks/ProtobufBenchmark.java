@@ -0,0 +1,50 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.util.io.ProtobufLoader;
+import io.improbable.keanu.util.io.ProtobufSaver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Measures saving a model, including its values, to protobuf and loading it back.
+ */
+@State(Scope.Benchmark)
+public class ProtobufBenchmark {
+
+    @Param({"CHAIN", "WIDE_FAN_IN", "HIERARCHICAL", "PLATED"})
+    public SyntheticGraph graph;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private BayesianNetwork bayesNet;
+    private byte[] savedNetwork;
+
+    @Setup
+    public void saveGraph() throws IOException {
+        bayesNet = graph.build(size, new KeanuRandom(1));
+        savedNetwork = save().toByteArray();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream save() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ProtobufSaver(bayesNet).save(output, true, Collections.emptyMap());
+        return output;
+    }
+
+    @Benchmark
+    public BayesianNetwork load() throws IOException {
+        return new ProtobufLoader().loadNetwork(new ByteArrayInputStream(savedNetwork));
+    }
+}
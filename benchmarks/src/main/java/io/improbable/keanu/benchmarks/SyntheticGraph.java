@@ -0,0 +1,120 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.plating.PlateBuilder;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+
+/**
+ * Synthetic models whose size can be scaled, with the graph shapes that the inference algorithms are sensitive to.
+ * All of the latents are continuous so that every model can be used with the gradient based algorithms.
+ * <p>
+ * The observations and starting values are drawn from the random that is passed in, so a model built twice from
+ * the same seed is identical.
+ */
+public enum SyntheticGraph {
+
+    /**
+     * A random walk of size latents, each with its own noisy observation. Deep rather than wide.
+     */
+    CHAIN {
+        @Override
+        DoubleVertex buildModel(int size, KeanuRandom random) {
+            DoubleVertex first = new GaussianVertex(0, 1);
+            DoubleVertex previous = first;
+
+            for (int i = 0; i < size; i++) {
+                DoubleVertex current = i == 0 ? first : new GaussianVertex(previous, 1);
+                GaussianVertex observation = new GaussianVertex(current, 1);
+                observation.observe(random.nextGaussian());
+                previous = current;
+            }
+
+            return first;
+        }
+    },
+
+    /**
+     * Size independent latents that are summed by a chain of non-probabilistic vertices into a single observation.
+     */
+    WIDE_FAN_IN {
+        @Override
+        DoubleVertex buildModel(int size, KeanuRandom random) {
+            DoubleVertex first = new GaussianVertex(0, 1);
+            DoubleVertex sum = first;
+
+            for (int i = 1; i < size; i++) {
+                sum = sum.plus(new GaussianVertex(0, 1));
+            }
+
+            GaussianVertex observation = new GaussianVertex(sum, 1);
+            observation.observe(random.nextGaussian() * size);
+
+            return first;
+        }
+    },
+
+    /**
+     * Size groups whose means share a common prior with a latent location and scale, each group with one observation.
+     */
+    HIERARCHICAL {
+        @Override
+        DoubleVertex buildModel(int size, KeanuRandom random) {
+            DoubleVertex mu = new GaussianVertex(0, 10);
+            DoubleVertex logTau = new GaussianVertex(0, 1);
+            DoubleVertex tau = logTau.exp();
+
+            for (int i = 0; i < size; i++) {
+                GaussianVertex theta = new GaussianVertex(mu, tau);
+                GaussianVertex observation = new GaussianVertex(theta, 1);
+                observation.observe(random.nextGaussian() + 5);
+            }
+
+            return mu;
+        }
+    },
+
+    /**
+     * A linear regression with a shared slope and intercept and one plate per data point.
+     */
+    PLATED {
+        @Override
+        DoubleVertex buildModel(int size, KeanuRandom random) {
+            DoubleVertex slope = new GaussianVertex(0, 10);
+            DoubleVertex intercept = new GaussianVertex(0, 10);
+
+            VertexLabel xLabel = new VertexLabel("x");
+            VertexLabel yLabel = new VertexLabel("y");
+
+            new PlateBuilder<Integer>()
+                .count(size)
+                .withFactory(plate -> {
+                    double xValue = random.nextDouble() * 10;
+                    DoubleVertex x = plate.add(xLabel, new ConstantDoubleVertex(xValue));
+                    GaussianVertex y = plate.add(yLabel, new GaussianVertex(x.times(slope).plus(intercept), 1));
+                    y.observe(2 * xValue + 1 + random.nextGaussian());
+                })
+                .build();
+
+            return slope;
+        }
+    };
+
+    /**
+     * @param size   the number of repeated units in the model, e.g. the length of the chain or number of plates
+     * @param random the source of the observations and starting values
+     * @return the model with every latent set to a value sampled from its prior
+     */
+    public BayesianNetwork build(int size, KeanuRandom random) {
+        DoubleVertex vertexInModel = buildModel(size, random);
+        BayesianNetwork bayesNet = new BayesianNetwork(vertexInModel.getConnectedGraph());
+        BayesianNetwork.setFromSampleAndCascade(TopologicalSort.sort(bayesNet.getLatentVertices()), random);
+        return bayesNet;
+    }
+
+    abstract DoubleVertex buildModel(int size, KeanuRandom random);
+}
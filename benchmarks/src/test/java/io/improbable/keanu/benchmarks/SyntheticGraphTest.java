@@ -0,0 +1,52 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SyntheticGraphTest {
+
+    private static final int SIZE = 20;
+
+    @Test
+    public void theGraphsHaveTheExpectedNumberOfLatentsAndObservations() {
+        assertLatentAndObservedCounts(SyntheticGraph.CHAIN, SIZE, SIZE);
+        assertLatentAndObservedCounts(SyntheticGraph.WIDE_FAN_IN, SIZE, 1);
+        assertLatentAndObservedCounts(SyntheticGraph.HIERARCHICAL, SIZE + 2, SIZE);
+        assertLatentAndObservedCounts(SyntheticGraph.PLATED, 2, SIZE);
+    }
+
+    @Test
+    public void theGraphsStartInAPossibleState() {
+        for (SyntheticGraph graph : SyntheticGraph.values()) {
+            assertFalse(graph.name(), graph.build(SIZE, new KeanuRandom(1)).isInImpossibleState());
+        }
+    }
+
+    @Test
+    public void theSameSeedBuildsTheSameGraph() {
+        for (SyntheticGraph graph : SyntheticGraph.values()) {
+            double first = logProbInTopologicalOrder(graph.build(SIZE, new KeanuRandom(1)));
+            double second = logProbInTopologicalOrder(graph.build(SIZE, new KeanuRandom(1)));
+            assertEquals(graph.name(), first, second, 0.0);
+        }
+    }
+
+    /**
+     * Sums in an order that is the same for both graphs, as the order of a network's vertices depends on their ids
+     */
+    private double logProbInTopologicalOrder(BayesianNetwork bayesNet) {
+        return ProbabilityCalculator.calculateLogProbFor(TopologicalSort.sort(bayesNet.getLatentOrObservedVertices()));
+    }
+
+    private void assertLatentAndObservedCounts(SyntheticGraph graph, int expectedLatents, int expectedObservations) {
+        BayesianNetwork bayesNet = graph.build(SIZE, new KeanuRandom(1));
+        assertEquals(graph.name(), expectedLatents, bayesNet.getLatentVertices().size());
+        assertEquals(graph.name(), expectedObservations, bayesNet.getObservedVertices().size());
+    }
+}
@@ -4,7 +4,9 @@ import io.improbable.keanu.distributions.continuous.Gamma;
 import io.improbable.keanu.distributions.continuous.Laplace;
 import io.improbable.keanu.distributions.discrete.Poisson;
 import io.improbable.keanu.tensor.INDArrayShim;
+import io.improbable.keanu.tensor.JVMTensorThreshold;
 import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.tensor.dbl.Nd4jDoubleTensor;
 import io.improbable.keanu.tensor.dbl.ScalarDoubleTensor;
@@ -19,6 +21,14 @@ import org.nd4j.linalg.factory.Nd4j;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * The source of randomness for sampling. An instance is not thread safe, so use {@link #split()} to give each thread
+ * its own random.
+ * <p>
+ * By default every draw comes from an Nd4j generator. A random created with {@link #withJVMGenerator(long)} instead
+ * takes scalar draws, and draws of tensors small enough to be backed by a Java array, from a pure Java xoroshiro128++
+ * generator, which is much faster per draw. Draws of larger tensors still come from Nd4j.
+ */
 public class KeanuRandom {
 
     private static final AtomicReference<KeanuRandom> DEFAULT_RANDOM = new AtomicReference<>();
@@ -47,30 +57,69 @@ public class KeanuRandom {
     private final Random nd4jRandom;
     private final DataBuffer.Type bufferType;
 
+    //The source of scalar and small tensor draws. If null then every draw comes from nd4jRandom.
+    private final XoroshiroRandom jvmRandom;
+
     public KeanuRandom() {
-        nd4jRandom = new DefaultRandom();
-        bufferType = DataBuffer.Type.DOUBLE;
+        this(new DefaultRandom(), null);
     }
 
     public KeanuRandom(long seed) {
-        nd4jRandom = new DefaultRandom(seed);
-        bufferType = DataBuffer.Type.DOUBLE;
+        this(new DefaultRandom(seed), null);
+    }
+
+    private KeanuRandom(Random nd4jRandom, XoroshiroRandom jvmRandom) {
+        this.nd4jRandom = nd4jRandom;
+        this.bufferType = DataBuffer.Type.DOUBLE;
+        this.jvmRandom = jvmRandom;
+    }
+
+    /**
+     * @param seed the seed of both the Java and the Nd4j generator
+     * @return a random that takes scalar and small tensor draws from a pure Java generator
+     */
+    public static KeanuRandom withJVMGenerator(long seed) {
+        return new KeanuRandom(new DefaultRandom(seed), new XoroshiroRandom(seed));
+    }
+
+    /**
+     * Creates a random for another thread or chain. The same sequence of calls on an original random gives the same
+     * splits, so parallel work that splits its randoms up front is reproducible.
+     * <p>
+     * The split of a random created with {@link #withJVMGenerator(long)} takes over this random's Java stream while
+     * this random jumps 2^64 draws ahead, so the streams cannot overlap. Otherwise the split is seeded with the next
+     * long drawn from this random.
+     *
+     * @return a new random that is independent of this one
+     */
+    public KeanuRandom split() {
+        if (jvmRandom == null) {
+            return new KeanuRandom(nextLong());
+        }
+        XoroshiroRandom splitJvmRandom = jvmRandom.split();
+        return new KeanuRandom(new DefaultRandom(splitJvmRandom.nextLong()), splitJvmRandom);
     }
 
     public DoubleTensor nextDouble(long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(nextDouble());
+        } else if (isDrawnOnJVM(shape)) {
+            double[] values = new double[TensorShape.getLengthAsInt(shape)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = jvmRandom.nextDouble();
+            }
+            return DoubleTensor.create(values, shape);
         } else {
             return new Nd4jDoubleTensor(doubleNextDouble(shape));
         }
     }
 
     public double nextDouble() {
-        return nd4jRandom.nextDouble();
+        return jvmRandom != null ? jvmRandom.nextDouble() : nd4jRandom.nextDouble();
     }
 
     public double nextDouble(double min, double max) {
-        return nd4jRandom.nextDouble() * (max - min) + min;
+        return nextDouble() * (max - min) + min;
     }
 
     public double nextDoubleNonZero() {
@@ -84,6 +133,12 @@ public class KeanuRandom {
     public DoubleTensor nextGaussian(long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(nextGaussian());
+        } else if (isDrawnOnJVM(shape)) {
+            double[] values = new double[TensorShape.getLengthAsInt(shape)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = jvmRandom.nextGaussian();
+            }
+            return DoubleTensor.create(values, shape);
         } else {
             return new Nd4jDoubleTensor(doubleNextGaussian(shape));
         }
@@ -102,15 +157,19 @@ public class KeanuRandom {
     }
 
     public double nextGaussian() {
-        return nd4jRandom.nextGaussian();
+        return jvmRandom != null ? jvmRandom.nextGaussian() : nd4jRandom.nextGaussian();
     }
 
     public double nextGaussian(double mu, double sigma) {
-        return nd4jRandom.nextGaussian() * sigma + mu;
+        return nextGaussian() * sigma + mu;
+    }
+
+    public long nextLong() {
+        return jvmRandom != null ? jvmRandom.nextLong() : nd4jRandom.nextLong();
     }
 
     public boolean nextBoolean() {
-        return nd4jRandom.nextBoolean();
+        return jvmRandom != null ? jvmRandom.nextBoolean() : nd4jRandom.nextBoolean();
     }
 
     public IntegerTensor nextInt(long[] shape) {
@@ -123,7 +182,11 @@ public class KeanuRandom {
     }
 
     public int nextInt(int maxExclusive) {
-        return nd4jRandom.nextInt(maxExclusive);
+        return jvmRandom != null ? jvmRandom.nextInt(maxExclusive) : nd4jRandom.nextInt(maxExclusive);
+    }
+
+    private boolean isDrawnOnJVM(long[] shape) {
+        return jvmRandom != null && (JVMTensorThreshold.useJVMTensor(shape) || TensorShape.getLength(shape) == 1);
     }
 
     private INDArray doubleNextInt(long[] shape) {
@@ -0,0 +1,179 @@
+package io.improbable.keanu;
+
+/**
+ * The xoroshiro128++ generator with Gaussians drawn by the ziggurat method. Not thread safe. Use {@link #split()} to
+ * give each thread its own stream.
+ * <p>
+ * Scrambled Linear Pseudorandom Number Generators, Blackman and Vigna, http://prng.di.unimi.it/
+ * <p>
+ * The Ziggurat Method for Generating Random Variables, Marsaglia and Tsang,
+ * https://www.jstatsoft.org/article/view/v005i08
+ */
+class XoroshiroRandom {
+
+    private static final long[] JUMP = {0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L};
+
+    private static final int ZIGGURAT_LAYERS = 128;
+    private static final double ZIGGURAT_R = 3.442619855899;
+    private static final double ZIGGURAT_V = 9.91256303526217e-3;
+    private static final long[] KN = new long[ZIGGURAT_LAYERS];
+    private static final double[] WN = new double[ZIGGURAT_LAYERS];
+    private static final double[] FN = new double[ZIGGURAT_LAYERS];
+
+    static {
+        final double m1 = 2147483648.0;
+        double dn = ZIGGURAT_R;
+        double tn = dn;
+        double q = ZIGGURAT_V / Math.exp(-0.5 * dn * dn);
+
+        KN[0] = (long) ((dn / q) * m1);
+        KN[1] = 0;
+        WN[0] = q / m1;
+        WN[ZIGGURAT_LAYERS - 1] = dn / m1;
+        FN[0] = 1.0;
+        FN[ZIGGURAT_LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+
+        for (int i = ZIGGURAT_LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2 * Math.log(ZIGGURAT_V / dn + Math.exp(-0.5 * dn * dn)));
+            KN[i + 1] = (long) ((dn / tn) * m1);
+            tn = dn;
+            FN[i] = Math.exp(-0.5 * dn * dn);
+            WN[i] = dn / m1;
+        }
+    }
+
+    private long s0;
+    private long s1;
+
+    XoroshiroRandom(long seed) {
+        //Expand the seed with splitmix64 so that similar seeds give unrelated states
+        long z = seed;
+        s0 = splitMix64(z += 0x9e3779b97f4a7c15L);
+        s1 = splitMix64(z + 0x9e3779b97f4a7c15L);
+    }
+
+    private XoroshiroRandom(long s0, long s1) {
+        this.s0 = s0;
+        this.s1 = s1;
+    }
+
+    long nextLong() {
+        final long result = Long.rotateLeft(s0 + s1, 17) + s0;
+        final long t = s1 ^ s0;
+        s0 = Long.rotateLeft(s0, 49) ^ t ^ (t << 21);
+        s1 = Long.rotateLeft(t, 28);
+        return result;
+    }
+
+    int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * @param maxExclusive the bound, which must be positive
+     * @return a uniformly distributed int from 0 up to but excluding the bound
+     */
+    int nextInt(int maxExclusive) {
+        if (maxExclusive <= 0) {
+            throw new IllegalArgumentException("Bound must be positive but was " + maxExclusive);
+        }
+
+        //Lemire's nearly divisionless method
+        long m = (nextLong() >>> 32) * maxExclusive;
+        long low = m & 0xffffffffL;
+        if (low < maxExclusive) {
+            long threshold = (0x100000000L - maxExclusive) % maxExclusive;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * maxExclusive;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * @return a uniformly distributed double in [0, 1)
+     */
+    double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    double nextGaussian() {
+        int hz = nextInt();
+        int iz = hz & (ZIGGURAT_LAYERS - 1);
+        if (Math.abs((long) hz) < KN[iz]) {
+            return hz * WN[iz];
+        }
+        return gaussianFromEdge(hz, iz);
+    }
+
+    /**
+     * Handles the draws that fall outside the rectangle of a layer, which happens for about 1% of draws.
+     */
+    private double gaussianFromEdge(int hz, int iz) {
+        while (true) {
+            double x = hz * WN[iz];
+
+            if (iz == 0) {
+                double y;
+                do {
+                    x = -Math.log(nextDoubleNonZero()) / ZIGGURAT_R;
+                    y = -Math.log(nextDoubleNonZero());
+                } while (y + y < x * x);
+                return hz > 0 ? ZIGGURAT_R + x : -ZIGGURAT_R - x;
+            }
+
+            if (FN[iz] + nextDouble() * (FN[iz - 1] - FN[iz]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+
+            hz = nextInt();
+            iz = hz & (ZIGGURAT_LAYERS - 1);
+            if (Math.abs((long) hz) < KN[iz]) {
+                return hz * WN[iz];
+            }
+        }
+    }
+
+    private double nextDoubleNonZero() {
+        double value;
+        while ((value = nextDouble()) == 0.0) ;
+        return value;
+    }
+
+    /**
+     * @return a generator that continues this generator's current stream. This generator jumps 2^64 draws ahead so
+     * that the two streams do not overlap unless one of them draws 2^64 values.
+     */
+    XoroshiroRandom split() {
+        XoroshiroRandom child = new XoroshiroRandom(s0, s1);
+        jump();
+        return child;
+    }
+
+    private void jump() {
+        long jumped0 = 0;
+        long jumped1 = 0;
+        for (long jump : JUMP) {
+            for (int b = 0; b < 64; b++) {
+                if ((jump & (1L << b)) != 0) {
+                    jumped0 ^= s0;
+                    jumped1 ^= s1;
+                }
+                nextLong();
+            }
+        }
+        s0 = jumped0;
+        s1 = jumped1;
+    }
+
+    private static long splitMix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
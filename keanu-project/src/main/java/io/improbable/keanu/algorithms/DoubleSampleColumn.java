@@ -0,0 +1,161 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A {@link SampleColumn} of double tensor samples.
+ */
+public class DoubleSampleColumn extends SampleColumn<DoubleTensor> {
+
+    private double[] values;
+
+    /**
+     * @param shape the shape of every sample that will be added to the column
+     */
+    public DoubleSampleColumn(long[] shape) {
+        super(shape, 0, 0, false);
+        this.values = new double[initialCapacity(length)];
+    }
+
+    private DoubleSampleColumn(long[] shape, double[] values, int start, int size, boolean isView) {
+        super(shape, start, size, isView);
+        this.values = values;
+    }
+
+    @Override
+    public DoubleTensor get(int index) {
+        Preconditions.checkElementIndex(index, size);
+        final int from = (start + index) * length;
+        if (length == 1 && shape.length == 0) {
+            return DoubleTensor.scalar(values[from]);
+        }
+        return DoubleTensor.create(Arrays.copyOfRange(values, from, from + length), shape);
+    }
+
+    /**
+     * @param sampleIndex the sample
+     * @param flatIndex   the flat index of the element within the sample
+     * @return the value of the element in the sample
+     */
+    public double getValue(int sampleIndex, int flatIndex) {
+        return values[(start + sampleIndex) * length + flatIndex];
+    }
+
+    /**
+     * @param index the index of an element of a sample
+     * @return the value of that element in every sample
+     */
+    public double[] getValuesAt(long... index) {
+        final int flatIndex = flatIndexOf(index);
+        double[] valuesAtIndex = new double[size];
+        for (int i = 0; i < size; i++) {
+            valuesAtIndex[i] = getValue(i, flatIndex);
+        }
+        return valuesAtIndex;
+    }
+
+    /**
+     * @return the element-wise mean of the samples
+     */
+    public DoubleTensor getAverages() {
+        return DoubleTensor.create(averages(), shape);
+    }
+
+    /**
+     * @return the element-wise unbiased variance of the samples
+     */
+    public DoubleTensor getVariances() {
+        final double[] averages = averages();
+        final double[] sumOfSquares = new double[length];
+        for (int i = 0; i < size; i++) {
+            final int offset = (start + i) * length;
+            for (int j = 0; j < length; j++) {
+                final double deviation = values[offset + j] - averages[j];
+                sumOfSquares[j] += deviation * deviation;
+            }
+        }
+
+        for (int j = 0; j < length; j++) {
+            sumOfSquares[j] /= (size - 1.);
+        }
+        return DoubleTensor.create(sumOfSquares, shape);
+    }
+
+    private double[] averages() {
+        final double[] sums = new double[length];
+        for (int i = 0; i < size; i++) {
+            final int offset = (start + i) * length;
+            for (int j = 0; j < length; j++) {
+                sums[j] += values[offset + j];
+            }
+        }
+
+        for (int j = 0; j < length; j++) {
+            sums[j] /= size;
+        }
+        return sums;
+    }
+
+    /**
+     * @return the samples stacked into one tensor with the samples in the first dimension
+     */
+    public DoubleTensor asTensor() {
+        final int from = start * length;
+        return DoubleTensor.create(
+            Arrays.copyOfRange(values, from, from + size * length),
+            TensorShape.concat(new long[]{size}, shape)
+        );
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends DoubleTensor> samples) {
+        if (samples instanceof DoubleSampleColumn && Arrays.equals(shape, ((DoubleSampleColumn) samples).shape)) {
+            Preconditions.checkState(!isView, "Cannot add samples to a view of a column");
+            final DoubleSampleColumn other = (DoubleSampleColumn) samples;
+            ensureCapacity((size + other.size) * length);
+            System.arraycopy(other.values, other.start * length, values, size * length, other.size * length);
+            size += other.size;
+            modCount++;
+            return other.size > 0;
+        }
+        return super.addAll(samples);
+    }
+
+    @Override
+    public DoubleSampleColumn subList(int fromIndex, int toIndex) {
+        checkSubListRange(fromIndex, toIndex);
+        return new DoubleSampleColumn(shape, values, start + fromIndex, toIndex - fromIndex, true);
+    }
+
+    @Override
+    public DoubleSampleColumn downSample(int downSampleInterval) {
+        Preconditions.checkArgument(downSampleInterval > 0, "Down sample interval of %s is invalid. Sample interval must be positive.", downSampleInterval);
+        final int downSampledSize = (size + downSampleInterval - 1) / downSampleInterval;
+        final double[] downSampled = new double[Math.max(downSampledSize * length, 1)];
+        for (int i = 0; i < downSampledSize; i++) {
+            System.arraycopy(values, (start + i * downSampleInterval) * length, downSampled, i * length, length);
+        }
+        return new DoubleSampleColumn(shape, downSampled, 0, downSampledSize, false);
+    }
+
+    @Override
+    protected void ensureCapacity(int requiredValues) {
+        if (requiredValues > values.length) {
+            values = Arrays.copyOf(values, Math.max(requiredValues, values.length * 2));
+        }
+    }
+
+    @Override
+    protected void append(DoubleTensor sample, int position) {
+        if (length == 1) {
+            values[position] = sample.scalar();
+        } else {
+            System.arraycopy(sample.asFlatDoubleArray(), 0, values, position, length);
+        }
+    }
+}
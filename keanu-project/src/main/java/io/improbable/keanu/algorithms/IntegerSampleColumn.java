@@ -0,0 +1,139 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A {@link SampleColumn} of integer tensor samples.
+ */
+public class IntegerSampleColumn extends SampleColumn<IntegerTensor> {
+
+    private int[] values;
+
+    /**
+     * @param shape the shape of every sample that will be added to the column
+     */
+    public IntegerSampleColumn(long[] shape) {
+        super(shape, 0, 0, false);
+        this.values = new int[initialCapacity(length)];
+    }
+
+    private IntegerSampleColumn(long[] shape, int[] values, int start, int size, boolean isView) {
+        super(shape, start, size, isView);
+        this.values = values;
+    }
+
+    @Override
+    public IntegerTensor get(int index) {
+        Preconditions.checkElementIndex(index, size);
+        final int from = (start + index) * length;
+        if (length == 1 && shape.length == 0) {
+            return IntegerTensor.scalar(values[from]);
+        }
+        return IntegerTensor.create(Arrays.copyOfRange(values, from, from + length), shape);
+    }
+
+    /**
+     * @param sampleIndex the sample
+     * @param flatIndex   the flat index of the element within the sample
+     * @return the value of the element in the sample
+     */
+    public int getValue(int sampleIndex, int flatIndex) {
+        return values[(start + sampleIndex) * length + flatIndex];
+    }
+
+    /**
+     * @param index the index of an element of a sample
+     * @return the value of that element in every sample
+     */
+    public int[] getValuesAt(long... index) {
+        final int flatIndex = flatIndexOf(index);
+        int[] valuesAtIndex = new int[size];
+        for (int i = 0; i < size; i++) {
+            valuesAtIndex[i] = getValue(i, flatIndex);
+        }
+        return valuesAtIndex;
+    }
+
+    /**
+     * @return the element-wise mean of the samples
+     */
+    public DoubleTensor getAverages() {
+        final long[] sums = new long[length];
+        for (int i = 0; i < size; i++) {
+            final int offset = (start + i) * length;
+            for (int j = 0; j < length; j++) {
+                sums[j] += values[offset + j];
+            }
+        }
+
+        final double[] averages = new double[length];
+        for (int j = 0; j < length; j++) {
+            averages[j] = (double) sums[j] / size;
+        }
+        return DoubleTensor.create(averages, shape);
+    }
+
+    /**
+     * @return the samples stacked into one tensor with the samples in the first dimension
+     */
+    public IntegerTensor asTensor() {
+        final int from = start * length;
+        return IntegerTensor.create(
+            Arrays.copyOfRange(values, from, from + size * length),
+            TensorShape.concat(new long[]{size}, shape)
+        );
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends IntegerTensor> samples) {
+        if (samples instanceof IntegerSampleColumn && Arrays.equals(shape, ((IntegerSampleColumn) samples).shape)) {
+            Preconditions.checkState(!isView, "Cannot add samples to a view of a column");
+            final IntegerSampleColumn other = (IntegerSampleColumn) samples;
+            ensureCapacity((size + other.size) * length);
+            System.arraycopy(other.values, other.start * length, values, size * length, other.size * length);
+            size += other.size;
+            modCount++;
+            return other.size > 0;
+        }
+        return super.addAll(samples);
+    }
+
+    @Override
+    public IntegerSampleColumn subList(int fromIndex, int toIndex) {
+        checkSubListRange(fromIndex, toIndex);
+        return new IntegerSampleColumn(shape, values, start + fromIndex, toIndex - fromIndex, true);
+    }
+
+    @Override
+    public IntegerSampleColumn downSample(int downSampleInterval) {
+        Preconditions.checkArgument(downSampleInterval > 0, "Down sample interval of %s is invalid. Sample interval must be positive.", downSampleInterval);
+        final int downSampledSize = (size + downSampleInterval - 1) / downSampleInterval;
+        final int[] downSampled = new int[Math.max(downSampledSize * length, 1)];
+        for (int i = 0; i < downSampledSize; i++) {
+            System.arraycopy(values, (start + i * downSampleInterval) * length, downSampled, i * length, length);
+        }
+        return new IntegerSampleColumn(shape, downSampled, 0, downSampledSize, false);
+    }
+
+    @Override
+    protected void ensureCapacity(int requiredValues) {
+        if (requiredValues > values.length) {
+            values = Arrays.copyOf(values, Math.max(requiredValues, values.length * 2));
+        }
+    }
+
+    @Override
+    protected void append(IntegerTensor sample, int position) {
+        if (length == 1) {
+            values[position] = sample.scalar();
+        } else {
+            System.arraycopy(sample.asFlatIntegerArray(), 0, values, position, length);
+        }
+    }
+}
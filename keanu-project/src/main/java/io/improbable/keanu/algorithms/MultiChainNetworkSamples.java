@@ -0,0 +1,131 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The samples of several independent chains merged into a single {@link NetworkSamples}. The samples of chain 0 come
+ * first, followed by those of chain 1 and so on. The samples of each chain are still available on their own, which
+ * is what is needed for multi-chain diagnostics.
+ */
+public class MultiChainNetworkSamples extends NetworkSamples {
+
+    private final List<NetworkSamples> chains;
+    private final int[] chainStartIndices;
+
+    public MultiChainNetworkSamples(List<NetworkSamples> chains) {
+        super(concatenateSamples(chains), concatenateLogProbs(chains), totalSize(chains));
+        this.chains = Collections.unmodifiableList(new ArrayList<>(chains));
+        this.chainStartIndices = new int[chains.size()];
+
+        int startIndex = 0;
+        for (int i = 0; i < chains.size(); i++) {
+            chainStartIndices[i] = startIndex;
+            startIndex += chains.get(i).size();
+        }
+    }
+
+    private static Map<VariableReference, List<?>> concatenateSamples(List<NetworkSamples> chains) {
+        Preconditions.checkArgument(!chains.isEmpty(), "At least one chain is required");
+
+        Map<VariableReference, List<?>> concatenated = new HashMap<>();
+        for (Map.Entry<VariableReference, ? extends List> entry : chains.get(0).getSamplesByVariable().entrySet()) {
+            concatenated.put(entry.getKey(), SampleColumns.newListLike((List<Object>) entry.getValue()));
+        }
+        Set<VariableReference> variables = new HashSet<>(concatenated.keySet());
+
+        for (NetworkSamples chain : chains) {
+            Map<VariableReference, ? extends List> chainSamples = chain.getSamplesByVariable();
+            Preconditions.checkArgument(chainSamples.keySet().equals(variables),
+                "All chains must contain samples for the same variables"
+            );
+
+            for (VariableReference variable : variables) {
+                for (Object sample : (List<?>) chainSamples.get(variable)) {
+                    SampleColumns.addSample(concatenated, variable, sample);
+                }
+            }
+        }
+
+        return concatenated;
+    }
+
+    private static List<Double> concatenateLogProbs(List<NetworkSamples> chains) {
+        List<Double> concatenated = new ArrayList<>(totalSize(chains));
+        for (NetworkSamples chain : chains) {
+            concatenated.addAll(chain.getLogOfMasterPForEachSample());
+        }
+        return concatenated;
+    }
+
+    private static int totalSize(List<NetworkSamples> chains) {
+        return chains.stream().mapToInt(NetworkSamples::size).sum();
+    }
+
+    public int getChainCount() {
+        return chains.size();
+    }
+
+    public NetworkSamples getChain(int chainIndex) {
+        return chains.get(chainIndex);
+    }
+
+    public List<NetworkSamples> getChains() {
+        return chains;
+    }
+
+    /**
+     * @param sample index of a sample in the merged samples
+     * @return the index of the chain that the sample came from
+     */
+    public int getChainIndex(int sample) {
+        Preconditions.checkElementIndex(sample, size());
+
+        int chainIndex = 0;
+        while (chainIndex + 1 < chainStartIndices.length && chainStartIndices[chainIndex + 1] <= sample) {
+            chainIndex++;
+        }
+        return chainIndex;
+    }
+
+    /**
+     * Drops dropCount samples from the start of each chain.
+     *
+     * @param dropCount the number of samples to drop from each chain
+     * @return the remaining samples of every chain
+     */
+    @Override
+    public MultiChainNetworkSamples drop(int dropCount) {
+        return forEachChain(chain -> chain.drop(dropCount));
+    }
+
+    /**
+     * Down-samples each chain separately.
+     *
+     * @param downSampleInterval keep one sample for every downSampleInterval samples of a chain
+     * @return the down-sampled samples of every chain
+     */
+    @Override
+    public MultiChainNetworkSamples downSample(int downSampleInterval) {
+        return forEachChain(chain -> chain.downSample(downSampleInterval));
+    }
+
+    @Override
+    public MultiChainNetworkSamples withReferencesMapped(Function<VariableReference, VariableReference> referenceMapping) {
+        return forEachChain(chain -> chain.withReferencesMapped(referenceMapping));
+    }
+
+    private MultiChainNetworkSamples forEachChain(Function<NetworkSamples, NetworkSamples> operation) {
+        return new MultiChainNetworkSamples(chains.stream().map(operation).collect(toList()));
+    }
+}
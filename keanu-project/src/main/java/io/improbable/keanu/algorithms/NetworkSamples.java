@@ -53,14 +53,21 @@ public class NetworkSamples {
     }
 
     private static <T> void addSampleForVariable(VariableReference variableReference, T value, Map<VariableReference, List<?>> samples) {
-        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(variableReference, v -> new ArrayList<T>());
-        samplesForVertex.add(value);
+        SampleColumns.addSample(samples, variableReference, value);
     }
 
     public int size() {
         return this.size;
     }
 
+    Map<VariableReference, ? extends List> getSamplesByVariable() {
+        return samplesByVariable;
+    }
+
+    List<Double> getLogOfMasterPForEachSample() {
+        return logOfMasterPForEachSample;
+    }
+
     public <T> Samples<T> get(Variable<T, ?> variable) {
         return get(variable.getReference());
     }
@@ -117,6 +124,10 @@ public class NetworkSamples {
 
     private static <T> List<T> downSample(final List<T> samples, final int downSampleInterval) {
 
+        if (samples instanceof SampleColumn) {
+            return ((SampleColumn) samples).downSample(downSampleInterval);
+        }
+
         List<T> downSampled = new ArrayList<>();
         int i = 0;
 
@@ -130,6 +141,20 @@ public class NetworkSamples {
         return downSampled;
     }
 
+    /**
+     * @param referenceMapping maps each variable reference in these samples to the reference it should be stored under
+     * @return the same samples keyed by the mapped references
+     */
+    public NetworkSamples withReferencesMapped(Function<VariableReference, VariableReference> referenceMapping) {
+        final Map<VariableReference, List<?>> remapped = samplesByVariable.entrySet().stream()
+            .collect(toMap(
+                e -> referenceMapping.apply(e.getKey()),
+                e -> (List<?>) e.getValue())
+            );
+
+        return new NetworkSamples(remapped, logOfMasterPForEachSample, size);
+    }
+
     public double probability(Function<NetworkState, Boolean> predicate) {
         List<NetworkState> networkStates = toNetworkStates();
         long trueCount = networkStates.parallelStream()
@@ -0,0 +1,68 @@
+package io.improbable.keanu.algorithms;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for the algorithms that split their work across threads.
+ */
+@UtilityClass
+public class ParallelWork {
+
+    /**
+     * @param threadCount the number of threads in the pool
+     * @return a pool of daemon threads that stop once they have been idle for a second, so a pool that is never shut
+     * down does not keep the JVM alive
+     */
+    public static ExecutorService newDaemonThreadPool(int threadCount) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threadCount, threadCount, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            r -> {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setDaemon(true);
+                return t;
+            }
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Waits for every future to complete. If any fails or the wait is interrupted, the rest are cancelled.
+     *
+     * @param futures the work to wait for
+     * @param work    what the futures do, for the message of the exception thrown if they fail. e.g. "walker evaluation"
+     * @param <T>     the result type of the futures
+     * @return the result of each future, in order
+     * @throws RuntimeException the exception thrown by a future if it threw a runtime exception, otherwise an
+     *                          {@link IllegalStateException}
+     */
+    public static <T> List<T> awaitAll(List<? extends Future<? extends T>> futures, String work) {
+        try {
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<? extends T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for " + work + " to finish", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed during " + work, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The samples of one tensor variable stored as a single primitive array laid out as [sample][element], rather than
+ * as a list of tensor objects. A tensor is only created for a sample when it is asked for with {@link #get(int)}.
+ * <p>
+ * A sub list of a column is a read only view onto the same array, so dropping samples does not copy them.
+ *
+ * @param <T> the type of tensor that is sampled
+ */
+public abstract class SampleColumn<T extends Tensor> extends AbstractList<T> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    protected final long[] shape;
+    protected final int length;
+    protected final int start;
+    protected final boolean isView;
+    protected int size;
+
+    protected SampleColumn(long[] shape, int start, int size, boolean isView) {
+        this.shape = shape;
+        this.length = TensorShape.getLengthAsInt(shape);
+        this.start = start;
+        this.size = size;
+        this.isView = isView;
+    }
+
+    static int initialCapacity(int length) {
+        return DEFAULT_CAPACITY * Math.max(length, 1);
+    }
+
+    /**
+     * @return the shape of each sample
+     */
+    public long[] getSampleShape() {
+        return shape;
+    }
+
+    /**
+     * @return the number of elements in each sample
+     */
+    public int getSampleLength() {
+        return length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(T sample) {
+        Preconditions.checkState(!isView, "Cannot add samples to a view of a column");
+        Preconditions.checkArgument(sample != null, "Cannot add a missing sample to a column");
+        Preconditions.checkArgument(
+            Arrays.equals(shape, sample.getShape()),
+            "Expected a sample of shape %s but got %s", Arrays.toString(shape), Arrays.toString(sample.getShape())
+        );
+
+        ensureCapacity((size + 1) * length);
+        append(sample, size * length);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * @param fromIndex the first sample of the view, inclusive
+     * @param toIndex   the last sample of the view, exclusive
+     * @return a read only view of the samples in the range that shares this column's array
+     */
+    @Override
+    public abstract SampleColumn<T> subList(int fromIndex, int toIndex);
+
+    /**
+     * @param downSampleInterval keep one sample out of every downSampleInterval
+     * @return a new column of every downSampleInterval'th sample, starting with the first
+     */
+    public abstract SampleColumn<T> downSample(int downSampleInterval);
+
+    /**
+     * @param index the index of an element of a sample. Any index refers to the only element of a sample of length one.
+     * @return the flat position of the element within each sample
+     */
+    protected int flatIndexOf(long... index) {
+        if (length == 1) {
+            return 0;
+        }
+        return Math.toIntExact(TensorShape.getFlatIndex(shape, TensorShape.getRowFirstStride(shape), index));
+    }
+
+    protected void checkSubListRange(int fromIndex, int toIndex) {
+        Preconditions.checkPositionIndexes(fromIndex, toIndex, size);
+    }
+
+    protected abstract void ensureCapacity(int requiredValues);
+
+    protected abstract void append(T sample, int position);
+}
@@ -0,0 +1,76 @@
+package io.improbable.keanu.algorithms;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the list that the samples of a variable are collected in: a {@link SampleColumn} for double and integer
+ * tensors and an {@link ArrayList} for anything else. A variable whose samples change shape is moved from its column
+ * to an {@link ArrayList} when the first sample of a different shape is added.
+ */
+@UtilityClass
+public class SampleColumns {
+
+    /**
+     * @param samples           the samples collected so far, by variable
+     * @param variableReference the variable that was sampled
+     * @param value             the sampled value
+     * @param <T>               the type of the sampled value
+     */
+    public static <T> void addSample(Map<VariableReference, List<?>> samples, VariableReference variableReference, T value) {
+        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(variableReference, v -> newListFor(value));
+        if (!canHold(samplesForVariable, value)) {
+            samplesForVariable = new ArrayList<>(samplesForVariable);
+            samples.put(variableReference, samplesForVariable);
+        }
+        samplesForVariable.add(value);
+    }
+
+    private static boolean canHold(List<?> samples, Object value) {
+        if (samples instanceof DoubleSampleColumn) {
+            return value instanceof DoubleTensor &&
+                Arrays.equals(((DoubleSampleColumn) samples).getSampleShape(), ((DoubleTensor) value).getShape());
+        } else if (samples instanceof IntegerSampleColumn) {
+            return value instanceof IntegerTensor &&
+                Arrays.equals(((IntegerSampleColumn) samples).getSampleShape(), ((IntegerTensor) value).getShape());
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * @param firstSample the first value that will be added to the list
+     * @param <T>         the type of the values
+     * @return an empty list suited to holding values like the first sample
+     */
+    public static <T> List<T> newListFor(T firstSample) {
+        if (firstSample instanceof DoubleTensor) {
+            return (List<T>) new DoubleSampleColumn(((DoubleTensor) firstSample).getShape());
+        } else if (firstSample instanceof IntegerTensor) {
+            return (List<T>) new IntegerSampleColumn(((IntegerTensor) firstSample).getShape());
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * @param samples  an existing list of samples
+     * @param <T>      the type of the samples
+     * @return an empty list of the same kind, for example to concatenate samples into
+     */
+    public static <T> List<T> newListLike(List<T> samples) {
+        if (samples instanceof DoubleSampleColumn) {
+            return (List<T>) new DoubleSampleColumn(((DoubleSampleColumn) samples).getSampleShape());
+        } else if (samples instanceof IntegerSampleColumn) {
+            return (List<T>) new IntegerSampleColumn(((IntegerSampleColumn) samples).getSampleShape());
+        } else {
+            return new ArrayList<>();
+        }
+    }
+}
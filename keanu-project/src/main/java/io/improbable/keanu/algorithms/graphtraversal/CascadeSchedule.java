@@ -0,0 +1,205 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.StructureStamp;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ElementWiseChain;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A precomputed cascade from a fixed set of vertices. The vertices that a cascade from that set would visit are found
+ * once and stored in topological order so that replaying the cascade is a walk over an array rather than a
+ * priority queue traversal of the graph.
+ * <p>
+ * A schedule built with a {@link GraphOptimisation} also skips work that the optimisation has found to be repeated:
+ * a vertex that calculates the same value as an earlier vertex in the schedule is given that vertex's value and a
+ * chain of element-wise operators is calculated in one step.
+ * <p>
+ * The schedule is only valid for as long as the graph structure it was built from is unchanged. Use
+ * {@link #isStale()} to check this before replaying a cached schedule.
+ */
+public class CascadeSchedule {
+
+    private final Vertex[] order;
+
+    //For each vertex in the order, the earlier vertex in the order whose value it takes, or null to calculate it
+    private final Vertex[] duplicateOf;
+
+    //For each vertex in the order, the element-wise chain that ends at it and is calculated in one step, or null
+    private final ElementWiseChain[] chains;
+
+    private final StructureStamp structureStamp;
+
+    //The optimisation the schedule was built with, or null if it was built without one
+    private final GraphOptimisation optimisation;
+
+    private CascadeSchedule(Vertex[] order,
+                            Vertex[] duplicateOf,
+                            ElementWiseChain[] chains,
+                            StructureStamp structureStamp,
+                            GraphOptimisation optimisation) {
+        this.order = order;
+        this.duplicateOf = duplicateOf;
+        this.chains = chains;
+        this.structureStamp = structureStamp;
+        this.optimisation = optimisation;
+    }
+
+    /**
+     * @param cascadeFrom the vertices that will have been updated when the schedule is applied
+     * @return a schedule that visits the same vertices in the same order as
+     * {@link VertexValuePropagation#cascadeUpdate(Collection)} would from those vertices
+     */
+    public static CascadeSchedule of(Collection<? extends Vertex> cascadeFrom) {
+        return of(cascadeFrom, null);
+    }
+
+    /**
+     * @param cascadeFrom  the vertices that will have been updated when the schedule is applied
+     * @param optimisation an optimisation of the graph, or null. It is ignored if it is stale.
+     * @return a schedule that leaves the same values as {@link VertexValuePropagation#cascadeUpdate(Collection)}
+     * would from those vertices
+     */
+    public static CascadeSchedule of(Collection<? extends Vertex> cascadeFrom, GraphOptimisation optimisation) {
+        StructureStamp structureStamp = StructureStamp.of(cascadeFrom);
+
+        Set<Vertex> toVisit = new HashSet<>(cascadeFrom);
+        Deque<Vertex> stack = new ArrayDeque<>(cascadeFrom);
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+
+            for (Vertex<?> child : visiting.getChildren()) {
+                if (!child.isProbabilistic() && toVisit.add(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        if (optimisation == null || optimisation.isStale()) {
+            return new CascadeSchedule(sorted(toVisit), null, null, structureStamp, null);
+        }
+
+        Set<Vertex> cascadeFromSet = new HashSet<>(cascadeFrom);
+        Set<Vertex> collapsed = new HashSet<>();
+        for (Vertex<?> vertex : toVisit) {
+            ElementWiseChain chain = optimisation.getChainEndingAt(vertex);
+            if (chain != null && canCollapse(chain, cascadeFromSet)) {
+                List<DoubleVertex> links = chain.getLinks();
+                collapsed.addAll(links.subList(0, links.size() - 1));
+            }
+        }
+        toVisit.removeAll(collapsed);
+
+        Vertex[] order = sorted(toVisit);
+        Vertex[] duplicateOf = new Vertex[order.length];
+        ElementWiseChain[] chains = new ElementWiseChain[order.length];
+
+        for (int i = 0; i < order.length; i++) {
+            Vertex<?> vertex = order[i];
+            if (cascadeFromSet.contains(vertex)) {
+                continue;
+            }
+
+            Vertex<?> duplicate = optimisation.getDuplicateOf(vertex);
+            if (duplicate != null && toVisit.contains(duplicate)) {
+                duplicateOf[i] = duplicate;
+            }
+
+            ElementWiseChain chain = optimisation.getChainEndingAt(vertex);
+            if (chain != null && collapsed.contains(chain.getFirst())) {
+                chains[i] = chain;
+            }
+        }
+
+        return new CascadeSchedule(order, duplicateOf, chains, structureStamp, optimisation);
+    }
+
+    private static boolean canCollapse(ElementWiseChain chain, Set<Vertex> cascadeFrom) {
+        for (DoubleVertex vertex : chain.getLinks()) {
+            if (cascadeFrom.contains(vertex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Vertex[] sorted(Set<Vertex> vertices) {
+        Vertex[] order = vertices.toArray(new Vertex[0]);
+        Arrays.sort(order, Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
+        return order;
+    }
+
+    /**
+     * Recalculates the value of every vertex in the schedule, in topological order.
+     */
+    public void apply() {
+        if (duplicateOf == null) {
+            for (Vertex<?> vertex : order) {
+                VertexValuePropagation.updateVertexValue(vertex);
+            }
+            return;
+        }
+
+        for (int i = 0; i < order.length; i++) {
+            if (duplicateOf[i] != null) {
+                order[i].setValue(duplicateOf[i].getValue());
+            } else if (chains[i] != null) {
+                applyChain(chains[i]);
+            } else {
+                VertexValuePropagation.updateVertexValue(order[i]);
+            }
+        }
+    }
+
+    /**
+     * Calculates every vertex of a chain from the inputs of the chain in one pass, so that the vertices inside the
+     * chain hold the same values as they would after a cascade.
+     */
+    private static void applyChain(ElementWiseChain chain) {
+        List<DoubleVertex> links = chain.getLinks();
+        DoubleTensor[] values = chain.calculateEachLink();
+
+        for (int i = 0; i < values.length; i++) {
+            links.get(i).setValue(values[i]);
+        }
+    }
+
+    /**
+     * @return true if an edge has been added or removed in the graph of the vertices cascaded from since this schedule
+     * was built, or the optimisation it was built with has become stale. Every vertex the schedule visits is in that
+     * graph.
+     */
+    public boolean isStale() {
+        return structureStamp.isStale() || (optimisation != null && optimisation.isStale());
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @return every vertex whose state applying the schedule may replace, which is the vertices in the schedule and
+     * the vertices inside element-wise chains
+     */
+    public Set<Vertex> getWrittenVertices() {
+        Set<Vertex> written = new HashSet<>(Arrays.asList(order));
+        if (chains != null) {
+            for (ElementWiseChain chain : chains) {
+                if (chain != null) {
+                    written.addAll(chain.getLinks());
+                }
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,81 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a {@link CascadeSchedule} for each distinct set of vertices that is cascaded from, so that repeatedly
+ * cascading from the same vertices (e.g. once per MCMC proposal) does not traverse the graph each time.
+ * <p>
+ * A cached schedule is rebuilt the next time it is asked for after the structure of its graph changes. Changes to
+ * unrelated graphs, such as copies of the network, leave it in place. The least recently used schedule is
+ * evicted once more than maxSchedules distinct sets have been cascaded from.
+ * <p>
+ * If the cache is given a {@link GraphOptimisation} then its schedules are built with it for as long as it is not
+ * stale, after which it is dropped along with the schedules built with it.
+ */
+public class CascadeScheduleCache {
+
+    private static final int DEFAULT_MAX_SCHEDULES = 10_000;
+
+    private final Map<Set<Vertex>, CascadeSchedule> schedules;
+    private GraphOptimisation optimisation;
+
+    public CascadeScheduleCache() {
+        this(DEFAULT_MAX_SCHEDULES);
+    }
+
+    public CascadeScheduleCache(GraphOptimisation optimisation) {
+        this(DEFAULT_MAX_SCHEDULES, optimisation);
+    }
+
+    public CascadeScheduleCache(int maxSchedules) {
+        this(maxSchedules, null);
+    }
+
+    public CascadeScheduleCache(int maxSchedules, GraphOptimisation optimisation) {
+        this.schedules = new LinkedHashMap<Set<Vertex>, CascadeSchedule>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Set<Vertex>, CascadeSchedule> eldest) {
+                return size() > maxSchedules;
+            }
+        };
+        this.optimisation = optimisation;
+    }
+
+    /**
+     * Equivalent to {@link VertexValuePropagation#cascadeUpdate(Collection)} but reuses the traversal
+     * of any previous cascade from the same vertices.
+     *
+     * @param cascadeFrom A collection that contains the vertices that have been updated.
+     */
+    public void cascadeUpdate(Collection<? extends Vertex> cascadeFrom) {
+        getSchedule(cascadeFrom).apply();
+    }
+
+    public CascadeSchedule getSchedule(Collection<? extends Vertex> cascadeFrom) {
+        if (optimisation != null && optimisation.isStale()) {
+            optimisation = null;
+            schedules.clear();
+        }
+
+        Set<Vertex> key = ImmutableSet.copyOf(cascadeFrom);
+        CascadeSchedule schedule = schedules.get(key);
+
+        if (schedule == null || schedule.isStale()) {
+            schedule = CascadeSchedule.of(key, optimisation);
+            schedules.put(key, schedule);
+        }
+
+        return schedule;
+    }
+
+    public int size() {
+        return schedules.size();
+    }
+}
@@ -0,0 +1,403 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.NonSaveableVertex;
+import io.improbable.keanu.vertices.SaveVertexParam;
+import io.improbable.keanu.vertices.StructureStamp;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.nonprobabilistic.operators.binary.BooleanBinaryOpVertex;
+import io.improbable.keanu.vertices.bool.nonprobabilistic.operators.unary.BooleanUnaryOpVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ElementWiseChain;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.DoubleBinaryOpVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.DoubleUnaryOpVertex;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.operators.binary.BinaryOpVertex;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.operators.unary.UnaryOpVertex;
+import io.improbable.keanu.vertices.intgr.nonprobabilistic.operators.binary.IntegerBinaryOpVertex;
+import io.improbable.keanu.vertices.intgr.nonprobabilistic.operators.unary.IntegerUnaryOpVertex;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An analysis of a graph that lets a {@link CascadeSchedule} do less work when it cascades through the graph. The
+ * graph itself is not changed, so every vertex keeps its label, its id and a correct value.
+ * <ul>
+ * <li>Common subexpressions: operator vertices of the same class with the same parameters and the same inputs, after
+ * the inputs have themselves been matched, calculate the same value. A cascade calculates the first of them and gives
+ * its value to the others. Constants are matched by their values, as are operators whose inputs are all constant, so
+ * that the two new constant vertices created by A.times(2) and A.times(2) match, as do A.times(5) and
+ * A.times(new ConstantDoubleVertex(2).plus(3)).</li>
+ * <li>Element-wise chains: a chain of element-wise operators where each operator's only child is the next operator is
+ * calculated as a whole, in a single pass, when the cascade reaches its last operator. See {@link ElementWiseChain}.
+ * Every operator of the chain is given its value in that pass.</li>
+ * </ul>
+ * The analysis is only used while both the edges and the values of the constants of the graph are unchanged. See
+ * {@link #isStale()}.
+ */
+public class GraphOptimisation {
+
+    //Each vertex that calculates the same value as an earlier vertex, mapped to that earlier vertex
+    private final Map<Vertex, Vertex> duplicateOf;
+
+    //The last operator of each element-wise chain, mapped to the chain
+    private final Map<Vertex, ElementWiseChain> chainEndingAt;
+    private final Set<Vertex> chainInteriors;
+
+    private final StructureStamp structureStamp;
+
+    //The constant vertices of the graph and the values they held when the analysis was made
+    private final Vertex[] constantVertices;
+    private final Object[] constantValues;
+
+    private GraphOptimisation(Map<Vertex, Vertex> duplicateOf,
+                              Map<Vertex, ElementWiseChain> chainEndingAt,
+                              Set<Vertex> chainInteriors,
+                              StructureStamp structureStamp,
+                              Vertex[] constantVertices) {
+        this.duplicateOf = duplicateOf;
+        this.chainEndingAt = chainEndingAt;
+        this.chainInteriors = chainInteriors;
+        this.structureStamp = structureStamp;
+        this.constantVertices = constantVertices;
+        this.constantValues = new Object[constantVertices.length];
+        for (int i = 0; i < constantVertices.length; i++) {
+            constantValues[i] = constantVertices[i].getValue();
+        }
+    }
+
+    /**
+     * @param vertices the vertices of the graph to analyse
+     * @return an analysis of the graph
+     */
+    public static GraphOptimisation of(Collection<? extends Vertex> vertices) {
+        StructureStamp structureStamp = StructureStamp.of(vertices);
+
+        List<Vertex> ordered = new ArrayList<>(vertices);
+        ordered.sort(Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
+
+        Set<Vertex> constants = findConstants(ordered);
+        Map<Vertex, Vertex> duplicateOf = findDuplicates(ordered, constants);
+
+        Set<Vertex> canonicals = new HashSet<>(duplicateOf.values());
+
+        //Each operator that continues a chain, mapped to the operator before it
+        Map<Vertex, Vertex> previousInChain = new HashMap<>();
+        Set<Vertex> chainInteriors = new HashSet<>();
+
+        for (Vertex<?> vertex : ordered) {
+            if (!isChainable(vertex, constants, duplicateOf, canonicals)) {
+                continue;
+            }
+
+            boolean isInChain = previousInChain.containsKey(vertex) || ElementWiseChain.canStart(vertex);
+            Set<? extends Vertex> children = vertex.getChildren();
+            if (!isInChain || children.size() != 1) {
+                continue;
+            }
+
+            Vertex<?> child = children.iterator().next();
+            if (isChainable(child, constants, duplicateOf, canonicals) &&
+                !previousInChain.containsKey(child) &&
+                ElementWiseChain.canFollow(child, vertex)) {
+
+                chainInteriors.add(vertex);
+                previousInChain.put(child, vertex);
+            }
+        }
+
+        Map<Vertex, ElementWiseChain> chainEndingAt = new HashMap<>();
+        for (Vertex vertex : ordered) {
+            if (previousInChain.containsKey(vertex) && !chainInteriors.contains(vertex)) {
+                chainEndingAt.put(vertex, chainEndingAt(vertex, previousInChain));
+            }
+        }
+
+        Vertex[] constantVertices = constants.stream()
+            .filter(vertex -> vertex instanceof ConstantVertex)
+            .toArray(Vertex[]::new);
+
+        return new GraphOptimisation(duplicateOf, chainEndingAt, chainInteriors, structureStamp, constantVertices);
+    }
+
+    /**
+     * @return true if an edge has been added or removed in the graph, or a constant has been set, since this analysis
+     * was made
+     */
+    public boolean isStale() {
+        if (structureStamp.isStale()) {
+            return true;
+        }
+        for (int i = 0; i < constantVertices.length; i++) {
+            if (constantVertices[i].getValue() != constantValues[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param vertex a vertex of the graph
+     * @return the earlier vertex that calculates the same value as the vertex, or null if there is none
+     */
+    public Vertex<?> getDuplicateOf(Vertex<?> vertex) {
+        return duplicateOf.get(vertex);
+    }
+
+    /**
+     * @param vertex a vertex of the graph
+     * @return the element-wise chain that ends at the vertex, or null if no chain ends at the vertex
+     */
+    public ElementWiseChain getChainEndingAt(Vertex<?> vertex) {
+        return chainEndingAt.get(vertex);
+    }
+
+    /**
+     * @param vertex a vertex of the graph
+     * @return true if the vertex is in an element-wise chain and is not the last operator of it
+     */
+    public boolean isChainInterior(Vertex<?> vertex) {
+        return chainInteriors.contains(vertex);
+    }
+
+    public int getDuplicateCount() {
+        return duplicateOf.size();
+    }
+
+    public int getChainInteriorCount() {
+        return chainInteriors.size();
+    }
+
+    /**
+     * @return the constants and the operators whose inputs are all constant, which are matched by their values
+     */
+    private static Set<Vertex> findConstants(List<Vertex> ordered) {
+        Set<Vertex> constants = new HashSet<>();
+
+        for (Vertex<?> vertex : ordered) {
+            if (vertex.isProbabilistic() || vertex.isObserved()) {
+                continue;
+            }
+
+            boolean isConstant = vertex instanceof ConstantVertex ||
+                (isOperator(vertex) && vertex.getParents().stream().allMatch(parent -> isConstant(parent, constants)));
+
+            if (isConstant) {
+                vertex.getValue();
+                constants.add(vertex);
+            }
+        }
+
+        return constants;
+    }
+
+    private static boolean isConstant(Vertex<?> vertex, Set<Vertex> constants) {
+        return constants.contains(vertex) || (vertex instanceof ConstantVertex && !vertex.isProbabilistic());
+    }
+
+    /**
+     * Matches each vertex against the vertices before it, in topological order so that a vertex's inputs have been
+     * matched before it is.
+     */
+    private static Map<Vertex, Vertex> findDuplicates(List<Vertex> ordered, Set<Vertex> constants) {
+        Map<Object, Vertex> vertexWithKey = new HashMap<>();
+        Map<Vertex, Vertex> matchOf = new HashMap<>();
+        Map<Vertex, Vertex> duplicateOf = new HashMap<>();
+        Map<Class<?>, List<Method>> paramGetters = new HashMap<>();
+
+        for (Vertex<?> vertex : ordered) {
+            Object key;
+            if (constants.contains(vertex)) {
+                key = valueKey(vertex.getValue());
+            } else if (isOperator(vertex) && !vertex.isObserved()) {
+                key = operatorKey(vertex, matchOf, paramGetters);
+            } else {
+                key = null;
+            }
+
+            if (key == null) {
+                continue;
+            }
+
+            Vertex match = vertexWithKey.putIfAbsent(key, vertex);
+            if (match != null) {
+                matchOf.put(vertex, match);
+                if (!constants.contains(vertex)) {
+                    duplicateOf.put(vertex, match);
+                }
+            }
+        }
+
+        return duplicateOf;
+    }
+
+    /**
+     * @return a key that is equal for operators of the same class whose parameters are equal, once any vertices among
+     * them have been replaced by the vertices they match, or null if the vertex's parameters cannot be found
+     */
+    private static Object operatorKey(Vertex<?> vertex, Map<Vertex, Vertex> matchOf, Map<Class<?>, List<Method>> paramGetters) {
+        List<Method> getters = paramGetters.computeIfAbsent(vertex.getClass(), GraphOptimisation::getParamGetters);
+        if (getters.isEmpty()) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<>(getters.size() + 1);
+        key.add(vertex.getClass());
+
+        for (Method getter : getters) {
+            Object param;
+            try {
+                param = getter.invoke(vertex);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+
+            if (param instanceof Vertex) {
+                key.add(matchOf.getOrDefault(param, (Vertex) param));
+            } else if (param instanceof Tensor) {
+                Object tensorKey = valueKey(param);
+                key.add(tensorKey == null ? new IdentityKey(param) : tensorKey);
+            } else if (param != null && param.getClass().isArray()) {
+                key.add(Arrays.deepToString(new Object[]{param}));
+            } else {
+                key.add(param);
+            }
+        }
+
+        return key;
+    }
+
+    private static List<Method> getParamGetters(Class<?> vertexClass) {
+        List<Method> getters = new ArrayList<>();
+        for (Method method : vertexClass.getMethods()) {
+            if (method.getAnnotation(SaveVertexParam.class) != null && method.getParameterCount() == 0) {
+                getters.add(method);
+            }
+        }
+        getters.sort(Comparator.comparing(method -> method.getAnnotation(SaveVertexParam.class).value()));
+        return getters;
+    }
+
+    /**
+     * @return a key that is equal for tensors of the same type with the same shape and values, or null for values
+     * that are not tensors
+     */
+    private static Object valueKey(Object value) {
+        if (value instanceof DoubleTensor || value instanceof IntegerTensor || value instanceof BooleanTensor) {
+            Tensor<?> tensor = (Tensor<?>) value;
+            return new TensorKey(tensorType(tensor), tensor.getShape(), tensor.asFlatDoubleArray());
+        }
+        return null;
+    }
+
+    private static Class<?> tensorType(Tensor<?> tensor) {
+        if (tensor instanceof DoubleTensor) {
+            return DoubleTensor.class;
+        } else if (tensor instanceof IntegerTensor) {
+            return IntegerTensor.class;
+        } else {
+            return BooleanTensor.class;
+        }
+    }
+
+    /**
+     * Only the unary and binary operators, which calculate their value from their inputs and saved parameters alone,
+     * are matched. Lambdas cannot be saved and may hold functions that are not pure.
+     */
+    private static boolean isOperator(Vertex<?> vertex) {
+        boolean isUnaryOrBinaryOperator = vertex instanceof DoubleUnaryOpVertex ||
+            vertex instanceof DoubleBinaryOpVertex ||
+            vertex instanceof IntegerUnaryOpVertex ||
+            vertex instanceof IntegerBinaryOpVertex ||
+            vertex instanceof BooleanUnaryOpVertex ||
+            vertex instanceof BooleanBinaryOpVertex ||
+            vertex instanceof UnaryOpVertex ||
+            vertex instanceof BinaryOpVertex;
+
+        return isUnaryOrBinaryOperator && !(vertex instanceof NonSaveableVertex);
+    }
+
+    private static boolean isChainable(Vertex<?> vertex,
+                                       Set<Vertex> constants,
+                                       Map<Vertex, Vertex> duplicateOf,
+                                       Set<Vertex> canonicals) {
+        return vertex instanceof DoubleVertex &&
+            !vertex.isObserved() &&
+            !constants.contains(vertex) &&
+            !duplicateOf.containsKey(vertex) &&
+            !canonicals.contains(vertex);
+    }
+
+    private static ElementWiseChain chainEndingAt(Vertex last, Map<Vertex, Vertex> previousInChain) {
+        List<DoubleVertex> links = new ArrayList<>();
+
+        Vertex link = last;
+        while (link != null) {
+            links.add((DoubleVertex) link);
+            link = previousInChain.get(link);
+        }
+
+        Collections.reverse(links);
+        return ElementWiseChain.of(links);
+    }
+
+    private static class TensorKey {
+        private final Class<?> type;
+        private final long[] shape;
+        private final double[] values;
+
+        TensorKey(Class<?> type, long[] shape, double[] values) {
+            this.type = type;
+            this.shape = shape;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TensorKey)) {
+                return false;
+            }
+            TensorKey that = (TensorKey) o;
+            return type == that.type && Arrays.equals(shape, that.shape) && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * type.hashCode() + Arrays.hashCode(shape)) + Arrays.hashCode(values);
+        }
+    }
+
+    private static class IdentityKey {
+        private final Object value;
+
+        IdentityKey(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+}
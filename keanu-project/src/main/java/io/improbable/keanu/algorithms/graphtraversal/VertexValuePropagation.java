@@ -1,5 +1,6 @@
 package io.improbable.keanu.algorithms.graphtraversal;
 
+import io.improbable.keanu.vertices.EvaluationContext;
 import io.improbable.keanu.vertices.NonProbabilistic;
 import io.improbable.keanu.vertices.Vertex;
 
@@ -56,6 +57,16 @@ public class VertexValuePropagation {
         }
     }
 
+    /**
+     * Cascades updates to the values of vertices in a context, leaving the values outside of the context unchanged.
+     *
+     * @param context     the context that holds the updated values and that the cascaded values are written to
+     * @param cascadeFrom A collection that contains the vertices that have been updated.
+     */
+    public static void cascadeUpdate(EvaluationContext context, Collection<? extends Vertex> cascadeFrom) {
+        context.run(() -> cascadeUpdate(cascadeFrom));
+    }
+
     public static void eval(Vertex... vertices) {
         eval(Arrays.asList(vertices));
     }
@@ -87,6 +98,16 @@ public class VertexValuePropagation {
         }
     }
 
+    /**
+     * Evaluates vertices in a context, leaving the values outside of the context unchanged.
+     *
+     * @param context  the context to read the values of the vertices' ancestors from and write the results to
+     * @param vertices the vertices to evaluate
+     */
+    public static void eval(EvaluationContext context, Collection<? extends Vertex> vertices) {
+        context.run(() -> eval(vertices));
+    }
+
     private static Set<Vertex<?>> parentsThatAreNotCalculated(Set<Vertex<?>> calculated, Collection<Vertex> parents) {
         Set<Vertex<?>> notCalculatedParents = new HashSet<>();
         for (Vertex<?> next : parents) {
@@ -143,7 +164,7 @@ public class VertexValuePropagation {
         return stack;
     }
 
-    private static <T> void updateVertexValue(Vertex<T> vertex) {
+    static <T> void updateVertexValue(Vertex<T> vertex) {
         if (vertex.isProbabilistic()) {
             if (!vertex.hasValue()) {
                 vertex.setValue(vertex.sample());
@@ -1,12 +1,12 @@
 package io.improbable.keanu.algorithms.mcmc;
 
 import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.SampleColumns;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,9 +64,7 @@ public class MetropolisHastingsSampler implements SamplingAlgorithm {
     }
 
     private static <T> void addSampleForVariable(Variable<T, ?> variable, Map<VariableReference, List<?>> samples) {
-        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(variable.getReference(), v -> new ArrayList<T>());
-        T value = variable.getValue();
-        samplesForVariable.add(value);
+        SampleColumns.addSample(samples, variable.getReference(), variable.getValue());
     }
 
 }
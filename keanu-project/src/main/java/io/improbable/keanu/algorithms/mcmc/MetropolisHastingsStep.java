@@ -6,7 +6,7 @@ import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.mcmc.proposal.Proposal;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
-import lombok.Value;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Set;
@@ -22,6 +22,10 @@ public class MetropolisHastingsStep {
     private final ProposalRejectionStrategy rejectionStrategy;
     private final KeanuRandom random;
 
+    //Reused on every step so that stepping does not allocate a new proposal or result
+    private final Proposal reusableProposal = new Proposal();
+    private final StepResult stepResult = new StepResult();
+
     /**
      * @param proposalDistribution        The proposal distribution
      * @param rejectionStrategy           What to do when a proposal is rejected.
@@ -49,14 +53,15 @@ public class MetropolisHastingsStep {
      * @param logProbabilityBeforeStep The log of the previous state's probability
      * @param temperature              Temperature for simulated annealing. This
      *                                 should be constant if no annealing is wanted
-     * @return the log probability of the network after either accepting or rejecting the sample
+     * @return the log probability of the network after either accepting or rejecting the sample. The result is
+     * owned by this step and is overwritten by the next call to step.
      */
     public StepResult step(final Set<Variable> chosenVariables,
                            final double logProbabilityBeforeStep,
                            final double temperature) {
 
 
-        Proposal proposal = proposalDistribution.getProposal(chosenVariables, random);
+        Proposal proposal = proposalDistribution.getProposal(chosenVariables, random, reusableProposal);
         rejectionStrategy.onProposalCreated(proposal);
         final double logProbabilityAfterStep = model.logProbAfter(proposal.getProposalTo(), logProbabilityBeforeStep);
 
@@ -75,20 +80,29 @@ public class MetropolisHastingsStep {
             final boolean shouldAccept = r >= random.nextDouble();
 
             if (shouldAccept) {
-                return new StepResult(true, logProbabilityAfterStep);
+                return stepResult.set(true, logProbabilityAfterStep);
             }
         }
 
         proposalDistribution.onProposalRejected();
         rejectionStrategy.onProposalRejected(proposal);
 
-        return new StepResult(false, logProbabilityBeforeStep);
+        return stepResult.set(false, logProbabilityBeforeStep);
     }
 
-    @Value
+    /**
+     * The result of a step. The same instance is returned by every step so it is only valid until the next step.
+     */
+    @Getter
     static class StepResult {
-        boolean accepted;
-        double logProbabilityAfterStep;
+        private boolean accepted;
+        private double logProbabilityAfterStep;
+
+        private StepResult set(boolean accepted, double logProbabilityAfterStep) {
+            this.accepted = accepted;
+            this.logProbabilityAfterStep = logProbabilityAfterStep;
+            return this;
+        }
     }
 
 }
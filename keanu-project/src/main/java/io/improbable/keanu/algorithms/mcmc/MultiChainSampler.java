@@ -0,0 +1,202 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.MultiChainNetworkSamples;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.NetworkCopy;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs several independent MCMC chains concurrently. Each chain samples from its own deep copy of the network, so
+ * chains never share vertex state, and uses its own {@link KeanuRandom} split from the random of this sampler.
+ * The chains are merged into a {@link MultiChainNetworkSamples} that is keyed on the variables of the original network.
+ */
+@AllArgsConstructor
+public class MultiChainSampler {
+
+    private static final int DEFAULT_CHAIN_COUNT = 4;
+
+    @Getter
+    private int chainCount;
+
+    //The random that each chain's random is split from
+    @Getter
+    private KeanuRandom random;
+
+    //Creates the model that a chain samples from given that chain's copy of the network
+    @Getter
+    @NonNull
+    private Function<BayesianNetwork, ? extends KeanuProbabilisticModel> modelFactory;
+
+    //Creates the algorithm that a chain runs given that chain's model and random
+    @Getter
+    @NonNull
+    private BiFunction<KeanuProbabilisticModel, KeanuRandom, ? extends PosteriorSamplingAlgorithm> algorithmFactory;
+
+    //Runs the chains. If none is given then a fixed size pool is created for each call and shut down afterwards.
+    private ExecutorService executor;
+
+    @Getter
+    private int dropCount;
+
+    @Getter
+    private int downSampleInterval;
+
+    public static MultiChainSamplerBuilder builder() {
+        return new MultiChainSamplerBuilder();
+    }
+
+    public MultiChainNetworkSamples getPosteriorSamples(BayesianNetwork network, int sampleCount) {
+        return getPosteriorSamples(network, network.getLatentVertices(), sampleCount);
+    }
+
+    /**
+     * @param network               the network to sample from. It is copied once per chain and is not modified.
+     * @param variablesToSampleFrom variables of the network to include in the returned samples
+     * @param sampleCount           number of samples to take in each chain before dropping and down-sampling
+     * @return the samples of every chain, keyed on the variables of the given network
+     */
+    public MultiChainNetworkSamples getPosteriorSamples(BayesianNetwork network,
+                                                        List<? extends Variable> variablesToSampleFrom,
+                                                        int sampleCount) {
+        Preconditions.checkArgument(chainCount > 0, "Chain count of %s is invalid. At least one chain is required.", chainCount);
+
+        List<Callable<NetworkSamples>> chains = new ArrayList<>(chainCount);
+        for (int i = 0; i < chainCount; i++) {
+            chains.add(setupChain(network, variablesToSampleFrom, sampleCount, random.split()));
+        }
+
+        ExecutorService chainExecutor = executor != null ?
+            executor : Executors.newFixedThreadPool(Math.min(chainCount, Runtime.getRuntime().availableProcessors()));
+
+        try {
+            return new MultiChainNetworkSamples(runAll(chains, chainExecutor));
+        } finally {
+            if (executor == null) {
+                chainExecutor.shutdown();
+            }
+        }
+    }
+
+    private Callable<NetworkSamples> setupChain(BayesianNetwork network,
+                                                List<? extends Variable> variablesToSampleFrom,
+                                                int sampleCount,
+                                                KeanuRandom chainRandom) {
+
+        NetworkCopy copy = NetworkCopy.of(network);
+        KeanuProbabilisticModel model = modelFactory.apply(copy.getNetwork());
+        PosteriorSamplingAlgorithm algorithm = algorithmFactory.apply(model, chainRandom);
+
+        List<Vertex> chainVariables = variablesToSampleFrom.stream()
+            .map(variable -> copy.getCopyOf(variable.getReference()))
+            .collect(toList());
+
+        return () -> algorithm.generatePosteriorSamples(model, chainVariables)
+            .dropCount(dropCount)
+            .downSampleInterval(downSampleInterval)
+            .generate(sampleCount)
+            .withReferencesMapped(copy::getOriginalReference);
+    }
+
+    private static List<NetworkSamples> runAll(List<Callable<NetworkSamples>> chains, ExecutorService executor) {
+        List<Future<NetworkSamples>> futures = new ArrayList<>(chains.size());
+        for (Callable<NetworkSamples> chain : chains) {
+            futures.add(executor.submit(chain));
+        }
+
+        List<NetworkSamples> results = new ArrayList<>(chains.size());
+        try {
+            for (Future<NetworkSamples> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for chains to finish", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Chain failed", e.getCause());
+        }
+
+        return results;
+    }
+
+    public static class MultiChainSamplerBuilder {
+        private int chainCount = DEFAULT_CHAIN_COUNT;
+        private KeanuRandom random = KeanuRandom.getDefaultRandom();
+        private Function<BayesianNetwork, ? extends KeanuProbabilisticModel> modelFactory = KeanuProbabilisticModel::new;
+        private BiFunction<KeanuProbabilisticModel, KeanuRandom, ? extends PosteriorSamplingAlgorithm> algorithmFactory;
+        private ExecutorService executor = null;
+        private int dropCount = 0;
+        private int downSampleInterval = 1;
+
+        MultiChainSamplerBuilder() {
+        }
+
+        public MultiChainSamplerBuilder chainCount(int chainCount) {
+            this.chainCount = chainCount;
+            return this;
+        }
+
+        public MultiChainSamplerBuilder random(KeanuRandom random) {
+            this.random = random;
+            return this;
+        }
+
+        public MultiChainSamplerBuilder modelFactory(Function<BayesianNetwork, ? extends KeanuProbabilisticModel> modelFactory) {
+            this.modelFactory = modelFactory;
+            return this;
+        }
+
+        public MultiChainSamplerBuilder algorithmFactory(BiFunction<KeanuProbabilisticModel, KeanuRandom, ? extends PosteriorSamplingAlgorithm> algorithmFactory) {
+            this.algorithmFactory = algorithmFactory;
+            return this;
+        }
+
+        public MultiChainSamplerBuilder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MultiChainSamplerBuilder dropCount(int dropCount) {
+            this.dropCount = dropCount;
+            return this;
+        }
+
+        public MultiChainSamplerBuilder downSampleInterval(int downSampleInterval) {
+            this.downSampleInterval = downSampleInterval;
+            return this;
+        }
+
+        public MultiChainSampler build() {
+            return new MultiChainSampler(chainCount, random, modelFactory, algorithmFactory, executor, dropCount, downSampleInterval);
+        }
+
+        public String toString() {
+            return "MultiChainSampler.MultiChainSamplerBuilder(chainCount=" + this.chainCount + ", random=" + this.random + ", modelFactory=" + this.modelFactory + ", algorithmFactory=" + this.algorithmFactory + ", executor=" + this.executor + ", dropCount=" + this.dropCount + ", downSampleInterval=" + this.downSampleInterval + ")";
+        }
+    }
+}
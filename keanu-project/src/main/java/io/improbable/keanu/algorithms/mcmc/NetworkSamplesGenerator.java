@@ -4,6 +4,7 @@ import com.google.common.base.Preconditions;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.NetworkSamples;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.sink.SampleSink;
 import io.improbable.keanu.util.status.PercentageComponent;
 import io.improbable.keanu.util.status.RemainingTimeComponent;
 import io.improbable.keanu.util.status.StatusBar;
@@ -79,6 +80,30 @@ public class NetworkSamplesGenerator {
      * @return Samples after dropping and down-sampling.
      */
     public NetworkSamples generate(final int totalSampleCount) {
+        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+        List<Double> logOfMasterPForEachSample = new ArrayList<>();
+
+        int sampleCount = takeSamples(totalSampleCount, () -> algorithm.sample(samplesByVariable, logOfMasterPForEachSample));
+
+        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, sampleCount);
+    }
+
+    /**
+     * Generates samples in the same way as {@link #generate(int)} but passes each one to a sink as it is taken rather
+     * than keeping them all in memory.
+     *
+     * @param totalSampleCount The total number of samples to generate, before any dropping or down-sampling is done.
+     * @param sink             The sink to pass the samples to after dropping and down-sampling.
+     * @param <S>              The type of the sink
+     * @return the sink, after it has been finished
+     */
+    public <S extends SampleSink> S generate(final int totalSampleCount, final S sink) {
+        takeSamples(totalSampleCount, () -> sink.accept(algorithm.sample()));
+        sink.finish();
+        return sink;
+    }
+
+    private int takeSamples(final int totalSampleCount, final Runnable takeSample) {
         Preconditions.checkArgument(dropCount < totalSampleCount,
             "Cannot drop more samples than requested or all of the samples. Samples requested %s and dropping %s",
             totalSampleCount, dropCount
@@ -86,9 +111,6 @@ public class NetworkSamplesGenerator {
 
         StatusBar statusBar = statusBarSupplier.get();
 
-        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
-        List<Double> logOfMasterPForEachSample = new ArrayList<>();
-
         dropSamples(dropCount, statusBar);
 
         PercentageComponent statusPercentage = newPercentageComponentAndAddToStatusBar(statusBar);
@@ -99,7 +121,7 @@ public class NetworkSamplesGenerator {
         int samplesLeft = totalSampleCount - dropCount;
         for (int i = 0; i < samplesLeft; i++) {
             if (i % downSampleInterval == 0) {
-                algorithm.sample(samplesByVariable, logOfMasterPForEachSample);
+                takeSample.run();
                 sampleCount++;
             } else {
                 algorithm.step();
@@ -109,7 +131,7 @@ public class NetworkSamplesGenerator {
         }
 
         statusBar.finish();
-        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, sampleCount);
+        return sampleCount;
     }
 
     private PercentageComponent newPercentageComponentAndAddToStatusBar(StatusBar statusBar) {
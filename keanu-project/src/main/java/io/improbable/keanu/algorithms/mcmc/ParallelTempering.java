@@ -0,0 +1,229 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
+import io.improbable.keanu.algorithms.mcmc.proposal.PriorProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.NetworkCopy;
+import io.improbable.keanu.util.status.StatusBar;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import static io.improbable.keanu.algorithms.ParallelWork.newDaemonThreadPool;
+import static io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector.SINGLE_VARIABLE_SELECTOR;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Parallel tempering, also known as replica exchange, runs a Metropolis Hastings chain at each of a ladder of
+ * temperatures. A chain at temperature T samples from the posterior raised to the power 1/T, so the hotter chains move
+ * freely between modes that the chain at T = 1 would rarely leave. Neighbouring chains periodically try to swap
+ * states, which lets the states found by the hot chains reach the chain at T = 1. Only the chain at T = 1 is sampled.
+ * <p>
+ * Each chain runs on its own copy of the model, on its own thread, between swaps. The temperatures adapt so that swaps
+ * between every pair of neighbours are accepted at the same rate. See {@link TemperatureLadder}.
+ */
+@AllArgsConstructor
+public class ParallelTempering implements PosteriorSamplingAlgorithm {
+
+    private static final MHStepVariableSelector DEFAULT_VARIABLE_SELECTOR = SINGLE_VARIABLE_SELECTOR;
+
+    public static ParallelTemperingBuilder builder() {
+        return new ParallelTemperingBuilder();
+    }
+
+    @Getter
+    private KeanuRandom random;
+
+    //Creates the proposal distribution of each chain from the latent vertices of that chain's copy of the model
+    @Getter
+    private Function<List<Vertex>, ProposalDistribution> proposalDistributionFactory;
+
+    @Getter
+    private MHStepVariableSelector variableSelector;
+
+    //The number of chains, including the chain at T = 1
+    @Getter
+    private int replicaCount;
+
+    //The temperature of the hottest chain
+    @Getter
+    private double maxTemperature;
+
+    //The number of steps each chain takes between attempts to swap states
+    @Getter
+    private int swapInterval;
+
+    //The number of rounds of swaps that the temperatures adapt over, after which they are fixed
+    @Getter
+    private int adaptationRounds;
+
+    //The number of threads to run the chains on, including the calling thread
+    @Getter
+    private int threadCount;
+
+    /**
+     * @param model                 a probabilistic model containing latent variables. It must be a
+     *                              {@link KeanuProbabilisticModel} that can be copied for each chain.
+     * @param variablesToSampleFrom the variables to include in the returned samples
+     * @param sampleCount           number of samples to take using the algorithm
+     * @return Samples of the chain at T = 1 for each variable ordered by MCMC iteration
+     */
+    @Override
+    public NetworkSamples getPosteriorSamples(ProbabilisticModel model,
+                                              List<? extends Variable> variablesToSampleFrom,
+                                              int sampleCount) {
+        return generatePosteriorSamples(model, variablesToSampleFrom).generate(sampleCount);
+    }
+
+    @Override
+    public NetworkSamplesGenerator generatePosteriorSamples(final ProbabilisticModel model,
+                                                            final List<? extends Variable> variablesToSampleFrom) {
+        return new NetworkSamplesGenerator(setupSampler(model, variablesToSampleFrom), StatusBar::new);
+    }
+
+    private SamplingAlgorithm setupSampler(final ProbabilisticModel model,
+                                           final List<? extends Variable> variablesToSampleFrom) {
+
+        Preconditions.checkArgument(
+            model instanceof KeanuProbabilisticModel,
+            "Parallel tempering requires a KeanuProbabilisticModel so that it can be copied for each chain."
+        );
+        Preconditions.checkArgument(replicaCount > 0, "Replica count of %s is invalid. At least one replica is required.", replicaCount);
+        Preconditions.checkArgument(maxTemperature > 1.0, "Max temperature of %s is invalid. It must be greater than 1.", maxTemperature);
+        Preconditions.checkArgument(swapInterval > 0, "Swap interval of %s is invalid. It must be at least 1.", swapInterval);
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. At least one thread is required.", threadCount);
+
+        KeanuProbabilisticModel keanuModel = (KeanuProbabilisticModel) model;
+        List<VariableReference> references = variablesToSampleFrom.stream().map(Variable::getReference).collect(toList());
+
+        List<ParallelTemperingSampler.Replica> replicas = new ArrayList<>(replicaCount);
+        replicas.add(createReplica(keanuModel, variablesToSampleFrom, references));
+
+        for (int i = 1; i < replicaCount; i++) {
+            NetworkCopy copy = NetworkCopy.of(new BayesianNetwork(keanuModel.getLatentOrObservedVertices()));
+            List<Vertex> copiedVariablesToSampleFrom = references.stream()
+                .map(reference -> (Vertex) copy.getCopyOf(reference))
+                .collect(toList());
+
+            replicas.add(createReplica(new KeanuProbabilisticModel(copy.getNetwork()), copiedVariablesToSampleFrom, references));
+        }
+
+        int threads = Math.min(threadCount, replicaCount);
+        ExecutorService executor = threads > 1 ? newDaemonThreadPool(threads - 1) : null;
+
+        return new ParallelTemperingSampler(
+            replicas,
+            new TemperatureLadder(replicaCount, maxTemperature, adaptationRounds),
+            executor,
+            random,
+            swapInterval
+        );
+    }
+
+    private ParallelTemperingSampler.Replica createReplica(KeanuProbabilisticModel model,
+                                                           List<? extends Variable> variablesToSampleFrom,
+                                                           List<VariableReference> originalReferences) {
+        List<Vertex> latentVertices = model.getLatentVertices();
+
+        MetropolisHastingsStep mhStep = new MetropolisHastingsStep(
+            model,
+            proposalDistributionFactory.apply(latentVertices),
+            new RollBackToCachedValuesOnRejection(latentVertices),
+            random.split()
+        );
+
+        return new ParallelTemperingSampler.Replica(
+            model.getLatentVariables(),
+            mhStep,
+            variableSelector,
+            variablesToSampleFrom,
+            originalReferences,
+            model.logProb()
+        );
+    }
+
+    public static class ParallelTemperingBuilder {
+        private KeanuRandom random = KeanuRandom.getDefaultRandom();
+        private Function<List<Vertex>, ProposalDistribution> proposalDistributionFactory = PriorProposalDistribution::new;
+        private MHStepVariableSelector variableSelector = DEFAULT_VARIABLE_SELECTOR;
+        private int replicaCount = 4;
+        private double maxTemperature = 50.0;
+        private int swapInterval = 10;
+        private int adaptationRounds = 1000;
+        private int threadCount = Runtime.getRuntime().availableProcessors();
+
+        ParallelTemperingBuilder() {
+        }
+
+        public ParallelTemperingBuilder random(KeanuRandom random) {
+            this.random = random;
+            return this;
+        }
+
+        public ParallelTemperingBuilder proposalDistributionFactory(Function<List<Vertex>, ProposalDistribution> proposalDistributionFactory) {
+            this.proposalDistributionFactory = proposalDistributionFactory;
+            return this;
+        }
+
+        public ParallelTemperingBuilder variableSelector(MHStepVariableSelector variableSelector) {
+            this.variableSelector = variableSelector;
+            return this;
+        }
+
+        public ParallelTemperingBuilder replicaCount(int replicaCount) {
+            this.replicaCount = replicaCount;
+            return this;
+        }
+
+        public ParallelTemperingBuilder maxTemperature(double maxTemperature) {
+            this.maxTemperature = maxTemperature;
+            return this;
+        }
+
+        public ParallelTemperingBuilder swapInterval(int swapInterval) {
+            this.swapInterval = swapInterval;
+            return this;
+        }
+
+        public ParallelTemperingBuilder adaptationRounds(int adaptationRounds) {
+            this.adaptationRounds = adaptationRounds;
+            return this;
+        }
+
+        public ParallelTemperingBuilder threadCount(int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public ParallelTempering build() {
+            return new ParallelTempering(
+                random,
+                proposalDistributionFactory,
+                variableSelector,
+                replicaCount,
+                maxTemperature,
+                swapInterval,
+                adaptationRounds,
+                threadCount
+            );
+        }
+
+        public String toString() {
+            return "ParallelTempering.ParallelTemperingBuilder(random=" + this.random + ", proposalDistributionFactory=" + this.proposalDistributionFactory + ", variableSelector=" + this.variableSelector + ", replicaCount=" + this.replicaCount + ", maxTemperature=" + this.maxTemperature + ", swapInterval=" + this.swapInterval + ", adaptationRounds=" + this.adaptationRounds + ", threadCount=" + this.threadCount + ")";
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.SampleColumns;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.improbable.keanu.algorithms.ParallelWork.awaitAll;
+
+/**
+ * Runs a replica of the model at each rung of a temperature ladder. In each round every replica takes swapInterval
+ * Metropolis Hastings steps at its rung's temperature, the replicas running at the same time, and then swaps of rungs
+ * between neighbouring replicas are attempted. Only the states of the replica on the coldest rung are returned.
+ */
+class ParallelTemperingSampler implements SamplingAlgorithm {
+
+    private final List<Replica> replicas;
+    private final TemperatureLadder ladder;
+    private final ExecutorService executor;
+    private final KeanuRandom random;
+    private final int swapInterval;
+
+    //The replica on each rung of the ladder
+    private final int[] replicaOnRung;
+
+    //The states of the coldest replica during the last round, keyed by the references of the original model
+    private final List<Map<VariableReference, Object>> coldStates;
+    private final double[] coldLogProbs;
+    private int nextColdState;
+
+    ParallelTemperingSampler(List<Replica> replicas,
+                             TemperatureLadder ladder,
+                             ExecutorService executor,
+                             KeanuRandom random,
+                             int swapInterval) {
+        this.replicas = replicas;
+        this.ladder = ladder;
+        this.executor = executor;
+        this.random = random;
+        this.swapInterval = swapInterval;
+        this.replicaOnRung = new int[replicas.size()];
+        for (int i = 0; i < replicaOnRung.length; i++) {
+            replicaOnRung[i] = i;
+        }
+        this.coldStates = new ArrayList<>(swapInterval);
+        this.coldLogProbs = new double[swapInterval];
+        this.nextColdState = swapInterval;
+    }
+
+    TemperatureLadder getLadder() {
+        return ladder;
+    }
+
+    @Override
+    public void step() {
+        if (nextColdState == swapInterval) {
+            runRound();
+            attemptSwaps();
+            ladder.onRoundFinished();
+            nextColdState = 0;
+        }
+        nextColdState++;
+    }
+
+    @Override
+    public void sample(Map<VariableReference, List<?>> samples, List<Double> logOfMasterPForEachSample) {
+        step();
+        for (Map.Entry<VariableReference, Object> value : coldStates.get(nextColdState - 1).entrySet()) {
+            SampleColumns.addSample(samples, value.getKey(), value.getValue());
+        }
+        logOfMasterPForEachSample.add(coldLogProbs[nextColdState - 1]);
+    }
+
+    @Override
+    public NetworkSample sample() {
+        step();
+        return new NetworkSample(coldStates.get(nextColdState - 1), coldLogProbs[nextColdState - 1]);
+    }
+
+    /**
+     * The coldest replica runs on the calling thread while the others run on the executor, if there is one.
+     */
+    private void runRound() {
+        List<Future<?>> futures = new ArrayList<>(replicas.size() - 1);
+        for (int rung = 1; rung < replicas.size(); rung++) {
+            Replica replica = replicas.get(replicaOnRung[rung]);
+            double temperature = ladder.getTemperature(rung);
+            if (executor == null) {
+                replica.run(swapInterval, temperature, null, null);
+            } else {
+                futures.add(executor.submit(() -> replica.run(swapInterval, temperature, null, null)));
+            }
+        }
+
+        coldStates.clear();
+        Replica coldReplica = replicas.get(replicaOnRung[0]);
+        coldReplica.run(swapInterval, ladder.getTemperature(0), coldStates, coldLogProbs);
+
+        awaitAll(futures, "replica steps");
+    }
+
+    /**
+     * Attempts a swap between each pair of neighbouring rungs, from the coldest pair upwards, accepting it with the
+     * probability that keeps every replica's tempered distribution invariant.
+     */
+    private void attemptSwaps() {
+        for (int lowerRung = 0; lowerRung < replicaOnRung.length - 1; lowerRung++) {
+            Replica lower = replicas.get(replicaOnRung[lowerRung]);
+            Replica upper = replicas.get(replicaOnRung[lowerRung + 1]);
+
+            double lowerInverseTemperature = 1.0 / ladder.getTemperature(lowerRung);
+            double upperInverseTemperature = 1.0 / ladder.getTemperature(lowerRung + 1);
+            double logR = (lowerInverseTemperature - upperInverseTemperature) * (upper.getLogProb() - lower.getLogProb());
+
+            double acceptanceProbability = Double.isNaN(logR) ? 0.0 : Math.min(1.0, Math.exp(logR));
+            ladder.onSwapAttempted(lowerRung, acceptanceProbability);
+
+            if (acceptanceProbability >= random.nextDouble()) {
+                int swap = replicaOnRung[lowerRung];
+                replicaOnRung[lowerRung] = replicaOnRung[lowerRung + 1];
+                replicaOnRung[lowerRung + 1] = swap;
+            }
+        }
+    }
+
+    /**
+     * A Metropolis Hastings chain on its own copy of the model.
+     */
+    static class Replica {
+
+        private final List<? extends Variable> latentVariables;
+        private final MetropolisHastingsStep mhStep;
+        private final MHStepVariableSelector variableSelector;
+
+        //The variables of this replica's model to sample from and the references of the original model they are
+        //copies of, in the same order
+        private final List<? extends Variable> variablesToSampleFrom;
+        private final List<VariableReference> originalReferences;
+
+        private double logProb;
+        private int sampleNum;
+
+        Replica(List<? extends Variable> latentVariables,
+                MetropolisHastingsStep mhStep,
+                MHStepVariableSelector variableSelector,
+                List<? extends Variable> variablesToSampleFrom,
+                List<VariableReference> originalReferences,
+                double logProb) {
+            this.latentVariables = latentVariables;
+            this.mhStep = mhStep;
+            this.variableSelector = variableSelector;
+            this.variablesToSampleFrom = variablesToSampleFrom;
+            this.originalReferences = originalReferences;
+            this.logProb = logProb;
+        }
+
+        double getLogProb() {
+            return logProb;
+        }
+
+        /**
+         * @param stepCount   the number of steps to take
+         * @param temperature the temperature to take the steps at
+         * @param states      if not null then the state after each step is added to this
+         * @param logProbs    if states is not null then the log prob after each step is written to this
+         */
+        void run(int stepCount, double temperature, List<Map<VariableReference, Object>> states, double[] logProbs) {
+            for (int i = 0; i < stepCount; i++) {
+                Set<Variable> chosenVariables = variableSelector.select(latentVariables, sampleNum);
+                logProb = mhStep.step(chosenVariables, logProb, temperature).getLogProbabilityAfterStep();
+                sampleNum++;
+
+                if (states != null) {
+                    Map<VariableReference, Object> state = new HashMap<>();
+                    for (int v = 0; v < variablesToSampleFrom.size(); v++) {
+                        state.put(originalReferences.get(v), variablesToSampleFrom.get(v).getValue());
+                    }
+                    states.add(state);
+                    logProbs[i] = logProb;
+                }
+            }
+        }
+    }
+}
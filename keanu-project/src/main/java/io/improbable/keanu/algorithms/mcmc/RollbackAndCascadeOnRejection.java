@@ -2,7 +2,7 @@ package io.improbable.keanu.algorithms.mcmc;
 
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
-import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.algorithms.graphtraversal.CascadeScheduleCache;
 import io.improbable.keanu.algorithms.mcmc.proposal.Proposal;
 import io.improbable.keanu.vertices.Vertex;
 
@@ -18,8 +18,9 @@ import java.util.stream.Collectors;
  */
 public class RollbackAndCascadeOnRejection implements ProposalRejectionStrategy {
 
-    private Map<Vertex, Object> fromValues;
+    private final Map<Vertex, Object> fromValues = new HashMap<>();
     private final Map<VariableReference, Vertex> vertexLookup;
+    private final CascadeScheduleCache cascadeScheduleCache = new CascadeScheduleCache();
 
     public RollbackAndCascadeOnRejection(Collection<Vertex> vertices) {
         vertexLookup = vertices.stream().collect(Collectors.toMap(Variable::getReference, v -> v));
@@ -28,7 +29,7 @@ public class RollbackAndCascadeOnRejection implements ProposalRejectionStrategy
     @Override
     public void onProposalCreated(Proposal proposal) {
 
-        fromValues = new HashMap<>();
+        fromValues.clear();
         for (Variable variable : proposal.getVariablesWithProposal()) {
             fromValues.put(vertexLookup.get(variable.getReference()), variable.getValue());
         }
@@ -42,6 +43,6 @@ public class RollbackAndCascadeOnRejection implements ProposalRejectionStrategy
             Vertex vertex = entry.getKey();
             vertex.setValue(oldValue);
         }
-        VertexValuePropagation.cascadeUpdate(fromValues.keySet());
+        cascadeScheduleCache.cascadeUpdate(fromValues.keySet());
     }
 }
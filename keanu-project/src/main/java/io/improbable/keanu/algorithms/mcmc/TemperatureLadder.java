@@ -0,0 +1,112 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import java.util.Arrays;
+
+/**
+ * The temperatures of the rungs of a parallel tempering ladder, from 1 at the coldest rung to a fixed maximum at the
+ * hottest rung.
+ * <p>
+ * The gaps between neighbouring rungs adapt so that swaps between every pair of neighbours are accepted at the same
+ * rate. A gap grows when its swaps are accepted more often than the mean over all pairs and shrinks when they are
+ * accepted less often. The size of each change decays with the number of swap rounds, and the ladder is fixed after
+ * the given number of rounds so that the chains it is used for remain Markov from then on.
+ * <p>
+ * Adaptive parallel tempering algorithm, Vousden, Farr and Mandel, https://arxiv.org/pdf/1501.05823.pdf
+ */
+class TemperatureLadder {
+
+    private static final double INITIAL_ADAPTATION_RATE = 0.1;
+    private static final double ADAPTATION_LAG = 100;
+
+    private final double[] temperatures;
+
+    //The log of the ratio of each rung's temperature to the temperature of the rung below it
+    private final double[] logRatios;
+
+    private final double logMaxTemperature;
+    private final int adaptationRounds;
+
+    private final double[] acceptanceInRound;
+    private final long[] swapAttempts;
+    private final double[] swapAcceptances;
+    private int round;
+
+    /**
+     * @param rungCount        the number of rungs
+     * @param maxTemperature   the temperature of the hottest rung. The rungs start evenly spaced in log temperature
+     *                         between 1 and this.
+     * @param adaptationRounds the number of swap rounds to adapt the ladder over
+     */
+    TemperatureLadder(int rungCount, double maxTemperature, int adaptationRounds) {
+        this.temperatures = new double[rungCount];
+        this.logRatios = new double[Math.max(0, rungCount - 1)];
+        this.logMaxTemperature = Math.log(maxTemperature);
+        this.adaptationRounds = adaptationRounds;
+        this.acceptanceInRound = new double[logRatios.length];
+        this.swapAttempts = new long[logRatios.length];
+        this.swapAcceptances = new double[logRatios.length];
+
+        for (int i = 0; i < logRatios.length; i++) {
+            logRatios[i] = logMaxTemperature / logRatios.length;
+        }
+        updateTemperatures();
+    }
+
+    int getRungCount() {
+        return temperatures.length;
+    }
+
+    double getTemperature(int rung) {
+        return temperatures[rung];
+    }
+
+    /**
+     * @param lowerRung the colder rung of a pair of neighbouring rungs
+     * @return the mean probability of accepting a swap between the rung and the rung above it
+     */
+    double getSwapAcceptanceRate(int lowerRung) {
+        return swapAttempts[lowerRung] == 0 ? 0.0 : swapAcceptances[lowerRung] / swapAttempts[lowerRung];
+    }
+
+    /**
+     * @param lowerRung             the colder rung of the pair whose states a swap was attempted between
+     * @param acceptanceProbability the probability that the swap was accepted with
+     */
+    void onSwapAttempted(int lowerRung, double acceptanceProbability) {
+        acceptanceInRound[lowerRung] = acceptanceProbability;
+        swapAttempts[lowerRung]++;
+        swapAcceptances[lowerRung] += acceptanceProbability;
+    }
+
+    /**
+     * Adapts the ladder to the swaps attempted in the round that has just finished.
+     */
+    void onRoundFinished() {
+        if (round < adaptationRounds && logRatios.length > 1) {
+            double rate = INITIAL_ADAPTATION_RATE * ADAPTATION_LAG / (round + ADAPTATION_LAG);
+            double meanAcceptance = Arrays.stream(acceptanceInRound).average().orElse(0.0);
+
+            double sumOfLogRatios = 0.0;
+            for (int i = 0; i < logRatios.length; i++) {
+                logRatios[i] *= Math.exp(rate * (acceptanceInRound[i] - meanAcceptance));
+                sumOfLogRatios += logRatios[i];
+            }
+
+            //Keep the hottest rung at the max temperature
+            for (int i = 0; i < logRatios.length; i++) {
+                logRatios[i] *= logMaxTemperature / sumOfLogRatios;
+            }
+            updateTemperatures();
+        }
+        round++;
+    }
+
+    private void updateTemperatures() {
+        temperatures[0] = 1.0;
+        double logTemperature = 0.0;
+        for (int i = 0; i < logRatios.length; i++) {
+            logTemperature += logRatios[i];
+            temperatures[i + 1] = Math.exp(logTemperature);
+        }
+    }
+}
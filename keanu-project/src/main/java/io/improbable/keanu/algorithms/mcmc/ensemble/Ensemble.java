@@ -0,0 +1,226 @@
+package io.improbable.keanu.algorithms.mcmc.ensemble;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.NetworkCopy;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.util.status.StatusBar;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static io.improbable.keanu.algorithms.ParallelWork.newDaemonThreadPool;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The affine-invariant ensemble sampler of Goodman and Weare, using the stretch move.
+ * Ensemble Samplers With Affine Invariance
+ * https://msp.org/camcos/2010/5-1/camcos-v5-n1-p04-s.pdf
+ * <p>
+ * An ensemble of walkers is moved together, each one stretched towards or away from another walker. It needs no
+ * gradients and no tuning of a proposal distribution but it can only sample continuous latent variables.
+ * <p>
+ * The walkers are moved in two halves. The log probs of the proposals of a half are evaluated in parallel, each
+ * thread evaluating a batch of proposals on its own copy of the model. Every sample is the position of one walker and
+ * the walkers are visited in turn, so the ensemble is moved once for every walkerCount samples.
+ */
+@Slf4j
+@AllArgsConstructor
+public class Ensemble implements PosteriorSamplingAlgorithm {
+
+    private static final double DEFAULT_STRETCH_SCALE = 2.0;
+    private static final double DEFAULT_INITIAL_SPREAD = 1e-3;
+
+    public static EnsembleBuilder builder() {
+        return new EnsembleBuilder();
+    }
+
+    @Getter
+    private KeanuRandom random;
+
+    //The number of walkers, which must be even and at least twice the number of latent dimensions.
+    //If zero then twice the number of latent dimensions is used, with a minimum of four walkers.
+    @Getter
+    private int walkerCount;
+
+    //The largest factor that a walker can be stretched by towards or away from another walker
+    @Getter
+    private double stretchScale;
+
+    //The standard deviation of the Gaussian noise added to the starting values of the latents to spread the walkers
+    @Getter
+    private double initialSpread;
+
+    //The number of threads to evaluate the log probs of proposals on. Only a KeanuProbabilisticModel can be copied
+    //for each thread, so any other model is always evaluated on the calling thread.
+    @Getter
+    private int threadCount;
+
+    //Runs the evaluations on all but the calling thread. If none is given then a pool of daemon threads is created.
+    private ExecutorService executor;
+
+    /**
+     * @param model                 a probabilistic model containing continuous latent variables
+     * @param variablesToSampleFrom the variables to include in the returned samples
+     * @param sampleCount           number of samples to take using the algorithm
+     * @return Samples for each variable ordered by walker and then by ensemble step
+     */
+    @Override
+    public NetworkSamples getPosteriorSamples(ProbabilisticModel model,
+                                              List<? extends Variable> variablesToSampleFrom,
+                                              int sampleCount) {
+        return generatePosteriorSamples(model, variablesToSampleFrom).generate(sampleCount);
+    }
+
+    @Override
+    public NetworkSamplesGenerator generatePosteriorSamples(final ProbabilisticModel model,
+                                                            final List<? extends Variable> variablesToSampleFrom) {
+        return new NetworkSamplesGenerator(setupSampler(model, variablesToSampleFrom), StatusBar::new);
+    }
+
+    private SamplingAlgorithm setupSampler(final ProbabilisticModel model,
+                                           final List<? extends Variable> variablesToSampleFrom) {
+
+        List<? extends Variable<DoubleTensor, ?>> latentVariables = model.getContinuousLatentVariables();
+        Preconditions.checkArgument(
+            latentVariables.size() == model.getLatentVariables().size(),
+            "Ensemble sampling requires all latent variables to be continuous."
+        );
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. At least one thread is required.", threadCount);
+        Preconditions.checkArgument(stretchScale > 1.0, "Stretch scale of %s is invalid. It must be greater than 1.", stretchScale);
+
+        List<VariableReference> references = latentVariables.stream().map(Variable::getReference).collect(toList());
+        long[][] shapes = latentVariables.stream().map(Variable::getShape).toArray(long[][]::new);
+        WalkerLayout layout = new WalkerLayout(references, shapes);
+
+        int walkers = walkerCount == 0 ? Math.max(4, 2 * layout.getDimension()) : walkerCount;
+        Preconditions.checkArgument(
+            walkers % 2 == 0 && walkers >= 2 * layout.getDimension(),
+            "Walker count of %s is invalid. It must be even and at least twice the number of latent dimensions (%s).",
+            walkers, layout.getDimension()
+        );
+
+        List<WalkerEvaluator> evaluators = createEvaluators(model, layout, Math.min(threadCount, walkers / 2));
+        ExecutorService evaluationExecutor = evaluators.size() == 1 || executor != null ?
+            executor : newDaemonThreadPool(evaluators.size() - 1);
+
+        double[] startingPosition = new double[layout.getDimension()];
+        layout.pack(SamplingAlgorithm.takeSample(latentVariables), startingPosition);
+
+        double[][] initialPositions = new double[walkers][layout.getDimension()];
+        for (double[] position : initialPositions) {
+            for (int i = 0; i < position.length; i++) {
+                position[i] = startingPosition[i] + initialSpread * random.nextGaussian();
+            }
+        }
+
+        return new EnsembleSampler(
+            model,
+            layout,
+            variablesToSampleFrom,
+            evaluators,
+            evaluationExecutor,
+            random,
+            stretchScale,
+            initialPositions,
+            model.logProb()
+        );
+    }
+
+    /**
+     * The first evaluator uses the given model. The others use copies of it so that they can be evaluated at the same
+     * time as it.
+     */
+    private static List<WalkerEvaluator> createEvaluators(ProbabilisticModel model, WalkerLayout layout, int evaluatorCount) {
+        List<WalkerEvaluator> evaluators = new ArrayList<>(evaluatorCount);
+        evaluators.add(new WalkerEvaluator(model, layout));
+
+        if (evaluatorCount <= 1 || !(model instanceof KeanuProbabilisticModel)) {
+            return evaluators;
+        }
+
+        List<Vertex> modelVertices = ((KeanuProbabilisticModel) model).getLatentOrObservedVertices();
+        try {
+            for (int i = 1; i < evaluatorCount; i++) {
+                NetworkCopy copy = NetworkCopy.of(new BayesianNetwork(modelVertices));
+                List<VariableReference> copiedReferences = layout.getReferences().stream()
+                    .map(reference -> (VariableReference) copy.getCopyOf(reference).getId())
+                    .collect(toList());
+
+                evaluators.add(new WalkerEvaluator(
+                    new KeanuProbabilisticModel(copy.getNetwork()),
+                    layout.withReferences(copiedReferences)
+                ));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot copy the model so its log probs will be evaluated on one thread: " + e.getMessage());
+            return evaluators.subList(0, 1);
+        }
+
+        return evaluators;
+    }
+
+    public static class EnsembleBuilder {
+        private KeanuRandom random = KeanuRandom.getDefaultRandom();
+        private int walkerCount = 0;
+        private double stretchScale = DEFAULT_STRETCH_SCALE;
+        private double initialSpread = DEFAULT_INITIAL_SPREAD;
+        private int threadCount = Runtime.getRuntime().availableProcessors();
+        private ExecutorService executor = null;
+
+        EnsembleBuilder() {
+        }
+
+        public EnsembleBuilder random(KeanuRandom random) {
+            this.random = random;
+            return this;
+        }
+
+        public EnsembleBuilder walkerCount(int walkerCount) {
+            this.walkerCount = walkerCount;
+            return this;
+        }
+
+        public EnsembleBuilder stretchScale(double stretchScale) {
+            this.stretchScale = stretchScale;
+            return this;
+        }
+
+        public EnsembleBuilder initialSpread(double initialSpread) {
+            this.initialSpread = initialSpread;
+            return this;
+        }
+
+        public EnsembleBuilder threadCount(int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public EnsembleBuilder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Ensemble build() {
+            return new Ensemble(random, walkerCount, stretchScale, initialSpread, threadCount, executor);
+        }
+
+        public String toString() {
+            return "Ensemble.EnsembleBuilder(random=" + this.random + ", walkerCount=" + this.walkerCount + ", stretchScale=" + this.stretchScale + ", initialSpread=" + this.initialSpread + ", threadCount=" + this.threadCount + ", executor=" + this.executor + ")";
+        }
+    }
+}
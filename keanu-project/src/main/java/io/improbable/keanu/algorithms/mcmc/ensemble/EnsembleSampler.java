@@ -0,0 +1,221 @@
+package io.improbable.keanu.algorithms.mcmc.ensemble;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.SampleColumns;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.improbable.keanu.algorithms.ParallelWork.awaitAll;
+
+/**
+ * Moves an ensemble of walkers with the stretch move of Goodman and Weare. The walkers are split into two halves and
+ * each half is moved using the positions of the other half, so the log probs of all of the proposals in a half are
+ * independent of each other and are evaluated together, split between the evaluators.
+ * <p>
+ * Each step of this sampler moves on to the next walker, and the whole ensemble is moved once every walker has been
+ * visited, so a sample is the position of one walker.
+ */
+public class EnsembleSampler implements SamplingAlgorithm {
+
+    private final ProbabilisticModel model;
+    private final WalkerLayout layout;
+    private final List<? extends Variable> variablesToSampleFrom;
+    private final boolean samplingOnlyLatents;
+    private final List<WalkerEvaluator> evaluators;
+    private final ExecutorService executor;
+    private final KeanuRandom random;
+    private final double stretchScale;
+
+    private final int walkerCount;
+    private double[][] positions;
+    private final double[] logProbs;
+    private double[][] proposals;
+    private final double[] proposalLogProbs;
+    private final double[] stretches;
+
+    private int currentWalker;
+    private long proposalCount;
+    private long acceptedCount;
+
+    /**
+     * @param model                 the model to sample from, which is also the first evaluator
+     * @param layout                the layout of the continuous latent variables of the model
+     * @param variablesToSampleFrom the variables to include in the samples
+     * @param evaluators            the evaluators to split the log prob evaluations between. The first one evaluates
+     *                              on the calling thread and the rest evaluate on the executor.
+     * @param executor              runs all but the first evaluator. May be null if there is only one evaluator.
+     * @param random                the source of randomness for the moves
+     * @param stretchScale          the largest factor that a walker can be stretched by
+     * @param initialPositions      the starting position of each walker
+     * @param initialLogProb        the log prob of the model's current state, used in place of any starting position
+     *                              that is impossible
+     */
+    EnsembleSampler(ProbabilisticModel model,
+                    WalkerLayout layout,
+                    List<? extends Variable> variablesToSampleFrom,
+                    List<WalkerEvaluator> evaluators,
+                    ExecutorService executor,
+                    KeanuRandom random,
+                    double stretchScale,
+                    double[][] initialPositions,
+                    double initialLogProb) {
+        this.model = model;
+        this.layout = layout;
+        this.variablesToSampleFrom = variablesToSampleFrom;
+        this.samplingOnlyLatents = variablesToSampleFrom.stream()
+            .allMatch(variable -> layout.getReferences().contains(variable.getReference()));
+        this.evaluators = evaluators;
+        this.executor = executor;
+        this.random = random;
+        this.stretchScale = stretchScale;
+
+        this.walkerCount = initialPositions.length;
+        this.positions = initialPositions;
+        this.logProbs = new double[walkerCount];
+        this.proposals = new double[walkerCount][layout.getDimension()];
+        this.proposalLogProbs = new double[walkerCount];
+        this.stretches = new double[walkerCount];
+        this.currentWalker = walkerCount - 1;
+
+        initialiseLogProbs(initialLogProb);
+    }
+
+    private void initialiseLogProbs(double initialLogProb) {
+        double[] initialPosition = new double[layout.getDimension()];
+        layout.pack(SamplingAlgorithm.takeSample(model.getContinuousLatentVariables()), initialPosition);
+
+        evaluate(positions, logProbs, 0, walkerCount);
+
+        for (int walker = 0; walker < walkerCount; walker++) {
+            if (ProbabilityCalculator.isImpossibleLogProb(logProbs[walker])) {
+                System.arraycopy(initialPosition, 0, positions[walker], 0, initialPosition.length);
+                logProbs[walker] = initialLogProb;
+            }
+        }
+    }
+
+    /**
+     * @return the proportion of the proposed moves that have been accepted so far
+     */
+    public double getAcceptanceRate() {
+        return proposalCount == 0 ? 0.0 : (double) acceptedCount / proposalCount;
+    }
+
+    @Override
+    public void step() {
+        currentWalker++;
+        if (currentWalker == walkerCount) {
+            moveEnsemble();
+            currentWalker = 0;
+        }
+    }
+
+    @Override
+    public void sample(Map<VariableReference, List<?>> samples, List<Double> logOfMasterPForEachSample) {
+        step();
+        for (Map.Entry<VariableReference, ?> value : getSampleValues().entrySet()) {
+            SampleColumns.addSample(samples, value.getKey(), value.getValue());
+        }
+        logOfMasterPForEachSample.add(logProbs[currentWalker]);
+    }
+
+    @Override
+    public NetworkSample sample() {
+        step();
+        return new NetworkSample(getSampleValues(), logProbs[currentWalker]);
+    }
+
+    private Map<VariableReference, ?> getSampleValues() {
+        Map<VariableReference, DoubleTensor> latentValues = layout.unpack(positions[currentWalker]);
+
+        if (samplingOnlyLatents) {
+            Map<VariableReference, DoubleTensor> values = new HashMap<>();
+            for (Variable variable : variablesToSampleFrom) {
+                values.put(variable.getReference(), latentValues.get(variable.getReference()));
+            }
+            return values;
+        }
+
+        model.logProb(latentValues);
+        return SamplingAlgorithm.takeSample((List<? extends Variable<Object, ?>>) variablesToSampleFrom);
+    }
+
+    private void moveEnsemble() {
+        int half = walkerCount / 2;
+        moveWalkers(0, half, half, walkerCount);
+        moveWalkers(half, walkerCount, 0, half);
+    }
+
+    /**
+     * Moves the walkers from index from up to but excluding index to, stretching each one towards or away from a
+     * random walker of the complementary range.
+     */
+    private void moveWalkers(int from, int to, int complementFrom, int complementTo) {
+        int dimension = layout.getDimension();
+
+        for (int walker = from; walker < to; walker++) {
+            double[] other = positions[complementFrom + random.nextInt(complementTo - complementFrom)];
+            double[] position = positions[walker];
+            double[] proposal = proposals[walker];
+
+            double stretch = (stretchScale - 1.0) * random.nextDouble() + 1.0;
+            stretch = stretch * stretch / stretchScale;
+            stretches[walker] = stretch;
+
+            for (int i = 0; i < dimension; i++) {
+                proposal[i] = other[i] + stretch * (position[i] - other[i]);
+            }
+        }
+
+        evaluate(proposals, proposalLogProbs, from, to);
+
+        for (int walker = from; walker < to; walker++) {
+            double logAcceptance = (dimension - 1) * Math.log(stretches[walker]) + proposalLogProbs[walker] - logProbs[walker];
+            proposalCount++;
+
+            if (Math.log(random.nextDouble()) < logAcceptance) {
+                double[] previousPosition = positions[walker];
+                positions[walker] = proposals[walker];
+                proposals[walker] = previousPosition;
+                logProbs[walker] = proposalLogProbs[walker];
+                acceptedCount++;
+            }
+        }
+    }
+
+    /**
+     * Splits the walkers from index from up to but excluding index to into one contiguous chunk per evaluator. The
+     * first chunk is evaluated on this thread while the others are evaluated on the executor.
+     */
+    private void evaluate(double[][] walkerPositions, double[] walkerLogProbs, int from, int to) {
+        int chunkSize = (to - from + evaluators.size() - 1) / evaluators.size();
+
+        List<Future<?>> futures = new ArrayList<>(evaluators.size() - 1);
+        for (int i = 1; i < evaluators.size(); i++) {
+            int chunkFrom = Math.min(to, from + i * chunkSize);
+            int chunkTo = Math.min(to, chunkFrom + chunkSize);
+            if (chunkFrom < chunkTo) {
+                WalkerEvaluator evaluator = evaluators.get(i);
+                futures.add(executor.submit(() -> evaluator.evaluate(walkerPositions, walkerLogProbs, chunkFrom, chunkTo)));
+            }
+        }
+
+        try {
+            evaluators.get(0).evaluate(walkerPositions, walkerLogProbs, from, Math.min(to, from + chunkSize));
+        } finally {
+            awaitAll(futures, "walker evaluation");
+        }
+    }
+}
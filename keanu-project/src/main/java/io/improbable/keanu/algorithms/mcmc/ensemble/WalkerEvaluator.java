@@ -0,0 +1,40 @@
+package io.improbable.keanu.algorithms.mcmc.ensemble;
+
+import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+
+/**
+ * Calculates the log prob at the positions of walkers on one model. A {@link KeanuProbabilisticModel} evaluates the
+ * positions as a single batch, any other model evaluates them one at a time.
+ */
+class WalkerEvaluator {
+
+    private final ProbabilisticModel model;
+    private final WalkerLayout layout;
+
+    WalkerEvaluator(ProbabilisticModel model, WalkerLayout layout) {
+        this.model = model;
+        this.layout = layout;
+    }
+
+    /**
+     * @param positions the positions of the walkers
+     * @param logProbs  where to store the log prob of each position
+     * @param from      the first walker to evaluate
+     * @param to        the walker after the last one to evaluate
+     */
+    void evaluate(double[][] positions, double[] logProbs, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+
+        if (model instanceof KeanuProbabilisticModel) {
+            double[] batchLogProbs = ((KeanuProbabilisticModel) model).logProbBatch(layout.unpackBatch(positions, from, to));
+            System.arraycopy(batchLogProbs, 0, logProbs, from, batchLogProbs.length);
+        } else {
+            for (int walker = from; walker < to; walker++) {
+                logProbs[walker] = model.logProb(layout.unpack(positions[walker]));
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.improbable.keanu.algorithms.mcmc.ensemble;
+
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The layout of the position of a walker in a single flat double array. Each continuous latent variable occupies a
+ * contiguous range of the array, in the order that the variables were given, in its tensor's flattened order.
+ */
+class WalkerLayout {
+
+    private final List<VariableReference> references;
+    private final long[][] shapes;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int dimension;
+
+    WalkerLayout(List<VariableReference> references, long[][] shapes) {
+        this.references = references;
+        this.shapes = shapes;
+        this.offsets = new int[references.size()];
+        this.lengths = new int[references.size()];
+
+        int offset = 0;
+        for (int i = 0; i < references.size(); i++) {
+            offsets[i] = offset;
+            lengths[i] = TensorShape.getLengthAsInt(shapes[i]);
+            offset += lengths[i];
+        }
+        this.dimension = offset;
+    }
+
+    /**
+     * @param references the references of the same variables in another copy of the model
+     * @return a layout with the same shapes for the given references
+     */
+    WalkerLayout withReferences(List<VariableReference> references) {
+        return new WalkerLayout(references, shapes);
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    List<VariableReference> getReferences() {
+        return references;
+    }
+
+    void pack(Map<VariableReference, DoubleTensor> values, double[] into) {
+        for (int i = 0; i < references.size(); i++) {
+            System.arraycopy(values.get(references.get(i)).asFlatDoubleArray(), 0, into, offsets[i], lengths[i]);
+        }
+    }
+
+    Map<VariableReference, DoubleTensor> unpack(double[] from) {
+        Map<VariableReference, DoubleTensor> values = new HashMap<>();
+        for (int i = 0; i < references.size(); i++) {
+            double[] variableValues = Arrays.copyOfRange(from, offsets[i], offsets[i] + lengths[i]);
+            values.put(references.get(i), DoubleTensor.create(variableValues, shapes[i]));
+        }
+        return values;
+    }
+
+    /**
+     * @param positions the positions of many walkers
+     * @param from      the first walker to include
+     * @param to        the walker after the last one to include
+     * @return the value of each variable at each walker, stacked along a leading batch dimension
+     */
+    Map<VariableReference, DoubleTensor> unpackBatch(double[][] positions, int from, int to) {
+        int batchSize = to - from;
+        Map<VariableReference, DoubleTensor> values = new HashMap<>();
+        for (int i = 0; i < references.size(); i++) {
+            double[] batchValues = new double[batchSize * lengths[i]];
+            for (int walker = 0; walker < batchSize; walker++) {
+                System.arraycopy(positions[from + walker], offsets[i], batchValues, walker * lengths[i], lengths[i]);
+            }
+            long[] batchShape = TensorShape.concat(new long[]{batchSize}, shapes[i]);
+            values.put(references.get(i), DoubleTensor.create(batchValues, batchShape));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,44 @@
+package io.improbable.keanu.algorithms.mcmc.initialconditions;
+
+import io.improbable.keanu.Keanu;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.algorithms.variational.optimizer.KeanuOptimizer;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.NetworkState;
+
+/**
+ * A local search that climbs from the current state of a network to a mode of its posterior.
+ */
+@FunctionalInterface
+public interface ModeSearch {
+
+    /**
+     * @param network the network to search, which is left at the mode that is found
+     * @param random  the source of randomness for the search
+     */
+    void climb(BayesianNetwork network, KeanuRandom random);
+
+    /**
+     * @return a search that finds the MAP with the optimizer chosen by {@link KeanuOptimizer#of(BayesianNetwork)}
+     */
+    static ModeSearch optimizer() {
+        return (network, random) -> KeanuOptimizer.of(network).maxAPosteriori();
+    }
+
+    /**
+     * @param samplesPerSearch the number of samples taken by each annealing run
+     * @return a search that finds the MAP by simulated annealing with the default configuration
+     */
+    static ModeSearch simulatedAnnealing(int samplesPerSearch) {
+        return (network, random) -> {
+            KeanuProbabilisticModel model = new KeanuProbabilisticModel(network);
+            NetworkState maxAPosteriori = Keanu.Sampling.SimulatedAnnealing.withDefaultConfigFor(model, random)
+                .getMaxAPosteriori(model, samplesPerSearch);
+
+            network.setState(maxAPosteriori);
+            VertexValuePropagation.cascadeUpdate(network.getLatentVertices());
+        };
+    }
+}
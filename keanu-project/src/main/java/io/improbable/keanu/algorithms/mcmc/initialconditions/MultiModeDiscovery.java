@@ -1,14 +1,9 @@
 package io.improbable.keanu.algorithms.mcmc.initialconditions;
 
-import io.improbable.keanu.Keanu;
 import io.improbable.keanu.KeanuRandom;
-import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
 import io.improbable.keanu.network.BayesianNetwork;
-import io.improbable.keanu.network.KeanuProbabilisticModel;
 import io.improbable.keanu.network.NetworkState;
-import io.improbable.keanu.vertices.Vertex;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class MultiModeDiscovery {
@@ -16,22 +11,25 @@ public class MultiModeDiscovery {
     private MultiModeDiscovery() {
     }
 
+    /**
+     * Runs the annealing attempts at the same time on copies of the network. See {@link MultiStartModeFinder}.
+     *
+     * @param network           the network to find the modes of
+     * @param attempts          the number of annealing runs, each from a starting point sampled from the prior
+     * @param samplesPerAttempt the number of samples taken by each annealing run
+     * @param random            the source of the seed of each attempt
+     * @return the distinct modes found, ordered from the highest log prob to the lowest
+     */
     public static List<NetworkState> findModesBySimulatedAnnealing(BayesianNetwork network,
                                                                    int attempts,
                                                                    int samplesPerAttempt,
                                                                    KeanuRandom random) {
 
-        List<NetworkState> maxSamples = new ArrayList<>();
-        network.cascadeObservations();
-        List<Vertex> sortedByDependency = TopologicalSort.sort(network.getLatentVertices());
-
-        for (int i = 0; i < attempts; i++) {
-            BayesianNetwork.setFromSampleAndCascade(sortedByDependency, random);
-            KeanuProbabilisticModel model = new KeanuProbabilisticModel(network);
-            NetworkState maxAPosteriori = Keanu.Sampling.SimulatedAnnealing.withDefaultConfigFor(model, random).getMaxAPosteriori(model, samplesPerAttempt);
-            maxSamples.add(maxAPosteriori);
-        }
-
-        return maxSamples;
+        return MultiStartModeFinder.builder()
+            .random(random)
+            .restarts(attempts)
+            .modeSearch(ModeSearch.simulatedAnnealing(samplesPerAttempt))
+            .build()
+            .findModes(network);
     }
 }
@@ -0,0 +1,277 @@
+package io.improbable.keanu.algorithms.mcmc.initialconditions;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.NetworkCopy;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.network.SimpleNetworkState;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.improbable.keanu.algorithms.ParallelWork.awaitAll;
+import static io.improbable.keanu.algorithms.ParallelWork.newDaemonThreadPool;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Finds the modes of a network's posterior by restarting a {@link ModeSearch} from many random starting points.
+ * <p>
+ * The restarts are independent so they run at the same time, each worker thread searching its own copy of the
+ * network. The random of each restart is split from the random given to the builder before any restart runs, so the
+ * modes that are found do not depend on the number of threads or on the order that the restarts finish in.
+ * <p>
+ * Restarts that converge to the same mode are reported once, and the modes are ranked from the most to the least
+ * probable.
+ */
+@Slf4j
+@AllArgsConstructor
+public class MultiStartModeFinder {
+
+    private static final double DEFAULT_DISTINCTNESS_TOLERANCE = 1e-3;
+
+    public static MultiStartModeFinderBuilder builder() {
+        return new MultiStartModeFinderBuilder();
+    }
+
+    //The random that the random of each restart is split from
+    @Getter
+    private KeanuRandom random;
+
+    //The number of times to sample a starting point from the prior and search from it
+    @Getter
+    private int restarts;
+
+    //The search run from each starting point
+    @Getter
+    private ModeSearch modeSearch;
+
+    //The number of restarts to run at the same time. Each thread searches its own copy of the network.
+    @Getter
+    private int threadCount;
+
+    //Two modes are the same if no continuous latent differs by more than this in any element and every discrete
+    //latent is equal
+    @Getter
+    private double distinctnessTolerance;
+
+    /**
+     * The network is not changed unless it cannot be copied, in which case the restarts run one after another on
+     * the network itself and it is left at the last mode found.
+     *
+     * @param network the network to find the modes of
+     * @return the distinct modes found, ordered from the highest log prob to the lowest. Each state has a value for
+     * every latent vertex of the network.
+     */
+    public List<NetworkState> findModes(BayesianNetwork network) {
+        Preconditions.checkArgument(restarts > 0, "Restart count of %s is invalid. At least one restart is required.", restarts);
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. At least one thread is required.", threadCount);
+
+        network.cascadeObservations();
+
+        KeanuRandom[] restartRandoms = new KeanuRandom[restarts];
+        for (int i = 0; i < restarts; i++) {
+            restartRandoms[i] = random.split();
+        }
+
+        List<Mode> modes = runRestarts(network, restartRandoms);
+        return distinctModes(modes, network.getLatentVertices());
+    }
+
+    private List<Mode> runRestarts(BayesianNetwork network, KeanuRandom[] restartRandoms) {
+        List<Worker> workers = createWorkers(network, Math.min(threadCount, restartRandoms.length));
+
+        if (workers.size() == 1) {
+            Worker worker = workers.get(0);
+            List<Mode> modes = new ArrayList<>(restartRandoms.length);
+            for (KeanuRandom restartRandom : restartRandoms) {
+                modes.add(worker.restart(modeSearch, restartRandom));
+            }
+            return modes;
+        }
+
+        BlockingQueue<Worker> idleWorkers = new ArrayBlockingQueue<>(workers.size(), false, workers);
+        ExecutorService executor = newDaemonThreadPool(workers.size());
+
+        try {
+            List<Future<Mode>> futures = new ArrayList<>(restartRandoms.length);
+            for (KeanuRandom restartRandom : restartRandoms) {
+                futures.add(executor.submit(() -> {
+                    Worker worker = idleWorkers.take();
+                    try {
+                        return worker.restart(modeSearch, restartRandom);
+                    } finally {
+                        idleWorkers.put(worker);
+                    }
+                }));
+            }
+            return awaitAll(futures, "restarts");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Each worker searches its own copy of the network. If it cannot be copied then a single worker searches the
+     * network itself.
+     */
+    private static List<Worker> createWorkers(BayesianNetwork network, int workerCount) {
+        List<Vertex> latentVertices = network.getLatentVertices();
+        List<VariableReference> references = latentVertices.stream().map(Vertex::getId).collect(toList());
+
+        List<Worker> workers = new ArrayList<>(workerCount);
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                NetworkCopy copy = NetworkCopy.of(network);
+                List<Vertex> copiedLatents = references.stream()
+                    .map(reference -> (Vertex) copy.getCopyOf(reference))
+                    .collect(toList());
+                workers.add(new Worker(copy.getNetwork(), copiedLatents, references));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot copy the network so the restarts will run one after another: " + e.getMessage());
+            workers.clear();
+            workers.add(new Worker(network, latentVertices, references));
+        }
+
+        return workers;
+    }
+
+    private List<NetworkState> distinctModes(List<Mode> modes, List<Vertex> latentVertices) {
+        List<Mode> ranked = modes.stream()
+            .filter(mode -> !ProbabilityCalculator.isImpossibleLogProb(mode.getLogProb()))
+            .sorted(Comparator.comparingDouble(Mode::getLogProb).reversed())
+            .collect(toList());
+
+        List<NetworkState> distinct = new ArrayList<>();
+        for (Mode mode : ranked) {
+            boolean isNew = distinct.stream().noneMatch(found -> isSameMode(found, mode.getState(), latentVertices));
+            if (isNew) {
+                distinct.add(mode.getState());
+            }
+        }
+        return distinct;
+    }
+
+    private boolean isSameMode(NetworkState a, NetworkState b, List<Vertex> latentVertices) {
+        for (Vertex vertex : latentVertices) {
+            Object aValue = a.get(vertex.getId());
+            Object bValue = b.get(vertex.getId());
+
+            if (aValue instanceof DoubleTensor && bValue instanceof DoubleTensor) {
+                double[] aValues = ((DoubleTensor) aValue).asFlatDoubleArray();
+                double[] bValues = ((DoubleTensor) bValue).asFlatDoubleArray();
+                if (aValues.length != bValues.length) {
+                    return false;
+                }
+                for (int i = 0; i < aValues.length; i++) {
+                    if (!(Math.abs(aValues[i] - bValues[i]) <= distinctnessTolerance)) {
+                        return false;
+                    }
+                }
+            } else if (aValue instanceof Tensor && bValue instanceof Tensor) {
+                if (!Arrays.equals(((Tensor) aValue).asFlatArray(), ((Tensor) bValue).asFlatArray())) {
+                    return false;
+                }
+            } else if (aValue == null ? bValue != null : !aValue.equals(bValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A network, either a copy or the original, that restarts are run on one at a time.
+     */
+    @AllArgsConstructor
+    private static class Worker {
+
+        private final BayesianNetwork network;
+
+        //The latent vertices of this worker's network
+        private final List<Vertex> latentVertices;
+
+        //The references of the latent vertices of the original network, in the same order as latentVertices
+        private final List<VariableReference> originalReferences;
+
+        Mode restart(ModeSearch modeSearch, KeanuRandom random) {
+            BayesianNetwork.setFromSampleAndCascade(TopologicalSort.sort(latentVertices), random);
+            modeSearch.climb(network, random);
+
+            Map<VariableReference, Object> values = new HashMap<>();
+            for (int i = 0; i < latentVertices.size(); i++) {
+                values.put(originalReferences.get(i), latentVertices.get(i).getValue());
+            }
+
+            return new Mode(new SimpleNetworkState(values), network.getLogOfMasterP());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Mode {
+        private final NetworkState state;
+        private final double logProb;
+    }
+
+    public static class MultiStartModeFinderBuilder {
+        private KeanuRandom random = KeanuRandom.getDefaultRandom();
+        private int restarts = 10;
+        private ModeSearch modeSearch = ModeSearch.optimizer();
+        private int threadCount = Runtime.getRuntime().availableProcessors();
+        private double distinctnessTolerance = DEFAULT_DISTINCTNESS_TOLERANCE;
+
+        MultiStartModeFinderBuilder() {
+        }
+
+        public MultiStartModeFinderBuilder random(KeanuRandom random) {
+            this.random = random;
+            return this;
+        }
+
+        public MultiStartModeFinderBuilder restarts(int restarts) {
+            this.restarts = restarts;
+            return this;
+        }
+
+        public MultiStartModeFinderBuilder modeSearch(ModeSearch modeSearch) {
+            this.modeSearch = modeSearch;
+            return this;
+        }
+
+        public MultiStartModeFinderBuilder threadCount(int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public MultiStartModeFinderBuilder distinctnessTolerance(double distinctnessTolerance) {
+            this.distinctnessTolerance = distinctnessTolerance;
+            return this;
+        }
+
+        public MultiStartModeFinder build() {
+            return new MultiStartModeFinder(random, restarts, modeSearch, threadCount, distinctnessTolerance);
+        }
+
+        public String toString() {
+            return "MultiStartModeFinder.MultiStartModeFinderBuilder(random=" + this.random + ", restarts=" + this.restarts + ", modeSearch=" + this.modeSearch + ", threadCount=" + this.threadCount + ", distinctnessTolerance=" + this.distinctnessTolerance + ")";
+        }
+    }
+}
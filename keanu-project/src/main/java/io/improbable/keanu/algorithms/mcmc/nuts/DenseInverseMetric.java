@@ -0,0 +1,137 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import java.util.Arrays;
+
+/**
+ * An inverse metric with a full covariance between dimensions, estimated with Welford's online algorithm.
+ * Momentum is sampled through the Cholesky decomposition of the covariance, which is recalculated whenever the
+ * covariance is adapted.
+ */
+class DenseInverseMetric implements InverseMetric {
+
+    private final int dimension;
+    private final double[][] covariance;
+    private final double[][] choleskyLower;
+    private final double[] velocity;
+
+    private final double[] sampleMean;
+    private final double[] delta;
+    private final double[][] sampleSumOfProducts;
+    private int sampleCount;
+
+    DenseInverseMetric(int dimension) {
+        this.dimension = dimension;
+        this.covariance = new double[dimension][dimension];
+        this.choleskyLower = new double[dimension][dimension];
+        this.velocity = new double[dimension];
+        this.sampleMean = new double[dimension];
+        this.delta = new double[dimension];
+        this.sampleSumOfProducts = new double[dimension][dimension];
+
+        for (int i = 0; i < dimension; i++) {
+            covariance[i][i] = 1.0;
+            choleskyLower[i][i] = 1.0;
+        }
+    }
+
+    /**
+     * If the covariance is L L^T then M = L^-T L^-1 so solving L^T p = z gives p with a covariance of M.
+     */
+    @Override
+    public void scaleMomentum(double[] momentum) {
+        for (int i = dimension - 1; i >= 0; i--) {
+            double sum = momentum[i];
+            for (int j = i + 1; j < dimension; j++) {
+                sum -= choleskyLower[j][i] * momentum[j];
+            }
+            momentum[i] = sum / choleskyLower[i][i];
+        }
+    }
+
+    @Override
+    public double kineticEnergy(double[] momentum) {
+        final double[] v = velocity(momentum);
+        double dotProduct = 0.0;
+        for (int i = 0; i < dimension; i++) {
+            dotProduct += momentum[i] * v[i];
+        }
+        return 0.5 * dotProduct;
+    }
+
+    @Override
+    public double[] velocity(double[] momentum) {
+        for (int i = 0; i < dimension; i++) {
+            final double[] row = covariance[i];
+            double sum = 0.0;
+            for (int j = 0; j < dimension; j++) {
+                sum += row[j] * momentum[j];
+            }
+            velocity[i] = sum;
+        }
+        return velocity;
+    }
+
+    @Override
+    public void addSample(double[] position) {
+        sampleCount++;
+        for (int i = 0; i < dimension; i++) {
+            delta[i] = position[i] - sampleMean[i];
+            sampleMean[i] += delta[i] / sampleCount;
+        }
+
+        for (int i = 0; i < dimension; i++) {
+            final double deltaAfterUpdate = position[i] - sampleMean[i];
+            for (int j = 0; j < dimension; j++) {
+                sampleSumOfProducts[i][j] += deltaAfterUpdate * delta[j];
+            }
+        }
+    }
+
+    @Override
+    public void adaptToSamples() {
+        if (sampleCount < 2) {
+            return;
+        }
+
+        final double n = sampleCount;
+        for (int i = 0; i < dimension; i++) {
+            for (int j = 0; j < i; j++) {
+                covariance[i][j] = (n / (n + 5.0)) * sampleSumOfProducts[i][j] / (n - 1.0);
+                covariance[j][i] = covariance[i][j];
+            }
+            covariance[i][i] = (n / (n + 5.0)) * sampleSumOfProducts[i][i] / (n - 1.0) + 1e-3 * (5.0 / (n + 5.0));
+        }
+
+        decomposeCovariance();
+
+        Arrays.fill(sampleMean, 0.0);
+        for (double[] row : sampleSumOfProducts) {
+            Arrays.fill(row, 0.0);
+        }
+        sampleCount = 0;
+    }
+
+    private void decomposeCovariance() {
+        for (int i = 0; i < dimension; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = covariance[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= choleskyLower[i][k] * choleskyLower[j][k];
+                }
+
+                if (i == j) {
+                    if (sum <= 0.0) {
+                        throw new IllegalStateException("Estimated covariance of the latents is not positive definite");
+                    }
+                    choleskyLower[i][i] = Math.sqrt(sum);
+                } else {
+                    choleskyLower[i][j] = sum / choleskyLower[j][j];
+                }
+            }
+        }
+    }
+
+    double[][] getCovariance() {
+        return covariance;
+    }
+}
@@ -0,0 +1,84 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import java.util.Arrays;
+
+/**
+ * An inverse metric that only has a variance for each dimension, estimated with Welford's online algorithm.
+ * A diagonal of ones is the identity metric.
+ */
+class DiagonalInverseMetric implements InverseMetric {
+
+    private final double[] variance;
+    private final double[] standardDeviation;
+    private final double[] velocity;
+
+    private final double[] sampleMean;
+    private final double[] sampleSumOfSquares;
+    private int sampleCount;
+
+    DiagonalInverseMetric(int dimension) {
+        this.variance = new double[dimension];
+        this.standardDeviation = new double[dimension];
+        this.velocity = new double[dimension];
+        this.sampleMean = new double[dimension];
+        this.sampleSumOfSquares = new double[dimension];
+        Arrays.fill(variance, 1.0);
+        Arrays.fill(standardDeviation, 1.0);
+    }
+
+    @Override
+    public void scaleMomentum(double[] momentum) {
+        for (int i = 0; i < momentum.length; i++) {
+            momentum[i] /= standardDeviation[i];
+        }
+    }
+
+    @Override
+    public double kineticEnergy(double[] momentum) {
+        double dotProduct = 0.0;
+        for (int i = 0; i < momentum.length; i++) {
+            dotProduct += momentum[i] * momentum[i] * variance[i];
+        }
+        return 0.5 * dotProduct;
+    }
+
+    @Override
+    public double[] velocity(double[] momentum) {
+        for (int i = 0; i < momentum.length; i++) {
+            velocity[i] = variance[i] * momentum[i];
+        }
+        return velocity;
+    }
+
+    @Override
+    public void addSample(double[] position) {
+        sampleCount++;
+        for (int i = 0; i < position.length; i++) {
+            final double delta = position[i] - sampleMean[i];
+            sampleMean[i] += delta / sampleCount;
+            sampleSumOfSquares[i] += delta * (position[i] - sampleMean[i]);
+        }
+    }
+
+    @Override
+    public void adaptToSamples() {
+        if (sampleCount < 2) {
+            return;
+        }
+
+        final double n = sampleCount;
+        for (int i = 0; i < variance.length; i++) {
+            final double sampleVariance = sampleSumOfSquares[i] / (n - 1.0);
+            variance[i] = (n / (n + 5.0)) * sampleVariance + 1e-3 * (5.0 / (n + 5.0));
+            standardDeviation[i] = Math.sqrt(variance[i]);
+        }
+
+        Arrays.fill(sampleMean, 0.0);
+        Arrays.fill(sampleSumOfSquares, 0.0);
+        sampleCount = 0;
+    }
+
+    double[] getVariance() {
+        return variance;
+    }
+}
@@ -0,0 +1,59 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+
+/**
+ * The same movement through physical space as {@link Leapfrog} but with the position, momentum and gradient of all
+ * latent variables packed into flat arrays that are updated in place.
+ */
+class FlatLeapfrog {
+
+    final double[] position;
+    final double[] momentum;
+    final double[] gradient;
+
+    FlatLeapfrog(int dimension) {
+        this.position = new double[dimension];
+        this.momentum = new double[dimension];
+        this.gradient = new double[dimension];
+    }
+
+    void copyFrom(FlatLeapfrog other) {
+        System.arraycopy(other.position, 0, position, 0, position.length);
+        System.arraycopy(other.momentum, 0, momentum, 0, momentum.length);
+        System.arraycopy(other.gradient, 0, gradient, 0, gradient.length);
+    }
+
+    /**
+     * Performs one leapfrog in place with a time delta as defined by epsilon
+     *
+     * @param layout  the layout of the latent variables in the arrays
+     * @param model   the model to calculate the log prob gradient with
+     * @param metric  the inverse metric that relates momentum to velocity
+     * @param epsilon the time delta
+     */
+    void step(LatentLayout layout, ProbabilisticModelWithGradient model, InverseMetric metric, double epsilon) {
+        final double halfTimeStep = epsilon / 2.0;
+
+        stepMomentum(halfTimeStep);
+
+        final double[] velocity = metric.velocity(momentum);
+        for (int i = 0; i < position.length; i++) {
+            position[i] += halfTimeStep * velocity[i];
+        }
+
+        layout.pack(model.logProbGradients(layout.unpack(position)), gradient);
+
+        stepMomentum(halfTimeStep);
+    }
+
+    private void stepMomentum(double halfTimeStep) {
+        for (int i = 0; i < momentum.length; i++) {
+            momentum[i] += halfTimeStep * gradient[i];
+        }
+    }
+
+    double kineticEnergy(InverseMetric metric) {
+        return metric.kineticEnergy(momentum);
+    }
+}
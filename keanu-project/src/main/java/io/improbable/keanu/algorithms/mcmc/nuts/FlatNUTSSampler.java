@@ -0,0 +1,312 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.Statistics;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm.takeSample;
+
+/**
+ * The same algorithm as {@link NUTSSampler} but with all continuous latent variables packed into flat arrays
+ * according to a {@link LatentLayout}. The trees and leapfrogs are allocated once, one per tree height, and updated
+ * in place so that taking a sample does not allocate a tensor per variable per leapfrog.
+ * <p>
+ * Momentum is drawn from N(0, M) for an {@link InverseMetric} M^-1. With the identity metric and the same source of
+ * randomness, the samples are the same as those of {@link NUTSSampler}. If metric adaptation windows are given then
+ * the metric is estimated from the warmup samples and the step size adaptation is restarted each time it changes.
+ */
+class FlatNUTSSampler implements SamplingAlgorithm {
+
+    private final KeanuRandom random;
+    private final LatentLayout layout;
+    private final List<? extends Variable> sampleFromVariables;
+    private final int maxTreeHeight;
+    private final boolean adaptEnabled;
+    private final Stepsize stepsize;
+    private final FlatTree tree;
+    private final FlatTree[] otherHalfTrees;
+    private final InverseMetric metric;
+    private final MetricAdaptationWindows metricAdaptationWindows;
+    private final ProbabilisticModelWithGradient logProbGradientCalculator;
+    private final Statistics statistics;
+    private final boolean saveStatistics;
+    private int sampleNum;
+
+    /**
+     * @param sampleFromVariables       variables to sample from
+     * @param layout                    the layout of the latent variables in the flat arrays
+     * @param logProbGradientCalculator gradient calculator for diff of log prob with respect to latents
+     * @param adaptEnabled              enable the NUTS step size adaptation
+     * @param stepsize                  configuration for tuning the stepsize, if adaptEnabled
+     * @param metric                    the inverse metric to sample momentum with
+     * @param metricAdaptationWindows   the warmup schedule to adapt the metric with, if adaptEnabled. Null to never
+     *                                  adapt the metric.
+     * @param tree                      initial tree that will contain the state of the tree build
+     * @param maxTreeHeight             The largest tree height before stopping the hamilitonian process
+     * @param random                    the source of randomness
+     * @param statistics                the sampler statistics
+     * @param saveStatistics            whether to record statistics
+     */
+    FlatNUTSSampler(List<? extends Variable> sampleFromVariables,
+                    LatentLayout layout,
+                    ProbabilisticModelWithGradient logProbGradientCalculator,
+                    boolean adaptEnabled,
+                    Stepsize stepsize,
+                    InverseMetric metric,
+                    MetricAdaptationWindows metricAdaptationWindows,
+                    FlatTree tree,
+                    int maxTreeHeight,
+                    KeanuRandom random,
+                    Statistics statistics,
+                    boolean saveStatistics) {
+
+        this.sampleFromVariables = sampleFromVariables;
+        this.layout = layout;
+        this.logProbGradientCalculator = logProbGradientCalculator;
+
+        this.tree = tree;
+        this.stepsize = stepsize;
+        this.metric = metric;
+        this.metricAdaptationWindows = metricAdaptationWindows;
+        this.maxTreeHeight = maxTreeHeight;
+        this.adaptEnabled = adaptEnabled;
+
+        this.random = random;
+        this.statistics = statistics;
+        this.saveStatistics = saveStatistics;
+
+        this.otherHalfTrees = new FlatTree[Math.max(maxTreeHeight, 0)];
+        for (int i = 0; i < otherHalfTrees.length; i++) {
+            otherHalfTrees[i] = new FlatTree(layout.getDimension());
+        }
+
+        this.sampleNum = 1;
+    }
+
+    @Override
+    public void sample(Map<VariableReference, List<?>> samples, List<Double> logOfMasterPForEachSample) {
+        step();
+        NUTSSampler.addSampleFromCache(samples, tree.sampleAtAcceptedPosition);
+        logOfMasterPForEachSample.add(tree.logOfMasterPAtAcceptedPosition);
+    }
+
+    @Override
+    public NetworkSample sample() {
+        step();
+        return new NetworkSample(tree.sampleAtAcceptedPosition, tree.logOfMasterPAtAcceptedPosition);
+    }
+
+    @Override
+    public void step() {
+
+        initializeMomentum(tree.leapfrogForward.momentum, random);
+        metric.scaleMomentum(tree.leapfrogForward.momentum);
+        System.arraycopy(tree.leapfrogForward.momentum, 0, tree.leapfrogBackward.momentum, 0, layout.getDimension());
+
+        double logOfMasterPMinusMomentumBeforeLeapfrog = tree.logOfMasterPAtAcceptedPosition - tree.leapfrogForward.kineticEnergy(metric);
+
+        double logU = Math.log(random.nextDouble()) + logOfMasterPMinusMomentumBeforeLeapfrog;
+
+        int treeHeight = 0;
+        tree.resetTreeBeforeSample();
+
+        while (tree.shouldContinueFlag && treeHeight < maxTreeHeight) {
+
+            //build tree direction -1 = backwards OR 1 = forwards
+            int buildDirection = random.nextBoolean() ? 1 : -1;
+
+            FlatTree otherHalfTree = otherHalfTrees[treeHeight];
+            buildOtherHalfOfTree(
+                tree,
+                otherHalfTree,
+                logU,
+                buildDirection,
+                treeHeight,
+                stepsize.getStepsize(),
+                logOfMasterPMinusMomentumBeforeLeapfrog
+            );
+
+            if (otherHalfTree.shouldContinueFlag) {
+                final double acceptanceProb = (double) otherHalfTree.acceptedLeapfrogCount / tree.acceptedLeapfrogCount;
+                tree.acceptOtherPositionWithProbability(acceptanceProb, otherHalfTree, random);
+            }
+
+            tree.acceptedLeapfrogCount += otherHalfTree.acceptedLeapfrogCount;
+            tree.deltaLikelihoodOfLeapfrog = otherHalfTree.deltaLikelihoodOfLeapfrog;
+            tree.treeSize = otherHalfTree.treeSize;
+            tree.continueIfNotUTurning(otherHalfTree, metric);
+
+            treeHeight++;
+        }
+
+        if (saveStatistics) {
+            stepsize.save(statistics);
+            tree.save(statistics);
+        }
+
+        if (this.adaptEnabled) {
+            stepsize.adaptStepSize(tree.deltaLikelihoodOfLeapfrog, tree.treeSize, sampleNum);
+        }
+
+        tree.acceptPositionAndGradient();
+
+        if (this.adaptEnabled && metricAdaptationWindows != null && metricAdaptationWindows.learn(metric, tree.acceptedPosition)) {
+            stepsize.restartAdaptation(findStartingStepSize(), sampleNum);
+        }
+
+        sampleNum++;
+    }
+
+    /**
+     * Algorithm 4 in https://arxiv.org/pdf/1111.4246.pdf, as in {@link Stepsize#findStartingStepSize}, but from the
+     * accepted position of the tree and with momentum drawn using the current metric.
+     *
+     * @return a starting step size for the current metric
+     */
+    private double findStartingStepSize() {
+        final FlatLeapfrog start = new FlatLeapfrog(layout.getDimension());
+        start.copyFrom(tree.leapfrogForward);
+        initializeMomentum(start.momentum, random);
+        metric.scaleMomentum(start.momentum);
+
+        final FlatLeapfrog delta = new FlatLeapfrog(layout.getDimension());
+
+        final double pThetaR = tree.logOfMasterPAtAcceptedPosition - start.kineticEnergy(metric);
+
+        double stepsize = 1.0;
+        double logLikelihoodRatio = logLikelihoodRatioAfterLeapfrog(start, delta, stepsize, pThetaR);
+        final double scalingFactor = logLikelihoodRatio > Math.log(0.5) ? 1 : -1;
+
+        while (scalingFactor * logLikelihoodRatio > -scalingFactor * Math.log(2)) {
+            stepsize = stepsize * Math.pow(2, scalingFactor);
+            logLikelihoodRatio = logLikelihoodRatioAfterLeapfrog(start, delta, stepsize, pThetaR);
+        }
+
+        return stepsize;
+    }
+
+    private double logLikelihoodRatioAfterLeapfrog(FlatLeapfrog start, FlatLeapfrog delta, double stepsize, double pThetaR) {
+        delta.copyFrom(start);
+        delta.step(layout, logProbGradientCalculator, metric, stepsize);
+        final double pThetaRAfterLeapfrog = logProbGradientCalculator.logProb() - delta.kineticEnergy(metric);
+        return pThetaRAfterLeapfrog - pThetaR;
+    }
+
+    /**
+     * Builds a tree of the given height into otherHalfTree, starting from the edge of currentTree in the build
+     * direction, and then moves that edge of currentTree to the far edge of otherHalfTree.
+     */
+    private void buildOtherHalfOfTree(FlatTree currentTree,
+                                      FlatTree otherHalfTree,
+                                      double logU,
+                                      int buildDirection,
+                                      int treeHeight,
+                                      double epsilon,
+                                      double logOfMasterPMinusMomentumBeforeLeapfrog) {
+
+        buildTree(
+            otherHalfTree,
+            buildDirection == -1 ? currentTree.leapfrogBackward : currentTree.leapfrogForward,
+            logU,
+            buildDirection,
+            treeHeight,
+            epsilon,
+            logOfMasterPMinusMomentumBeforeLeapfrog
+        );
+
+        currentTree.extendEdge(otherHalfTree, buildDirection);
+    }
+
+    private void buildTree(FlatTree tree,
+                           FlatLeapfrog leapfrog,
+                           double logU,
+                           int buildDirection,
+                           int treeHeight,
+                           double epsilon,
+                           double logOfMasterPMinusMomentumBeforeLeapfrog) {
+        if (treeHeight == 0) {
+
+            //Base case-take one leapfrog step in the build direction
+            treeBuilderBaseCase(tree, leapfrog, logU, buildDirection, epsilon, logOfMasterPMinusMomentumBeforeLeapfrog);
+
+        } else {
+            //Recursion-implicitly build the left and right subtrees. The first half is built directly into tree
+            //and the second half into the tree reserved for the level below.
+
+            buildTree(tree, leapfrog, logU, buildDirection, treeHeight - 1, epsilon, logOfMasterPMinusMomentumBeforeLeapfrog);
+
+            //Should continue building other half if first half's shouldContinueFlag is true
+            if (tree.shouldContinueFlag) {
+
+                FlatTree otherHalfTree = otherHalfTrees[treeHeight - 1];
+                buildOtherHalfOfTree(
+                    tree,
+                    otherHalfTree,
+                    logU,
+                    buildDirection,
+                    treeHeight - 1,
+                    epsilon,
+                    logOfMasterPMinusMomentumBeforeLeapfrog
+                );
+
+                double acceptOtherTreePositionProbability = (double) otherHalfTree.acceptedLeapfrogCount / (tree.acceptedLeapfrogCount + otherHalfTree.acceptedLeapfrogCount);
+
+                tree.acceptOtherPositionWithProbability(acceptOtherTreePositionProbability, otherHalfTree, random);
+
+                tree.continueIfNotUTurning(otherHalfTree, metric);
+
+                tree.acceptedLeapfrogCount += otherHalfTree.acceptedLeapfrogCount;
+                tree.deltaLikelihoodOfLeapfrog += otherHalfTree.deltaLikelihoodOfLeapfrog;
+                tree.treeSize += otherHalfTree.treeSize;
+            }
+        }
+    }
+
+    private void treeBuilderBaseCase(FlatTree tree,
+                                     FlatLeapfrog leapfrog,
+                                     double logU,
+                                     int buildDirection,
+                                     double epsilon,
+                                     double logOfMasterPMinusMomentumBeforeLeapfrog) {
+
+        final FlatLeapfrog stepped = tree.leapfrogForward;
+        stepped.copyFrom(leapfrog);
+        stepped.step(layout, logProbGradientCalculator, metric, epsilon * buildDirection);
+        tree.leapfrogBackward.copyFrom(stepped);
+
+        final double logOfMasterPAfterLeapfrog = logProbGradientCalculator.logProb();
+        final double logOfMasterPMinusMomentum = logOfMasterPAfterLeapfrog - stepped.kineticEnergy(metric);
+
+        System.arraycopy(stepped.position, 0, tree.acceptedPosition, 0, stepped.position.length);
+        System.arraycopy(stepped.gradient, 0, tree.gradientAtAcceptedPosition, 0, stepped.gradient.length);
+        tree.logOfMasterPAtAcceptedPosition = logOfMasterPAfterLeapfrog;
+        tree.sampleAtAcceptedPosition = takeSample((List<? extends Variable<Object, ?>>) sampleFromVariables);
+
+        tree.acceptedLeapfrogCount = logU <= logOfMasterPMinusMomentum ? 1 : 0;
+        tree.shouldContinueFlag = logU < FlatTree.DELTA_MAX + logOfMasterPMinusMomentum;
+        tree.deltaLikelihoodOfLeapfrog = Math.min(
+            1.0,
+            Math.exp(logOfMasterPMinusMomentum - logOfMasterPMinusMomentumBeforeLeapfrog)
+        );
+        tree.treeSize = 1;
+    }
+
+    private void initializeMomentum(double[] momentum, KeanuRandom random) {
+        for (int i = 0; i < layout.getVariableCount(); i++) {
+            final long[] shape = layout.getShape(i);
+            if (shape.length == 0) {
+                momentum[layout.getOffset(i)] = random.nextGaussian();
+            } else {
+                final double[] sample = random.nextGaussian(shape).asFlatDoubleArray();
+                System.arraycopy(sample, 0, momentum, layout.getOffset(i), layout.getLength(i));
+            }
+        }
+    }
+}
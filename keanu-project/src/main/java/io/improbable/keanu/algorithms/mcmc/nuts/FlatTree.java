@@ -0,0 +1,141 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.SaveStatistics;
+import io.improbable.keanu.algorithms.Statistics;
+import io.improbable.keanu.algorithms.VariableReference;
+
+import java.util.Map;
+
+/**
+ * The same balanced binary tree as {@link Tree} but with its leapfrogs and accepted position held in flat arrays
+ * that are owned by the tree and reused from sample to sample.
+ * <p>
+ * Taking the other half of a tree's edge or accepted position swaps the arrays between the two trees rather than
+ * copying them, so every array is only ever referenced by one tree.
+ */
+class FlatTree implements SaveStatistics {
+
+    static final double DELTA_MAX = 1000.0;
+
+    FlatLeapfrog leapfrogForward;
+    FlatLeapfrog leapfrogBackward;
+    double[] acceptedPosition;
+    double[] gradientAtAcceptedPosition;
+    double logOfMasterPAtAcceptedPosition;
+    Map<VariableReference, ?> sampleAtAcceptedPosition;
+    int acceptedLeapfrogCount;
+    boolean shouldContinueFlag;
+    double deltaLikelihoodOfLeapfrog;
+    double treeSize;
+
+    FlatTree(int dimension) {
+        this.leapfrogForward = new FlatLeapfrog(dimension);
+        this.leapfrogBackward = new FlatLeapfrog(dimension);
+        this.acceptedPosition = new double[dimension];
+        this.gradientAtAcceptedPosition = new double[dimension];
+    }
+
+    /**
+     * Sets this tree to the starting state of a sample at the given position.
+     *
+     * @param position                 the starting position
+     * @param gradient                 the gradient at the starting position
+     * @param initialLogOfMasterP      the log prob at the starting position
+     * @param sampleAtAcceptedPosition the sample at the starting position
+     */
+    void initialise(double[] position,
+                    double[] gradient,
+                    double initialLogOfMasterP,
+                    Map<VariableReference, ?> sampleAtAcceptedPosition) {
+        System.arraycopy(position, 0, acceptedPosition, 0, position.length);
+        System.arraycopy(gradient, 0, gradientAtAcceptedPosition, 0, gradient.length);
+        this.logOfMasterPAtAcceptedPosition = initialLogOfMasterP;
+        this.sampleAtAcceptedPosition = sampleAtAcceptedPosition;
+        this.acceptedLeapfrogCount = 1;
+        this.shouldContinueFlag = true;
+        this.deltaLikelihoodOfLeapfrog = 0.;
+        this.treeSize = 1;
+        acceptPositionAndGradient();
+    }
+
+    void acceptOtherPositionWithProbability(double probability, FlatTree otherTree, KeanuRandom random) {
+        if (random.nextDouble() < probability) {
+            double[] position = acceptedPosition;
+            acceptedPosition = otherTree.acceptedPosition;
+            otherTree.acceptedPosition = position;
+
+            double[] gradient = gradientAtAcceptedPosition;
+            gradientAtAcceptedPosition = otherTree.gradientAtAcceptedPosition;
+            otherTree.gradientAtAcceptedPosition = gradient;
+
+            logOfMasterPAtAcceptedPosition = otherTree.logOfMasterPAtAcceptedPosition;
+            sampleAtAcceptedPosition = otherTree.sampleAtAcceptedPosition;
+        }
+    }
+
+    /**
+     * Takes the edge of the other half of the tree in the direction it was built.
+     *
+     * @param otherHalfTree  a tree built from this tree's edge in the build direction
+     * @param buildDirection -1 for backwards or 1 for forwards
+     */
+    void extendEdge(FlatTree otherHalfTree, int buildDirection) {
+        if (buildDirection == -1) {
+            FlatLeapfrog edge = leapfrogBackward;
+            leapfrogBackward = otherHalfTree.leapfrogBackward;
+            otherHalfTree.leapfrogBackward = edge;
+        } else {
+            FlatLeapfrog edge = leapfrogForward;
+            leapfrogForward = otherHalfTree.leapfrogForward;
+            otherHalfTree.leapfrogForward = edge;
+        }
+    }
+
+    void continueIfNotUTurning(FlatTree otherHalfTree, InverseMetric metric) {
+        shouldContinueFlag = otherHalfTree.shouldContinueFlag && isNotUTurning(metric);
+    }
+
+    /**
+     * The U-turn criterion measured in velocity rather than momentum, so that it is in the same units as position
+     * for any metric.
+     */
+    private boolean isNotUTurning(InverseMetric metric) {
+        final double forward = dotWithDistanceTravelled(metric.velocity(leapfrogForward.momentum));
+        final double backward = dotWithDistanceTravelled(metric.velocity(leapfrogBackward.momentum));
+
+        return (forward >= 0.0) && (backward >= 0.0);
+    }
+
+    private double dotWithDistanceTravelled(double[] velocity) {
+        final double[] positionForward = leapfrogForward.position;
+        final double[] positionBackward = leapfrogBackward.position;
+
+        double dotProduct = 0.0;
+        for (int i = 0; i < positionForward.length; i++) {
+            dotProduct += (positionForward[i] - positionBackward[i]) * velocity[i];
+        }
+        return dotProduct;
+    }
+
+    void resetTreeBeforeSample() {
+        this.shouldContinueFlag = true;
+        this.acceptedLeapfrogCount = 1;
+    }
+
+    void acceptPositionAndGradient() {
+        jumpTo(leapfrogForward);
+        jumpTo(leapfrogBackward);
+    }
+
+    private void jumpTo(FlatLeapfrog leapfrog) {
+        System.arraycopy(acceptedPosition, 0, leapfrog.position, 0, acceptedPosition.length);
+        System.arraycopy(gradientAtAcceptedPosition, 0, leapfrog.gradient, 0, gradientAtAcceptedPosition.length);
+    }
+
+    @Override
+    public void save(Statistics statistics) {
+        statistics.store(NUTS.Metrics.LOG_PROB, logOfMasterPAtAcceptedPosition);
+        statistics.store(NUTS.Metrics.TREE_SIZE, treeSize);
+    }
+}
@@ -0,0 +1,39 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+/**
+ * The inverse of the mass matrix used by {@link FlatNUTSSampler}. Momentum is distributed as N(0, M) where M is the
+ * mass matrix and the kinetic energy is 0.5 * p^T M^-1 p, so a metric that approximates the posterior covariance of
+ * the latents evens out their scales and lets the sampler take larger steps.
+ * <p>
+ * A metric also accumulates the positions it is shown during warmup so that it can be estimated from them.
+ */
+interface InverseMetric {
+
+    /**
+     * @param momentum a standard normal sample that is transformed in place into a sample from N(0, M)
+     */
+    void scaleMomentum(double[] momentum);
+
+    /**
+     * @param momentum the momentum
+     * @return 0.5 * p^T M^-1 p
+     */
+    double kineticEnergy(double[] momentum);
+
+    /**
+     * @param momentum the momentum
+     * @return M^-1 p, in a buffer owned by the metric that is only valid until the next call
+     */
+    double[] velocity(double[] momentum);
+
+    /**
+     * @param position a position to include in the next estimate of the metric
+     */
+    void addSample(double[] position);
+
+    /**
+     * Sets the metric to a regularised estimate from the positions added since it was last set and then forgets
+     * those positions.
+     */
+    void adaptToSamples();
+}
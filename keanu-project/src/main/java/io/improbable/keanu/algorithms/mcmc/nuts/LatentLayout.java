@@ -0,0 +1,105 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed layout of continuous latent variables in a single flat double array. Each variable occupies a contiguous
+ * range of the array, in the order that the variables were given, in its tensor's flattened order.
+ */
+class LatentLayout {
+
+    private final List<? extends Variable<DoubleTensor, ?>> variables;
+    private final long[][] shapes;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int dimension;
+
+    LatentLayout(List<? extends Variable<DoubleTensor, ?>> variables) {
+        this.variables = variables;
+        this.shapes = new long[variables.size()][];
+        this.offsets = new int[variables.size()];
+        this.lengths = new int[variables.size()];
+
+        int offset = 0;
+        for (int i = 0; i < variables.size(); i++) {
+            shapes[i] = variables.get(i).getShape();
+            offsets[i] = offset;
+            lengths[i] = Math.toIntExact(TensorShape.getLength(shapes[i]));
+            offset += lengths[i];
+        }
+        this.dimension = offset;
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    int getVariableCount() {
+        return variables.size();
+    }
+
+    int getOffset(int variableIndex) {
+        return offsets[variableIndex];
+    }
+
+    int getLength(int variableIndex) {
+        return lengths[variableIndex];
+    }
+
+    long[] getShape(int variableIndex) {
+        return shapes[variableIndex];
+    }
+
+    /**
+     * @param into the array to copy the current value of every variable into
+     */
+    void packValues(double[] into) {
+        for (int i = 0; i < variables.size(); i++) {
+            copyInto(variables.get(i).getValue(), i, into);
+        }
+    }
+
+    /**
+     * @param tensors the tensors to pack, keyed by variable. Variables without a tensor are packed as zeros.
+     * @param into    the array to pack into
+     */
+    void pack(Map<? extends VariableReference, DoubleTensor> tensors, double[] into) {
+        for (int i = 0; i < variables.size(); i++) {
+            DoubleTensor tensor = tensors.get(variables.get(i).getReference());
+            if (tensor == null) {
+                Arrays.fill(into, offsets[i], offsets[i] + lengths[i], 0.0);
+            } else {
+                copyInto(tensor, i, into);
+            }
+        }
+    }
+
+    /**
+     * @param from a packed array
+     * @return a tensor for each variable with the values of its range of the array
+     */
+    Map<VariableReference, DoubleTensor> unpack(double[] from) {
+        Map<VariableReference, DoubleTensor> tensors = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            double[] values = Arrays.copyOfRange(from, offsets[i], offsets[i] + lengths[i]);
+            tensors.put(variables.get(i).getReference(), DoubleTensor.create(values, shapes[i]));
+        }
+        return tensors;
+    }
+
+    private void copyInto(DoubleTensor tensor, int variableIndex, double[] into) {
+        if (lengths[variableIndex] == 1) {
+            into[offsets[variableIndex]] = tensor.scalar();
+        } else {
+            System.arraycopy(tensor.asFlatDoubleArray(), 0, into, offsets[variableIndex], lengths[variableIndex]);
+        }
+    }
+}
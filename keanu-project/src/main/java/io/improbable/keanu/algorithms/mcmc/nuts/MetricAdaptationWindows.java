@@ -0,0 +1,91 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+/**
+ * The warmup schedule used to estimate an {@link InverseMetric}, as in Stan.
+ * <p>
+ * Warmup starts with a fast buffer in which only the step size is adapted, followed by a series of slow windows
+ * that each double in length. The metric is estimated from the samples in each slow window at its end. Warmup finishes
+ * with a terminal buffer in which only the step size is adapted to the final metric. If the adapt count is too short
+ * for the default buffers then 15%, 75% and 10% of it is used for the fast buffer, windows and terminal buffer.
+ */
+class MetricAdaptationWindows {
+
+    private static final int DEFAULT_INITIAL_BUFFER = 75;
+    private static final int DEFAULT_TERMINAL_BUFFER = 50;
+    private static final int DEFAULT_BASE_WINDOW = 25;
+    private static final int MINIMUM_ADAPT_COUNT = 20;
+
+    private final int adaptCount;
+    private final int initialBuffer;
+    private final int terminalBuffer;
+
+    private int windowSize;
+    private int nextWindowEnd;
+    private int counter;
+
+    /**
+     * @param adaptCount the number of warmup samples
+     */
+    MetricAdaptationWindows(int adaptCount) {
+        this.adaptCount = adaptCount;
+
+        if (adaptCount < MINIMUM_ADAPT_COUNT) {
+            this.initialBuffer = adaptCount;
+            this.terminalBuffer = 0;
+            this.windowSize = 0;
+        } else if (DEFAULT_INITIAL_BUFFER + DEFAULT_BASE_WINDOW + DEFAULT_TERMINAL_BUFFER > adaptCount) {
+            this.initialBuffer = (int) (0.15 * adaptCount);
+            this.terminalBuffer = (int) (0.1 * adaptCount);
+            this.windowSize = adaptCount - initialBuffer - terminalBuffer;
+        } else {
+            this.initialBuffer = DEFAULT_INITIAL_BUFFER;
+            this.terminalBuffer = DEFAULT_TERMINAL_BUFFER;
+            this.windowSize = DEFAULT_BASE_WINDOW;
+        }
+
+        this.nextWindowEnd = initialBuffer + windowSize - 1;
+        this.counter = 0;
+    }
+
+    /**
+     * Adds the position of the latest warmup sample to the metric if it is in a slow window, and adapts the metric
+     * at the end of each window.
+     *
+     * @param metric   the metric to adapt
+     * @param position the position of the latest sample
+     * @return true if the metric was adapted by this sample
+     */
+    boolean learn(InverseMetric metric, double[] position) {
+        if (isInWindow()) {
+            metric.addSample(position);
+        }
+
+        final boolean isEndOfWindow = isInWindow() && counter == nextWindowEnd;
+        if (isEndOfWindow) {
+            metric.adaptToSamples();
+            computeNextWindow();
+        }
+
+        counter++;
+        return isEndOfWindow;
+    }
+
+    private boolean isInWindow() {
+        return windowSize > 0 && counter >= initialBuffer && counter < adaptCount - terminalBuffer;
+    }
+
+    private void computeNextWindow() {
+        final int lastWindowEnd = adaptCount - terminalBuffer - 1;
+        if (nextWindowEnd == lastWindowEnd) {
+            return;
+        }
+
+        windowSize *= 2;
+        nextWindowEnd = counter + windowSize;
+
+        //Stretch the next window to the terminal buffer if the window after it would not fit
+        if (nextWindowEnd + 2 * windowSize >= adaptCount - terminalBuffer) {
+            nextWindowEnd = lastWindowEnd;
+        }
+    }
+}
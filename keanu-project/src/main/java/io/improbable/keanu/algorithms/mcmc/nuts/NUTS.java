@@ -43,6 +43,14 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         STEPSIZE, LOG_PROB, MEAN_TREE_ACCEPT, TREE_SIZE
     }
 
+    /**
+     * The mass matrix to estimate from the warmup samples. NONE keeps the identity mass matrix, DIAGONAL estimates the
+     * variance of each latent and DENSE estimates the full covariance between latents.
+     */
+    public enum MassMatrixAdaptation {
+        NONE, DIAGONAL, DENSE
+    }
+
     @Getter
     private KeanuRandom random;
 
@@ -70,6 +78,15 @@ public class NUTS implements PosteriorSamplingAlgorithm {
     //Sets whether or not to save debug STATISTICS. The STATISTICS available are: Step size, Log Prob, Mean Tree Acceptance Prob, Tree Size.
     private boolean saveStatistics;
 
+    //Sets whether the latent variables are packed into flat arrays that are updated in place for each leapfrog,
+    //rather than held as a tensor per variable. The samples are the same either way but packing avoids allocating
+    //tensors on every leapfrog, which dominates the cost of sampling models with many small latent variables.
+    private boolean packLatents;
+
+    //Sets the mass matrix that is estimated during the first adaptCount samples, using Stan's windowed warmup.
+    //Any adaptation other than NONE implies packLatents.
+    private MassMatrixAdaptation massMatrixAdaptation;
+
     /**
      * Sample from the posterior of a probabilistic model using the No-U-Turn-Sampling algorithm
      *
@@ -91,7 +108,7 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         return new NetworkSamplesGenerator(setupSampler((ProbabilisticModelWithGradient) model, fromVariables), StatusBar::new);
     }
 
-    private NUTSSampler setupSampler(final ProbabilisticModelWithGradient model,
+    private SamplingAlgorithm setupSampler(final ProbabilisticModelWithGradient model,
                                      final List<? extends Variable> sampleFromVariables) {
 
         Preconditions.checkArgument(!sampleFromVariables.isEmpty(), "List of variables to sample from is empty");
@@ -120,6 +137,41 @@ public class NUTS implements PosteriorSamplingAlgorithm {
             adaptCount
         );
 
+        if (packLatents || massMatrixAdaptation != MassMatrixAdaptation.NONE) {
+            LatentLayout layout = new LatentLayout(latentVariables);
+
+            double[] packedPosition = new double[layout.getDimension()];
+            double[] packedGradient = new double[layout.getDimension()];
+            layout.pack(position, packedPosition);
+            layout.pack(gradient, packedGradient);
+
+            FlatTree tree = new FlatTree(layout.getDimension());
+            tree.initialise(packedPosition, packedGradient, initialLogOfMasterP, startingSample);
+
+            InverseMetric metric = massMatrixAdaptation == MassMatrixAdaptation.DENSE ?
+                new DenseInverseMetric(layout.getDimension()) :
+                new DiagonalInverseMetric(layout.getDimension());
+
+            MetricAdaptationWindows metricAdaptationWindows = massMatrixAdaptation == MassMatrixAdaptation.NONE ?
+                null :
+                new MetricAdaptationWindows(adaptCount);
+
+            return new FlatNUTSSampler(
+                sampleFromVariables,
+                layout,
+                model,
+                adaptEnabled,
+                stepsize,
+                metric,
+                metricAdaptationWindows,
+                tree,
+                maxTreeHeight,
+                random,
+                statistics,
+                saveStatistics
+            );
+        }
+
         Tree tree = Tree.createInitialTree(position, momentum, gradient, initialLogOfMasterP, startingSample);
 
         return new NUTSSampler(
@@ -148,6 +200,8 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         private Double initialStepSize = null;
         private int maxTreeHeight = 10;
         private boolean saveStatistics = false;
+        private boolean packLatents = false;
+        private MassMatrixAdaptation massMatrixAdaptation = MassMatrixAdaptation.NONE;
 
         NUTSBuilder() {
         }
@@ -187,12 +241,22 @@ public class NUTS implements PosteriorSamplingAlgorithm {
             return this;
         }
 
+        public NUTSBuilder packLatents(boolean packLatents) {
+            this.packLatents = packLatents;
+            return this;
+        }
+
+        public NUTSBuilder massMatrixAdaptation(MassMatrixAdaptation massMatrixAdaptation) {
+            this.massMatrixAdaptation = massMatrixAdaptation;
+            return this;
+        }
+
         public NUTS build() {
-            return new NUTS(random, adaptCount, targetAcceptanceProb, adaptEnabled, initialStepSize, maxTreeHeight, saveStatistics);
+            return new NUTS(random, adaptCount, targetAcceptanceProb, adaptEnabled, initialStepSize, maxTreeHeight, saveStatistics, packLatents, massMatrixAdaptation);
         }
 
         public String toString() {
-            return "NUTS.NUTSBuilder(random=" + this.random + ", adaptCount=" + this.adaptCount + ", targetAcceptanceProb=" + this.targetAcceptanceProb + ", adaptEnabled=" + this.adaptEnabled + ", initialStepSize=" + this.initialStepSize + ", maxTreeHeight=" + this.maxTreeHeight + ", saveStatistics=" + this.saveStatistics + ")";
+            return "NUTS.NUTSBuilder(random=" + this.random + ", adaptCount=" + this.adaptCount + ", targetAcceptanceProb=" + this.targetAcceptanceProb + ", adaptEnabled=" + this.adaptEnabled + ", initialStepSize=" + this.initialStepSize + ", maxTreeHeight=" + this.maxTreeHeight + ", saveStatistics=" + this.saveStatistics + ", packLatents=" + this.packLatents + ", massMatrixAdaptation=" + this.massMatrixAdaptation + ")";
         }
     }
 }
@@ -3,13 +3,13 @@ package io.improbable.keanu.algorithms.mcmc.nuts;
 import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.SampleColumns;
 import io.improbable.keanu.algorithms.Statistics;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -179,15 +179,10 @@ class NUTSSampler implements SamplingAlgorithm {
      * @param samples      samples taken already
      * @param cachedSample a cached sample from before leapfrog
      */
-    private static void addSampleFromCache(Map<VariableReference, List<?>> samples, Map<VariableReference, ?> cachedSample) {
+    static void addSampleFromCache(Map<VariableReference, List<?>> samples, Map<VariableReference, ?> cachedSample) {
         for (Map.Entry<VariableReference, ?> sampleEntry : cachedSample.entrySet()) {
-            addSampleForVariable(sampleEntry.getKey(), sampleEntry.getValue(), samples);
+            SampleColumns.addSample(samples, sampleEntry.getKey(), sampleEntry.getValue());
         }
     }
 
-    private static <T> void addSampleForVariable(VariableReference id, T value, Map<VariableReference, List<?>> samples) {
-        List<T> samplesForVariable = (List<T>) samples.computeIfAbsent(id, v -> new ArrayList<T>());
-        samplesForVariable.add(value);
-    }
-
 }
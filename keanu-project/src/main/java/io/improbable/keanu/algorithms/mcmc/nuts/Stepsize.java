@@ -19,7 +19,6 @@ class Stepsize implements SaveStatistics {
     private static final double TEND_TO_ZERO_EXPONENT = 0.75;
     private static final double STARTING_STEPSIZE = 1;
 
-    private final double shrinkageTarget;
     private final double adaptCount;
     private final double targetAcceptanceProb;
 
@@ -27,6 +26,8 @@ class Stepsize implements SaveStatistics {
     private double averageAcceptanceProb;
     private double logStepSizeFrozen;
     private double logStepSize;
+    private double shrinkageTarget;
+    private int restartedAtSampleNum;
 
     /**
      * @param stepsize             the step size
@@ -41,6 +42,7 @@ class Stepsize implements SaveStatistics {
         this.logStepSizeFrozen = Math.log(1);
         this.adaptCount = adaptCount;
         this.shrinkageTarget = Math.log(10 * stepsize);
+        this.restartedAtSampleNum = 0;
     }
 
     /**
@@ -99,9 +101,21 @@ class Stepsize implements SaveStatistics {
      * @return a new step size
      */
     public double adaptStepSize(Tree tree, int sampleNum) {
+        return adaptStepSize(tree.getDeltaLikelihoodOfLeapfrog(), tree.getTreeSize(), sampleNum);
+    }
+
+    /**
+     * Adapts the step size based on the outcome of building a tree for a sample
+     *
+     * @param deltaLikelihoodOfLeapfrog the sum of the acceptance probabilities of the leapfrogs in the tree
+     * @param treeSize                  the number of leapfrogs in the tree
+     * @param sampleNum                 the number of samples that have been taken
+     * @return a new step size
+     */
+    public double adaptStepSize(double deltaLikelihoodOfLeapfrog, double treeSize, int sampleNum) {
 
         if (sampleNum < adaptCount) {
-            logStepSize = updateLogStepSize(tree, sampleNum);
+            logStepSize = updateLogStepSize(deltaLikelihoodOfLeapfrog, treeSize, sampleNum);
         } else {
             logStepSize = logStepSizeFrozen;
         }
@@ -110,7 +124,25 @@ class Stepsize implements SaveStatistics {
         return stepsize;
     }
 
-    private double updateLogStepSize(Tree tree, int sampleNum) {
+    /**
+     * Restarts the dual averaging from the given step size, as if the given sample was the first sample. This is used
+     * when the metric changes during warmup as the step size adapted to the old metric may not suit the new one.
+     *
+     * @param stepsize  the step size to restart from
+     * @param sampleNum the number of samples that have been taken
+     */
+    public void restartAdaptation(double stepsize, int sampleNum) {
+        this.stepsize = stepsize;
+        this.logStepSize = Math.log(stepsize);
+        this.shrinkageTarget = Math.log(10 * stepsize);
+        this.averageAcceptanceProb = 0;
+        this.logStepSizeFrozen = Math.log(1);
+        this.restartedAtSampleNum = sampleNum;
+    }
+
+    private double updateLogStepSize(double deltaLikelihoodOfLeapfrog, double treeSize, int absoluteSampleNum) {
+
+        final int sampleNum = absoluteSampleNum - restartedAtSampleNum;
 
         //1/(m+t0)
         double percentageLeftToTune = (1 / (sampleNum + STABILISER));
@@ -119,7 +151,7 @@ class Stepsize implements SaveStatistics {
         double proportionalAcceptanceProb = (1 - percentageLeftToTune) * averageAcceptanceProb;
 
         //alpha/nu_alpha
-        double averageTreeAcceptanceProb = tree.getDeltaLikelihoodOfLeapfrog() / tree.getTreeSize();
+        double averageTreeAcceptanceProb = deltaLikelihoodOfLeapfrog / treeSize;
 
         //delta - alpha/nu_alpha
         double acceptanceProb = targetAcceptanceProb - averageTreeAcceptanceProb;
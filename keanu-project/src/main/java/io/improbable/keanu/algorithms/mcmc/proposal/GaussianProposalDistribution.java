@@ -27,7 +27,12 @@ public class GaussianProposalDistribution implements ProposalDistribution {
 
     @Override
     public Proposal getProposal(Set<Variable> variables, KeanuRandom random) {
-        Proposal proposal = new Proposal();
+        return getProposal(variables, random, new Proposal());
+    }
+
+    @Override
+    public Proposal getProposal(Set<Variable> variables, KeanuRandom random, Proposal proposal) {
+        proposal.clear();
         for (Variable variable : variables) {
             if (!(variable.getValue() instanceof DoubleTensor)) {
                 throw new IllegalStateException("Gaussian proposal function cannot be used for discrete variable " + variable);
@@ -29,7 +29,12 @@ public class PriorProposalDistribution implements ProposalDistribution {
 
     @Override
     public Proposal getProposal(Set<Variable> variables, KeanuRandom random) {
-        Proposal proposal = new Proposal();
+        return getProposal(variables, random, new Proposal());
+    }
+
+    @Override
+    public Proposal getProposal(Set<Variable> variables, KeanuRandom random, Proposal proposal) {
+        proposal.clear();
         for (Variable<?, ?> variable : variables) {
             setFor(variable, random, proposal);
         }
@@ -3,37 +3,47 @@ package io.improbable.keanu.algorithms.mcmc.proposal;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * The values that a set of variables are proposed to move to and the values they are moving from.
+ * <p>
+ * A proposal can be reused for consecutive steps by calling {@link #clear()} before setting the next proposal,
+ * which avoids allocating new maps on every step.
+ */
 public class Proposal {
 
     private final Map<Variable, Object> perVariableProposalTo;
     private final Map<Variable, Object> perVariableProposalFrom;
+    private final Map<VariableReference, Object> perReferenceProposalTo;
+    private final Map<VariableReference, Object> perReferenceProposalToView;
 
     public Proposal() {
         this.perVariableProposalTo = new HashMap<>();
         this.perVariableProposalFrom = new HashMap<>();
+        this.perReferenceProposalTo = new HashMap<>();
+        this.perReferenceProposalToView = Collections.unmodifiableMap(perReferenceProposalTo);
     }
 
     public <T> void setProposal(Variable<T, ?> variable, T to) {
         perVariableProposalFrom.put(variable, variable.getValue());
         perVariableProposalTo.put(variable, to);
+        perReferenceProposalTo.put(variable.getReference(), to);
     }
 
     public <T> T getProposalTo(Variable<T, ?> variable) {
         return (T) perVariableProposalTo.get(variable);
     }
 
+    /**
+     * @return a read only view of the proposed values keyed by variable reference. The proposal is reused by
+     * the next step so the view is only valid until then.
+     */
     public Map<VariableReference, Object> getProposalTo() {
-        Map<VariableReference, Object> asMap = new HashMap<>();
-
-        for (Map.Entry<Variable, Object> entry : perVariableProposalTo.entrySet()) {
-            asMap.put(entry.getKey().getReference(), entry.getValue());
-        }
-
-        return asMap;
+        return perReferenceProposalToView;
     }
 
     public <T> T getProposalFrom(Variable<T, ?> variable) {
@@ -43,4 +53,13 @@ public class Proposal {
     public Set<Variable> getVariablesWithProposal() {
         return perVariableProposalTo.keySet();
     }
+
+    /**
+     * Removes all the proposed values so that this proposal can be reused.
+     */
+    public void clear() {
+        perVariableProposalTo.clear();
+        perVariableProposalFrom.clear();
+        perReferenceProposalTo.clear();
+    }
 }
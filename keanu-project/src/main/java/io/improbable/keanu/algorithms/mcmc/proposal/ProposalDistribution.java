@@ -10,6 +10,21 @@ public interface ProposalDistribution {
 
     Proposal getProposal(Set<Variable> variables, KeanuRandom random);
 
+    /**
+     * Creates a proposal by overwriting the contents of an existing one rather than allocating a new proposal.
+     * Implementations that do not support reuse can rely on the default, which ignores the given proposal.
+     * This is the form {@link io.improbable.keanu.algorithms.mcmc.MetropolisHastingsStep} calls, so subclasses of
+     * a distribution that overrides it must override this form too.
+     *
+     * @param variables        the variables to propose new values for
+     * @param random           source of randomness
+     * @param reusableProposal a proposal whose contents can be discarded
+     * @return the proposal, which may or may not be reusableProposal
+     */
+    default Proposal getProposal(Set<Variable> variables, KeanuRandom random, Proposal reusableProposal) {
+        return getProposal(variables, random);
+    }
+
     <T> double logProb(Probabilistic<T> variable, T ofValue, T givenValue);
 
     /**
@@ -0,0 +1,35 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.SampleColumns;
+import io.improbable.keanu.algorithms.VariableReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps every sample on the heap, as {@link io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator#generate(int)}
+ * does.
+ */
+public class InMemorySampleSink implements SampleSink {
+
+    private final Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+    private final List<Double> logOfMasterPForEachSample = new ArrayList<>();
+    private int sampleCount = 0;
+
+    @Override
+    public void accept(NetworkSample sample) {
+        for (VariableReference reference : sample.getVariableReferences()) {
+            SampleColumns.addSample(samplesByVariable, reference, sample.get(reference));
+        }
+        logOfMasterPForEachSample.add(sample.getLogOfMasterP());
+        sampleCount++;
+    }
+
+    public NetworkSamples getNetworkSamples() {
+        return new NetworkSamples(samplesByVariable, logOfMasterPForEachSample, sampleCount);
+    }
+}
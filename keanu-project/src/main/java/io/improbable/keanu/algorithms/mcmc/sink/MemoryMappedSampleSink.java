@@ -0,0 +1,264 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes samples of double and integer tensor variables to a file instead of keeping them on the heap.
+ * <p>
+ * The file is split into chunks of a fixed number of samples. Within a chunk, the values of each variable are stored
+ * together (column by column) and the chunk is memory mapped when the first sample is written to it. The
+ * {@link NetworkSamples} returned by {@link #getNetworkSamples()} read each sample from the mapped chunks when it is
+ * asked for, so the heap used stays the same however many samples are taken.
+ * <p>
+ * Every sample must have the same variables with the same shapes as the first sample.
+ */
+public class MemoryMappedSampleSink implements SampleSink, Closeable {
+
+    private static final int DEFAULT_SAMPLES_PER_CHUNK = 1024;
+    private static final int BYTES_PER_VALUE = Double.BYTES;
+
+    private final FileChannel channel;
+    private final int samplesPerChunk;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    private Column[] columns;
+    private int logOfMasterPOffset;
+    private long bytesPerChunk;
+    private int sampleCount = 0;
+
+    /**
+     * @param path the file to write the samples to. It is created if it does not exist and overwritten if it does.
+     * @throws IOException if the file cannot be opened
+     */
+    public MemoryMappedSampleSink(Path path) throws IOException {
+        this(path, DEFAULT_SAMPLES_PER_CHUNK);
+    }
+
+    /**
+     * @param path            the file to write the samples to. It is created if it does not exist and overwritten if it does.
+     * @param samplesPerChunk the number of samples in each mapped chunk of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public MemoryMappedSampleSink(Path path, int samplesPerChunk) throws IOException {
+        Preconditions.checkArgument(samplesPerChunk > 0, "Samples per chunk must be positive but was %s", samplesPerChunk);
+        this.samplesPerChunk = samplesPerChunk;
+        this.channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+    }
+
+    @Override
+    public void accept(NetworkSample sample) {
+        if (columns == null) {
+            createColumns(sample);
+        }
+
+        Preconditions.checkArgument(
+            sample.getVariableReferences().size() == columns.length,
+            "Expected a sample of %s variables but got %s", columns.length, sample.getVariableReferences().size()
+        );
+
+        final int indexInChunk = sampleCount % samplesPerChunk;
+        final MappedByteBuffer chunk = indexInChunk == 0 ? mapChunk(sampleCount / samplesPerChunk) : chunks.get(chunks.size() - 1);
+
+        for (Column column : columns) {
+            column.write(chunk, indexInChunk, sample.get(column.reference));
+        }
+        chunk.putDouble(valueIndex(logOfMasterPOffset, 1, indexInChunk, 0), sample.getLogOfMasterP());
+
+        sampleCount++;
+    }
+
+    private void createColumns(NetworkSample sample) {
+        Set<VariableReference> references = sample.getVariableReferences();
+        columns = new Column[references.size()];
+
+        int offset = 0;
+        int i = 0;
+        for (VariableReference reference : references) {
+            Object value = sample.get(reference);
+            Preconditions.checkArgument(
+                value instanceof DoubleTensor || value instanceof IntegerTensor,
+                "Only double and integer tensors can be written to a file but %s has a value of %s", reference, value
+            );
+
+            long[] shape = value instanceof DoubleTensor ? ((DoubleTensor) value).getShape() : ((IntegerTensor) value).getShape();
+            columns[i] = new Column(reference, value instanceof IntegerTensor, shape, offset);
+            offset += columns[i].length;
+            i++;
+        }
+
+        logOfMasterPOffset = offset;
+        final long valuesPerSample = offset + 1;
+        bytesPerChunk = valuesPerSample * samplesPerChunk * BYTES_PER_VALUE;
+        Preconditions.checkArgument(
+            bytesPerChunk <= Integer.MAX_VALUE,
+            "A chunk of %s samples of %s values is too large to map. Use fewer samples per chunk.", samplesPerChunk, valuesPerSample
+        );
+    }
+
+    private MappedByteBuffer mapChunk(int chunkIndex) {
+        try {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunkIndex * bytesPerChunk, bytesPerChunk);
+            chunks.add(chunk);
+            return chunk;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the byte index of an element of a sample in a chunk
+     */
+    private int valueIndex(int columnOffset, int columnLength, int indexInChunk, int element) {
+        return ((columnOffset * samplesPerChunk) + (indexInChunk * columnLength) + element) * BYTES_PER_VALUE;
+    }
+
+    public int size() {
+        return sampleCount;
+    }
+
+    /**
+     * @return the samples written so far, read from the file as they are accessed. Later samples are not included.
+     */
+    public NetworkSamples getNetworkSamples() {
+        final int size = sampleCount;
+        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+
+        if (columns != null) {
+            for (Column column : columns) {
+                samplesByVariable.put(column.reference, new ColumnList(column, size));
+            }
+        }
+
+        return new NetworkSamples(samplesByVariable, new LogOfMasterPList(size), size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private class Column {
+        private final VariableReference reference;
+        private final boolean isInteger;
+        private final long[] shape;
+        private final int offset;
+        private final int length;
+
+        Column(VariableReference reference, boolean isInteger, long[] shape, int offset) {
+            this.reference = reference;
+            this.isInteger = isInteger;
+            this.shape = shape;
+            this.offset = offset;
+            this.length = TensorShape.getLengthAsInt(shape);
+        }
+
+        void write(MappedByteBuffer chunk, int indexInChunk, Object value) {
+            Preconditions.checkArgument(value != null, "Sample is missing a value for %s", reference);
+
+            final long[] valueShape;
+            final double[] values;
+            if (isInteger) {
+                valueShape = ((IntegerTensor) value).getShape();
+                values = ((IntegerTensor) value).asFlatDoubleArray();
+            } else {
+                valueShape = ((DoubleTensor) value).getShape();
+                values = ((DoubleTensor) value).asFlatDoubleArray();
+            }
+
+            Preconditions.checkArgument(
+                Arrays.equals(shape, valueShape),
+                "Expected %s to have shape %s but got %s", reference, Arrays.toString(shape), Arrays.toString(valueShape)
+            );
+
+            for (int i = 0; i < length; i++) {
+                chunk.putDouble(valueIndex(offset, length, indexInChunk, i), values[i]);
+            }
+        }
+
+        Object read(int sampleIndex) {
+            final MappedByteBuffer chunk = chunks.get(sampleIndex / samplesPerChunk);
+            final int indexInChunk = sampleIndex % samplesPerChunk;
+
+            if (isInteger) {
+                int[] values = new int[length];
+                for (int i = 0; i < length; i++) {
+                    values[i] = (int) chunk.getDouble(valueIndex(offset, length, indexInChunk, i));
+                }
+                return IntegerTensor.create(values, shape);
+            } else {
+                double[] values = new double[length];
+                for (int i = 0; i < length; i++) {
+                    values[i] = chunk.getDouble(valueIndex(offset, length, indexInChunk, i));
+                }
+                return DoubleTensor.create(values, shape);
+            }
+        }
+    }
+
+    private static class ColumnList extends AbstractList<Object> {
+        private final Column column;
+        private final int size;
+
+        ColumnList(Column column, int size) {
+            this.column = column;
+            this.size = size;
+        }
+
+        @Override
+        public Object get(int index) {
+            Preconditions.checkElementIndex(index, size);
+            return column.read(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class LogOfMasterPList extends AbstractList<Double> {
+        private final int size;
+
+        LogOfMasterPList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Double get(int index) {
+            Preconditions.checkElementIndex(index, size);
+            return chunks.get(index / samplesPerChunk).getDouble(valueIndex(logOfMasterPOffset, 1, index % samplesPerChunk, 0));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
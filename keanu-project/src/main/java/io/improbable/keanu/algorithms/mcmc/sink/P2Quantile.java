@@ -0,0 +1,117 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import java.util.Arrays;
+
+/**
+ * An estimate of a single quantile of a stream of values in constant memory, using the P-square algorithm from
+ * "The P2 Algorithm for Dynamic Calculation of Quantiles and Histograms Without Storing Observations"
+ * by Jain and Chlamtac (1985).
+ */
+class P2Quantile {
+
+    private static final int MARKERS = 5;
+
+    private final double[] heights = new double[MARKERS];
+    private final double[] positions = new double[MARKERS];
+    private final double[] desiredPositions = new double[MARKERS];
+    private final double[] desiredPositionIncrements = new double[MARKERS];
+    private long count = 0;
+
+    /**
+     * @param quantile the quantile to estimate, between 0 and 1
+     */
+    P2Quantile(double quantile) {
+        desiredPositionIncrements[0] = 0;
+        desiredPositionIncrements[1] = quantile / 2;
+        desiredPositionIncrements[2] = quantile;
+        desiredPositionIncrements[3] = (1 + quantile) / 2;
+        desiredPositionIncrements[4] = 1;
+
+        desiredPositions[0] = 1;
+        desiredPositions[1] = 1 + 2 * quantile;
+        desiredPositions[2] = 1 + 4 * quantile;
+        desiredPositions[3] = 3 + 2 * quantile;
+        desiredPositions[4] = 5;
+
+        for (int i = 0; i < MARKERS; i++) {
+            positions[i] = i + 1;
+        }
+    }
+
+    void add(double value) {
+        if (count < MARKERS) {
+            heights[(int) count] = value;
+            count++;
+            if (count == MARKERS) {
+                Arrays.sort(heights);
+            }
+            return;
+        }
+        count++;
+
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[MARKERS - 1]) {
+            heights[MARKERS - 1] = value;
+            cell = MARKERS - 2;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) {
+                cell++;
+            }
+        }
+
+        for (int i = cell + 1; i < MARKERS; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < MARKERS; i++) {
+            desiredPositions[i] += desiredPositionIncrements[i];
+        }
+
+        for (int i = 1; i < MARKERS - 1; i++) {
+            final double offset = desiredPositions[i] - positions[i];
+            if ((offset >= 1 && positions[i + 1] - positions[i] > 1) || (offset <= -1 && positions[i - 1] - positions[i] < -1)) {
+                final double direction = Math.signum(offset);
+                final double parabolic = parabolic(i, direction);
+                if (heights[i - 1] < parabolic && parabolic < heights[i + 1]) {
+                    heights[i] = parabolic;
+                } else {
+                    heights[i] = linear(i, direction);
+                }
+                positions[i] += direction;
+            }
+        }
+    }
+
+    private double parabolic(int i, double direction) {
+        return heights[i] + direction / (positions[i + 1] - positions[i - 1]) * (
+            (positions[i] - positions[i - 1] + direction) * (heights[i + 1] - heights[i]) / (positions[i + 1] - positions[i]) +
+                (positions[i + 1] - positions[i] - direction) * (heights[i] - heights[i - 1]) / (positions[i] - positions[i - 1])
+        );
+    }
+
+    private double linear(int i, double direction) {
+        final int neighbour = i + (int) direction;
+        return heights[i] + direction * (heights[neighbour] - heights[i]) / (positions[neighbour] - positions[i]);
+    }
+
+    /**
+     * @return the current estimate of the quantile, or NaN if no values have been added
+     */
+    double getEstimate() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        if (count < MARKERS) {
+            double[] seen = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(seen);
+            int index = (int) Math.round((desiredPositionIncrements[2]) * (count - 1));
+            return seen[index];
+        }
+
+        return heights[2];
+    }
+}
@@ -0,0 +1,22 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator;
+
+/**
+ * Receives the samples taken by a {@link NetworkSamplesGenerator} one at a time. What is kept of each sample
+ * (all of it, a running summary of it or a copy on disk) is up to the sink.
+ */
+public interface SampleSink {
+
+    /**
+     * @param sample a sample that has been taken, after dropping and down-sampling
+     */
+    void accept(NetworkSample sample);
+
+    /**
+     * Called once after the last sample has been accepted.
+     */
+    default void finish() {
+    }
+}
@@ -0,0 +1,94 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Running element-wise statistics of the samples of one variable. The mean and variance are calculated with
+ * Welford's online algorithm and each quantile with a {@link P2Quantile} sketch, so the memory used does not grow
+ * with the number of samples.
+ */
+public class SampleSummary {
+
+    private final long[] shape;
+    private final double[] mean;
+    private final double[] sumOfSquares;
+    private final double[] quantiles;
+    private final P2Quantile[][] quantileSketches;
+
+    @Getter
+    private long count = 0;
+
+    SampleSummary(long[] shape, int length, double[] quantiles) {
+        this.shape = shape;
+        this.mean = new double[length];
+        this.sumOfSquares = new double[length];
+        this.quantiles = quantiles;
+        this.quantileSketches = new P2Quantile[quantiles.length][length];
+
+        for (int q = 0; q < quantiles.length; q++) {
+            for (int i = 0; i < length; i++) {
+                quantileSketches[q][i] = new P2Quantile(quantiles[q]);
+            }
+        }
+    }
+
+    void add(double[] values) {
+        count++;
+        for (int i = 0; i < mean.length; i++) {
+            final double delta = values[i] - mean[i];
+            mean[i] += delta / count;
+            sumOfSquares[i] += delta * (values[i] - mean[i]);
+        }
+
+        for (P2Quantile[] sketches : quantileSketches) {
+            for (int i = 0; i < sketches.length; i++) {
+                sketches[i].add(values[i]);
+            }
+        }
+    }
+
+    public DoubleTensor getMean() {
+        return DoubleTensor.create(Arrays.copyOf(mean, mean.length), shape);
+    }
+
+    /**
+     * @return the unbiased sample variance of each element, or NaN if there are fewer than two samples
+     */
+    public DoubleTensor getVariance() {
+        double[] variance = new double[sumOfSquares.length];
+        for (int i = 0; i < variance.length; i++) {
+            variance[i] = count > 1 ? sumOfSquares[i] / (count - 1) : Double.NaN;
+        }
+        return DoubleTensor.create(variance, shape);
+    }
+
+    /**
+     * @param quantile one of the quantiles that the sink was created to track
+     * @return the estimated quantile of each element
+     * @throws IllegalArgumentException if the quantile is not being tracked
+     */
+    public DoubleTensor getQuantile(double quantile) {
+        for (int q = 0; q < quantiles.length; q++) {
+            if (quantiles[q] == quantile) {
+                double[] estimates = new double[quantileSketches[q].length];
+                for (int i = 0; i < estimates.length; i++) {
+                    estimates[i] = quantileSketches[q][i].getEstimate();
+                }
+                return DoubleTensor.create(estimates, shape);
+            }
+        }
+
+        throw new IllegalArgumentException("Quantile " + quantile + " is not tracked. Tracked quantiles are " + Arrays.toString(quantiles));
+    }
+
+    static double[] checkQuantiles(double[] quantiles) {
+        for (double quantile : quantiles) {
+            Preconditions.checkArgument(quantile >= 0.0 && quantile <= 1.0, "Quantile %s must be between 0 and 1", quantile);
+        }
+        return quantiles.clone();
+    }
+}
@@ -0,0 +1,74 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a running {@link SampleSummary} of each double or integer tensor variable instead of the samples themselves,
+ * so the memory used stays the same however many samples are taken. Variables with any other type of value are
+ * ignored.
+ */
+public class SummarySampleSink implements SampleSink {
+
+    private static final double[] DEFAULT_QUANTILES = new double[]{0.05, 0.5, 0.95};
+
+    private final double[] quantiles;
+    private final Map<VariableReference, SampleSummary> summaries = new HashMap<>();
+    private final SampleSummary logOfMasterPSummary;
+
+    public SummarySampleSink() {
+        this(DEFAULT_QUANTILES);
+    }
+
+    /**
+     * @param quantiles the quantiles to estimate for each element of each variable
+     */
+    public SummarySampleSink(double... quantiles) {
+        this.quantiles = SampleSummary.checkQuantiles(quantiles);
+        this.logOfMasterPSummary = new SampleSummary(Tensor.SCALAR_SHAPE, 1, this.quantiles);
+    }
+
+    @Override
+    public void accept(NetworkSample sample) {
+        for (VariableReference reference : sample.getVariableReferences()) {
+            Object value = sample.get(reference);
+
+            if (value instanceof DoubleTensor || value instanceof IntegerTensor) {
+                Tensor<?> tensor = (Tensor<?>) value;
+                summaries
+                    .computeIfAbsent(reference, r -> new SampleSummary(
+                        tensor.getShape(),
+                        TensorShape.getLengthAsInt(tensor.getShape()),
+                        quantiles
+                    ))
+                    .add(tensor.asFlatDoubleArray());
+            }
+        }
+
+        logOfMasterPSummary.add(new double[]{sample.getLogOfMasterP()});
+    }
+
+    /**
+     * @param reference the variable to get the summary of
+     * @return the summary of the variable, or null if it has not been sampled or is not a double or integer tensor
+     */
+    public SampleSummary getSummary(VariableReference reference) {
+        return summaries.get(reference);
+    }
+
+    public Map<VariableReference, SampleSummary> getSummaries() {
+        return Collections.unmodifiableMap(summaries);
+    }
+
+    public SampleSummary getLogOfMasterPSummary() {
+        return logOfMasterPSummary;
+    }
+}
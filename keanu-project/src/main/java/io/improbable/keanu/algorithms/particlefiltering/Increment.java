@@ -0,0 +1,24 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.vertices.Vertex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One observed vertex added to the subgraph under consideration, with the latent vertices it depends on.
+ */
+@Getter
+@AllArgsConstructor
+class Increment {
+
+    //The observed vertex being added
+    private final Vertex observed;
+
+    //Latent vertices that the observed vertex depends on and that earlier increments have already added
+    private final List<Vertex> upstreamLatents;
+
+    //Latent vertices that the observed vertex depends on that are added by this increment, in topological order
+    private final List<Vertex> newLatents;
+}
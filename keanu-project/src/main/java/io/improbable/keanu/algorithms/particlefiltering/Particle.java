@@ -1,11 +1,8 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
-import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,9 +12,15 @@ import java.util.Map;
  */
 public class Particle {
 
-    private Map<Vertex, Object> latentVertices = new HashMap<>();
-    private List<Vertex> observedVertices = new ArrayList<>();
-    private double sumLogPOfSubgraph = 1.0;
+    private final Map<Vertex, Object> latentVertices;
+    private final List<Vertex> observedVertices;
+    private final double sumLogPOfSubgraph;
+
+    Particle(Map<Vertex, Object> latentVertices, List<Vertex> observedVertices, double sumLogPOfSubgraph) {
+        this.latentVertices = latentVertices;
+        this.observedVertices = observedVertices;
+        this.sumLogPOfSubgraph = sumLogPOfSubgraph;
+    }
 
     public Map<Vertex, Object> getLatentVertices() {
         return latentVertices;
@@ -38,41 +41,7 @@ public class Particle {
         return (T) latentVertices.get(vertex);
     }
 
-    <T> void addLatentVertex(Vertex<T> vertex, T value) {
-        latentVertices.put(vertex, value);
-    }
-
-    <T> void addObservedVertex(Vertex<T> vertex) {
-        observedVertices.add(vertex);
-    }
-
-    double updateSumLogPOfSubgraph() {
-        applyLatentVertexValues();
-        double sumLogPOfLatents = ProbabilityCalculator.calculateLogProbFor(latentVertices.keySet());
-        double sumLogPOfObservables = ProbabilityCalculator.calculateLogProbFor(observedVertices);
-        sumLogPOfSubgraph = sumLogPOfLatents + sumLogPOfObservables;
-        return sumLogPOfSubgraph;
-    }
-
-    Particle shallowCopy() {
-        Particle clone = new Particle();
-        clone.latentVertices = new HashMap<>(this.latentVertices);
-        clone.observedVertices = new ArrayList<>(this.observedVertices);
-        return clone;
-    }
-
     static int sortDescending(Particle a, Particle b) {
         return Double.compare(b.logProb(), a.logProb());
     }
-
-    private void applyLatentVertexValues() {
-        latentVertices.keySet().forEach(this::applyLatentVertexValue);
-    }
-
-    private <T> void applyLatentVertexValue(Vertex<T> vertex) {
-        if (latentVertices.containsKey(vertex)) {
-            T value = (T) latentVertices.get(vertex);
-            vertex.setAndCascade(value);
-        }
-    }
 }
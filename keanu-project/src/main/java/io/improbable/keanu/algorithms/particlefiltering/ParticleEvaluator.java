@@ -0,0 +1,99 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.CascadeSchedule;
+import io.improbable.keanu.network.NetworkCopy;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Extends particles with values for the latent vertices of an increment and weights them, using its own vertices.
+ * Evaluators that use different copies of the network can extend particles at the same time.
+ */
+class ParticleEvaluator {
+
+    private final Function<Vertex, Vertex> localVertex;
+
+    private Increment lastIncrement;
+    private List<Vertex> upstreamLatents;
+    private List<Vertex> newLatents;
+    private List<Vertex> observed;
+    private CascadeSchedule upstreamCascade;
+
+    private ParticleEvaluator(Function<Vertex, Vertex> localVertex) {
+        this.localVertex = localVertex;
+    }
+
+    /**
+     * @return an evaluator that uses the vertices of the network being filtered
+     */
+    static ParticleEvaluator onOriginal() {
+        return new ParticleEvaluator(Function.identity());
+    }
+
+    /**
+     * @param copy a copy of the network being filtered
+     * @return an evaluator that uses the copies of the vertices of the network being filtered
+     */
+    static ParticleEvaluator onCopy(NetworkCopy copy) {
+        return new ParticleEvaluator(vertex -> copy.getCopyOf(vertex.getId()));
+    }
+
+    /**
+     * Samples a value for each new latent vertex of the increment for the particles from index from up to but
+     * excluding index to, and adds the log prob of the new latent vertices and the observed vertex to their log prob.
+     *
+     * @param particles particles that have a value for every upstream latent vertex of the increment
+     * @param increment the latent vertices and observed vertex that are being added
+     * @param from      the first particle to extend
+     * @param to        the particle after the last one to extend
+     * @param random    the source of the sampled values
+     */
+    void extend(ParticleSet particles, Increment increment, int from, int to, KeanuRandom random) {
+        useIncrement(increment);
+
+        for (int particle = from; particle < to; particle++) {
+            for (int i = 0; i < upstreamLatents.size(); i++) {
+                upstreamLatents.get(i).setValue(particles.getValue(increment.getUpstreamLatents().get(i), particle));
+            }
+            cascadeUpstreamLatents();
+
+            for (int i = 0; i < newLatents.size(); i++) {
+                Vertex latent = newLatents.get(i);
+                Object value = latent.sample(random);
+                latent.setAndCascade(value);
+                particles.setValue(increment.getNewLatents().get(i), particle, value);
+            }
+
+            double logProb = ProbabilityCalculator.calculateLogProbFor(newLatents) +
+                ProbabilityCalculator.calculateLogProbFor(observed);
+            particles.addLogProb(particle, logProb);
+        }
+    }
+
+    private void useIncrement(Increment increment) {
+        if (increment != lastIncrement) {
+            upstreamLatents = increment.getUpstreamLatents().stream().map(localVertex).collect(toList());
+            newLatents = increment.getNewLatents().stream().map(localVertex).collect(toList());
+            observed = Collections.singletonList(localVertex.apply(increment.getObserved()));
+            upstreamCascade = upstreamLatents.isEmpty() ? null : CascadeSchedule.of(upstreamLatents);
+            lastIncrement = increment;
+        }
+    }
+
+    private void cascadeUpstreamLatents() {
+        if (upstreamCascade == null) {
+            return;
+        }
+        if (upstreamCascade.isStale()) {
+            upstreamCascade = CascadeSchedule.of(upstreamLatents);
+        }
+        upstreamCascade.apply();
+    }
+}
@@ -1,13 +1,24 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
 import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.NetworkCopy;
 import io.improbable.keanu.vertices.Vertex;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.improbable.keanu.algorithms.ParallelWork.awaitAll;
+import static io.improbable.keanu.algorithms.ParallelWork.newDaemonThreadPool;
+import static java.util.stream.Collectors.toList;
 
 /***
  * This class allows you to create particle filters to find likely states of a network (i.e. Particles)
@@ -23,13 +34,20 @@ import java.util.Set;
  *
  * This methodology is similar to the Sequential Importance Resampling Algorithm described here
  * (https://www.lancaster.ac.uk/pg/turnerl/PartileFiltering.pdf).
+ *
+ * The particles are held as a column of values per latent vertex rather than as a map per particle, and are chosen
+ * with an O(N) {@link ResamplingScheme}. The particles are split between threads, each of which samples and weights
+ * its share on its own copy of the network.
  */
+@Slf4j
 public class ParticleFilter {
     private Collection<? extends Vertex> vertices;
     private int numParticles;
     private int resamplingCycles;
     private double resamplingProportion;
     private KeanuRandom random;
+    private ResamplingScheme resamplingScheme;
+    private int threadCount;
     private List<Particle> particles;
 
     /**
@@ -50,12 +68,27 @@ public class ParticleFilter {
                           int resamplingCycles,
                           double resamplingProportion,
                           KeanuRandom random) {
+        this(vertices, numParticles, resamplingCycles, resamplingProportion, random, ResamplingScheme.SYSTEMATIC, 1);
+    }
+
+    public ParticleFilter(Collection<? extends Vertex> vertices,
+                          int numParticles,
+                          int resamplingCycles,
+                          double resamplingProportion,
+                          KeanuRandom random,
+                          ResamplingScheme resamplingScheme,
+                          int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count of " + threadCount + " is invalid. At least one thread is required.");
+        }
         this.vertices = vertices;
         this.numParticles = numParticles;
         this.resamplingCycles = resamplingCycles;
         this.resamplingProportion = resamplingProportion;
         this.random = random;
-        sort();
+        this.resamplingScheme = resamplingScheme;
+        this.threadCount = threadCount;
+        filter();
     }
 
     /**
@@ -67,106 +100,116 @@ public class ParticleFilter {
     }
 
     public Particle getMostProbableParticle() {
-        return particles.get(0);
+        return particles.stream()
+            .max(Comparator.comparingDouble(Particle::logProb))
+            .orElseThrow(() -> new IllegalStateException("There are no particles"));
     }
 
     public List<Particle> getMostProbableParticles() {
         return particles;
     }
 
-    private void sort() {
+    private void filter() {
         Map<Vertex, Set<Vertex>> obsVertIncrDependencies = LatentIncrementSort.sort(this.vertices);
+        Map<Vertex, Set<Vertex>> dependencies = TopologicalSort.mapDependencies(this.vertices);
         List<Vertex> observedVertexOrder = new ArrayList<>(obsVertIncrDependencies.keySet());
-        List<Particle> particles = createEmptyParticles(this.numParticles);
 
-        for (int i = 0; i < observedVertexOrder.size(); i++) {
-            Vertex<?> nextObsVertex = observedVertexOrder.get(i);
-            Set<Vertex> vertexDeps = obsVertIncrDependencies.get(nextObsVertex);
-            particles = updateParticles(nextObsVertex, vertexDeps, particles);
-        }
-
-        this.particles = particles;
-    }
-
-    private List<Particle> updateParticles(Vertex<?> nextObservedVertex,
-                                                  Set<Vertex> vertexDeps,
-                                                  List<Particle> particles) {
-
-        List<Particle> updatedParticles = sampleAndCopy(particles, numParticles);
-        addObservedVertexToParticles(updatedParticles, nextObservedVertex, vertexDeps);
+        List<ParticleEvaluator> evaluators = createEvaluators(Math.min(threadCount, Math.max(1, numParticles)));
+        ExecutorService executor = evaluators.size() > 1 ? newDaemonThreadPool(evaluators.size() - 1) : null;
 
-        for (int i = 0; i < this.resamplingCycles; i++) {
-            updatedParticles = removeWorstParticles(updatedParticles);
-            int numToSample = this.numParticles - updatedParticles.size();
-            List<Particle> sampledParticles = sampleAndCopy(particles, numToSample);
-            addObservedVertexToParticles(sampledParticles, nextObservedVertex, vertexDeps);
-            updatedParticles.addAll(sampledParticles);
-        }
-
-        return updatedParticles;
-    }
+        try {
+            ParticleSet particles = ParticleSet.empty(this.numParticles);
 
+            for (Vertex<?> nextObsVertex : observedVertexOrder) {
+                Set<Vertex> newLatents = obsVertIncrDependencies.get(nextObsVertex);
+                List<Vertex> upstreamLatents = dependencies.get(nextObsVertex).stream()
+                    .filter(v -> v.isProbabilistic() && !v.isObserved() && !newLatents.contains(v))
+                    .collect(toList());
 
-    private List<Particle> createEmptyParticles(int number) {
+                Increment increment = new Increment(nextObsVertex, upstreamLatents, TopologicalSort.sort(newLatents));
+                particles = updateParticles(increment, particles, evaluators, executor);
+            }
 
-        List<Particle> emptyParticles = new ArrayList<>();
-        for (int i = 0; i < number; i++) {
-            emptyParticles.add(new Particle());
+            this.particles = particles.toParticles(observedVertexOrder);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
-
-        return emptyParticles;
     }
 
-    private void addObservedVertexToParticles(List<Particle> particles,
-                                                     Vertex<?> observedVertex,
-                                                     Set<Vertex> vertexDependencies) {
+    /**
+     * The first evaluator uses the original vertices. The others each use their own copy of the network.
+     */
+    private List<ParticleEvaluator> createEvaluators(int evaluatorCount) {
+        List<ParticleEvaluator> evaluators = new ArrayList<>(evaluatorCount);
+        evaluators.add(ParticleEvaluator.onOriginal());
 
-        for (Particle particle : particles) {
-            particle.addObservedVertex(observedVertex);
-            for (Vertex<?> latentVertex : vertexDependencies) {
-                sampleValueAndAddToParticle(latentVertex, particle);
+        try {
+            for (int i = 1; i < evaluatorCount; i++) {
+                evaluators.add(ParticleEvaluator.onCopy(NetworkCopy.of(new BayesianNetwork(vertices))));
             }
-
-            particle.updateSumLogPOfSubgraph();
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot copy the network so the particles will be evaluated on one thread: " + e.getMessage());
+            return evaluators.subList(0, 1);
         }
-    }
 
-    private <T> void sampleValueAndAddToParticle(Vertex<T> vertex, Particle particle) {
-        T sample = vertex.sample(random);
-        particle.addLatentVertex(vertex, sample);
+        return evaluators;
     }
 
-    private List<Particle> removeWorstParticles(List<Particle> particles) {
-        particles.sort(Particle::sortDescending);
-        int numberToKeep = (int) (particles.size() * (1.0 - resamplingProportion));
-        List<Particle> particlesToKeep = particles.subList(0, numberToKeep);
-        return new ArrayList<>(particlesToKeep);
-    }
+    private ParticleSet updateParticles(Increment increment,
+                                        ParticleSet particles,
+                                        List<ParticleEvaluator> evaluators,
+                                        ExecutorService executor) {
 
-    private List<Particle> sampleAndCopy(List<Particle> particles, int numToSample) {
+        ParticleSet updatedParticles = sampleAndExtend(particles, numParticles, increment, evaluators, executor);
+        int numberToKeep = (int) (numParticles * (1.0 - resamplingProportion));
 
-        double sumWeights = particles.stream().mapToDouble(p -> Math.exp(p.logProb())).sum();
-        List<Particle> sampledParticles = new ArrayList<>();
-        for (int i = 0; i < numToSample; i++) {
-            Particle sampledParticle = weightedRandomParticle(particles, sumWeights);
-            sampledParticles.add(sampledParticle.shallowCopy());
+        for (int i = 0; i < this.resamplingCycles; i++) {
+            ParticleSet keptParticles = updatedParticles.select(
+                resamplingScheme.resample(updatedParticles.getLogProbs(), numberToKeep, random)
+            );
+            ParticleSet sampledParticles = sampleAndExtend(particles, numParticles - numberToKeep, increment, evaluators, executor);
+            updatedParticles = keptParticles.concat(sampledParticles);
         }
 
-        return sampledParticles;
+        return updatedParticles;
     }
 
-    private Particle weightedRandomParticle(List<Particle> particles, double sumWeights) {
-        double r = random.nextDouble() * sumWeights;
-        double cumulativeWeight = 0;
-        Particle p = particles.get(0);
-        for (int i = 0; i < particles.size(); i++) {
-            p = particles.get(i);
-            cumulativeWeight += Math.exp(p.logProb());
-            if (cumulativeWeight > r) {
-                break;
+    /**
+     * Chooses particles in proportion to their weight and extends the chosen particles with the increment. The
+     * particles are split into one contiguous chunk per evaluator and each chunk samples from its own random, split
+     * from the random of this filter.
+     */
+    private ParticleSet sampleAndExtend(ParticleSet particles,
+                                        int numToSample,
+                                        Increment increment,
+                                        List<ParticleEvaluator> evaluators,
+                                        ExecutorService executor) {
+
+        ParticleSet sampledParticles = particles
+            .select(resamplingScheme.resample(particles.getLogProbs(), numToSample, random))
+            .withLatentVertices(increment.getNewLatents());
+
+        int chunkSize = (numToSample + evaluators.size() - 1) / evaluators.size();
+        List<Future<?>> futures = new ArrayList<>(evaluators.size() - 1);
+        for (int i = 1; i < evaluators.size(); i++) {
+            int from = Math.min(numToSample, i * chunkSize);
+            int to = Math.min(numToSample, from + chunkSize);
+            if (from < to) {
+                ParticleEvaluator evaluator = evaluators.get(i);
+                KeanuRandom chunkRandom = random.split();
+                futures.add(executor.submit(() -> evaluator.extend(sampledParticles, increment, from, to, chunkRandom)));
             }
         }
 
-        return p;
+        KeanuRandom firstChunkRandom = evaluators.size() == 1 ? random : random.split();
+        try {
+            evaluators.get(0).extend(sampledParticles, increment, 0, Math.min(numToSample, chunkSize), firstChunkRandom);
+        } finally {
+            awaitAll(futures, "particle evaluation");
+        }
+
+        return sampledParticles;
     }
 }
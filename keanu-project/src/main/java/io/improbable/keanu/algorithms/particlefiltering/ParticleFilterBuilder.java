@@ -12,6 +12,8 @@ public class ParticleFilterBuilder {
     private int resamplingCycles = 3;
     private double resamplingProportion = 0.5;
     private KeanuRandom random = KeanuRandom.getDefaultRandom();
+    private ResamplingScheme resamplingScheme = ResamplingScheme.SYSTEMATIC;
+    private int threadCount = 1;
 
     /**
      * @param vertices the vertices of a Bayesian network to find probable values for
@@ -59,7 +61,27 @@ public class ParticleFilterBuilder {
         return this;
     }
 
+    /**
+     * @param resamplingScheme how particles are chosen in proportion to their probability
+     * @return this
+     */
+    public ParticleFilterBuilder withResamplingScheme(ResamplingScheme resamplingScheme) {
+        this.resamplingScheme = resamplingScheme;
+        return this;
+    }
+
+    /**
+     * @param threadCount the number of threads to sample and weight the particles on. Each thread other than the
+     *                    calling thread works on its own copy of the network, so the network must be saveable if
+     *                    this is more than one. The particles found depend on the thread count.
+     * @return this
+     */
+    public ParticleFilterBuilder withThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+        return this;
+    }
+
     public ParticleFilter build() {
-        return new ParticleFilter(vertices, numParticles, resamplingCycles, resamplingProportion, random);
+        return new ParticleFilter(vertices, numParticles, resamplingCycles, resamplingProportion, random, resamplingScheme, threadCount);
     }
 }
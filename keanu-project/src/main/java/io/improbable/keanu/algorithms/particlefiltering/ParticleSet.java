@@ -0,0 +1,130 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of particles held as one column of values per latent vertex and one array of log probs, rather than as one
+ * map per particle. Choosing particles copies references within the columns and nothing else.
+ */
+class ParticleSet {
+
+    private final List<Vertex> latentVertices;
+    private final Map<Vertex, Object[]> columns;
+    private final double[] logProbs;
+
+    private ParticleSet(List<Vertex> latentVertices, Map<Vertex, Object[]> columns, double[] logProbs) {
+        this.latentVertices = latentVertices;
+        this.columns = columns;
+        this.logProbs = logProbs;
+    }
+
+    /**
+     * @param size the number of particles
+     * @return particles that have no latent vertices and equal weights
+     */
+    static ParticleSet empty(int size) {
+        return new ParticleSet(new ArrayList<>(), new HashMap<>(), new double[size]);
+    }
+
+    int size() {
+        return logProbs.length;
+    }
+
+    List<Vertex> getLatentVertices() {
+        return latentVertices;
+    }
+
+    double[] getLogProbs() {
+        return logProbs;
+    }
+
+    Object getValue(Vertex vertex, int particle) {
+        return columns.get(vertex)[particle];
+    }
+
+    void setValue(Vertex vertex, int particle, Object value) {
+        columns.get(vertex)[particle] = value;
+    }
+
+    void addLogProb(int particle, double logProb) {
+        logProbs[particle] += logProb;
+    }
+
+    /**
+     * @param indices the index of each particle to choose. A particle can be chosen more than once.
+     * @return the chosen particles
+     */
+    ParticleSet select(int[] indices) {
+        Map<Vertex, Object[]> selectedColumns = new HashMap<>();
+        for (Vertex vertex : latentVertices) {
+            Object[] column = columns.get(vertex);
+            Object[] selectedColumn = new Object[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                selectedColumn[i] = column[indices[i]];
+            }
+            selectedColumns.put(vertex, selectedColumn);
+        }
+
+        double[] selectedLogProbs = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selectedLogProbs[i] = logProbs[indices[i]];
+        }
+
+        return new ParticleSet(latentVertices, selectedColumns, selectedLogProbs);
+    }
+
+    /**
+     * @param newLatentVertices latent vertices to add an empty column for
+     * @return the same particles with a column for each of the new latent vertices
+     */
+    ParticleSet withLatentVertices(List<Vertex> newLatentVertices) {
+        List<Vertex> allLatentVertices = new ArrayList<>(latentVertices);
+        Map<Vertex, Object[]> allColumns = new HashMap<>(columns);
+        for (Vertex vertex : newLatentVertices) {
+            allLatentVertices.add(vertex);
+            allColumns.put(vertex, new Object[size()]);
+        }
+        return new ParticleSet(allLatentVertices, allColumns, logProbs);
+    }
+
+    /**
+     * @param other particles with the same latent vertices as these
+     * @return these particles followed by the other particles
+     */
+    ParticleSet concat(ParticleSet other) {
+        Map<Vertex, Object[]> concatenatedColumns = new HashMap<>();
+        for (Vertex vertex : latentVertices) {
+            Object[] column = new Object[size() + other.size()];
+            System.arraycopy(columns.get(vertex), 0, column, 0, size());
+            System.arraycopy(other.columns.get(vertex), 0, column, size(), other.size());
+            concatenatedColumns.put(vertex, column);
+        }
+
+        double[] concatenatedLogProbs = new double[size() + other.size()];
+        System.arraycopy(logProbs, 0, concatenatedLogProbs, 0, size());
+        System.arraycopy(other.logProbs, 0, concatenatedLogProbs, size(), other.size());
+
+        return new ParticleSet(latentVertices, concatenatedColumns, concatenatedLogProbs);
+    }
+
+    /**
+     * @param observedVertices the observed vertices that the particles have been weighted by
+     * @return a {@link Particle} for each particle in this set
+     */
+    List<Particle> toParticles(List<Vertex> observedVertices) {
+        List<Particle> particles = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            Map<Vertex, Object> values = new HashMap<>();
+            for (Vertex vertex : latentVertices) {
+                values.put(vertex, columns.get(vertex)[i]);
+            }
+            particles.add(new Particle(values, observedVertices, logProbs[i]));
+        }
+        return particles;
+    }
+}
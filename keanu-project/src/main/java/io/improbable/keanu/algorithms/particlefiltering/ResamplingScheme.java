@@ -0,0 +1,73 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.KeanuRandom;
+
+/**
+ * Ways of choosing particles in proportion to their weights. Both schemes make a single pass over the cumulative
+ * weights so they take O(N) time, and both have a lower variance than drawing each particle independently.
+ */
+public enum ResamplingScheme {
+
+    /**
+     * One uniform offset is shared by evenly spaced positions along the cumulative weights.
+     */
+    SYSTEMATIC {
+        @Override
+        double offsetInStratum(double sharedOffset, KeanuRandom random) {
+            return sharedOffset;
+        }
+    },
+
+    /**
+     * The cumulative weights are split into evenly sized strata and a position is drawn uniformly in each.
+     */
+    STRATIFIED {
+        @Override
+        double offsetInStratum(double sharedOffset, KeanuRandom random) {
+            return random.nextDouble();
+        }
+    };
+
+    abstract double offsetInStratum(double sharedOffset, KeanuRandom random);
+
+    /**
+     * @param logWeights the log of the (unnormalised) weight of each particle
+     * @param count      the number of particles to choose
+     * @param random     the source of randomness
+     * @return the indices of the chosen particles, in ascending order. If every weight is zero then the particles
+     * are chosen as if they had equal weights.
+     */
+    public int[] resample(double[] logWeights, int count, KeanuRandom random) {
+        double maxLogWeight = Double.NEGATIVE_INFINITY;
+        for (double logWeight : logWeights) {
+            if (logWeight > maxLogWeight) {
+                maxLogWeight = logWeight;
+            }
+        }
+        boolean allImpossible = maxLogWeight == Double.NEGATIVE_INFINITY;
+
+        double[] cumulativeWeights = new double[logWeights.length];
+        double totalWeight = 0.0;
+        for (int i = 0; i < logWeights.length; i++) {
+            if (allImpossible) {
+                totalWeight += 1.0;
+            } else if (!Double.isNaN(logWeights[i])) {
+                totalWeight += Math.exp(logWeights[i] - maxLogWeight);
+            }
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        int[] chosen = new int[count];
+        double sharedOffset = random.nextDouble();
+        int particle = 0;
+        for (int i = 0; i < count; i++) {
+            double position = (i + offsetInStratum(sharedOffset, random)) / count * totalWeight;
+            while (particle < logWeights.length - 1 && cumulativeWeights[particle] <= position) {
+                particle++;
+            }
+            chosen[i] = particle;
+        }
+
+        return chosen;
+    }
+}
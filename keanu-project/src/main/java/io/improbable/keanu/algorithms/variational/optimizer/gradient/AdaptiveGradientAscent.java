@@ -0,0 +1,89 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+/**
+ * Gradient ascent with a learning rate per latent dimension that adapts to the gradients seen so far, using either
+ * the Adam or the AdaGrad update. Each iteration takes one gradient evaluation, and the first and second moment
+ * estimates are kept in preallocated buffers. If it has not converged by the maximum number of evaluations it stops
+ * at the best point found so far.
+ * <p>
+ * Adam: A Method for Stochastic Optimization, https://arxiv.org/pdf/1412.6980.pdf
+ * <p>
+ * Adaptive Subgradient Methods for Online Learning and Stochastic Optimization,
+ * http://jmlr.org/papers/volume12/duchi11a/duchi11a.pdf
+ */
+class AdaptiveGradientAscent implements FlatGradientAscent {
+
+    private static final double FIRST_MOMENT_DECAY = 0.9;
+    private static final double SECOND_MOMENT_DECAY = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private final boolean adam;
+    private final double learningRate;
+    private final ConvergenceChecker convergenceChecker;
+
+    private AdaptiveGradientAscent(boolean adam, double learningRate, ConvergenceChecker convergenceChecker) {
+        if (learningRate <= 0) {
+            throw new IllegalArgumentException("Learning rate of " + learningRate + " is invalid. It must be positive.");
+        }
+        this.adam = adam;
+        this.learningRate = learningRate;
+        this.convergenceChecker = convergenceChecker;
+    }
+
+    static AdaptiveGradientAscent adam(double learningRate, ConvergenceChecker convergenceChecker) {
+        return new AdaptiveGradientAscent(true, learningRate, convergenceChecker);
+    }
+
+    static AdaptiveGradientAscent adaGrad(double learningRate, ConvergenceChecker convergenceChecker) {
+        return new AdaptiveGradientAscent(false, learningRate, convergenceChecker);
+    }
+
+    @Override
+    public double maximize(FlatFitnessFunction fitnessFunction, double[] startingPoint, double startingFitness, double[] startingGradient) {
+        int n = startingPoint.length;
+
+        double[] point = startingPoint.clone();
+        double[] gradient = startingGradient.clone();
+        double[] firstMoment = new double[n];
+        double[] secondMoment = new double[n];
+        double[] bestPoint = startingPoint.clone();
+
+        double fitness = startingFitness;
+        double bestFitness = fitness;
+        double firstMomentCorrection = 1.0;
+        double secondMomentCorrection = 1.0;
+
+        for (int iteration = 1; iteration < convergenceChecker.getMaxEvaluations(); iteration++) {
+            if (adam) {
+                firstMomentCorrection *= FIRST_MOMENT_DECAY;
+                secondMomentCorrection *= SECOND_MOMENT_DECAY;
+                double stepSize = learningRate * Math.sqrt(1 - secondMomentCorrection) / (1 - firstMomentCorrection);
+
+                for (int i = 0; i < n; i++) {
+                    firstMoment[i] = FIRST_MOMENT_DECAY * firstMoment[i] + (1 - FIRST_MOMENT_DECAY) * gradient[i];
+                    secondMoment[i] = SECOND_MOMENT_DECAY * secondMoment[i] + (1 - SECOND_MOMENT_DECAY) * gradient[i] * gradient[i];
+                    point[i] += stepSize * firstMoment[i] / (Math.sqrt(secondMoment[i]) + EPSILON);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    secondMoment[i] += gradient[i] * gradient[i];
+                    point[i] += learningRate * gradient[i] / (Math.sqrt(secondMoment[i]) + EPSILON);
+                }
+            }
+
+            double previousFitness = fitness;
+            fitness = fitnessFunction.valueAndGradient(point, gradient);
+
+            if (fitness > bestFitness) {
+                bestFitness = fitness;
+                System.arraycopy(point, 0, bestPoint, 0, n);
+            }
+
+            if (Double.isNaN(fitness) || convergenceChecker.hasConverged(previousFitness, fitness)) {
+                break;
+            }
+        }
+
+        return fitnessFunction.value(bestPoint);
+    }
+}
@@ -0,0 +1,24 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Decides that an optimizer has converged when the fitness changes by no more than a relative or an absolute
+ * threshold between iterations, in the same way as Apache's SimpleValueChecker.
+ */
+@AllArgsConstructor
+class ConvergenceChecker {
+
+    private final double relativeThreshold;
+    private final double absoluteThreshold;
+
+    @Getter
+    private final int maxEvaluations;
+
+    boolean hasConverged(double previousFitness, double currentFitness) {
+        double difference = Math.abs(previousFitness - currentFitness);
+        double size = Math.max(Math.abs(previousFitness), Math.abs(currentFitness));
+        return difference <= size * relativeThreshold || difference <= absoluteThreshold;
+    }
+}
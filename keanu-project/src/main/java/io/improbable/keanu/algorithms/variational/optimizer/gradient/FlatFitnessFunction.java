@@ -0,0 +1,153 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The fitness of a model and its gradient over a fixed flat layout of the latent variables. Each latent occupies a
+ * contiguous range of the point, in the order of the model's latent variables, in its tensor's flattened order.
+ * Gradients are written straight into an array given by the caller, so an optimizer can reuse the same buffers for
+ * every evaluation.
+ * <p>
+ * The value of each latent is held in one tensor that is created up front and overwritten with every point, so an
+ * evaluation does not create any tensors or maps for the inputs. The latents hold these tensors once the model has
+ * been evaluated, so a tensor read from a latent is only valid until the next evaluation.
+ */
+class FlatFitnessFunction {
+
+    private final ProbabilisticModelWithGradient probabilisticModel;
+    private final boolean useLikelihood;
+    private final BiConsumer<double[], double[]> onGradientCalculation;
+    private final BiConsumer<double[], Double> onFitnessCalculation;
+
+    private final VariableReference[] references;
+    private final long[][] shapes;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int dimension;
+
+    private final DoubleTensor[] values;
+    private final Map<VariableReference, DoubleTensor> valuesByReference;
+
+    FlatFitnessFunction(ProbabilisticModelWithGradient probabilisticModel,
+                        boolean useLikelihood,
+                        BiConsumer<double[], double[]> onGradientCalculation,
+                        BiConsumer<double[], Double> onFitnessCalculation) {
+        this.probabilisticModel = probabilisticModel;
+        this.useLikelihood = useLikelihood;
+        this.onGradientCalculation = onGradientCalculation;
+        this.onFitnessCalculation = onFitnessCalculation;
+
+        List<? extends Variable> latentVariables = probabilisticModel.getLatentVariables();
+        this.references = new VariableReference[latentVariables.size()];
+        this.shapes = new long[latentVariables.size()][];
+        this.offsets = new int[latentVariables.size()];
+        this.lengths = new int[latentVariables.size()];
+
+        long offset = 0;
+        for (int i = 0; i < latentVariables.size(); i++) {
+            references[i] = latentVariables.get(i).getReference();
+            shapes[i] = latentVariables.get(i).getShape();
+            offsets[i] = Math.toIntExact(offset);
+            lengths[i] = TensorShape.getLengthAsInt(shapes[i]);
+            offset += lengths[i];
+        }
+
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Greater than " + Integer.MAX_VALUE + " latent dimensions not supported");
+        }
+        this.dimension = (int) offset;
+
+        this.values = new DoubleTensor[references.length];
+        this.valuesByReference = new HashMap<>();
+        for (int i = 0; i < references.length; i++) {
+            values[i] = DoubleTensor.create(0.0, shapes[i]);
+            valuesByReference.put(references[i], values[i]);
+        }
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @param into the array to copy the current value of every latent into
+     */
+    void getCurrentPoint(double[] into) {
+        List<? extends Variable> latentVariables = probabilisticModel.getLatentVariables();
+        for (int i = 0; i < latentVariables.size(); i++) {
+            DoubleTensor value = (DoubleTensor) latentVariables.get(i).getValue();
+            System.arraycopy(value.asFlatDoubleArray(), 0, into, offsets[i], lengths[i]);
+        }
+    }
+
+    /**
+     * @param point    the values of the latents
+     * @param gradient the array to write the gradient of the fitness with respect to each latent into
+     * @return the fitness at the point
+     */
+    double valueAndGradient(double[] point, double[] gradient) {
+        Map<VariableReference, DoubleTensor> values = toValues(point);
+
+        Map<? extends VariableReference, DoubleTensor> diffs = useLikelihood ?
+            probabilisticModel.logLikelihoodGradients(values) :
+            probabilisticModel.logProbGradients(values);
+
+        for (int i = 0; i < references.length; i++) {
+            DoubleTensor diff = diffs.get(references[i]);
+            if (diff == null) {
+                Arrays.fill(gradient, offsets[i], offsets[i] + lengths[i], 0.0);
+            } else if (lengths[i] == 1) {
+                gradient[offsets[i]] = diff.scalar();
+            } else {
+                Tensor.FlattenedView<Double> diffView = diff.getFlattenedView();
+                for (int j = 0; j < lengths[i]; j++) {
+                    gradient[offsets[i] + j] = diffView.get(j);
+                }
+            }
+        }
+
+        if (onGradientCalculation != null) {
+            onGradientCalculation.accept(point, gradient);
+        }
+
+        //The gradient calculation has already set the model to the point
+        return notifyFitness(point, useLikelihood ? probabilisticModel.logLikelihood() : probabilisticModel.logProb());
+    }
+
+    /**
+     * @param point the values of the latents, which the model is left at
+     * @return the fitness at the point
+     */
+    double value(double[] point) {
+        Map<VariableReference, DoubleTensor> values = toValues(point);
+        return notifyFitness(point, useLikelihood ? probabilisticModel.logLikelihood(values) : probabilisticModel.logProb(values));
+    }
+
+    private double notifyFitness(double[] point, double fitness) {
+        if (onFitnessCalculation != null) {
+            onFitnessCalculation.accept(point, fitness);
+        }
+        return fitness;
+    }
+
+    private Map<VariableReference, DoubleTensor> toValues(double[] point) {
+        for (int i = 0; i < references.length; i++) {
+            Tensor.FlattenedView<Double> valueView = values[i].getFlattenedView();
+            for (int j = 0; j < lengths[i]; j++) {
+                valueView.set(j, point[offsets[i] + j]);
+            }
+        }
+        return valuesByReference;
+    }
+}
@@ -0,0 +1,18 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+/**
+ * A gradient based method of maximizing a {@link FlatFitnessFunction}.
+ */
+interface FlatGradientAscent {
+
+    /**
+     * Stops at convergence or once the maximum number of evaluations has been used, whichever is first.
+     *
+     * @param fitnessFunction  the function to maximize
+     * @param startingPoint    the point to start from, which is not modified
+     * @param startingFitness  the fitness at the starting point, which counts as the first evaluation
+     * @param startingGradient the gradient at the starting point, which is not modified
+     * @return the fitness at the best point found. The model of the fitness function is left at that point.
+     */
+    double maximize(FlatFitnessFunction fitnessFunction, double[] startingPoint, double startingFitness, double[] startingGradient);
+}
@@ -43,11 +43,34 @@ public class GradientOptimizer implements Optimizer {
     }
 
 
+    /**
+     * The method used to find the maximum. CONJUGATE_GRADIENT uses Apache's NonLinearConjugateGradientOptimizer with
+     * the update formula. The others work on a fixed flat layout of the latents with preallocated buffers.
+     */
+    public enum Algorithm {
+        CONJUGATE_GRADIENT,
+
+        /**
+         * Limited memory BFGS with a backtracking line search, remembering the last historySize steps
+         */
+        LBFGS,
+
+        /**
+         * Adam, taking steps of about learningRate in each latent dimension
+         */
+        ADAM,
+
+        /**
+         * AdaGrad, taking steps of learningRate divided by the root of the sum of the squared gradients so far
+         */
+        ADAGRAD
+    }
+
     private ProbabilisticModelWithGradient probabilisticModel;
 
     /**
      * maxEvaluations the maximum number of objective function evaluations before throwing an exception
-     * indicating convergence failure.
+     * indicating convergence failure. LBFGS, ADAM and ADAGRAD instead stop at the best point found so far.
      */
     private int maxEvaluations;
 
@@ -60,6 +83,18 @@ public class GradientOptimizer implements Optimizer {
      */
     private UpdateFormula updateFormula;
 
+    private Algorithm algorithm;
+
+    /**
+     * The number of previous steps that L-BFGS uses to approximate the inverse Hessian.
+     */
+    private int historySize;
+
+    /**
+     * The step size of Adam and AdaGrad.
+     */
+    private double learningRate;
+
     private final List<BiConsumer<double[], double[]>> onGradientCalculations = new ArrayList<>();
     private final List<BiConsumer<double[], Double>> onFitnessCalculations = new ArrayList<>();
 
@@ -116,6 +151,10 @@ public class GradientOptimizer implements Optimizer {
     public double maxAPosteriori() {
         assertHasLatents();
 
+        if (algorithm != Algorithm.CONJUGATE_GRADIENT) {
+            return optimizeFlat(false);
+        }
+
         FitnessFunctionWithGradient fitnessFunction = new FitnessFunctionWithGradient(
             probabilisticModel,
             false,
@@ -130,6 +169,10 @@ public class GradientOptimizer implements Optimizer {
     public double maxLikelihood() {
         assertHasLatents();
 
+        if (algorithm != Algorithm.CONJUGATE_GRADIENT) {
+            return optimizeFlat(true);
+        }
+
         FitnessFunctionWithGradient fitnessFunction = new FitnessFunctionWithGradient(
             probabilisticModel,
             true,
@@ -177,6 +220,52 @@ public class GradientOptimizer implements Optimizer {
         return pointValuePair.getValue();
     }
 
+    private double optimizeFlat(boolean useLikelihood) {
+
+        StatusBar statusBar = Optimizer.createFitnessStatusBar(this);
+
+        getAsDoubleTensors(probabilisticModel.getLatentVariables());
+        FlatFitnessFunction fitnessFunction = new FlatFitnessFunction(
+            probabilisticModel,
+            useLikelihood,
+            this::handleGradientCalculation,
+            this::handleFitnessCalculation
+        );
+
+        double[] startingPoint = new double[fitnessFunction.getDimension()];
+        fitnessFunction.getCurrentPoint(startingPoint);
+
+        double[] initialGradient = new double[fitnessFunction.getDimension()];
+        double initialFitness = fitnessFunction.valueAndGradient(startingPoint, initialGradient);
+
+        if (ProbabilityCalculator.isImpossibleLogProb(initialFitness)) {
+            throw new IllegalArgumentException("Cannot start optimizer on zero probability network");
+        }
+
+        warnIfGradientIsFlat(initialGradient);
+
+        ConvergenceChecker convergenceChecker = new ConvergenceChecker(relativeThreshold, absoluteThreshold, maxEvaluations);
+        FlatGradientAscent ascent;
+        switch (algorithm) {
+            case LBFGS:
+                ascent = new LBFGS(historySize, convergenceChecker);
+                break;
+            case ADAM:
+                ascent = AdaptiveGradientAscent.adam(learningRate, convergenceChecker);
+                break;
+            case ADAGRAD:
+                ascent = AdaptiveGradientAscent.adaGrad(learningRate, convergenceChecker);
+                break;
+            default:
+                throw new IllegalArgumentException("No flat implementation of " + algorithm);
+        }
+
+        double fitness = ascent.maximize(fitnessFunction, startingPoint, initialFitness, initialGradient);
+
+        statusBar.finish();
+        return fitness;
+    }
+
     private static void warnIfGradientIsFlat(double[] gradient) {
         double maxGradient = Arrays.stream(gradient).max().orElseThrow(IllegalArgumentException::new);
         if (Math.abs(maxGradient) <= FLAT_GRADIENT) {
@@ -191,6 +280,9 @@ public class GradientOptimizer implements Optimizer {
         private double relativeThreshold = 1e-8;
         private double absoluteThreshold = 1e-8;
         private UpdateFormula updateFormula = UpdateFormula.POLAK_RIBIERE;
+        private Algorithm algorithm = Algorithm.CONJUGATE_GRADIENT;
+        private int historySize = 10;
+        private double learningRate = 0.01;
 
         GradientOptimizerBuilder() {
         }
@@ -220,6 +312,21 @@ public class GradientOptimizer implements Optimizer {
             return this;
         }
 
+        public GradientOptimizerBuilder algorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        public GradientOptimizerBuilder historySize(int historySize) {
+            this.historySize = historySize;
+            return this;
+        }
+
+        public GradientOptimizerBuilder learningRate(double learningRate) {
+            this.learningRate = learningRate;
+            return this;
+        }
+
         public GradientOptimizer build() {
             if (probabilisticModel == null) {
                 throw new IllegalStateException("Cannot build optimizer without specifying network to optimize.");
@@ -229,12 +336,15 @@ public class GradientOptimizer implements Optimizer {
                 maxEvaluations,
                 relativeThreshold,
                 absoluteThreshold,
-                updateFormula
+                updateFormula,
+                algorithm,
+                historySize,
+                learningRate
             );
         }
 
         public String toString() {
-            return "GradientOptimizer.GradientOptimizerBuilder(probabilisticModel=" + this.probabilisticModel + ", maxEvaluations=" + this.maxEvaluations + ", relativeThreshold=" + this.relativeThreshold + ", absoluteThreshold=" + this.absoluteThreshold + ", updateFormula=" + this.updateFormula + ")";
+            return "GradientOptimizer.GradientOptimizerBuilder(probabilisticModel=" + this.probabilisticModel + ", maxEvaluations=" + this.maxEvaluations + ", relativeThreshold=" + this.relativeThreshold + ", absoluteThreshold=" + this.absoluteThreshold + ", updateFormula=" + this.updateFormula + ", algorithm=" + this.algorithm + ", historySize=" + this.historySize + ", learningRate=" + this.learningRate + ")";
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+/**
+ * Limited memory BFGS with a backtracking line search, maximizing the fitness. The last historySize position and
+ * gradient differences are kept in preallocated buffers and used to approximate the inverse Hessian. If it has not
+ * converged by the maximum number of evaluations it stops at the best point found so far.
+ * <p>
+ * Numerical Optimization, Nocedal and Wright, Algorithm 7.4 and Algorithm 7.5
+ */
+class LBFGS implements FlatGradientAscent {
+
+    private static final double SUFFICIENT_INCREASE = 1e-4;
+    private static final double BACKTRACK_FACTOR = 0.5;
+    private static final int MAX_BACKTRACKS = 40;
+
+    private final int historySize;
+    private final ConvergenceChecker convergenceChecker;
+
+    LBFGS(int historySize, ConvergenceChecker convergenceChecker) {
+        if (historySize < 1) {
+            throw new IllegalArgumentException("History size of " + historySize + " is invalid. It must be at least 1.");
+        }
+        this.historySize = historySize;
+        this.convergenceChecker = convergenceChecker;
+    }
+
+    @Override
+    public double maximize(FlatFitnessFunction fitnessFunction, double[] startingPoint, double startingFitness, double[] startingGradient) {
+        int n = startingPoint.length;
+
+        double[] point = startingPoint.clone();
+        double[] gradient = startingGradient.clone();
+        double[] nextPoint = new double[n];
+        double[] nextGradient = new double[n];
+        double[] direction = new double[n];
+
+        double[][] positionChanges = new double[historySize][n];
+        double[][] gradientChanges = new double[historySize][n];
+        double[] rho = new double[historySize];
+        double[] alpha = new double[historySize];
+        int historyCount = 0;
+        int newestHistory = -1;
+
+        int evaluations = 1;
+        double fitness = startingFitness;
+
+        while (true) {
+            computeDirection(gradient, direction, positionChanges, gradientChanges, rho, alpha, historyCount, newestHistory);
+
+            double directionalDerivative = dot(gradient, direction);
+            if (!(directionalDerivative > 0)) {
+                //The approximation has lost positive definiteness so fall back to steepest ascent
+                historyCount = 0;
+                System.arraycopy(gradient, 0, direction, 0, n);
+                directionalDerivative = dot(gradient, gradient);
+                if (directionalDerivative == 0) {
+                    break;
+                }
+            }
+
+            double step = historyCount == 0 ? Math.min(1.0, 1.0 / Math.sqrt(directionalDerivative)) : 1.0;
+            double nextFitness = Double.NEGATIVE_INFINITY;
+            boolean increased = false;
+
+            for (int backtrack = 0; backtrack < MAX_BACKTRACKS; backtrack++) {
+                for (int i = 0; i < n; i++) {
+                    nextPoint[i] = point[i] + step * direction[i];
+                }
+
+                if (++evaluations > convergenceChecker.getMaxEvaluations()) {
+                    break;
+                }
+                nextFitness = fitnessFunction.valueAndGradient(nextPoint, nextGradient);
+
+                if (nextFitness >= fitness + SUFFICIENT_INCREASE * step * directionalDerivative) {
+                    increased = true;
+                    break;
+                }
+                step *= BACKTRACK_FACTOR;
+            }
+
+            if (!increased) {
+                break;
+            }
+
+            double curvature = 0;
+            for (int i = 0; i < n; i++) {
+                curvature += (nextPoint[i] - point[i]) * (gradient[i] - nextGradient[i]);
+            }
+
+            //Only keep pairs that satisfy the curvature condition, otherwise the approximation is not positive definite
+            if (curvature > 0) {
+                int slot = (newestHistory + 1) % historySize;
+                for (int i = 0; i < n; i++) {
+                    positionChanges[slot][i] = nextPoint[i] - point[i];
+                    gradientChanges[slot][i] = gradient[i] - nextGradient[i];
+                }
+                rho[slot] = 1.0 / curvature;
+                newestHistory = slot;
+                historyCount = Math.min(historyCount + 1, historySize);
+            }
+
+            double previousFitness = fitness;
+            double[] swap = point;
+            point = nextPoint;
+            nextPoint = swap;
+            swap = gradient;
+            gradient = nextGradient;
+            nextGradient = swap;
+            fitness = nextFitness;
+
+            if (convergenceChecker.hasConverged(previousFitness, fitness)) {
+                break;
+            }
+        }
+
+        //Leave the model at the best point rather than at the last point tried by the line search
+        return fitnessFunction.value(point);
+    }
+
+    /**
+     * The two loop recursion, which sets direction to the product of the approximate inverse Hessian of the negative
+     * fitness and the gradient.
+     */
+    private static void computeDirection(double[] gradient,
+                                         double[] direction,
+                                         double[][] positionChanges,
+                                         double[][] gradientChanges,
+                                         double[] rho,
+                                         double[] alpha,
+                                         int historyCount,
+                                         int newestHistory) {
+        int historySize = rho.length;
+        System.arraycopy(gradient, 0, direction, 0, gradient.length);
+
+        for (int k = 0; k < historyCount; k++) {
+            int slot = Math.floorMod(newestHistory - k, historySize);
+            alpha[slot] = rho[slot] * dot(positionChanges[slot], direction);
+            axpy(alpha[slot], gradientChanges[slot], direction);
+        }
+
+        if (historyCount > 0) {
+            double[] newestGradientChange = gradientChanges[newestHistory];
+            double scale = 1.0 / (rho[newestHistory] * dot(newestGradientChange, newestGradientChange));
+            for (int i = 0; i < direction.length; i++) {
+                direction[i] *= scale;
+            }
+        }
+
+        for (int k = historyCount - 1; k >= 0; k--) {
+            int slot = Math.floorMod(newestHistory - k, historySize);
+            double beta = rho[slot] * dot(gradientChanges[slot], direction);
+            axpy(beta - alpha[slot], positionChanges[slot], direction);
+        }
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Sets y to y - a * x
+     */
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < y.length; i++) {
+            y[i] -= a * x[i];
+        }
+    }
+}
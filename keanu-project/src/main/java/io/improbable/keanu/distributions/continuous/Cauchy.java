@@ -45,6 +45,17 @@ public class Cauchy implements ContinuousDistribution {
         return negLnScaleMinusLnPi.minusInPlace(lnXMinusLocationOverScalePow2Plus1);
     }
 
+    /**
+     * @param x        the value to calculate the log prob of
+     * @param location the location of the Cauchy
+     * @param scale    the scale of the Cauchy
+     * @return the same log prob as {@link #logProb(DoubleTensor)} for tensors holding a single value
+     */
+    public static double logProb(double x, double location, double scale) {
+        final double xMinusLocationOverScale = (x - location) / scale;
+        return -Math.log(scale) + NEG_LOG_PI - Math.log(xMinusLocationOverScale * xMinusLocationOverScale + 1.);
+    }
+
     public static DoubleVertex logProbOutput(DoublePlaceholderVertex x, DoublePlaceholderVertex location, DoublePlaceholderVertex scale) {
         final DoubleVertex negLnScaleMinusLnPi = scale.log().unaryMinus().plus(NEG_LOG_PI);
         final DoubleVertex xMinusLocationOverScalePow2Plus1 = x.minus(location).div(scale).pow(2.).plus(1.);
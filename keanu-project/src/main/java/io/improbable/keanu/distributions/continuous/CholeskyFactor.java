@@ -0,0 +1,202 @@
+package io.improbable.keanu.distributions.continuous;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+
+/**
+ * The lower triangular matrix L of the Cholesky decomposition A = L L^T of a symmetric positive definite matrix A.
+ * Factoring A takes O(d^3) work but then its log determinant, solves against it and products with L take at most
+ * O(d^2) work each, so a factor is worth keeping for as long as A does not change.
+ * <p>
+ * Only the lower triangle of A is read.
+ */
+public class CholeskyFactor {
+
+    private final int size;
+
+    //L in row major order, or null if the matrix is not positive definite
+    private final double[] lower;
+
+    //A^-1, which is only calculated if it is asked for. A factor may be shared between threads, which at worst
+    //calculate it more than once.
+    private volatile DoubleTensor inverse;
+
+    private CholeskyFactor(int size, double[] lower) {
+        this.size = size;
+        this.lower = lower;
+    }
+
+    /**
+     * @param matrix a symmetric square matrix
+     * @return the factor of the matrix, which is not positive definite if the matrix is not
+     */
+    public static CholeskyFactor of(DoubleTensor matrix) {
+        long[] shape = matrix.getShape();
+        Preconditions.checkArgument(
+            shape.length == 2 && shape[0] == shape[1],
+            "Can only factor a square matrix but was given shape %s", Arrays.toString(shape)
+        );
+
+        int n = Math.toIntExact(shape[0]);
+        double[] a = matrix.asFlatDoubleArray();
+        double[] l = new double[n * n];
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+
+                if (i == j) {
+                    if (!(sum > 0.0)) {
+                        return new CholeskyFactor(n, null);
+                    }
+                    l[i * n + i] = Math.sqrt(sum);
+                } else {
+                    l[i * n + j] = sum / l[j * n + j];
+                }
+            }
+        }
+
+        return new CholeskyFactor(n, l);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isPositiveDefinite() {
+        return lower != null;
+    }
+
+    /**
+     * @return L as a [d, d] matrix
+     */
+    public DoubleTensor getLower() {
+        checkPositiveDefinite();
+        return DoubleTensor.create(lower.clone(), size, size);
+    }
+
+    /**
+     * @return the log of the determinant of A, which is twice the sum of the logs of the diagonal of L
+     */
+    public double logDeterminant() {
+        checkPositiveDefinite();
+        double sumOfLogs = 0.0;
+        for (int i = 0; i < size; i++) {
+            sumOfLogs += Math.log(lower[i * size + i]);
+        }
+        return 2.0 * sumOfLogs;
+    }
+
+    /**
+     * @param b a vector of length d
+     * @return b^T A^-1 b, found with a single triangular solve as |L^-1 b|^2
+     */
+    public double inverseQuadraticForm(double[] b) {
+        double[] y = solveLower(b, 1);
+        double sum = 0.0;
+        for (double value : y) {
+            sum += value * value;
+        }
+        return sum;
+    }
+
+    /**
+     * @param b a [d, k] matrix
+     * @return A^-1 b, found by solving against L and then L^T
+     */
+    public DoubleTensor solve(DoubleTensor b) {
+        int columns = columnsOf(b);
+        return DoubleTensor.create(solveUpperTranspose(solveLower(b.asFlatDoubleArray(), columns), columns), b.getShape());
+    }
+
+    /**
+     * @param b a [d, k] matrix
+     * @return L b, which has covariance A when the columns of b are independent standard Gaussians
+     */
+    public DoubleTensor lowerTimes(DoubleTensor b) {
+        checkPositiveDefinite();
+        int columns = columnsOf(b);
+        double[] values = b.asFlatDoubleArray();
+        double[] result = new double[values.length];
+
+        for (int i = 0; i < size; i++) {
+            for (int c = 0; c < columns; c++) {
+                double sum = 0.0;
+                for (int k = 0; k <= i; k++) {
+                    sum += lower[i * size + k] * values[k * columns + c];
+                }
+                result[i * columns + c] = sum;
+            }
+        }
+
+        return DoubleTensor.create(result, b.getShape());
+    }
+
+    /**
+     * @return a copy of A^-1, which is calculated the first time it is asked for and then kept
+     */
+    public DoubleTensor inverse() {
+        DoubleTensor result = inverse;
+        if (result == null) {
+            result = solve(DoubleTensor.eye(size));
+            inverse = result;
+        }
+        return result.duplicate();
+    }
+
+    /**
+     * Solves L y = b by forward substitution.
+     */
+    private double[] solveLower(double[] b, int columns) {
+        checkPositiveDefinite();
+        double[] y = b.clone();
+        for (int i = 0; i < size; i++) {
+            double diagonal = lower[i * size + i];
+            for (int c = 0; c < columns; c++) {
+                double sum = y[i * columns + c];
+                for (int k = 0; k < i; k++) {
+                    sum -= lower[i * size + k] * y[k * columns + c];
+                }
+                y[i * columns + c] = sum / diagonal;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Solves L^T x = y by back substitution, overwriting y.
+     */
+    private double[] solveUpperTranspose(double[] y, int columns) {
+        for (int i = size - 1; i >= 0; i--) {
+            double diagonal = lower[i * size + i];
+            for (int c = 0; c < columns; c++) {
+                double sum = y[i * columns + c];
+                for (int k = i + 1; k < size; k++) {
+                    sum -= lower[k * size + i] * y[k * columns + c];
+                }
+                y[i * columns + c] = sum / diagonal;
+            }
+        }
+        return y;
+    }
+
+    private int columnsOf(DoubleTensor b) {
+        long length = b.getLength();
+        Preconditions.checkArgument(
+            length % size == 0 && b.getShape().length <= 2,
+            "Shape %s does not have %s rows", Arrays.toString(b.getShape()), size
+        );
+        return Math.toIntExact(length / size);
+    }
+
+    private void checkPositiveDefinite() {
+        if (lower == null) {
+            throw new IllegalStateException("Matrix is not positive definite");
+        }
+    }
+}
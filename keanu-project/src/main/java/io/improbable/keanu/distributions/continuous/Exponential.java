@@ -34,6 +34,15 @@ public class Exponential implements ContinuousDistribution {
         return negXMinusADivBMinusLogB.setWithMask(x.getLessThanMask(DoubleTensor.ZERO_SCALAR), Double.NEGATIVE_INFINITY);
     }
 
+    /**
+     * @param x      the value to calculate the log prob of
+     * @param lambda the lambda of the Exponential
+     * @return the same log prob as {@link #logProb(DoubleTensor)} for tensors holding a single value
+     */
+    public static double logProb(double x, double lambda) {
+        return x < 0. ? Double.NEGATIVE_INFINITY : -x / lambda - Math.log(lambda);
+    }
+
     public static DoubleVertex logProbOutput(DoublePlaceholderVertex x, DoublePlaceholderVertex lambda) {
         final DoubleVertex negXMinusADivB = x.unaryMinus().div(lambda);
         final DoubleVertex negXMinusADivBMinusLogB = negXMinusADivB.minus(lambda.log());
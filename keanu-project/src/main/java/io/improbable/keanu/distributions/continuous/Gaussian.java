@@ -41,6 +41,34 @@ public class Gaussian implements ContinuousDistribution {
         return xMinusMuSquaredOver2Variance.plusInPlace(lnSigma).plusInPlace(LN_SQRT_2PI).unaryMinusInPlace();
     }
 
+    /**
+     * @param x     the value to calculate the log prob of
+     * @param mu    the mu of the Gaussian
+     * @param sigma the sigma of the Gaussian
+     * @return the same log prob as {@link #logProb(DoubleTensor)} for tensors holding a single value
+     */
+    public static double logProb(double x, double mu, double sigma) {
+        final double xMinusMu = x - mu;
+        return -(xMinusMu * xMinusMu / (sigma * sigma * 2.) + Math.log(sigma) + LN_SQRT_2PI);
+    }
+
+    /**
+     * @param x           the value to calculate the derivatives of the log prob at
+     * @param mu          the mu of the Gaussian
+     * @param sigma       the sigma of the Gaussian
+     * @param derivatives where to write the same derivatives as {@link #dLogProb(DoubleTensor)} for tensors holding a
+     *                    single value, with respect to x, mu and sigma in that order
+     */
+    public static void dLogProb(double x, double mu, double sigma, double[] derivatives) {
+        final double xMinusMu = x - mu;
+        final double variance = sigma * sigma;
+        final double dLogPdmu = xMinusMu / variance;
+
+        derivatives[0] = -dLogPdmu;
+        derivatives[1] = dLogPdmu;
+        derivatives[2] = xMinusMu * xMinusMu / (variance * sigma) - 1. / sigma;
+    }
+
     public static DoubleVertex logProbOutput(DoublePlaceholderVertex x, DoublePlaceholderVertex mu, DoublePlaceholderVertex sigma) {
         final DoubleVertex lnSigma = sigma.log();
         final DoubleVertex xMinusMuSquared = x.minus(mu).pow(2.);
@@ -64,6 +64,16 @@ public class Laplace implements ContinuousDistribution {
         return muMinusXAbsNegDivBeta.plusInPlace(logTwoBeta).unaryMinus();
     }
 
+    /**
+     * @param x    the value to calculate the log prob of
+     * @param mu   the mu of the Laplace
+     * @param beta the beta of the Laplace
+     * @return the same log prob as {@link #logProb(DoubleTensor)} for tensors holding a single value
+     */
+    public static double logProb(double x, double mu, double beta) {
+        return -(Math.abs(mu - x) / beta + Math.log(beta * 2.));
+    }
+
     public static DoubleVertex logProbOutput(DoublePlaceholderVertex x, DoublePlaceholderVertex mu, DoublePlaceholderVertex beta) {
         final DoubleVertex muMinusXAbsNegDivBeta = mu.minus(x).abs().div(beta);
         final DoubleVertex logTwoBeta = beta.times(2.).log();
@@ -45,6 +45,17 @@ public class Logistic implements ContinuousDistribution {
         );
     }
 
+    /**
+     * @param x  the value to calculate the log prob of
+     * @param mu the mu of the Logistic
+     * @param s  the s of the Logistic
+     * @return the same log prob as {@link #logProb(DoubleTensor)} for tensors holding a single value
+     */
+    public static double logProb(double x, double mu, double s) {
+        final double xMinusAOverB = (x - mu) / s;
+        return xMinusAOverB + Math.log(1. / s) - Math.log(Math.exp(xMinusAOverB) + 1.) * 2.;
+    }
+
     public static DoubleVertex logProbOutput(DoublePlaceholderVertex x, DoublePlaceholderVertex mu, DoublePlaceholderVertex s) {
         final DoubleVertex xMinusAOverB = x.minus(mu).div(s);
         final DoubleVertex ln1OverB = s.reverseDiv(1.).log();
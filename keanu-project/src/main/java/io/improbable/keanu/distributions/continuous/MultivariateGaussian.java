@@ -8,43 +8,58 @@ import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LogProbGraph.DoublePlaceholderVertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 
+import static io.improbable.keanu.distributions.hyperparam.Diffs.MU;
+import static io.improbable.keanu.distributions.hyperparam.Diffs.SIGMA;
+import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
+
+/**
+ * The log prob, its gradient and samples are all calculated from the Cholesky factor of the covariance rather than
+ * from its inverse and determinant. Pass a factor to {@link #withCholeskyFactor(DoubleTensor, CholeskyFactor)} to
+ * reuse it while the covariance does not change.
+ */
 public class MultivariateGaussian implements ContinuousDistribution {
 
     private static final double LOG_2_PI = Math.log(2 * Math.PI);
     private final DoubleTensor mu;
-    private final DoubleTensor covariance;
+    private final CholeskyFactor covarianceFactor;
 
     public static ContinuousDistribution withParameters(DoubleTensor mu, DoubleTensor covariance) {
-        return new MultivariateGaussian(mu, covariance);
+        return new MultivariateGaussian(mu, CholeskyFactor.of(covariance));
     }
 
-    private MultivariateGaussian(DoubleTensor mu, DoubleTensor covariance) {
+    /**
+     * @param mu               the mu of the Multivariate Gaussian
+     * @param covarianceFactor the Cholesky factor of the covariance matrix
+     * @return a Multivariate Gaussian that uses the factor instead of factoring the covariance again
+     */
+    public static ContinuousDistribution withCholeskyFactor(DoubleTensor mu, CholeskyFactor covarianceFactor) {
+        return new MultivariateGaussian(mu, covarianceFactor);
+    }
+
+    private MultivariateGaussian(DoubleTensor mu, CholeskyFactor covarianceFactor) {
         this.mu = mu;
-        this.covariance = covariance;
+        this.covarianceFactor = covarianceFactor;
     }
 
     @Override
     public DoubleTensor sample(long[] shape, KeanuRandom random) {
         TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne(shape, mu.getShape());
-        final DoubleTensor choleskyCov = covariance.choleskyDecomposition();
+        if (!covarianceFactor.isPositiveDefinite()) {
+            throw new IllegalArgumentException("Cannot sample from a Multivariate Gaussian whose covariance is not positive definite");
+        }
         final DoubleTensor variateSamples = random.nextGaussian(mu.getShape());
-        final DoubleTensor covTimesVariates = isUnivariate() ?
-            choleskyCov.times(variateSamples) : choleskyCov.matrixMultiply(variateSamples);
-        return covTimesVariates.plus(mu);
+        return covarianceFactor.lowerTimes(variateSamples).plus(mu);
     }
 
     @Override
     public DoubleTensor logProb(DoubleTensor x) {
+        if (!covarianceFactor.isPositiveDefinite()) {
+            return DoubleTensor.scalar(Double.NEGATIVE_INFINITY);
+        }
         final double dimensions = numberOfDimensions();
         final double kLog2Pi = dimensions * LOG_2_PI;
-        final double logCovDet = Math.log(covariance.determinant());
-        DoubleTensor xMinusMu = x.minus(mu);
-        DoubleTensor xMinusMuT = xMinusMu.transpose();
-        DoubleTensor covInv = covariance.matrixInverse();
-
-        double scalar = isUnivariate() ?
-            covInv.times(xMinusMu).times(xMinusMuT).scalar() :
-            xMinusMuT.matrixMultiply(covInv.matrixMultiply(xMinusMu)).scalar();
+        final double logCovDet = covarianceFactor.logDeterminant();
+        final double scalar = covarianceFactor.inverseQuadraticForm(x.minus(mu).asFlatDoubleArray());
 
         return DoubleTensor.scalar(-0.5 * (scalar + kLog2Pi + logCovDet));
     }
@@ -64,10 +79,6 @@ public class MultivariateGaussian implements ContinuousDistribution {
         return scalar.plus(kLog2Pi).plus(logCovDet).times(-0.5).slice(0, 0);
     }
 
-    private boolean isUnivariate() {
-        return isUnivariate(numberOfDimensions());
-    }
-
     private static boolean isUnivariate(long numberOfDimensions) {
         return numberOfDimensions == 1;
     }
@@ -80,8 +91,54 @@ public class MultivariateGaussian implements ContinuousDistribution {
         return muShape[0];
     }
 
+    /**
+     * @param x the value to take the gradient of the log prob at
+     * @return the gradients with respect to mu, the covariance (SIGMA) and x. The log prob only reads the lower
+     * triangle of the covariance, so the gradient with respect to each element below the diagonal includes its mirror
+     * above the diagonal, and the gradient with respect to each element above the diagonal is zero. If the covariance
+     * is not positive definite then the log prob is negative infinity and every gradient is NaN.
+     */
     @Override
     public Diffs dLogProb(DoubleTensor x) {
-        throw new UnsupportedOperationException();
+        final DoubleTensor xMinusMu = x.minus(mu);
+        if (!covarianceFactor.isPositiveDefinite()) {
+            final DoubleTensor nan = DoubleTensor.create(Double.NaN, xMinusMu.getShape());
+            return new Diffs()
+                .put(MU, nan)
+                .put(SIGMA, DoubleTensor.create(Double.NaN, new long[]{covarianceFactor.getSize(), covarianceFactor.getSize()}))
+                .put(X, nan.duplicate());
+        }
+
+        final DoubleTensor covInvTimesXMinusMu = covarianceFactor.solve(xMinusMu);
+
+        final DoubleTensor dLogPdmu = covInvTimesXMinusMu;
+        final DoubleTensor dLogPdx = covInvTimesXMinusMu.unaryMinus();
+        final DoubleTensor dLogPdsymmetricCovariance = covInvTimesXMinusMu.matrixMultiply(covInvTimesXMinusMu.transpose())
+            .minusInPlace(covarianceFactor.inverse())
+            .timesInPlace(0.5);
+        final DoubleTensor dLogPdcovariance = toLowerTriangle(dLogPdsymmetricCovariance);
+
+        return new Diffs()
+            .put(MU, dLogPdmu)
+            .put(SIGMA, dLogPdcovariance)
+            .put(X, dLogPdx);
+    }
+
+    /**
+     * @param symmetricGradient the gradient with respect to a symmetric matrix whose mirrored elements are independent
+     * @return the gradient with respect to the lower triangle of the matrix, which is zero above the diagonal
+     */
+    private static DoubleTensor toLowerTriangle(DoubleTensor symmetricGradient) {
+        int n = Math.toIntExact(symmetricGradient.getShape()[0]);
+        double[] gradient = symmetricGradient.asFlatDoubleArray();
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                gradient[j * n + i] += gradient[i * n + j];
+                gradient[i * n + j] = 0.0;
+            }
+        }
+
+        return DoubleTensor.create(gradient, symmetricGradient.getShape());
     }
 }
@@ -0,0 +1,432 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ElementWiseLogProbSupplier;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.Differentiable;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.BinaryElementWiseOperator;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.DoubleBinaryOpVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.DoubleUnaryOpVertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The log prob of a collection of vertices at every point of a batch, calculated in a single pass over the batch.
+ * This is possible when the inputs of the batch only reach other vertices through element-wise operators and every
+ * probabilistic vertex that depends on them is an {@link ElementWiseLogProbSupplier}.
+ * <p>
+ * The values of each input and operator at every point are held in one flat array laid out as [point][element]. Each
+ * operator is calculated over the whole array in turn, followed by the log prob of each vertex that depends on the
+ * inputs, so no value is set on a vertex and no tensor is created per point. The log prob of the vertices that do not
+ * depend on the inputs is the same at every point so it is calculated once from their current values.
+ * <p>
+ * Evaluating is not thread safe.
+ */
+class BatchedLogProb {
+
+    private final DoubleVertex[] inputs;
+
+    //The element-wise operators that the inputs cascade to, in topological order, and the inputs of each
+    private final DoubleVertex[] operators;
+    private final DoubleVertex[][] operatorInputs;
+
+    //The vertices whose log prob depends on the inputs and, for each, its value followed by its parameters
+    private final ElementWiseLogProbSupplier[] logProbVertices;
+    private final DoubleVertex[][] logProbOperands;
+
+    private final CompiledLogProb unaffectedLogProb;
+
+    //The index of the values of each input and operator in the arrays of an evaluation
+    private final Map<Vertex, Integer> batchedIndex;
+
+    private BatchedLogProb(DoubleVertex[] inputs,
+                           DoubleVertex[] operators,
+                           ElementWiseLogProbSupplier[] logProbVertices,
+                           CompiledLogProb unaffectedLogProb) {
+        this.inputs = inputs;
+        this.operators = operators;
+        this.logProbVertices = logProbVertices;
+        this.unaffectedLogProb = unaffectedLogProb;
+
+        this.operatorInputs = new DoubleVertex[operators.length][];
+        for (int i = 0; i < operators.length; i++) {
+            operatorInputs[i] = getOperatorInputs(operators[i]);
+        }
+
+        this.logProbOperands = new DoubleVertex[logProbVertices.length][];
+        for (int i = 0; i < logProbVertices.length; i++) {
+            DoubleVertex[] parameters = logProbVertices[i].getElementWiseLogProbParameters();
+            logProbOperands[i] = new DoubleVertex[parameters.length + 1];
+            logProbOperands[i][0] = (DoubleVertex) logProbVertices[i];
+            System.arraycopy(parameters, 0, logProbOperands[i], 1, parameters.length);
+        }
+
+        this.batchedIndex = new HashMap<>();
+        for (DoubleVertex input : inputs) {
+            batchedIndex.put(input, batchedIndex.size());
+        }
+        for (DoubleVertex operator : operators) {
+            batchedIndex.put(operator, batchedIndex.size());
+        }
+    }
+
+    /**
+     * @param inputs    the vertices that are given a value at each point of a batch
+     * @param logProbOf the vertices to sum the log probabilities of
+     * @param memos     the memos of the log prob of each probabilistic vertex, shared with the compiled log probs of the
+     *                  model so the vertices that do not depend on the inputs are only recalculated when they change
+     * @return the batched log prob, or null if the inputs reach a vertex that cannot be calculated one element at a time
+     */
+    static BatchedLogProb of(Collection<? extends Vertex> inputs,
+                             Collection<? extends Vertex> logProbOf,
+                             Map<Vertex, LogProbMemo> memos) {
+        for (Vertex<?> input : inputs) {
+            if (!(input instanceof DoubleVertex)) {
+                return null;
+            }
+        }
+
+        Set<Vertex> batched = new HashSet<>(inputs);
+        Deque<Vertex> stack = new ArrayDeque<>(inputs);
+        List<DoubleVertex> operators = new ArrayList<>();
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+
+            for (Vertex<?> child : visiting.getChildren()) {
+                if (!child.isProbabilistic() && batched.add(child)) {
+                    if (!isBatchableOperator(child)) {
+                        return null;
+                    }
+                    operators.add((DoubleVertex) child);
+                    stack.push(child);
+                }
+            }
+        }
+        operators.sort(Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
+
+        List<DoubleVertex> logProbVertices = new ArrayList<>();
+        List<Vertex> unaffectedVertices = new ArrayList<>();
+        for (Vertex<?> vertex : logProbOf) {
+            if (!dependsOn(vertex, batched)) {
+                unaffectedVertices.add(vertex);
+            } else if (vertex.isProbabilistic() && isElementWiseLogProb(vertex)) {
+                logProbVertices.add((DoubleVertex) vertex);
+            } else {
+                return null;
+            }
+        }
+        //Summed in the order the vertices were created so that a copy of the network gives exactly the same log probs
+        logProbVertices.sort(Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
+
+        return new BatchedLogProb(
+            inputs.toArray(new DoubleVertex[0]),
+            operators.toArray(new DoubleVertex[0]),
+            logProbVertices.toArray(new ElementWiseLogProbSupplier[0]),
+            CompiledLogProb.memoized(unaffectedVertices, memos)
+        );
+    }
+
+    private static boolean isBatchableOperator(Vertex<?> vertex) {
+        boolean isOperator = (vertex instanceof DoubleUnaryOpVertex && vertex instanceof UnaryElementWiseOperator) ||
+            (vertex instanceof DoubleBinaryOpVertex && vertex instanceof BinaryElementWiseOperator);
+
+        return isOperator && !vertex.isObserved() && operandsMatch(vertex.getShape(), getOperatorInputs((DoubleVertex) vertex));
+    }
+
+    private static boolean isElementWiseLogProb(Vertex<?> vertex) {
+        if (!(vertex instanceof ElementWiseLogProbSupplier && vertex instanceof DoubleVertex)) {
+            return false;
+        }
+        DoubleVertex[] parameters = ((ElementWiseLogProbSupplier) vertex).getElementWiseLogProbParameters();
+        return parameters != null && operandsMatch(vertex.getShape(), parameters);
+    }
+
+    /**
+     * Each element of the result is read from the same element of each operand, or from its only element, so the
+     * operands must either have the shape of the result or hold a single value.
+     */
+    private static boolean operandsMatch(long[] shape, DoubleVertex[] operands) {
+        for (DoubleVertex operand : operands) {
+            if (!Arrays.equals(operand.getShape(), shape) && !TensorShape.isLengthOne(operand.getShape())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean dependsOn(Vertex<?> vertex, Set<Vertex> batched) {
+        if (batched.contains(vertex)) {
+            return true;
+        }
+        for (Vertex<?> parent : vertex.getParents()) {
+            if (batched.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static DoubleVertex[] getOperatorInputs(DoubleVertex operator) {
+        if (operator instanceof DoubleUnaryOpVertex) {
+            return new DoubleVertex[]{((DoubleUnaryOpVertex) operator).getInputVertex()};
+        }
+        DoubleBinaryOpVertex binary = (DoubleBinaryOpVertex) operator;
+        return new DoubleVertex[]{binary.getLeft(), binary.getRight()};
+    }
+
+    /**
+     * @param latents some variables
+     * @return true if the gradient of the log prob with respect to each of the variables can be batched, which is
+     * when they are all inputs of the batch and every operator is {@link Differentiable}
+     */
+    boolean canBatchGradientsWrt(Collection<? extends Variable> latents) {
+        for (DoubleVertex operator : operators) {
+            if (!(operator instanceof Differentiable)) {
+                return false;
+            }
+        }
+        return Arrays.asList(inputs).containsAll(latents);
+    }
+
+    /**
+     * @param batchedInputs the value of each input at every point, with a leading batch dimension
+     * @param batchSize     the number of points in the batch
+     * @return the log prob at each point of the batch
+     */
+    double[] evaluate(Map<VariableReference, ? extends Tensor<?>> batchedInputs, int batchSize) {
+        double[][] values = calculateOperators(batchedInputs, batchSize);
+
+        double[] logProbs = new double[batchSize];
+        Arrays.fill(logProbs, unaffectedLogProb.evaluate());
+
+        for (int i = 0; i < logProbVertices.length; i++) {
+            ElementWiseLogProbSupplier vertex = logProbVertices[i];
+            Operand[] operands = getOperands(logProbOperands[i], values);
+            double[] parameters = new double[operands.length - 1];
+            int length = TensorShape.getLengthAsInt(((Vertex<?>) vertex).getShape());
+
+            for (int point = 0; point < batchSize; point++) {
+                double logProb = 0.0;
+                for (int element = 0; element < length; element++) {
+                    for (int p = 0; p < parameters.length; p++) {
+                        parameters[p] = operands[p + 1].get(point, element);
+                    }
+                    logProb += vertex.elementLogProb(operands[0].get(point, element), parameters);
+                }
+                logProbs[point] += logProb;
+            }
+        }
+
+        return logProbs;
+    }
+
+    /**
+     * The log prob at each point only depends on the values of the inputs at that point, so the gradient of the sum of
+     * the log probs over the batch with respect to the value of an input at a point is the gradient of the log prob at
+     * that point. This is found for every point at once with a single reverse pass over the operators.
+     *
+     * @param batchedInputs the value of each input at every point, with a leading batch dimension
+     * @param batchSize     the number of points in the batch
+     * @return the gradient of the log prob with respect to each input that it depends on, with the gradients of the
+     * points stacked along a leading batch dimension
+     */
+    Map<VariableReference, DoubleTensor> gradients(Map<VariableReference, ? extends Tensor<?>> batchedInputs, int batchSize) {
+        double[][] values = calculateOperators(batchedInputs, batchSize);
+        double[][] adjoints = new double[values.length][];
+
+        for (int i = 0; i < logProbVertices.length; i++) {
+            ElementWiseLogProbSupplier vertex = logProbVertices[i];
+            Operand[] operands = getOperands(logProbOperands[i], values);
+            Operand[] operandAdjoints = getAdjoints(logProbOperands[i], adjoints, batchSize);
+            double[] parameters = new double[operands.length - 1];
+            double[] derivatives = new double[operands.length];
+            int length = TensorShape.getLengthAsInt(((Vertex<?>) vertex).getShape());
+
+            for (int point = 0; point < batchSize; point++) {
+                for (int element = 0; element < length; element++) {
+                    for (int p = 0; p < parameters.length; p++) {
+                        parameters[p] = operands[p + 1].get(point, element);
+                    }
+                    vertex.dElementLogProb(operands[0].get(point, element), parameters, derivatives);
+                    for (int o = 0; o < operandAdjoints.length; o++) {
+                        if (operandAdjoints[o] != null) {
+                            operandAdjoints[o].add(point, element, derivatives[o]);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int i = operators.length - 1; i >= 0; i--) {
+            double[] adjoint = adjoints[inputs.length + i];
+            if (adjoint != null) {
+                reverseOperator(i, adjoint, values, adjoints, batchSize);
+            }
+        }
+
+        Map<VariableReference, DoubleTensor> gradients = new HashMap<>();
+        for (int i = 0; i < inputs.length; i++) {
+            if (adjoints[i] != null) {
+                long[] shape = TensorShape.concat(new long[]{batchSize}, inputs[i].getShape());
+                gradients.put(inputs[i].getId(), DoubleTensor.create(adjoints[i], shape));
+            }
+        }
+        return gradients;
+    }
+
+    private double[][] calculateOperators(Map<VariableReference, ? extends Tensor<?>> batchedInputs, int batchSize) {
+        double[][] values = new double[inputs.length + operators.length][];
+
+        for (int i = 0; i < inputs.length; i++) {
+            Tensor<?> batch = batchedInputs.get(inputs[i].getId());
+            BatchedValues.checkIsBatchOf(batch, inputs[i].getShape());
+            if (!(batch instanceof DoubleTensor)) {
+                throw new IllegalArgumentException("Cannot batch values of type " + batch.getClass().getSimpleName() + " for " + inputs[i]);
+            }
+            values[i] = ((DoubleTensor) batch).asFlatDoubleArray();
+        }
+
+        for (int i = 0; i < operators.length; i++) {
+            int length = TensorShape.getLengthAsInt(operators[i].getShape());
+            double[] result = new double[batchSize * length];
+            Operand[] operands = getOperands(operatorInputs[i], values);
+
+            if (operands.length == 1) {
+                UnaryElementWiseOperator operator = (UnaryElementWiseOperator) operators[i];
+                for (int point = 0; point < batchSize; point++) {
+                    for (int element = 0; element < length; element++) {
+                        result[point * length + element] = operator.calculateElement(operands[0].get(point, element));
+                    }
+                }
+            } else {
+                BinaryElementWiseOperator operator = (BinaryElementWiseOperator) operators[i];
+                for (int point = 0; point < batchSize; point++) {
+                    for (int element = 0; element < length; element++) {
+                        result[point * length + element] = operator.calculateElement(
+                            operands[0].get(point, element), operands[1].get(point, element)
+                        );
+                    }
+                }
+            }
+
+            values[inputs.length + i] = result;
+        }
+
+        return values;
+    }
+
+    private void reverseOperator(int i, double[] adjoint, double[][] values, double[][] adjoints, int batchSize) {
+        int length = TensorShape.getLengthAsInt(operators[i].getShape());
+        double[] result = values[inputs.length + i];
+        Operand[] operands = getOperands(operatorInputs[i], values);
+        Operand[] operandAdjoints = getAdjoints(operatorInputs[i], adjoints, batchSize);
+
+        if (operands.length == 1) {
+            UnaryElementWiseOperator operator = (UnaryElementWiseOperator) operators[i];
+            if (operandAdjoints[0] == null) {
+                return;
+            }
+            for (int point = 0; point < batchSize; point++) {
+                for (int element = 0; element < length; element++) {
+                    int index = point * length + element;
+                    double d = operator.dCalculateElement(operands[0].get(point, element), result[index]);
+                    operandAdjoints[0].add(point, element, adjoint[index] * d);
+                }
+            }
+        } else {
+            BinaryElementWiseOperator operator = (BinaryElementWiseOperator) operators[i];
+            for (int point = 0; point < batchSize; point++) {
+                for (int element = 0; element < length; element++) {
+                    int index = point * length + element;
+                    double left = operands[0].get(point, element);
+                    double right = operands[1].get(point, element);
+                    if (operandAdjoints[0] != null) {
+                        operandAdjoints[0].add(point, element, adjoint[index] * operator.dCalculateElementWrtLeft(left, right, result[index]));
+                    }
+                    if (operandAdjoints[1] != null) {
+                        operandAdjoints[1].add(point, element, adjoint[index] * operator.dCalculateElementWrtRight(left, right, result[index]));
+                    }
+                }
+            }
+        }
+    }
+
+    private Operand[] getOperands(DoubleVertex[] vertices, double[][] values) {
+        Operand[] operands = new Operand[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            Integer index = batchedIndex.get(vertices[i]);
+            operands[i] = index == null ?
+                Operand.unbatched(vertices[i].getValue().asFlatDoubleArray()) :
+                Operand.batched(values[index], vertices[i].getShape());
+        }
+        return operands;
+    }
+
+    /**
+     * @return the adjoint of each of the vertices that is batched, or null for those that are not
+     */
+    private Operand[] getAdjoints(DoubleVertex[] vertices, double[][] adjoints, int batchSize) {
+        Operand[] operands = new Operand[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            Integer index = batchedIndex.get(vertices[i]);
+            if (index != null) {
+                long[] shape = vertices[i].getShape();
+                if (adjoints[index] == null) {
+                    adjoints[index] = new double[batchSize * TensorShape.getLengthAsInt(shape)];
+                }
+                operands[i] = Operand.batched(adjoints[index], shape);
+            }
+        }
+        return operands;
+    }
+
+    /**
+     * The values of an operand at every point of a batch, read at the elements of a result that is either the same
+     * shape or it holds a single value.
+     */
+    private static class Operand {
+        private final double[] values;
+        private final int pointStride;
+        private final int elementStride;
+
+        private Operand(double[] values, int pointStride, int elementStride) {
+            this.values = values;
+            this.pointStride = pointStride;
+            this.elementStride = elementStride;
+        }
+
+        static Operand batched(double[] values, long[] pointShape) {
+            int length = TensorShape.getLengthAsInt(pointShape);
+            return new Operand(values, length, length == 1 ? 0 : 1);
+        }
+
+        static Operand unbatched(double[] values) {
+            return new Operand(values, 0, values.length == 1 ? 0 : 1);
+        }
+
+        double get(int point, int element) {
+            return values[point * pointStride + element * elementStride];
+        }
+
+        void add(int point, int element, double value) {
+            values[point * pointStride + element * elementStride] += value;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The values of one variable at every point of a batch, held as a tensor with a leading batch dimension.
+ * The value at each point is copied out of the flat array of the batch, so no tensor operation is needed per point.
+ * A point that holds a single double is read straight from the array into a scalar tensor.
+ */
+class BatchedValues {
+
+    private final int batchSize;
+    private final IntFunction<Object> valueAtPoint;
+
+    private BatchedValues(int batchSize, IntFunction<Object> valueAtPoint) {
+        this.batchSize = batchSize;
+        this.valueAtPoint = valueAtPoint;
+    }
+
+    /**
+     * @param batch      the values at every point, with a shape of [batch size, ...pointShape]
+     * @param pointShape the shape of the variable's value
+     * @return the values of the batch
+     */
+    static BatchedValues of(Tensor<?> batch, long[] pointShape) {
+        checkIsBatchOf(batch, pointShape);
+
+        long[] batchShape = batch.getShape();
+        int batchSize = Math.toIntExact(batchShape[0]);
+        int pointLength = TensorShape.getLengthAsInt(pointShape);
+
+        if (batch instanceof DoubleTensor && pointLength == 1) {
+            double[] values = ((DoubleTensor) batch).asFlatDoubleArray();
+            return new BatchedValues(batchSize, point -> DoubleTensor.create(values[point], pointShape));
+        } else if (batch instanceof DoubleTensor) {
+            double[] values = ((DoubleTensor) batch).asFlatDoubleArray();
+            return new BatchedValues(batchSize, point -> DoubleTensor.create(
+                Arrays.copyOfRange(values, point * pointLength, (point + 1) * pointLength), pointShape
+            ));
+        } else if (batch instanceof IntegerTensor) {
+            int[] values = ((IntegerTensor) batch).asFlatIntegerArray();
+            return new BatchedValues(batchSize, point -> IntegerTensor.create(
+                Arrays.copyOfRange(values, point * pointLength, (point + 1) * pointLength), pointShape
+            ));
+        } else if (batch instanceof BooleanTensor) {
+            Boolean[] values = ((BooleanTensor) batch).asFlatArray();
+            return new BatchedValues(batchSize, point -> {
+                boolean[] pointValues = new boolean[pointLength];
+                for (int i = 0; i < pointLength; i++) {
+                    pointValues[i] = values[point * pointLength + i];
+                }
+                return BooleanTensor.create(pointValues, pointShape);
+            });
+        }
+
+        throw new IllegalArgumentException("Cannot batch values of type " + batch.getClass().getSimpleName());
+    }
+
+    /**
+     * @param batch      the values at every point
+     * @param pointShape the shape of the variable's value
+     * @throws IllegalArgumentException if the batch does not have the shape [batch size, ...pointShape]
+     */
+    static void checkIsBatchOf(Tensor<?> batch, long[] pointShape) {
+        long[] batchShape = batch.getShape();
+        if (batchShape.length != pointShape.length + 1 ||
+            !Arrays.equals(TensorShape.selectDimensions(1, batchShape.length, batchShape), pointShape)) {
+            throw new IllegalArgumentException(
+                "Batch of shape " + Arrays.toString(batchShape) + " does not have a leading batch dimension " +
+                    "followed by the value shape " + Arrays.toString(pointShape)
+            );
+        }
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    Object getValueAt(int point) {
+        return valueAtPoint.apply(point);
+    }
+}
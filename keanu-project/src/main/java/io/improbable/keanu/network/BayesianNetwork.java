@@ -155,6 +155,19 @@ public class BayesianNetwork {
         return ProbabilityCalculator.calculateLogProbFor(getLatentOrObservedVertices());
     }
 
+    /**
+     * Builds a single graph of the joint log prob of every probabilistic vertex in the network, which can be evaluated
+     * and differentiated in one pass. See {@link JointLogProbGraph}.
+     *
+     * @return a new graph of the joint log prob of the network's latent and observed probabilistic vertices
+     */
+    public JointLogProbGraph getJointLogProbGraph() {
+        List<Vertex> probabilisticVertices = getLatentOrObservedVertices().stream()
+            .filter(Vertex::isProbabilistic)
+            .collect(Collectors.toList());
+        return JointLogProbGraph.of(probabilisticVertices);
+    }
+
     public void cascadeObservations() {
         VertexValuePropagation.cascadeUpdate(getObservedVertices());
     }
@@ -0,0 +1,220 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.NonProbabilistic;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.ScalarLogProbSupplier;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sum of the log probabilities of a fixed collection of vertices, lowered once into flat arrays so that evaluating
+ * it does not need to iterate a collection or check the type of each vertex again.
+ * <p>
+ * Vertices that are a {@link ScalarLogProbSupplier} and hold a single value are lowered to a plan of scalar
+ * instructions. Each distinct vertex that a scalar term reads, whether as its value or as a parameter, is given a slot
+ * in a preallocated array of doubles and each term becomes an instruction that runs the kernel of its vertex on the
+ * slots it reads. Evaluating loads every slot once, so a parameter shared by many terms is only read once, and then
+ * runs the instructions without creating the intermediate tensors of {@link Probabilistic#logProb(Object)}. A term
+ * whose slots no longer hold a single value falls back to the log prob of its vertex.
+ * <p>
+ * Evaluating gives the same result as {@link ProbabilityCalculator#calculateLogProbFor(Collection)} over the same
+ * vertices. Non-probabilistic vertices are checked for contradictions first as any contradiction makes the
+ * log probability impossible regardless of the other vertices.
+ * <p>
+ * A compiled log prob created with {@link #memoized(Collection, Map)} only recalculates the log prob of a vertex when
+ * the value of that vertex or one of its parents has been set since it was last calculated. Scalar terms are cheaper
+ * to recalculate than to check so they are never memoized.
+ * <p>
+ * Evaluating is not thread safe.
+ */
+public class CompiledLogProb {
+
+    private final Probabilistic[] probabilisticVertices;
+    private final NonProbabilistic[] nonProbabilisticVertices;
+    private final LogProbMemo[] memos;
+
+    private final DoubleVertex[] slotVertices;
+    private final double[] slots;
+    private final boolean[] slotHoldsScalar;
+
+    private final ScalarLogProbSupplier[] scalarVertices;
+    private final int[] scalarValueSlots;
+    private final int[][] scalarParameterSlots;
+    private final double[][] scalarParameterValues;
+
+    private CompiledLogProb(Probabilistic[] probabilisticVertices,
+                            NonProbabilistic[] nonProbabilisticVertices,
+                            LogProbMemo[] memos,
+                            DoubleVertex[] slotVertices,
+                            ScalarLogProbSupplier[] scalarVertices,
+                            int[] scalarValueSlots,
+                            int[][] scalarParameterSlots) {
+        this.probabilisticVertices = probabilisticVertices;
+        this.nonProbabilisticVertices = nonProbabilisticVertices;
+        this.memos = memos;
+        this.slotVertices = slotVertices;
+        this.slots = new double[slotVertices.length];
+        this.slotHoldsScalar = new boolean[slotVertices.length];
+        this.scalarVertices = scalarVertices;
+        this.scalarValueSlots = scalarValueSlots;
+        this.scalarParameterSlots = scalarParameterSlots;
+
+        this.scalarParameterValues = new double[scalarVertices.length][];
+        for (int i = 0; i < scalarVertices.length; i++) {
+            scalarParameterValues[i] = new double[scalarParameterSlots[i].length];
+        }
+    }
+
+    public static CompiledLogProb of(Collection<? extends Vertex> vertices) {
+        return compile(vertices, null);
+    }
+
+    /**
+     * @param vertices the vertices to sum the log probabilities of
+     * @param memos    the memo of each probabilistic vertex, which is added to if a vertex does not have one yet.
+     *                 Compiled log probs that share memos reuse each other's results.
+     * @return a compiled log prob that reuses the log prob of any vertex whose inputs have not changed
+     */
+    static CompiledLogProb memoized(Collection<? extends Vertex> vertices, Map<Vertex, LogProbMemo> memos) {
+        return compile(vertices, memos);
+    }
+
+    private static CompiledLogProb compile(Collection<? extends Vertex> vertices, Map<Vertex, LogProbMemo> memoLookup) {
+        List<Probabilistic> probabilisticVertices = new ArrayList<>();
+        List<NonProbabilistic> nonProbabilisticVertices = new ArrayList<>();
+        Map<DoubleVertex, Integer> slotIndices = new LinkedHashMap<>();
+        List<ScalarLogProbSupplier> scalarVertices = new ArrayList<>();
+        List<Integer> scalarValueSlots = new ArrayList<>();
+        List<int[]> scalarParameterSlots = new ArrayList<>();
+
+        for (Vertex<?> vertex : vertices) {
+            DoubleVertex[] parameters = vertex instanceof ScalarLogProbSupplier ?
+                ((ScalarLogProbSupplier) vertex).getScalarLogProbParameters() :
+                null;
+
+            if (parameters != null && vertex instanceof DoubleVertex && vertex instanceof Probabilistic) {
+                int[] parameterSlots = new int[parameters.length];
+                for (int i = 0; i < parameters.length; i++) {
+                    parameterSlots[i] = slotOf(parameters[i], slotIndices);
+                }
+
+                scalarVertices.add((ScalarLogProbSupplier) vertex);
+                scalarValueSlots.add(slotOf((DoubleVertex) vertex, slotIndices));
+                scalarParameterSlots.add(parameterSlots);
+            } else if (vertex instanceof Probabilistic) {
+                probabilisticVertices.add((Probabilistic) vertex);
+            } else if (vertex instanceof NonProbabilistic) {
+                nonProbabilisticVertices.add((NonProbabilistic) vertex);
+            } else {
+                throw new IllegalArgumentException("Found a vertex that is neither Probabilistic nor Non-Probabilistic");
+            }
+        }
+
+        LogProbMemo[] memos = null;
+        if (memoLookup != null) {
+            memos = new LogProbMemo[probabilisticVertices.size()];
+            for (int i = 0; i < memos.length; i++) {
+                Probabilistic<?> vertex = probabilisticVertices.get(i);
+                memos[i] = memoLookup.computeIfAbsent((Vertex) vertex, v -> new LogProbMemo(vertex));
+            }
+        }
+
+        return new CompiledLogProb(
+            probabilisticVertices.toArray(new Probabilistic[0]),
+            nonProbabilisticVertices.toArray(new NonProbabilistic[0]),
+            memos,
+            slotIndices.keySet().toArray(new DoubleVertex[0]),
+            scalarVertices.toArray(new ScalarLogProbSupplier[0]),
+            scalarValueSlots.stream().mapToInt(Integer::intValue).toArray(),
+            scalarParameterSlots.toArray(new int[0][])
+        );
+    }
+
+    private static int slotOf(DoubleVertex vertex, Map<DoubleVertex, Integer> slotIndices) {
+        return slotIndices.computeIfAbsent(vertex, v -> slotIndices.size());
+    }
+
+    /**
+     * @return the sum of the log probabilities of the vertices at their current values
+     */
+    public double evaluate() {
+        for (NonProbabilistic vertex : nonProbabilisticVertices) {
+            if (vertex.contradictsObservation()) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        loadSlots();
+
+        double sum = 0.0;
+        for (int i = 0; i < scalarVertices.length; i++) {
+            sum += scalarLogProb(i);
+        }
+
+        if (memos == null) {
+            for (Probabilistic vertex : probabilisticVertices) {
+                sum += vertex.logProbAtValue();
+            }
+        } else {
+            for (LogProbMemo memo : memos) {
+                sum += memo.logProbAtValue();
+            }
+        }
+        return sum;
+    }
+
+    private void loadSlots() {
+        for (int i = 0; i < slotVertices.length; i++) {
+            DoubleTensor value = slotVertices[i].getValue();
+            slotHoldsScalar[i] = value.isLengthOne();
+            if (slotHoldsScalar[i]) {
+                slots[i] = value.scalar();
+            }
+        }
+    }
+
+    private double scalarLogProb(int index) {
+        int valueSlot = scalarValueSlots[index];
+        int[] parameterSlots = scalarParameterSlots[index];
+        double[] parameterValues = scalarParameterValues[index];
+
+        if (!slotHoldsScalar[valueSlot]) {
+            return ((Probabilistic<?>) scalarVertices[index]).logProbAtValue();
+        }
+
+        for (int i = 0; i < parameterSlots.length; i++) {
+            if (!slotHoldsScalar[parameterSlots[i]]) {
+                return ((Probabilistic<?>) scalarVertices[index]).logProbAtValue();
+            }
+            parameterValues[i] = slots[parameterSlots[i]];
+        }
+
+        return scalarVertices[index].scalarLogProb(slots[valueSlot], parameterValues);
+    }
+
+    public int getProbabilisticVertexCount() {
+        return probabilisticVertices.length + scalarVertices.length;
+    }
+
+    /**
+     * @return the number of probabilistic vertices whose log prob is calculated by a scalar kernel
+     */
+    public int getScalarVertexCount() {
+        return scalarVertices.length;
+    }
+
+    /**
+     * @return the number of distinct vertices whose values are loaded into slots for the scalar kernels
+     */
+    public int getSlotCount() {
+        return slotVertices.length;
+    }
+}
@@ -0,0 +1,178 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.algorithms.graphtraversal.CascadeSchedule;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.LogProbGraph;
+import io.improbable.keanu.vertices.LogProbGraphSupplier;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single graph computing the joint log prob of a set of probabilistic vertices. It is built from the
+ * {@link LogProbGraph} of each vertex, with the log prob outputs summed into one scalar output.
+ * <p>
+ * The placeholders of each {@link LogProbGraph} stand for the vertex and its parents. They are not connected to the
+ * vertices they stand for, so that building the graph does not change the network. Instead the value of each vertex is
+ * copied into its placeholders at the start of every evaluation. The joint log prob is then one cascade over the graph,
+ * and its gradient with respect to every placeholder is one reverse mode pass from the output.
+ * <p>
+ * Vertices that do not supply a {@link LogProbGraph} have their log prob calculated separately and added to the
+ * result of {@link #logProb()}.
+ * <p>
+ * This is a building block. {@link io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator#withJointLogProbGraph}
+ * differentiates through it, but the models and optimizers do not create one unless they are given such a calculator.
+ */
+public class JointLogProbGraph {
+
+    //A placeholder in the log prob graph of a vertex and the vertex whose value it is fed
+    private static class Binding {
+        private final Vertex<?> logProbOf;
+        private final Vertex input;
+        private final Vertex placeholder;
+
+        Binding(Vertex<?> logProbOf, Vertex input, Vertex placeholder) {
+            this.logProbOf = logProbOf;
+            this.input = input;
+            this.placeholder = placeholder;
+        }
+    }
+
+    private final List<Binding> bindings;
+    private final DoubleVertex logProbOutput;
+    private final Set<DoubleVertex> doublePlaceholders;
+    private final Set<Probabilistic<?>> verticesWithoutGraph;
+    private final List<Vertex> placeholders;
+    private CascadeSchedule cascadeSchedule;
+
+    private JointLogProbGraph(List<Binding> bindings,
+                              DoubleVertex logProbOutput,
+                              Set<DoubleVertex> doublePlaceholders,
+                              Set<Probabilistic<?>> verticesWithoutGraph) {
+        this.bindings = bindings;
+        this.logProbOutput = logProbOutput;
+        this.doublePlaceholders = doublePlaceholders;
+        this.verticesWithoutGraph = verticesWithoutGraph;
+
+        this.placeholders = new ArrayList<>(bindings.size());
+        for (Binding binding : bindings) {
+            placeholders.add(binding.placeholder);
+        }
+    }
+
+    /**
+     * @param logProbOfVertices the probabilistic vertices to compute the joint log prob of
+     * @return a graph of the joint log prob of the vertices
+     */
+    public static JointLogProbGraph of(Collection<? extends Vertex> logProbOfVertices) {
+        List<Binding> bindings = new ArrayList<>();
+        Set<DoubleVertex> doublePlaceholders = new HashSet<>();
+        Set<Probabilistic<?>> verticesWithoutGraph = new LinkedHashSet<>();
+        DoubleVertex logProbOutput = null;
+
+        for (Vertex<?> vertex : logProbOfVertices) {
+            if (!(vertex instanceof Probabilistic)) {
+                throw new IllegalArgumentException("Cannot get the log prob of non-probabilistic vertex " + vertex);
+            }
+
+            if (!(vertex instanceof LogProbGraphSupplier)) {
+                verticesWithoutGraph.add((Probabilistic<?>) vertex);
+                continue;
+            }
+
+            LogProbGraph logProbGraph = ((LogProbGraphSupplier) vertex).logProbGraph();
+            for (Vertex<?> input : logProbGraph.getInputs().keySet()) {
+                Vertex<?> placeholder = logProbGraph.getPlaceholder(input);
+                bindings.add(new Binding(vertex, input, placeholder));
+                if (placeholder instanceof DoubleVertex) {
+                    doublePlaceholders.add((DoubleVertex) placeholder);
+                }
+            }
+
+            DoubleVertex output = logProbGraph.getLogProbOutput();
+            logProbOutput = logProbOutput == null ? output : logProbOutput.plus(output);
+        }
+
+        return new JointLogProbGraph(bindings, logProbOutput, doublePlaceholders, verticesWithoutGraph);
+    }
+
+    /**
+     * @param vertex one of the vertices the graph is of
+     * @return true if the log prob of the vertex is part of the graph and false if it is calculated separately
+     */
+    public boolean isInGraph(Vertex<?> vertex) {
+        return !verticesWithoutGraph.contains(vertex);
+    }
+
+    /**
+     * @return the scalar vertex that the log probs of the vertices with log prob graphs are summed into, or null if
+     * none of the vertices supply a log prob graph
+     */
+    public DoubleVertex getLogProbOutput() {
+        return logProbOutput;
+    }
+
+    /**
+     * @return the joint log prob of the vertices at their current values
+     */
+    public double logProb() {
+        double logProb = 0.0;
+
+        if (logProbOutput != null) {
+            feedPlaceholders();
+            logProb += logProbOutput.getValue().scalar();
+        }
+
+        for (Probabilistic<?> vertex : verticesWithoutGraph) {
+            logProb += vertex.logProbAtValue();
+        }
+
+        return logProb;
+    }
+
+    /**
+     * @return for each vertex that supplies a log prob graph, the gradient of its log prob with respect to its value
+     * and each of its parents that can be differentiated, at their current values. These are the same gradients as
+     * dLogProbAtValue gives for each vertex but all of them are found in a single reverse mode pass.
+     */
+    public Map<Vertex, Map<Vertex, DoubleTensor>> dLogProbs() {
+        Map<Vertex, Map<Vertex, DoubleTensor>> dLogProbs = new HashMap<>();
+
+        if (logProbOutput != null) {
+            feedPlaceholders();
+            Map<VertexId, PartialDerivative> partials = Differentiator.reverseModeAutoDiff(logProbOutput, doublePlaceholders).asMap();
+
+            for (Binding binding : bindings) {
+                PartialDerivative partial = partials.get(binding.placeholder.getId());
+                if (partial != null && partial.isPresent()) {
+                    dLogProbs.computeIfAbsent(binding.logProbOf, v -> new HashMap<>()).put(binding.input, partial.get());
+                }
+            }
+        }
+
+        return dLogProbs;
+    }
+
+    private void feedPlaceholders() {
+        for (Binding binding : bindings) {
+            binding.placeholder.setValue(binding.input.getValue());
+        }
+
+        if (cascadeSchedule == null || cascadeSchedule.isStale()) {
+            cascadeSchedule = CascadeSchedule.of(placeholders);
+        }
+        cascadeSchedule.apply();
+    }
+}
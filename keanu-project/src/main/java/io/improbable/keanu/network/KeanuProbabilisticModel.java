@@ -5,16 +5,28 @@ import com.google.common.collect.ImmutableSet;
 import io.improbable.keanu.algorithms.ProbabilisticModel;
 import io.improbable.keanu.algorithms.Variable;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.graphtraversal.CascadeSchedule;
+import io.improbable.keanu.algorithms.graphtraversal.CascadeScheduleCache;
+import io.improbable.keanu.algorithms.graphtraversal.DiscoverGraph;
+import io.improbable.keanu.algorithms.graphtraversal.GraphOptimisation;
 import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.EvaluationContext;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.StructureStamp;
 import io.improbable.keanu.vertices.Vertex;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toMap;
@@ -24,6 +36,8 @@ import static java.util.stream.Collectors.toMap;
  */
 public class KeanuProbabilisticModel implements ProbabilisticModel {
 
+    private static final int MAX_PROPOSAL_UPDATES = 1_000;
+
     private final Map<VariableReference, Vertex> vertexLookup;
 
     private final List<Vertex> latentVertices;
@@ -31,13 +45,53 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
     private final List<Vertex> observedVertices;
 
     private final List<Vertex> latentOrObservedVertices;
-    private final LambdaSectionSnapshot lambdaSectionSnapshot;
+
+    //The lambda sections of the latent vertices, which are found again if the structure of the network changes
+    private LambdaSectionSnapshot lambdaSectionSnapshot;
+    private StructureStamp lambdaSectionStamp;
+
+    private final CompiledLogProb latentOrObservedLogProb;
+    private final CompiledLogProb observedLogProb;
+    private final CascadeScheduleCache cascadeScheduleCache;
+
+    //The optimisation that cascades through the network are built with or null if they are not optimised
+    private final GraphOptimisation graphOptimisation;
+
+    //Shared by every compiled log prob so that the log prob of a vertex is only recalculated when its inputs change
+    private final Map<Vertex, LogProbMemo> logProbMemos = new HashMap<>();
+
+    //The vertices affected by proposing new values for each distinct set of variables, so logProbAfter does not rebuild
+    //them. The least recently used are evicted so that proposals for many different sets of variables do not grow it
+    //without limit.
+    private final Map<Set<VariableReference>, ProposalUpdate> proposalUpdates =
+        new LinkedHashMap<Set<VariableReference>, ProposalUpdate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Set<VariableReference>, ProposalUpdate> eldest) {
+                return size() > MAX_PROPOSAL_UPDATES;
+            }
+        };
+
+    //Every vertex connected to the network, which is what the contexts of views of this model hold the values of
+    private final Set<Vertex> connectedVertices;
+
+    //The context that the values of the vertices are held in or null if they are held in the vertices
+    private final EvaluationContext context;
 
     public KeanuProbabilisticModel(Collection<? extends Vertex> variables) {
         this(new BayesianNetwork(variables));
     }
 
     public KeanuProbabilisticModel(BayesianNetwork bayesianNetwork) {
+        this(bayesianNetwork, false);
+    }
+
+    /**
+     * @param bayesianNetwork the network to model
+     * @param optimiseGraph   whether to analyse the network with a {@link GraphOptimisation} so that cascading new
+     *                        values through it skips repeated work. The optimisation stops being used once the
+     *                        structure of the network changes or the value of a constant vertex in it is set.
+     */
+    public KeanuProbabilisticModel(BayesianNetwork bayesianNetwork, boolean optimiseGraph) {
         this.vertexLookup = bayesianNetwork.getLatentOrObservedVertices().stream()
             .collect(toMap(Vertex::getId, v -> v));
 
@@ -45,37 +99,252 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
         this.observedVertices = ImmutableList.copyOf(bayesianNetwork.getObservedVertices());
         this.latentOrObservedVertices = ImmutableList.copyOf(bayesianNetwork.getLatentOrObservedVertices());
         this.lambdaSectionSnapshot = new LambdaSectionSnapshot(latentVertices);
+        this.lambdaSectionStamp = StructureStamp.of(latentVertices);
+        this.latentOrObservedLogProb = CompiledLogProb.memoized(latentOrObservedVertices, logProbMemos);
+        this.observedLogProb = CompiledLogProb.memoized(observedVertices, logProbMemos);
+        this.graphOptimisation = optimiseGraph ? GraphOptimisation.of(bayesianNetwork.getAllVertices()) : null;
+        this.cascadeScheduleCache = new CascadeScheduleCache(graphOptimisation);
+        this.connectedVertices = connectedVertices(bayesianNetwork.getAllVertices());
+        this.context = null;
 
         resetModelToObservedState();
         checkBayesNetInHealthyState();
     }
 
+    private KeanuProbabilisticModel(KeanuProbabilisticModel model) {
+        this.vertexLookup = model.vertexLookup;
+        this.latentVertices = model.latentVertices;
+        this.observedVertices = model.observedVertices;
+        this.latentOrObservedVertices = model.latentOrObservedVertices;
+        this.lambdaSectionSnapshot = model.lambdaSectionSnapshot;
+        this.lambdaSectionStamp = model.lambdaSectionStamp;
+        this.latentOrObservedLogProb = CompiledLogProb.memoized(latentOrObservedVertices, logProbMemos);
+        this.observedLogProb = CompiledLogProb.memoized(observedVertices, logProbMemos);
+        this.graphOptimisation = model.graphOptimisation;
+        this.cascadeScheduleCache = new CascadeScheduleCache(graphOptimisation);
+        this.connectedVertices = model.connectedVertices;
+        this.context = EvaluationContext.forVertices(connectedVertices);
+    }
+
+    private static Set<Vertex> connectedVertices(Collection<? extends Vertex> vertices) {
+        Set<Vertex> connected = new HashSet<>();
+        for (Vertex<?> vertex : vertices) {
+            if (!connected.contains(vertex)) {
+                connected.addAll(DiscoverGraph.getEntireGraph(vertex));
+            }
+        }
+        return ImmutableSet.copyOf(connected);
+    }
+
+    /**
+     * Creates a view of this model whose values are held in its own {@link EvaluationContext}, so that each thread can
+     * evaluate the same network through its own view without copying it. The view shares the vertices and the lambda
+     * sections of this model but has its own memos and caches. The context starts from the values the vertices hold
+     * outside of any context, so those should not be changed while the view is in use.
+     * <p>
+     * Only the calls made through the view are run in the context. Code that sets the values of vertices directly,
+     * like a proposal distribution, should be run in the context of the view with
+     * {@link EvaluationContext#run(Runnable)}.
+     * <p>
+     * The vertices connected to the network are given slots in the contexts of the model when its first view is
+     * created, and only from then on look up whether they are being evaluated in a context.
+     *
+     * @return a model of the same network that reads and writes values in a context of its own. It must only be used
+     * by one thread at a time.
+     */
+    public KeanuProbabilisticModel inContext() {
+        return new KeanuProbabilisticModel(this);
+    }
+
+    public EvaluationContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the optimisation that cascades through the network are built with, or null if they are not optimised
+     */
+    public GraphOptimisation getGraphOptimisation() {
+        return graphOptimisation;
+    }
+
+    <R> R evaluateInContext(Supplier<R> evaluation) {
+        return context == null ? evaluation.get() : context.call(evaluation);
+    }
+
     @Override
     public double logProb(Map<VariableReference, ?> inputs) {
-        cascadeValues(inputs);
-        return ProbabilityCalculator.calculateLogProbFor(this.latentOrObservedVertices);
+        return evaluateInContext(() -> {
+            cascadeValues(inputs);
+            return latentOrObservedLogProb.evaluate();
+        });
     }
 
     @Override
     public double logProbAfter(Map<VariableReference, Object> newValues, double logProbBefore) {
-        ImmutableSet.Builder<Vertex> affectedVerticesBuilder = ImmutableSet.builder();
-        for (VariableReference reference : newValues.keySet()) {
-            Vertex vertex = vertexLookup.get(reference);
-            affectedVerticesBuilder.add(vertex);
+        return evaluateInContext(() -> logProbAfterInContext(newValues, logProbBefore));
+    }
+
+    private double logProbAfterInContext(Map<VariableReference, Object> newValues, double logProbBefore) {
+        ProposalUpdate update = getProposalUpdate(newValues.keySet());
+
+        double lambdaSectionLogProbBefore = update.lambdaSectionLogProb.evaluate();
+        for (Map.Entry<VariableReference, Object> newValue : newValues.entrySet()) {
+            vertexLookup.get(newValue.getKey()).setValue(newValue.getValue());
         }
-        Set<Vertex> affectedVertices = affectedVerticesBuilder.build();
+        update.cascade();
+        double lambdaSectionLogProbAfter = update.lambdaSectionLogProb.evaluate();
 
-        double lambdaSectionLogProbBefore = lambdaSectionSnapshot.logProb(affectedVertices);
-        cascadeValues(newValues);
-        double lambdaSectionLogProbAfter = lambdaSectionSnapshot.logProb(affectedVertices);
         double deltaLogProb = lambdaSectionLogProbAfter - lambdaSectionLogProbBefore;
         return logProbBefore + deltaLogProb;
     }
 
+    /**
+     * Evaluates the log prob at every point of a batch. The model is left in the state it was in before the call.
+     * <p>
+     * When the batched variables only reach other vertices through element-wise operators, and every probabilistic
+     * vertex that depends on them calculates its log prob one element at a time (see
+     * {@link io.improbable.keanu.vertices.ElementWiseLogProbSupplier}), the whole batch is pushed through the operators
+     * and log probs in a single pass without setting any values. Otherwise each point is set and cascaded in turn.
+     *
+     * @param batchedInputs the values of some latent variables at each point, with a leading batch dimension. e.g.
+     *                      a batch of 100 points for a variable of shape [2, 3] has the shape [100, 2, 3].
+     * @return the log prob at each point of the batch
+     */
+    public double[] logProbBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs) {
+        return evaluateBatch(batchedInputs, false);
+    }
+
+    /**
+     * Evaluates the log likelihood at every point of a batch. The model is left in the state it was in before the call.
+     *
+     * @param batchedInputs the values of some latent variables at each point, with a leading batch dimension.
+     * @return the log likelihood at each point of the batch
+     */
+    public double[] logLikelihoodBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs) {
+        return evaluateBatch(batchedInputs, true);
+    }
+
+    private double[] evaluateBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs, boolean likelihood) {
+        return evaluateInContext(() -> {
+            int batchSize = getBatchSize(batchedInputs);
+            BatchedLogProb batchedLogProb = getBatchedLogProb(batchedInputs.keySet(), likelihood);
+            if (batchedLogProb != null) {
+                return batchedLogProb.evaluate(batchedInputs, batchSize);
+            }
+
+            CompiledLogProb logProb = likelihood ? observedLogProb : latentOrObservedLogProb;
+            double[] logProbs = new double[batchSize];
+            forEachPointInBatch(batchedInputs, point -> logProbs[point] = logProb.evaluate());
+            return logProbs;
+        });
+    }
+
+    /**
+     * @param references the variables that are given a value at each point of a batch
+     * @param likelihood whether to find the log likelihood rather than the log prob
+     * @return the log prob that evaluates a batch in a single pass, or null if the batch has to be evaluated one point
+     * at a time
+     */
+    BatchedLogProb getBatchedLogProb(Set<VariableReference> references, boolean likelihood) {
+        ProposalUpdate update = getProposalUpdate(references);
+        return likelihood ?
+            update.getBatchedLogLikelihood(observedVertices, logProbMemos) :
+            update.getBatchedLogProb(latentOrObservedVertices, logProbMemos);
+    }
+
+    /**
+     * Sets the values of each point of a batch in turn and cascades them with one cascade schedule that is shared by
+     * every point, reusing the log prob memos between points. The states of the vertices that the cascade writes are
+     * saved once before the first point and restored once after the last, rather than around each point.
+     *
+     * @param batchedInputs   the values of some latent variables at each point, with a leading batch dimension
+     * @param evaluateAtPoint called with the index of each point while the model holds the values of that point
+     */
+    protected void forEachPointInBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs, IntConsumer evaluateAtPoint) {
+        ProposalUpdate update = getProposalUpdate(batchedInputs.keySet());
+        int batchSize = getBatchSize(batchedInputs);
+
+        Vertex[] inputVertices = new Vertex[batchedInputs.size()];
+        BatchedValues[] inputValues = new BatchedValues[batchedInputs.size()];
+        int inputIndex = 0;
+        for (Map.Entry<VariableReference, ? extends Tensor<?>> input : batchedInputs.entrySet()) {
+            Vertex vertex = vertexLookup.get(input.getKey());
+            inputVertices[inputIndex] = vertex;
+            inputValues[inputIndex] = BatchedValues.of(input.getValue(), vertex.getShape());
+            inputIndex++;
+        }
+
+        NetworkSnapshot snapshot = NetworkSnapshot.create(update.getWrittenVertices());
+        try {
+            for (int point = 0; point < batchSize; point++) {
+                for (int i = 0; i < inputVertices.length; i++) {
+                    inputVertices[i].setValue(inputValues[i].getValueAt(point));
+                }
+                update.cascade();
+                evaluateAtPoint.accept(point);
+            }
+        } finally {
+            snapshot.apply();
+        }
+    }
+
+    protected static int getBatchSize(Map<VariableReference, ? extends Tensor<?>> batchedInputs) {
+        if (batchedInputs.isEmpty()) {
+            throw new IllegalArgumentException("Cannot evaluate a batch without inputs");
+        }
+
+        long batchSize = -1;
+        for (Map.Entry<VariableReference, ? extends Tensor<?>> input : batchedInputs.entrySet()) {
+            long[] shape = input.getValue().getShape();
+            if (shape.length == 0) {
+                throw new IllegalArgumentException("Batch for " + input.getKey() + " has no batch dimension");
+            } else if (batchSize != -1 && shape[0] != batchSize) {
+                throw new IllegalArgumentException(
+                    "Batch for " + input.getKey() + " has " + shape[0] + " points but other inputs have " + batchSize
+                );
+            }
+            batchSize = shape[0];
+        }
+
+        return Math.toIntExact(batchSize);
+    }
+
+    private ProposalUpdate getProposalUpdate(Set<VariableReference> references) {
+        ProposalUpdate update = proposalUpdates.get(references);
+
+        if (update == null || update.isStale()) {
+            ImmutableSet.Builder<Vertex> affectedVerticesBuilder = ImmutableSet.builder();
+            for (VariableReference reference : references) {
+                Vertex vertex = vertexLookup.get(reference);
+                if (vertex == null) {
+                    throw new IllegalArgumentException("Cannot cascade update for input: " + reference);
+                }
+                affectedVerticesBuilder.add(vertex);
+            }
+            Set<Vertex> affectedVertices = affectedVerticesBuilder.build();
+
+            if (lambdaSectionStamp.isStale()) {
+                lambdaSectionSnapshot = new LambdaSectionSnapshot(latentVertices);
+                lambdaSectionStamp = StructureStamp.of(latentVertices);
+            }
+
+            update = new ProposalUpdate(
+                ImmutableList.copyOf(affectedVertices),
+                CompiledLogProb.memoized(lambdaSectionSnapshot.getAllVerticesAffectedBy(affectedVertices), logProbMemos),
+                graphOptimisation
+            );
+            proposalUpdates.put(ImmutableSet.copyOf(references), update);
+        }
+
+        return update;
+    }
+
     @Override
     public double logLikelihood(Map<VariableReference, ?> inputs) {
-        cascadeValues(inputs);
-        return ProbabilityCalculator.calculateLogProbFor(this.observedVertices);
+        return evaluateInContext(() -> {
+            cascadeValues(inputs);
+            return observedLogProb.evaluate();
+        });
     }
 
     @Override
@@ -125,7 +394,65 @@ public class KeanuProbabilisticModel implements ProbabilisticModel {
             updatedVertices.add(updatingVertex);
         }
 
-        VertexValuePropagation.cascadeUpdate(updatedVertices);
+        cascadeScheduleCache.cascadeUpdate(updatedVertices);
     }
 
+    /**
+     * Everything that is derived from the structure of the network for a proposal, which is built again as a whole
+     * once the structure changes.
+     */
+    private static class ProposalUpdate {
+        private final List<Vertex> updatedVertices;
+        private final CompiledLogProb lambdaSectionLogProb;
+        private final CascadeSchedule cascadeSchedule;
+        private final StructureStamp structureStamp;
+        private Set<Vertex> writtenVertices;
+
+        //Built when first needed, and left null if the batch cannot be evaluated in a single pass
+        private BatchedLogProb batchedLogProb;
+        private boolean isBatchedLogProbBuilt;
+        private BatchedLogProb batchedLogLikelihood;
+        private boolean isBatchedLogLikelihoodBuilt;
+
+        ProposalUpdate(List<Vertex> updatedVertices, CompiledLogProb lambdaSectionLogProb, GraphOptimisation graphOptimisation) {
+            this.updatedVertices = updatedVertices;
+            this.lambdaSectionLogProb = lambdaSectionLogProb;
+            this.cascadeSchedule = CascadeSchedule.of(updatedVertices, graphOptimisation);
+            this.structureStamp = StructureStamp.of(updatedVertices);
+        }
+
+        boolean isStale() {
+            return structureStamp.isStale() || cascadeSchedule.isStale();
+        }
+
+        void cascade() {
+            cascadeSchedule.apply();
+        }
+
+        Set<Vertex> getWrittenVertices() {
+            if (writtenVertices == null) {
+                writtenVertices = ImmutableSet.<Vertex>builder()
+                    .addAll(updatedVertices)
+                    .addAll(cascadeSchedule.getWrittenVertices())
+                    .build();
+            }
+            return writtenVertices;
+        }
+
+        BatchedLogProb getBatchedLogProb(List<Vertex> latentOrObservedVertices, Map<Vertex, LogProbMemo> memos) {
+            if (!isBatchedLogProbBuilt) {
+                batchedLogProb = BatchedLogProb.of(updatedVertices, latentOrObservedVertices, memos);
+                isBatchedLogProbBuilt = true;
+            }
+            return batchedLogProb;
+        }
+
+        BatchedLogProb getBatchedLogLikelihood(List<Vertex> observedVertices, Map<Vertex, LogProbMemo> memos) {
+            if (!isBatchedLogLikelihoodBuilt) {
+                batchedLogLikelihood = BatchedLogProb.of(updatedVertices, observedVertices, memos);
+                isBatchedLogLikelihoodBuilt = true;
+            }
+            return batchedLogLikelihood;
+        }
+    }
 }
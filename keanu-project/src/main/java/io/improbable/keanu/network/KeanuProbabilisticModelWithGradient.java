@@ -2,10 +2,13 @@ package io.improbable.keanu.network;
 
 import io.improbable.keanu.algorithms.ProbabilisticModelWithGradient;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -19,18 +22,24 @@ public class KeanuProbabilisticModelWithGradient extends KeanuProbabilisticModel
     private final LogProbGradientCalculator logLikelihoodGradientCalculator;
 
     public KeanuProbabilisticModelWithGradient(BayesianNetwork bayesianNetwork) {
-        super(bayesianNetwork);
+        this(bayesianNetwork, false);
+    }
+
+    public KeanuProbabilisticModelWithGradient(BayesianNetwork bayesianNetwork, boolean optimiseGraph) {
+        super(bayesianNetwork, optimiseGraph);
 
         List<Vertex<DoubleTensor>> continuousLatentVertices = bayesianNetwork.getContinuousLatentVertices();
 
-        this.logProbGradientCalculator = new LogProbGradientCalculator(
+        this.logProbGradientCalculator = LogProbGradientCalculator.withGraphOptimisation(
             bayesianNetwork.getLatentOrObservedVertices(),
-            continuousLatentVertices
+            continuousLatentVertices,
+            getGraphOptimisation()
         );
 
-        this.logLikelihoodGradientCalculator = new LogProbGradientCalculator(
+        this.logLikelihoodGradientCalculator = LogProbGradientCalculator.withGraphOptimisation(
             bayesianNetwork.getObservedVertices(),
-            continuousLatentVertices
+            continuousLatentVertices,
+            getGraphOptimisation()
         );
     }
 
@@ -58,6 +67,69 @@ public class KeanuProbabilisticModelWithGradient extends KeanuProbabilisticModel
         return logLikelihoodGradients(null);
     }
 
+    /**
+     * @param batchedInputs the values of some latent variables at each point, with a leading batch dimension
+     * @return the gradient of the log prob with respect to each continuous latent at every point of the batch,
+     * with the gradients of the points stacked along a leading batch dimension
+     */
+    public Map<VariableReference, DoubleTensor> logProbGradientsBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs) {
+        return gradientsBatch(batchedInputs, logProbGradientCalculator, false);
+    }
+
+    /**
+     * @param batchedInputs the values of some latent variables at each point, with a leading batch dimension
+     * @return the gradient of the log likelihood with respect to each continuous latent at every point of the batch,
+     * with the gradients of the points stacked along a leading batch dimension
+     */
+    public Map<VariableReference, DoubleTensor> logLikelihoodGradientsBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs) {
+        return gradientsBatch(batchedInputs, logLikelihoodGradientCalculator, true);
+    }
+
+    /**
+     * The gradients are found for the whole batch in a single reverse pass when the batch can be evaluated in a single
+     * pass (see {@link #logProbBatch(Map)}) and every continuous latent is batched. Otherwise they are found one point
+     * at a time.
+     */
+    private Map<VariableReference, DoubleTensor> gradientsBatch(Map<VariableReference, ? extends Tensor<?>> batchedInputs,
+                                                                LogProbGradientCalculator gradientCalculator,
+                                                                boolean likelihood) {
+        return evaluateInContext(() -> {
+            int batchSize = getBatchSize(batchedInputs);
+            BatchedLogProb batchedLogProb = getBatchedLogProb(batchedInputs.keySet(), likelihood);
+            if (batchedLogProb != null && batchedLogProb.canBatchGradientsWrt(getContinuousLatentVariables())) {
+                return batchedLogProb.gradients(batchedInputs, batchSize);
+            }
+            return gradientsAtEachPoint(batchedInputs, gradientCalculator, batchSize);
+        });
+    }
+
+    private Map<VariableReference, DoubleTensor> gradientsAtEachPoint(Map<VariableReference, ? extends Tensor<?>> batchedInputs,
+                                                                      LogProbGradientCalculator gradientCalculator,
+                                                                      int batchSize) {
+        Map<VariableReference, double[]> batchedGradients = new HashMap<>();
+        Map<VariableReference, long[]> gradientShapes = new HashMap<>();
+
+        forEachPointInBatch(batchedInputs, point -> {
+            Map<? extends VariableReference, DoubleTensor> gradients = gradientCalculator.getJointLogProbGradientWrtLatents();
+
+            for (Map.Entry<? extends VariableReference, DoubleTensor> gradient : gradients.entrySet()) {
+                double[] pointGradient = gradient.getValue().asFlatDoubleArray();
+                double[] batchedGradient = batchedGradients.computeIfAbsent(
+                    gradient.getKey(), reference -> new double[batchSize * pointGradient.length]
+                );
+                gradientShapes.putIfAbsent(gradient.getKey(), gradient.getValue().getShape());
+                System.arraycopy(pointGradient, 0, batchedGradient, point * pointGradient.length, pointGradient.length);
+            }
+        });
+
+        Map<VariableReference, DoubleTensor> result = new HashMap<>();
+        for (Map.Entry<VariableReference, double[]> batchedGradient : batchedGradients.entrySet()) {
+            long[] shape = TensorShape.concat(new long[]{batchSize}, gradientShapes.get(batchedGradient.getKey()));
+            result.put(batchedGradient.getKey(), DoubleTensor.create(batchedGradient.getValue(), shape));
+        }
+        return result;
+    }
+
     private Map<? extends VariableReference, DoubleTensor> gradients(Map<VariableReference, ?> inputs, LogProbGradientCalculator gradientCalculator) {
         if (inputs != null && !inputs.isEmpty()) {
             cascadeValues(inputs);
@@ -0,0 +1,102 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexState;
+
+/**
+ * Remembers the log prob of a probabilistic vertex at the last two sets of inputs it was calculated at, so that it is
+ * only recalculated when the value of the vertex or one of its parents has actually changed.
+ * <p>
+ * The inputs are identified by the {@link VertexState} objects of the vertex and its parents, which are replaced
+ * whenever a value is set. Rolling back a rejected proposal by restoring the previous states (see
+ * {@link NetworkSnapshot}) therefore finds the log prob from before the proposal in the second slot. Values that are
+ * mutated in place without being set again are not detected.
+ */
+class LogProbMemo {
+
+    private final Probabilistic<?> vertex;
+
+    private Vertex<?>[] inputs;
+    private long structureVersion;
+
+    private VertexState<?>[] lastStates;
+    private double lastLogProb;
+    private boolean hasLast;
+
+    private VertexState<?>[] previousStates;
+    private double previousLogProb;
+    private boolean hasPrevious;
+
+    LogProbMemo(Probabilistic<?> vertex) {
+        this.vertex = vertex;
+        findInputs();
+    }
+
+    double logProbAtValue() {
+        if (structureVersion != ((Vertex<?>) vertex).getStructureVersion()) {
+            findInputs();
+        }
+
+        if (hasLast && inputsAreIn(lastStates)) {
+            return lastLogProb;
+        }
+
+        if (hasPrevious && inputsAreIn(previousStates)) {
+            swapSlots();
+            return lastLogProb;
+        }
+
+        //the log prob is calculated before recording the states as it may lazily evaluate a parent and replace its state
+        double logProb = vertex.logProbAtValue();
+
+        swapSlots();
+        for (int i = 0; i < inputs.length; i++) {
+            lastStates[i] = inputs[i].getState();
+        }
+        lastLogProb = logProb;
+        hasLast = true;
+
+        return logProb;
+    }
+
+    private boolean inputsAreIn(VertexState<?>[] states) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].getState() != states[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void swapSlots() {
+        VertexState<?>[] states = previousStates;
+        previousStates = lastStates;
+        lastStates = states;
+
+        double logProb = previousLogProb;
+        previousLogProb = lastLogProb;
+        lastLogProb = logProb;
+
+        boolean has = hasPrevious;
+        hasPrevious = hasLast;
+        hasLast = has;
+    }
+
+    private void findInputs() {
+        Vertex<?> asVertex = (Vertex<?>) vertex;
+        inputs = new Vertex<?>[asVertex.getParents().size() + 1];
+        inputs[0] = asVertex;
+
+        int i = 1;
+        for (Vertex<?> parent : asVertex.getParents()) {
+            inputs[i++] = parent;
+        }
+
+        structureVersion = asVertex.getStructureVersion();
+        lastStates = new VertexState<?>[inputs.length];
+        previousStates = new VertexState<?>[inputs.length];
+        hasLast = false;
+        hasPrevious = false;
+    }
+}
@@ -0,0 +1,119 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.algorithms.Variable;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.util.io.ProtobufLoader;
+import io.improbable.keanu.util.io.ProtobufSaver;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A deep copy of a {@link BayesianNetwork}. The copy has its own vertices and therefore its own state, so it can be
+ * mutated (e.g. by a sampler running on another thread) without affecting the original network.
+ * <p>
+ * Every vertex connected to the network is copied, not only the vertices that are in it, but the copied network
+ * contains only the copies of the vertices in the original network. The copied vertices have new ids. Use
+ * {@link #getCopyOf(VariableReference)} and {@link #getOriginalReference(VariableReference)} to translate between
+ * the two networks.
+ * <p>
+ * The network must be saveable, i.e. must not contain any {@link io.improbable.keanu.vertices.NonSaveableVertex}.
+ */
+public class NetworkCopy {
+
+    private final BayesianNetwork network;
+    private final Map<VariableReference, Vertex> copiesByOriginalReference;
+    private final Map<VariableReference, VariableReference> originalsByCopyReference;
+
+    private NetworkCopy(BayesianNetwork network,
+                        Map<VariableReference, Vertex> copiesByOriginalReference,
+                        Map<VariableReference, VariableReference> originalsByCopyReference) {
+        this.network = network;
+        this.copiesByOriginalReference = copiesByOriginalReference;
+        this.originalsByCopyReference = originalsByCopyReference;
+    }
+
+    /**
+     * @param original the network to copy. Its structure, values and observations are copied.
+     * @return an independent copy of the network
+     * @throws IllegalArgumentException if the network contains vertices that cannot be saved
+     */
+    public static NetworkCopy of(BayesianNetwork original) {
+        Set<Vertex> connectedGraph = new HashSet<>();
+        for (Vertex<?> vertex : original.getAllVertices()) {
+            if (!connectedGraph.contains(vertex)) {
+                connectedGraph.addAll(vertex.getConnectedGraph());
+            }
+        }
+
+        Map<String, Vertex> copiesBySavedId;
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            new ProtobufSaver(new BayesianNetwork(connectedGraph)).save(output, false);
+            copiesBySavedId = new ProtobufLoader().loadVerticesBySavedId(new ByteArrayInputStream(output.toByteArray()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to copy network", e);
+        }
+
+        Map<VariableReference, Vertex> copiesByOriginalReference = new HashMap<>();
+        Map<VariableReference, VariableReference> originalsByCopyReference = new HashMap<>();
+
+        for (Vertex originalVertex : connectedGraph) {
+            Vertex copiedVertex = copiesBySavedId.get(originalVertex.getId().toString());
+            copyState(originalVertex, copiedVertex);
+            copiesByOriginalReference.put(originalVertex.getId(), copiedVertex);
+            originalsByCopyReference.put(copiedVertex.getId(), originalVertex.getId());
+        }
+
+        List<Vertex> copiedNetworkVertices = original.getAllVertices().stream()
+            .map(v -> copiesByOriginalReference.get(v.getId()))
+            .collect(Collectors.toList());
+
+        return new NetworkCopy(new BayesianNetwork(copiedNetworkVertices), copiesByOriginalReference, originalsByCopyReference);
+    }
+
+    private static <T> void copyState(Vertex<T> from, Vertex<T> to) {
+        VertexState<T> state = from.getState();
+        T value = state.getValue();
+
+        if (value instanceof Tensor) {
+            value = (T) ((Tensor) value).duplicate();
+        }
+
+        to.setState(new VertexState<>(value, state.isObserved()));
+    }
+
+    public BayesianNetwork getNetwork() {
+        return network;
+    }
+
+    public <T> Vertex<T> getCopyOf(Variable<T, ?> original) {
+        return getCopyOf(original.getReference());
+    }
+
+    public <T> Vertex<T> getCopyOf(VariableReference originalReference) {
+        Vertex<T> copy = copiesByOriginalReference.get(originalReference);
+        if (copy == null) {
+            throw new IllegalArgumentException("Variable " + originalReference + " is not in the copied network");
+        }
+        return copy;
+    }
+
+    public VariableReference getOriginalReference(VariableReference copyReference) {
+        VariableReference original = originalsByCopyReference.get(copyReference);
+        if (original == null) {
+            throw new IllegalArgumentException("Variable " + copyReference + " is not in this copy");
+        }
+        return original;
+    }
+}
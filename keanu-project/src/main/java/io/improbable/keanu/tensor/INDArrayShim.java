@@ -167,11 +167,24 @@ public class INDArrayShim {
                 operation.apply(Nd4j.valueArrayOf(right.shape(), left.getDouble(0)), right) :
                 operation.apply(left, Nd4j.valueArrayOf(left.shape(), right.getDouble(0)));
             return result.reshape(resultShape);
+        } else if (!Arrays.equals(left.shape(), right.shape())) {
+            long[] resultShape = Shape.broadcastOutputShape(left.shape(), right.shape());
+            return operation.apply(broadcastTo(left, resultShape), broadcastTo(right, resultShape));
         } else {
             return operation.apply(left, right);
         }
     }
 
+    /**
+     * Nd4j only broadcasts scalars for these operations, so the operands are expanded with the broadcast add above.
+     */
+    private static INDArray broadcastTo(INDArray tensor, long[] shape) {
+        if (Arrays.equals(tensor.shape(), shape)) {
+            return tensor;
+        }
+        return addi(Nd4j.zeros(shape), tensor);
+    }
+
     @FunctionalInterface
     interface QuadFunction<First, Second, Third, Fourth, Result> {
         Result apply(First one, Second two, Third three, Fourth four);
@@ -0,0 +1,48 @@
+package io.improbable.keanu.tensor;
+
+/**
+ * Decides when the tensor factories create a tensor backed by a plain Java array instead of one backed by Nd4j.
+ * <p>
+ * Each Nd4j operation goes through JNI and allocates a native array, which costs far more than the arithmetic for
+ * a vector of a handful of elements. Tensors with at most {@link #getMaxLength()} elements are therefore held in
+ * a Java array, and anything larger is left to Nd4j. The max length defaults to 64, well below the length at which
+ * Nd4j catches up on element-wise operations. A max length of zero turns the Java array tensors off.
+ * <p>
+ * The max length can be set with the system property
+ * "io.improbable.keanu.tensor.JVMTensorThreshold.maxLength" or with {@link #setMaxLength(long)}.
+ */
+public class JVMTensorThreshold {
+
+    public static final long DEFAULT_MAX_LENGTH = 64;
+
+    private static final String MAX_LENGTH_PROPERTY = "io.improbable.keanu.tensor.JVMTensorThreshold.maxLength";
+
+    private static volatile long maxLength = Long.getLong(MAX_LENGTH_PROPERTY, DEFAULT_MAX_LENGTH);
+
+    private JVMTensorThreshold() {
+    }
+
+    public static long getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @param maxLength the largest number of elements a tensor can have for the factories to back it by a Java array.
+     *                  Zero to always use Nd4j.
+     */
+    public static void setMaxLength(long maxLength) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Max length must not be negative but was " + maxLength);
+        }
+        JVMTensorThreshold.maxLength = maxLength;
+    }
+
+    /**
+     * @param shape the shape of a tensor that is about to be created
+     * @return true if a tensor of this shape should be backed by a Java array. Scalars have their own implementation
+     * so this is always false for them.
+     */
+    public static boolean useJVMTensor(long[] shape) {
+        return shape.length > 0 && TensorShape.getLength(shape) <= maxLength;
+    }
+}
@@ -85,6 +85,38 @@ public class TensorShape {
         return stride;
     }
 
+    /**
+     * Like {@link #getFlatIndex(long[], long[], long...)} except that, as with Nd4j, a single index into a tensor
+     * with at most one dimension longer than one is the index along that dimension.
+     *
+     * @param shape  shape to find the index for
+     * @param stride stride to find the index for
+     * @param index  the index in each dimension, or the index along the only long dimension of a vector
+     * @return the flat index from a N dimensional index
+     */
+    public static long getFlatIndexAllowingVectorIndex(long[] shape, long[] stride, long... index) {
+        if (index.length == 1 && shape.length > 1 && isVector(shape)) {
+            long length = getLength(shape);
+            if (index[0] < 0 || index[0] >= length) {
+                throw new IllegalArgumentException(
+                    "Invalid index " + Arrays.toString(index) + " for shape " + Arrays.toString(shape)
+                );
+            }
+            return index[0];
+        }
+        return getFlatIndex(shape, stride, index);
+    }
+
+    private static boolean isVector(long[] shape) {
+        int dimensionsLongerThanOne = 0;
+        for (long dimension : shape) {
+            if (dimension > 1) {
+                dimensionsLongerThanOne++;
+            }
+        }
+        return dimensionsLongerThanOne <= 1;
+    }
+
     /**
      * @param shape  shape to find the index for
      * @param stride stride to find the index for
@@ -187,6 +219,77 @@ public class TensorShape {
         return (shape1.length >= shape2.length) ? shape1 : shape2;
     }
 
+    /**
+     * Finds the shape of the result of an element-wise operation between tensors of two shapes. The shapes are aligned
+     * from their last dimension and a dimension of length one is repeated to match the other shape.
+     *
+     * @param left  the shape of the left operand
+     * @param right the shape of the right operand
+     * @return the shape of the result
+     * @throws IllegalArgumentException if the shapes cannot be broadcast together
+     */
+    public static long[] getBroadcastResultShape(long[] left, long[] right) {
+        if (Arrays.equals(left, right)) {
+            return Arrays.copyOf(left, left.length);
+        }
+
+        int resultRank = Math.max(left.length, right.length);
+        long[] result = new long[resultRank];
+
+        for (int i = 0; i < resultRank; i++) {
+            long leftDimension = i < resultRank - left.length ? 1 : left[i - (resultRank - left.length)];
+            long rightDimension = i < resultRank - right.length ? 1 : right[i - (resultRank - right.length)];
+
+            if (leftDimension != rightDimension && leftDimension != 1 && rightDimension != 1) {
+                throw new IllegalArgumentException(
+                    "Cannot broadcast shapes " + Arrays.toString(left) + " and " + Arrays.toString(right)
+                );
+            }
+
+            result[i] = Math.max(leftDimension, rightDimension);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param fromShape the shape of a tensor that is being broadcast
+     * @param toShape   the shape it is being broadcast to, e.g. from {@link #getBroadcastResultShape(long[], long[])}
+     * @return for each flat index into a tensor of toShape, the flat index of the element of the tensor of fromShape
+     * that is broadcast to it
+     */
+    public static int[] getBroadcastIndices(long[] fromShape, long[] toShape) {
+        int toLength = getLengthAsInt(toShape);
+        int[] indices = new int[toLength];
+
+        if (getLength(fromShape) == 1) {
+            return indices;
+        }
+
+        long[] fromStride = getRowFirstStride(fromShape);
+        int rankDifference = toShape.length - fromShape.length;
+        long[] toIndex = new long[toShape.length];
+
+        for (int i = 0; i < toLength; i++) {
+            long fromIndex = 0;
+            for (int d = 0; d < fromShape.length; d++) {
+                if (fromShape[d] != 1) {
+                    fromIndex += toIndex[d + rankDifference] * fromStride[d];
+                }
+            }
+            indices[i] = (int) fromIndex;
+
+            for (int d = toShape.length - 1; d >= 0; d--) {
+                if (++toIndex[d] < toShape[d]) {
+                    break;
+                }
+                toIndex[d] = 0;
+            }
+        }
+
+        return indices;
+    }
+
     private static long[] increaseRankByPaddingValue(long[] lowRankTensorShape, int desiredRank, boolean append) {
         long[] paddedShape = new long[desiredRank];
         if (lowRankTensorShape.length > desiredRank) {
@@ -1,6 +1,7 @@
 package io.improbable.keanu.tensor.dbl;
 
 import io.improbable.keanu.kotlin.DoubleOperators;
+import io.improbable.keanu.tensor.JVMTensorThreshold;
 import io.improbable.keanu.tensor.NumberTensor;
 import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
@@ -28,6 +29,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor create(double value, long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(value);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMDoubleTensor.create(value, shape);
         } else {
             return Nd4jDoubleTensor.create(value, shape);
         }
@@ -36,6 +39,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor create(double[] values, long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE) && values.length == 1) {
             return new ScalarDoubleTensor(values[0]);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMDoubleTensor.create(values, shape);
         } else {
             return Nd4jDoubleTensor.create(values, shape);
         }
@@ -48,6 +53,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor ones(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(1.0);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMDoubleTensor.ones(shape);
         } else {
             return Nd4jDoubleTensor.ones(shape);
         }
@@ -56,6 +63,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor eye(long n) {
         if (n == 1) {
             return new ScalarDoubleTensor(1.0);
+        } else if (JVMTensorThreshold.useJVMTensor(new long[]{n, n})) {
+            return JVMDoubleTensor.eye(n);
         } else {
             return Nd4jDoubleTensor.eye(n);
         }
@@ -64,6 +73,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor zeros(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(0.0);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMDoubleTensor.zeros(shape);
         } else {
             return Nd4jDoubleTensor.zeros(shape);
         }
@@ -147,6 +158,9 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
             }
         }
         INDArray concat = Nd4j.concat(dimension, concatAsINDArray);
+        if (JVMTensorThreshold.useJVMTensor(concat.shape())) {
+            return JVMDoubleTensor.create(concat.dup().data().asDouble(), concat.shape());
+        }
         return new Nd4jDoubleTensor(concat);
     }
 
@@ -0,0 +1,1167 @@
+package io.improbable.keanu.tensor.dbl;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.JVMTensorThreshold;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.TensorShapeValidation;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.tensor.validate.TensorValidator;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.special.Gamma;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+import static com.google.common.primitives.Ints.checkedCast;
+import static io.improbable.keanu.tensor.TensorShape.getBroadcastIndices;
+import static io.improbable.keanu.tensor.TensorShape.getBroadcastResultShape;
+import static io.improbable.keanu.tensor.TensorShape.getFlatIndexAllowingVectorIndex;
+import static io.improbable.keanu.tensor.TensorShape.getRowFirstStride;
+import static java.util.Arrays.copyOf;
+
+/**
+ * Class for representing n-dimensional arrays of doubles. This is backed by a Java array in row first order
+ * and is used by the factories in {@link DoubleTensor} for tensors that are small enough that calling into Nd4j
+ * would cost more than the operation itself (see {@link JVMTensorThreshold}).
+ * <p>
+ * Element-wise operations, broadcasting, comparisons and sums are done in Java. Operations that are rarely used on
+ * small tensors, such as slicing and matrix decompositions, are passed on to {@link Nd4jDoubleTensor}.
+ */
+public class JVMDoubleTensor implements DoubleTensor {
+
+    //The default of Nd4j.EPS_THRESHOLD, which is not read directly so that comparing tensors does not load Nd4j
+    private static final double ND4J_EPSILON = 1e-5;
+
+    private final double[] buffer;
+    private final long[] shape;
+    private final long[] stride;
+
+    private JVMDoubleTensor(double[] buffer, long[] shape) {
+        this.buffer = buffer;
+        this.shape = shape;
+        this.stride = getRowFirstStride(shape);
+    }
+
+    /**
+     * @param values tensor data in row first order. This is copied.
+     * @param shape  desired shape of tensor
+     * @return a tensor backed by a copy of values
+     */
+    public static JVMDoubleTensor create(double[] values, long[] shape) {
+        Preconditions.checkArgument(
+            TensorShape.getLength(shape) == values.length,
+            "Shape " + Arrays.toString(shape) + " does not match data length " + values.length
+        );
+        return new JVMDoubleTensor(copyOf(values, values.length), copyOf(shape, shape.length));
+    }
+
+    public static JVMDoubleTensor create(double value, long[] shape) {
+        double[] buffer = new double[TensorShape.getLengthAsInt(shape)];
+        Arrays.fill(buffer, value);
+        return new JVMDoubleTensor(buffer, copyOf(shape, shape.length));
+    }
+
+    public static JVMDoubleTensor ones(long... shape) {
+        return create(1.0, shape);
+    }
+
+    public static JVMDoubleTensor zeros(long... shape) {
+        return create(0.0, shape);
+    }
+
+    public static JVMDoubleTensor eye(long n) {
+        int size = checkedCast(n);
+        double[] buffer = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            buffer[i * size + i] = 1.0;
+        }
+        return new JVMDoubleTensor(buffer, new long[]{n, n});
+    }
+
+    /**
+     * Wraps a buffer that is owned by the result, promoting it to Nd4j if the result has grown past the threshold.
+     */
+    private static DoubleTensor fromBuffer(double[] buffer, long[] shape) {
+        if (shape.length == 0) {
+            return new ScalarDoubleTensor(buffer[0]);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return new JVMDoubleTensor(buffer, shape);
+        } else {
+            return Nd4jDoubleTensor.create(buffer, shape);
+        }
+    }
+
+    private static DoubleTensor fromNd4j(DoubleTensor result) {
+        if (JVMTensorThreshold.useJVMTensor(result.getShape())) {
+            return new JVMDoubleTensor(result.asFlatDoubleArray(), result.getShape());
+        }
+        return result;
+    }
+
+    private Nd4jDoubleTensor toNd4j() {
+        return Nd4jDoubleTensor.create(buffer, shape);
+    }
+
+    private static double[] getBuffer(DoubleTensor tensor) {
+        if (tensor instanceof JVMDoubleTensor) {
+            return ((JVMDoubleTensor) tensor).buffer;
+        }
+        return tensor.asFlatDoubleArray();
+    }
+
+    @Override
+    public int getRank() {
+        return shape.length;
+    }
+
+    @Override
+    public long[] getShape() {
+        return copyOf(shape, shape.length);
+    }
+
+    @Override
+    public long getLength() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean isShapePlaceholder() {
+        return false;
+    }
+
+    @Override
+    public Double getValue(long... index) {
+        return buffer[checkedCast(getFlatIndexAllowingVectorIndex(shape, stride, index))];
+    }
+
+    @Override
+    public DoubleTensor setValue(Double value, long... index) {
+        buffer[checkedCast(getFlatIndexAllowingVectorIndex(shape, stride, index))] = value;
+        return this;
+    }
+
+    @Override
+    public Double scalar() {
+        return buffer[0];
+    }
+
+    @Override
+    public JVMDoubleTensor duplicate() {
+        return new JVMDoubleTensor(copyOf(buffer, buffer.length), copyOf(shape, shape.length));
+    }
+
+    @Override
+    public DoubleTensor toDouble() {
+        return duplicate();
+    }
+
+    @Override
+    public IntegerTensor toInteger() {
+        return IntegerTensor.create(asFlatIntegerArray(), copyOf(shape, shape.length));
+    }
+
+    @Override
+    public DoubleTensor reshape(long... newShape) {
+        long[] resolvedShape = copyOf(newShape, newShape.length);
+        int unknownDimension = ArrayUtils.indexOf(resolvedShape, -1L);
+        if (unknownDimension >= 0) {
+            long knownLength = -TensorShape.getLength(resolvedShape);
+            resolvedShape[unknownDimension] = knownLength == 0 ? 0 : buffer.length / knownLength;
+        }
+
+        if (TensorShape.getLength(resolvedShape) != buffer.length) {
+            throw new IllegalArgumentException("Cannot reshape a tensor to a shape of different length. Failed to reshape: "
+                + Arrays.toString(shape) + " to: " + Arrays.toString(newShape));
+        }
+
+        return fromBuffer(copyOf(buffer, buffer.length), resolvedShape);
+    }
+
+    @Override
+    public DoubleTensor permute(int... rearrange) {
+        if (rearrange.length != shape.length) {
+            throw new IllegalArgumentException(
+                "Cannot permute " + Arrays.toString(shape) + " by " + Arrays.toString(rearrange)
+            );
+        }
+
+        long[] resultShape = new long[shape.length];
+        long[] strideOfResultDimension = new long[shape.length];
+        for (int i = 0; i < rearrange.length; i++) {
+            resultShape[i] = shape[rearrange[i]];
+            strideOfResultDimension[i] = stride[rearrange[i]];
+        }
+
+        double[] result = new double[buffer.length];
+        long[] resultIndex = new long[shape.length];
+        for (int i = 0; i < result.length; i++) {
+            long fromIndex = 0;
+            for (int d = 0; d < resultIndex.length; d++) {
+                fromIndex += resultIndex[d] * strideOfResultDimension[d];
+            }
+            result[i] = buffer[(int) fromIndex];
+            incrementIndex(resultIndex, resultShape);
+        }
+
+        return new JVMDoubleTensor(result, resultShape);
+    }
+
+    @Override
+    public DoubleTensor transpose() {
+        if (shape.length != 2) {
+            return fromNd4j(toNd4j().transpose());
+        }
+        return permute(1, 0);
+    }
+
+    @Override
+    public DoubleTensor diag() {
+        return fromNd4j(toNd4j().diag());
+    }
+
+    @Override
+    public Double sum() {
+        double sum = 0.0;
+        for (double value : buffer) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public DoubleTensor sum(int... overDimensions) {
+        if (overDimensions.length == 0) {
+            return duplicate();
+        }
+
+        int[] dimensions = TensorShape.getAbsoluteDimensions(shape.length, copyOf(overDimensions, overDimensions.length));
+        long[] resultShape = ArrayUtils.removeAll(shape, dimensions);
+        long[] resultStride = getRowFirstStride(resultShape);
+
+        long[] strideInResult = new long[shape.length];
+        int resultDimension = 0;
+        for (int d = 0; d < shape.length; d++) {
+            if (!ArrayUtils.contains(dimensions, d)) {
+                strideInResult[d] = resultStride[resultDimension++];
+            }
+        }
+
+        double[] result = new double[TensorShape.getLengthAsInt(resultShape)];
+        long[] index = new long[shape.length];
+        for (int i = 0; i < buffer.length; i++) {
+            long toIndex = 0;
+            for (int d = 0; d < index.length; d++) {
+                toIndex += index[d] * strideInResult[d];
+            }
+            result[(int) toIndex] += buffer[i];
+            incrementIndex(index, shape);
+        }
+
+        return fromBuffer(result, resultShape);
+    }
+
+    @Override
+    public DoubleTensor reciprocal() {
+        return duplicate().reciprocalInPlace();
+    }
+
+    @Override
+    public DoubleTensor minus(double value) {
+        return duplicate().minusInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor plus(double value) {
+        return duplicate().plusInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor times(double value) {
+        return duplicate().timesInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor div(double value) {
+        return duplicate().divInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor matrixMultiply(DoubleTensor value) {
+        long[] thatShape = value.getShape();
+        if (shape.length != 2 || thatShape.length != 2 || shape[1] != thatShape[0]) {
+            return fromNd4j(toNd4j().matrixMultiply(value));
+        }
+
+        int rows = checkedCast(shape[0]);
+        int inner = checkedCast(shape[1]);
+        int columns = checkedCast(thatShape[1]);
+        double[] thatBuffer = getBuffer(value);
+
+        double[] result = new double[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < inner; k++) {
+                double left = buffer[i * inner + k];
+                for (int j = 0; j < columns; j++) {
+                    result[i * columns + j] += left * thatBuffer[k * columns + j];
+                }
+            }
+        }
+
+        return fromBuffer(result, new long[]{rows, columns});
+    }
+
+    @Override
+    public DoubleTensor tensorMultiply(DoubleTensor value, int[] dimsLeft, int[] dimsRight) {
+        return fromNd4j(toNd4j().tensorMultiply(value, dimsLeft, dimsRight));
+    }
+
+    @Override
+    public DoubleTensor pow(DoubleTensor exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public DoubleTensor pow(double exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public DoubleTensor sqrt() {
+        return duplicate().sqrtInPlace();
+    }
+
+    @Override
+    public DoubleTensor log() {
+        return duplicate().logInPlace();
+    }
+
+    @Override
+    public DoubleTensor safeLogTimes(DoubleTensor y) {
+        return duplicate().safeLogTimesInPlace(y);
+    }
+
+    @Override
+    public DoubleTensor logGamma() {
+        return duplicate().logGammaInPlace();
+    }
+
+    @Override
+    public DoubleTensor digamma() {
+        return duplicate().digammaInPlace();
+    }
+
+    @Override
+    public DoubleTensor sin() {
+        return duplicate().sinInPlace();
+    }
+
+    @Override
+    public DoubleTensor cos() {
+        return duplicate().cosInPlace();
+    }
+
+    @Override
+    public DoubleTensor tan() {
+        return duplicate().tanInPlace();
+    }
+
+    @Override
+    public DoubleTensor atan() {
+        return duplicate().atanInPlace();
+    }
+
+    @Override
+    public DoubleTensor atan2(double y) {
+        return duplicate().atan2InPlace(y);
+    }
+
+    @Override
+    public DoubleTensor atan2(DoubleTensor y) {
+        return duplicate().atan2InPlace(y);
+    }
+
+    @Override
+    public DoubleTensor asin() {
+        return duplicate().asinInPlace();
+    }
+
+    @Override
+    public DoubleTensor acos() {
+        return duplicate().acosInPlace();
+    }
+
+    @Override
+    public DoubleTensor exp() {
+        return duplicate().expInPlace();
+    }
+
+    @Override
+    public DoubleTensor minus(DoubleTensor that) {
+        return duplicate().minusInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor plus(DoubleTensor that) {
+        return duplicate().plusInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor times(DoubleTensor that) {
+        return duplicate().timesInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor div(DoubleTensor that) {
+        return duplicate().divInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor unaryMinus() {
+        return duplicate().unaryMinusInPlace();
+    }
+
+    @Override
+    public DoubleTensor abs() {
+        return duplicate().absInPlace();
+    }
+
+    @Override
+    public DoubleTensor apply(Function<Double, Double> function) {
+        return duplicate().applyInPlace(function);
+    }
+
+    @Override
+    public DoubleTensor matrixInverse() {
+        return fromNd4j(toNd4j().matrixInverse());
+    }
+
+    @Override
+    public double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : buffer) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    @Override
+    public double min() {
+        double min = Double.POSITIVE_INFINITY;
+        for (double value : buffer) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    public int argMax() {
+        int argMax = 0;
+        for (int i = 1; i < buffer.length; i++) {
+            if (buffer[i] > buffer[argMax]) {
+                argMax = i;
+            }
+        }
+        return argMax;
+    }
+
+    @Override
+    public IntegerTensor argMax(int axis) {
+        TensorShapeValidation.checkDimensionExistsInShape(axis, shape);
+        IntegerTensor argMax = toNd4j().argMax(axis);
+        return IntegerTensor.create(argMax.asFlatIntegerArray(), argMax.getShape());
+    }
+
+    @Override
+    public double average() {
+        return sum() / buffer.length;
+    }
+
+    /**
+     * @return the bias corrected standard deviation, which matches {@link Nd4jDoubleTensor#standardDeviation()}
+     */
+    @Override
+    public double standardDeviation() {
+        double average = average();
+        double sumOfSquares = 0.0;
+        for (double value : buffer) {
+            double difference = value - average;
+            sumOfSquares += difference * difference;
+        }
+        return Math.sqrt(sumOfSquares / (buffer.length - 1));
+    }
+
+    @Override
+    public boolean equalsWithinEpsilon(DoubleTensor o, double epsilon) {
+        if (this == o) return true;
+        if (!this.hasSameShapeAs(o)) return false;
+
+        double[] thatBuffer = getBuffer(o);
+        for (int i = 0; i < buffer.length; i++) {
+            if (!(Math.abs(buffer[i] - thatBuffer[i]) <= epsilon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DoubleTensor standardize() {
+        return duplicate().standardizeInPlace();
+    }
+
+    @Override
+    public DoubleTensor replaceNaN(double value) {
+        return duplicate().replaceNaNInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor clamp(DoubleTensor min, DoubleTensor max) {
+        return duplicate().clampInPlace(min, max);
+    }
+
+    @Override
+    public DoubleTensor ceil() {
+        return duplicate().ceilInPlace();
+    }
+
+    @Override
+    public DoubleTensor floor() {
+        return duplicate().floorInPlace();
+    }
+
+    @Override
+    public DoubleTensor round() {
+        return duplicate().roundInPlace();
+    }
+
+    @Override
+    public DoubleTensor sigmoid() {
+        return duplicate().sigmoidInPlace();
+    }
+
+    @Override
+    public DoubleTensor choleskyDecomposition() {
+        return fromNd4j(toNd4j().choleskyDecomposition());
+    }
+
+    @Override
+    public double determinant() {
+        if (shape.length != 2) {
+            return toNd4j().determinant();
+        }
+
+        int rows = checkedCast(shape[0]);
+        int columns = checkedCast(shape[1]);
+        double[][] asMatrix = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(buffer, i * columns, asMatrix[i], 0, columns);
+        }
+        return new LUDecomposition(new Array2DRowRealMatrix(asMatrix, false)).getDeterminant();
+    }
+
+    @Override
+    public double product() {
+        double product = 1.0;
+        for (double value : buffer) {
+            product *= value;
+        }
+        return product;
+    }
+
+    @Override
+    public DoubleTensor slice(int dimension, long index) {
+        return fromNd4j(toNd4j().slice(dimension, index));
+    }
+
+    @Override
+    public List<DoubleTensor> split(int dimension, long... splitAtIndices) {
+        List<DoubleTensor> splits = new ArrayList<>();
+        for (DoubleTensor split : toNd4j().split(dimension, splitAtIndices)) {
+            splits.add(fromNd4j(split));
+        }
+        return splits;
+    }
+
+    // In place Ops and Transforms
+
+    @Override
+    public DoubleTensor reciprocalInPlace() {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = 1.0 / buffer[i];
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor minusInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] -= value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor plusInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] += value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor timesInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] *= value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor divInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] /= value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor powInPlace(DoubleTensor exponent) {
+        return broadcastInPlace(exponent, Math::pow);
+    }
+
+    @Override
+    public DoubleTensor powInPlace(double exponent) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = Math.pow(buffer[i], exponent);
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor sqrtInPlace() {
+        return transformInPlace(Math::sqrt);
+    }
+
+    @Override
+    public DoubleTensor logInPlace() {
+        return transformInPlace(Math::log);
+    }
+
+    /**
+     * This is identical to log().times(y), except that it changes NaN results to 0.
+     * This is important when calculating 0log0, which should return 0
+     * See https://arcsecond.wordpress.com/2009/03/19/0log0-0-for-real/ for some mathematical justification
+     *
+     * @param y The tensor value to multiply by
+     * @return the log of this tensor multiplied by y
+     */
+    @Override
+    public DoubleTensor safeLogTimesInPlace(DoubleTensor y) {
+        TensorValidator.NAN_CATCHER.validate(this);
+        TensorValidator.NAN_CATCHER.validate(y);
+        DoubleTensor result = this.logInPlace().timesInPlace(y);
+        return TensorValidator.NAN_FIXER.validate(result);
+    }
+
+    @Override
+    public DoubleTensor logGammaInPlace() {
+        return transformInPlace(Gamma::logGamma);
+    }
+
+    @Override
+    public DoubleTensor digammaInPlace() {
+        return transformInPlace(Gamma::digamma);
+    }
+
+    @Override
+    public DoubleTensor sinInPlace() {
+        return transformInPlace(Math::sin);
+    }
+
+    @Override
+    public DoubleTensor cosInPlace() {
+        return transformInPlace(Math::cos);
+    }
+
+    @Override
+    public DoubleTensor tanInPlace() {
+        return transformInPlace(Math::tan);
+    }
+
+    @Override
+    public DoubleTensor atanInPlace() {
+        return transformInPlace(Math::atan);
+    }
+
+    @Override
+    public DoubleTensor atan2InPlace(double y) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = Math.atan2(y, buffer[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor atan2InPlace(DoubleTensor y) {
+        return broadcastInPlace(y, (x, yValue) -> Math.atan2(yValue, x));
+    }
+
+    @Override
+    public DoubleTensor asinInPlace() {
+        return transformInPlace(Math::asin);
+    }
+
+    @Override
+    public DoubleTensor acosInPlace() {
+        return transformInPlace(Math::acos);
+    }
+
+    @Override
+    public DoubleTensor expInPlace() {
+        return transformInPlace(Math::exp);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new DoubleTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public DoubleTensor minusInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a - b);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new DoubleTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public DoubleTensor plusInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a + b);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new DoubleTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public DoubleTensor timesInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a * b);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new DoubleTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public DoubleTensor divInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a / b);
+    }
+
+    @Override
+    public DoubleTensor unaryMinusInPlace() {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = -buffer[i];
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor absInPlace() {
+        return transformInPlace(Math::abs);
+    }
+
+    @Override
+    public DoubleTensor applyInPlace(Function<Double, Double> function) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = function.apply(buffer[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor minInPlace(DoubleTensor min) {
+        return broadcastInPlace(min, Math::min);
+    }
+
+    @Override
+    public DoubleTensor maxInPlace(DoubleTensor max) {
+        return broadcastInPlace(max, Math::max);
+    }
+
+    @Override
+    public DoubleTensor clampInPlace(DoubleTensor min, DoubleTensor max) {
+        return minInPlace(max).maxInPlace(min);
+    }
+
+    @Override
+    public DoubleTensor ceilInPlace() {
+        return transformInPlace(Math::ceil);
+    }
+
+    @Override
+    public DoubleTensor floorInPlace() {
+        return transformInPlace(Math::floor);
+    }
+
+    /**
+     * Rounds halves away from zero to match {@link ScalarDoubleTensor#roundInPlace()} and ND4J,
+     * e.g. round(-2.5) == -3.0
+     *
+     * @return Nearest integer value as a DoubleTensor
+     */
+    @Override
+    public DoubleTensor roundInPlace() {
+        for (int i = 0; i < buffer.length; i++) {
+            double valueToRound = buffer[i];
+            if (valueToRound < 0. && valueToRound + 0.5 == (double) (long) valueToRound) {
+                valueToRound -= 1.;
+            }
+            buffer[i] = (double) Math.round(valueToRound);
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor sigmoidInPlace() {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = 1.0D / (1.0D + FastMath.exp(-buffer[i]));
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor standardizeInPlace() {
+        double average = average();
+        double standardDeviation = standardDeviation();
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = (buffer[i] - average) / standardDeviation;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor replaceNaNInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            if (Double.isNaN(buffer[i])) {
+                buffer[i] = value;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor setAllInPlace(double value) {
+        Arrays.fill(buffer, value);
+        return this;
+    }
+
+    // Masks
+
+    @Override
+    public DoubleTensor getGreaterThanMask(DoubleTensor greaterThanThis) {
+        return duplicate().broadcastInPlace(greaterThanThis, (a, b) -> a > b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getGreaterThanOrEqualToMask(DoubleTensor greaterThanOrEqualToThis) {
+        return duplicate().broadcastInPlace(greaterThanOrEqualToThis, (a, b) -> a >= b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getLessThanMask(DoubleTensor lessThanThis) {
+        return duplicate().broadcastInPlace(lessThanThis, (a, b) -> a < b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getLessThanOrEqualToMask(DoubleTensor lessThanOrEqualToThis) {
+        return duplicate().broadcastInPlace(lessThanOrEqualToThis, (a, b) -> a <= b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor setWithMaskInPlace(DoubleTensor mask, Double value) {
+        if (this.getLength() != mask.getLength()) {
+            throw new IllegalArgumentException("The lengths of the tensor and mask must match, but got tensor length: " + this.getLength() + ", mask length: " + mask.getLength());
+        }
+
+        double[] maskBuffer = getBuffer(mask);
+        for (int i = 0; i < buffer.length; i++) {
+            if (maskBuffer[i] == 1.0) {
+                buffer[i] = value;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor setWithMask(DoubleTensor mask, Double value) {
+        return duplicate().setWithMaskInPlace(mask, value);
+    }
+
+    // Comparisons
+
+    @Override
+    public BooleanTensor lessThan(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] < value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] <= value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor greaterThan(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] > value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] >= value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor lessThan(DoubleTensor value) {
+        return fromMask(getLessThanMask(value));
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(DoubleTensor value) {
+        return fromMask(getLessThanOrEqualToMask(value));
+    }
+
+    @Override
+    public BooleanTensor greaterThan(DoubleTensor value) {
+        return fromMask(getGreaterThanMask(value));
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(DoubleTensor value) {
+        return fromMask(getGreaterThanOrEqualToMask(value));
+    }
+
+    @Override
+    public BooleanTensor notNaN() {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = !Double.isNaN(buffer[i]);
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Tensor that) {
+        if (that instanceof DoubleTensor) {
+            return fromMask(duplicate().broadcastInPlace((DoubleTensor) that, (a, b) -> a == b ? 1.0 : 0.0));
+        } else {
+            return Tensor.elementwiseEquals(this, that);
+        }
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] == value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    private static BooleanTensor fromMask(DoubleTensor mask) {
+        double[] maskBuffer = getBuffer(mask);
+        boolean[] result = new boolean[maskBuffer.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = maskBuffer[i] != 0.0;
+        }
+        return BooleanTensor.create(result, mask.getShape());
+    }
+
+    /**
+     * Applies an operation element-wise between this and that, broadcasting whichever has dimensions of length one.
+     *
+     * @return this if the result has the same shape as this, otherwise a new tensor of the broadcast shape
+     */
+    private DoubleTensor broadcastInPlace(DoubleTensor that, DoubleBinaryOperator operation) {
+        long[] thatShape = that.getShape();
+        double[] thatBuffer = getBuffer(that);
+
+        if (thatBuffer.length == 1 && thatShape.length <= shape.length) {
+            double thatValue = thatBuffer[0];
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operation.applyAsDouble(buffer[i], thatValue);
+            }
+            return this;
+        }
+
+        if (Arrays.equals(shape, thatShape)) {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operation.applyAsDouble(buffer[i], thatBuffer[i]);
+            }
+            return this;
+        }
+
+        long[] resultShape = getBroadcastResultShape(shape, thatShape);
+        int[] thatIndices = getBroadcastIndices(thatShape, resultShape);
+
+        if (Arrays.equals(resultShape, shape)) {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operation.applyAsDouble(buffer[i], thatBuffer[thatIndices[i]]);
+            }
+            return this;
+        }
+
+        int[] thisIndices = getBroadcastIndices(shape, resultShape);
+        double[] result = new double[thatIndices.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = operation.applyAsDouble(buffer[thisIndices[i]], thatBuffer[thatIndices[i]]);
+        }
+        return fromBuffer(result, resultShape);
+    }
+
+    private DoubleTensor transformInPlace(DoubleUnaryOperator operation) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = operation.applyAsDouble(buffer[i]);
+        }
+        return this;
+    }
+
+    private static void incrementIndex(long[] index, long[] shape) {
+        for (int d = index.length - 1; d >= 0; d--) {
+            if (++index[d] < shape[d]) {
+                return;
+            }
+            index[d] = 0;
+        }
+    }
+
+    @Override
+    public FlattenedView<Double> getFlattenedView() {
+        return new JVMDoubleFlattenedView();
+    }
+
+    @Override
+    public double[] asFlatDoubleArray() {
+        return copyOf(buffer, buffer.length);
+    }
+
+    @Override
+    public int[] asFlatIntegerArray() {
+        int[] integers = new int[buffer.length];
+        for (int i = 0; i < integers.length; i++) {
+            integers[i] = (int) buffer[i];
+        }
+        return integers;
+    }
+
+    @Override
+    public Double[] asFlatArray() {
+        return ArrayUtils.toObject(buffer);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof DoubleTensor) {
+            DoubleTensor that = (DoubleTensor) o;
+            return Arrays.equals(that.getShape(), shape) && valuesEqualWithinNd4jEpsilon(buffer, getBuffer(that));
+        } else if (o instanceof Tensor) {
+            Tensor that = (Tensor) o;
+            if (!Arrays.equals(that.getShape(), shape)) return false;
+            return Arrays.equals(
+                that.asFlatArray(),
+                this.asFlatArray()
+            );
+        }
+
+        return false;
+    }
+
+    /**
+     * Compares values the way Nd4j's equals does, so that a tensor equals the same tensor whichever way it is backed:
+     * each pair of values must be within 1e-5 of each other either absolutely or relative to the larger of the two.
+     */
+    static boolean valuesEqualWithinNd4jEpsilon(double[] left, double[] right) {
+        if (left.length != right.length) {
+            return false;
+        }
+        for (int i = 0; i < left.length; i++) {
+            double difference = Math.abs(left[i] - right[i]);
+            if (!(difference <= ND4J_EPSILON ||
+                difference / Math.max(Math.abs(left[i]), Math.abs(right[i])) <= ND4J_EPSILON)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(buffer);
+        result = 31 * result + Arrays.hashCode(shape);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{\n" +
+            "shape = " + Arrays.toString(shape) +
+            "\ndata = " + Arrays.toString(buffer) +
+            "\n}";
+    }
+
+    private class JVMDoubleFlattenedView implements FlattenedView<Double> {
+
+        @Override
+        public long size() {
+            return buffer.length;
+        }
+
+        @Override
+        public Double get(long index) {
+            return buffer[checkedCast(index)];
+        }
+
+        @Override
+        public Double getOrScalar(long index) {
+            if (buffer.length == 1) {
+                return get(0);
+            } else {
+                return get(index);
+            }
+        }
+
+        @Override
+        public void set(long index, Double value) {
+            buffer[checkedCast(index)] = value;
+        }
+    }
+}
@@ -103,8 +103,10 @@ public class Nd4jDoubleTensor implements DoubleTensor {
     static INDArray unsafeGetNd4J(DoubleTensor that) {
         if (that.isLengthOne()) {
             return TypedINDArrayFactory.scalar(that.scalar(), BUFFER_TYPE).reshape(that.getShape());
+        } else if (that instanceof Nd4jDoubleTensor) {
+            return ((Nd4jDoubleTensor) that).tensor;
         }
-        return ((Nd4jDoubleTensor) that).tensor;
+        return TypedINDArrayFactory.create(that.asFlatDoubleArray(), that.getShape(), BUFFER_TYPE);
     }
 
     @Override
@@ -1075,6 +1077,10 @@ public class Nd4jDoubleTensor implements DoubleTensor {
 
         if (o instanceof Nd4jDoubleTensor) {
             return tensor.equals(((Nd4jDoubleTensor) o).tensor);
+        } else if (o instanceof DoubleTensor) {
+            DoubleTensor that = (DoubleTensor) o;
+            return Arrays.equals(that.getShape(), getShape()) &&
+                JVMDoubleTensor.valuesEqualWithinNd4jEpsilon(asFlatDoubleArray(), that.asFlatDoubleArray());
         } else if (o instanceof Tensor) {
             Tensor that = (Tensor) o;
             if (!Arrays.equals(that.getShape(), getShape())) return false;
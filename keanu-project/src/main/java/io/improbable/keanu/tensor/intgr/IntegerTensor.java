@@ -1,6 +1,7 @@
 package io.improbable.keanu.tensor.intgr;
 
 import io.improbable.keanu.kotlin.IntegerOperators;
+import io.improbable.keanu.tensor.JVMTensorThreshold;
 import io.improbable.keanu.tensor.NumberTensor;
 import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
@@ -24,6 +25,8 @@ public interface IntegerTensor extends NumberTensor<Integer, IntegerTensor>, Int
     static IntegerTensor create(int value, long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarIntegerTensor(value);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMIntegerTensor.create(value, shape);
         } else {
             return Nd4jIntegerTensor.create(value, shape);
         }
@@ -32,6 +35,8 @@ public interface IntegerTensor extends NumberTensor<Integer, IntegerTensor>, Int
     static IntegerTensor create(int[] values, long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE) && values.length == 1) {
             return new ScalarIntegerTensor(values[0]);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMIntegerTensor.create(values, shape);
         } else {
             return Nd4jIntegerTensor.create(values, shape);
         }
@@ -44,6 +49,8 @@ public interface IntegerTensor extends NumberTensor<Integer, IntegerTensor>, Int
     static IntegerTensor ones(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarIntegerTensor(1);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMIntegerTensor.ones(shape);
         } else {
             return Nd4jIntegerTensor.ones(shape);
         }
@@ -52,6 +59,8 @@ public interface IntegerTensor extends NumberTensor<Integer, IntegerTensor>, Int
     static IntegerTensor eye(int n) {
         if (n == 1) {
             return new ScalarIntegerTensor(1);
+        } else if (JVMTensorThreshold.useJVMTensor(new long[]{n, n})) {
+            return JVMIntegerTensor.eye(n);
         } else {
             return Nd4jIntegerTensor.eye(n);
         }
@@ -60,6 +69,8 @@ public interface IntegerTensor extends NumberTensor<Integer, IntegerTensor>, Int
     static IntegerTensor zeros(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarIntegerTensor(0);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return JVMIntegerTensor.zeros(shape);
         } else {
             return Nd4jIntegerTensor.zeros(shape);
         }
@@ -119,6 +130,9 @@ public interface IntegerTensor extends NumberTensor<Integer, IntegerTensor>, Int
             }
         }
         INDArray concat = Nd4j.concat(dimension, concatAsINDArray);
+        if (JVMTensorThreshold.useJVMTensor(concat.shape())) {
+            return JVMIntegerTensor.create(concat.dup().data().asInt(), concat.shape());
+        }
         return new Nd4jIntegerTensor(concat);
     }
 
@@ -0,0 +1,757 @@
+package io.improbable.keanu.tensor.intgr;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.JVMTensorThreshold;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.TensorShapeValidation;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+
+import static com.google.common.primitives.Ints.checkedCast;
+import static io.improbable.keanu.tensor.TensorShape.getBroadcastIndices;
+import static io.improbable.keanu.tensor.TensorShape.getBroadcastResultShape;
+import static io.improbable.keanu.tensor.TensorShape.getFlatIndexAllowingVectorIndex;
+import static io.improbable.keanu.tensor.TensorShape.getRowFirstStride;
+import static java.util.Arrays.copyOf;
+
+/**
+ * Class for representing n-dimensional arrays of integers. This is backed by a Java array in row first order
+ * and is used by the factories in {@link IntegerTensor} for tensors that are small enough that calling into Nd4j
+ * would cost more than the operation itself (see {@link JVMTensorThreshold}).
+ * <p>
+ * Operations that are rarely used on small tensors, such as slicing and tensor multiplication, are passed on to
+ * {@link Nd4jIntegerTensor}.
+ */
+public class JVMIntegerTensor implements IntegerTensor {
+
+    private final int[] buffer;
+    private final long[] shape;
+    private final long[] stride;
+
+    private JVMIntegerTensor(int[] buffer, long[] shape) {
+        this.buffer = buffer;
+        this.shape = shape;
+        this.stride = getRowFirstStride(shape);
+    }
+
+    /**
+     * @param values tensor data in row first order. This is copied.
+     * @param shape  desired shape of tensor
+     * @return a tensor backed by a copy of values
+     */
+    public static JVMIntegerTensor create(int[] values, long[] shape) {
+        Preconditions.checkArgument(
+            TensorShape.getLength(shape) == values.length,
+            "Shape " + Arrays.toString(shape) + " does not match data length " + values.length
+        );
+        return new JVMIntegerTensor(copyOf(values, values.length), copyOf(shape, shape.length));
+    }
+
+    public static JVMIntegerTensor create(int value, long[] shape) {
+        int[] buffer = new int[TensorShape.getLengthAsInt(shape)];
+        Arrays.fill(buffer, value);
+        return new JVMIntegerTensor(buffer, copyOf(shape, shape.length));
+    }
+
+    public static JVMIntegerTensor ones(long... shape) {
+        return create(1, shape);
+    }
+
+    public static JVMIntegerTensor zeros(long... shape) {
+        return create(0, shape);
+    }
+
+    public static JVMIntegerTensor eye(long n) {
+        int size = checkedCast(n);
+        int[] buffer = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            buffer[i * size + i] = 1;
+        }
+        return new JVMIntegerTensor(buffer, new long[]{n, n});
+    }
+
+    /**
+     * Wraps a buffer that is owned by the result, promoting it to Nd4j if the result has grown past the threshold.
+     */
+    private static IntegerTensor fromBuffer(int[] buffer, long[] shape) {
+        if (shape.length == 0) {
+            return new ScalarIntegerTensor(buffer[0]);
+        } else if (JVMTensorThreshold.useJVMTensor(shape)) {
+            return new JVMIntegerTensor(buffer, shape);
+        } else {
+            return Nd4jIntegerTensor.create(buffer, shape);
+        }
+    }
+
+    private static IntegerTensor fromNd4j(IntegerTensor result) {
+        if (JVMTensorThreshold.useJVMTensor(result.getShape())) {
+            return new JVMIntegerTensor(result.asFlatIntegerArray(), result.getShape());
+        }
+        return result;
+    }
+
+    private Nd4jIntegerTensor toNd4j() {
+        return Nd4jIntegerTensor.create(buffer, shape);
+    }
+
+    /**
+     * @return the values of the tensor, which for a JVMIntegerTensor is its own buffer and so must not be modified
+     */
+    static int[] getBuffer(IntegerTensor tensor) {
+        if (tensor instanceof JVMIntegerTensor) {
+            return ((JVMIntegerTensor) tensor).buffer;
+        }
+        return tensor.asFlatIntegerArray();
+    }
+
+    @Override
+    public int getRank() {
+        return shape.length;
+    }
+
+    @Override
+    public long[] getShape() {
+        return copyOf(shape, shape.length);
+    }
+
+    @Override
+    public long getLength() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean isShapePlaceholder() {
+        return false;
+    }
+
+    @Override
+    public Integer getValue(long... index) {
+        return buffer[checkedCast(getFlatIndexAllowingVectorIndex(shape, stride, index))];
+    }
+
+    @Override
+    public IntegerTensor setValue(Integer value, long... index) {
+        buffer[checkedCast(getFlatIndexAllowingVectorIndex(shape, stride, index))] = value;
+        return this;
+    }
+
+    @Override
+    public Integer scalar() {
+        return buffer[0];
+    }
+
+    @Override
+    public JVMIntegerTensor duplicate() {
+        return new JVMIntegerTensor(copyOf(buffer, buffer.length), copyOf(shape, shape.length));
+    }
+
+    @Override
+    public DoubleTensor toDouble() {
+        return DoubleTensor.create(asFlatDoubleArray(), copyOf(shape, shape.length));
+    }
+
+    @Override
+    public IntegerTensor toInteger() {
+        return duplicate();
+    }
+
+    @Override
+    public IntegerTensor reshape(long... newShape) {
+        long[] resolvedShape = copyOf(newShape, newShape.length);
+        int unknownDimension = ArrayUtils.indexOf(resolvedShape, -1L);
+        if (unknownDimension >= 0) {
+            long knownLength = -TensorShape.getLength(resolvedShape);
+            resolvedShape[unknownDimension] = knownLength == 0 ? 0 : buffer.length / knownLength;
+        }
+
+        if (TensorShape.getLength(resolvedShape) != buffer.length) {
+            throw new IllegalArgumentException("Cannot reshape a tensor to a shape of different length. Failed to reshape: "
+                + Arrays.toString(shape) + " to: " + Arrays.toString(newShape));
+        }
+
+        return fromBuffer(copyOf(buffer, buffer.length), resolvedShape);
+    }
+
+    @Override
+    public IntegerTensor diag() {
+        return fromNd4j(toNd4j().diag());
+    }
+
+    @Override
+    public IntegerTensor transpose() {
+        if (shape.length != 2) {
+            return fromNd4j(toNd4j().transpose());
+        }
+
+        int rows = checkedCast(shape[0]);
+        int columns = checkedCast(shape[1]);
+        int[] result = new int[buffer.length];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                result[j * rows + i] = buffer[i * columns + j];
+            }
+        }
+        return new JVMIntegerTensor(result, new long[]{columns, rows});
+    }
+
+    @Override
+    public Integer sum() {
+        int sum = 0;
+        for (int value : buffer) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public IntegerTensor sum(int... overDimensions) {
+        if (overDimensions.length == 0) {
+            return duplicate();
+        }
+
+        int[] dimensions = TensorShape.getAbsoluteDimensions(shape.length, copyOf(overDimensions, overDimensions.length));
+        long[] resultShape = ArrayUtils.removeAll(shape, dimensions);
+        long[] resultStride = getRowFirstStride(resultShape);
+
+        long[] strideInResult = new long[shape.length];
+        int resultDimension = 0;
+        for (int d = 0; d < shape.length; d++) {
+            if (!ArrayUtils.contains(dimensions, d)) {
+                strideInResult[d] = resultStride[resultDimension++];
+            }
+        }
+
+        int[] result = new int[TensorShape.getLengthAsInt(resultShape)];
+        long[] index = new long[shape.length];
+        for (int i = 0; i < buffer.length; i++) {
+            long toIndex = 0;
+            for (int d = 0; d < index.length; d++) {
+                toIndex += index[d] * strideInResult[d];
+            }
+            result[(int) toIndex] += buffer[i];
+
+            for (int d = index.length - 1; d >= 0; d--) {
+                if (++index[d] < shape[d]) {
+                    break;
+                }
+                index[d] = 0;
+            }
+        }
+
+        return fromBuffer(result, resultShape);
+    }
+
+    @Override
+    public IntegerTensor minus(int value) {
+        return duplicate().minusInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor plus(int value) {
+        return duplicate().plusInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor times(int value) {
+        return duplicate().timesInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor div(int value) {
+        return duplicate().divInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor pow(IntegerTensor exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public IntegerTensor pow(int exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public IntegerTensor minus(IntegerTensor that) {
+        return duplicate().minusInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor plus(IntegerTensor that) {
+        return duplicate().plusInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor times(IntegerTensor that) {
+        return duplicate().timesInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor div(IntegerTensor that) {
+        return duplicate().divInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor matrixMultiply(IntegerTensor value) {
+        long[] thatShape = value.getShape();
+        if (shape.length != 2 || thatShape.length != 2 || shape[1] != thatShape[0]) {
+            return fromNd4j(toNd4j().matrixMultiply(value));
+        }
+
+        int rows = checkedCast(shape[0]);
+        int inner = checkedCast(shape[1]);
+        int columns = checkedCast(thatShape[1]);
+        int[] thatBuffer = getBuffer(value);
+
+        int[] result = new int[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < inner; k++) {
+                int left = buffer[i * inner + k];
+                for (int j = 0; j < columns; j++) {
+                    result[i * columns + j] += left * thatBuffer[k * columns + j];
+                }
+            }
+        }
+
+        return fromBuffer(result, new long[]{rows, columns});
+    }
+
+    @Override
+    public IntegerTensor tensorMultiply(IntegerTensor value, int[] dimsLeft, int[] dimsRight) {
+        return fromNd4j(toNd4j().tensorMultiply(value, dimsLeft, dimsRight));
+    }
+
+    @Override
+    public IntegerTensor unaryMinus() {
+        return duplicate().unaryMinusInPlace();
+    }
+
+    @Override
+    public IntegerTensor abs() {
+        return duplicate().absInPlace();
+    }
+
+    @Override
+    public IntegerTensor getGreaterThanMask(IntegerTensor greaterThanThis) {
+        return duplicate().broadcastInPlace(greaterThanThis, (a, b) -> a > b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor getGreaterThanOrEqualToMask(IntegerTensor greaterThanOrEqualToThis) {
+        return duplicate().broadcastInPlace(greaterThanOrEqualToThis, (a, b) -> a >= b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor getLessThanMask(IntegerTensor lessThanThis) {
+        return duplicate().broadcastInPlace(lessThanThis, (a, b) -> a < b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor getLessThanOrEqualToMask(IntegerTensor lessThanOrEqualToThis) {
+        return duplicate().broadcastInPlace(lessThanOrEqualToThis, (a, b) -> a <= b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor setWithMaskInPlace(IntegerTensor mask, Integer value) {
+        if (this.getLength() != mask.getLength()) {
+            throw new IllegalArgumentException("The lengths of the tensor and mask must match, but got tensor length: " + this.getLength() + ", mask length: " + mask.getLength());
+        }
+
+        int[] maskBuffer = getBuffer(mask);
+        for (int i = 0; i < buffer.length; i++) {
+            if (maskBuffer[i] == 1) {
+                buffer[i] = value;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor setWithMask(IntegerTensor mask, Integer value) {
+        return duplicate().setWithMaskInPlace(mask, value);
+    }
+
+    @Override
+    public IntegerTensor apply(Function<Integer, Integer> function) {
+        return duplicate().applyInPlace(function);
+    }
+
+    @Override
+    public IntegerTensor slice(int dimension, long index) {
+        return fromNd4j(toNd4j().slice(dimension, index));
+    }
+
+    // In Place
+
+    @Override
+    public IntegerTensor minusInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] -= value;
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor plusInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] += value;
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor timesInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] *= value;
+        }
+        return this;
+    }
+
+    /**
+     * Integer division that rounds toward zero, which matches {@link Nd4jIntegerTensor#divInPlace(int)}.
+     */
+    @Override
+    public IntegerTensor divInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] /= value;
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor powInPlace(IntegerTensor exponent) {
+        return broadcastInPlace(exponent, (a, b) -> (int) Math.pow(a, b));
+    }
+
+    @Override
+    public IntegerTensor powInPlace(int exponent) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = (int) Math.pow(buffer[i], exponent);
+        }
+        return this;
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new IntegerTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public IntegerTensor minusInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a - b);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new IntegerTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public IntegerTensor plusInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a + b);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new IntegerTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public IntegerTensor timesInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a * b);
+    }
+
+    /**
+     * @param that Right operand.
+     * @return A new IntegerTensor instance only if the right operand broadcasts <i>this</i> to a larger shape.
+     * Otherwise return <i>this</i>.
+     */
+    @Override
+    public IntegerTensor divInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a / b);
+    }
+
+    @Override
+    public IntegerTensor unaryMinusInPlace() {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = -buffer[i];
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor absInPlace() {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = Math.abs(buffer[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor applyInPlace(Function<Integer, Integer> function) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = function.apply(buffer[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor minInPlace(IntegerTensor min) {
+        return broadcastInPlace(min, Math::min);
+    }
+
+    @Override
+    public IntegerTensor maxInPlace(IntegerTensor max) {
+        return broadcastInPlace(max, Math::max);
+    }
+
+    @Override
+    public int min() {
+        int min = Integer.MAX_VALUE;
+        for (int value : buffer) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    public int max() {
+        int max = Integer.MIN_VALUE;
+        for (int value : buffer) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    @Override
+    public int argMax() {
+        int argMax = 0;
+        for (int i = 1; i < buffer.length; i++) {
+            if (buffer[i] > buffer[argMax]) {
+                argMax = i;
+            }
+        }
+        return argMax;
+    }
+
+    @Override
+    public IntegerTensor argMax(int axis) {
+        TensorShapeValidation.checkDimensionExistsInShape(axis, shape);
+        return fromNd4j(toNd4j().argMax(axis));
+    }
+
+    // Comparisons
+
+    @Override
+    public BooleanTensor lessThan(int value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] < value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(int value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] <= value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor greaterThan(int value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] > value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(int value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] >= value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    @Override
+    public BooleanTensor lessThan(IntegerTensor value) {
+        return fromMask(getLessThanMask(value));
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(IntegerTensor value) {
+        return fromMask(getLessThanOrEqualToMask(value));
+    }
+
+    @Override
+    public BooleanTensor greaterThan(IntegerTensor value) {
+        return fromMask(getGreaterThanMask(value));
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(IntegerTensor value) {
+        return fromMask(getGreaterThanOrEqualToMask(value));
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Tensor that) {
+        if (that instanceof IntegerTensor) {
+            return fromMask(duplicate().broadcastInPlace((IntegerTensor) that, (a, b) -> a == b ? 1 : 0));
+        } else {
+            return Tensor.elementwiseEquals(this, that);
+        }
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Integer value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] == value;
+        }
+        return BooleanTensor.create(result, copyOf(shape, shape.length));
+    }
+
+    private static BooleanTensor fromMask(IntegerTensor mask) {
+        int[] maskBuffer = getBuffer(mask);
+        boolean[] result = new boolean[maskBuffer.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = maskBuffer[i] != 0;
+        }
+        return BooleanTensor.create(result, mask.getShape());
+    }
+
+    /**
+     * Applies an operation element-wise between this and that, broadcasting whichever has dimensions of length one.
+     *
+     * @return this if the result has the same shape as this, otherwise a new tensor of the broadcast shape
+     */
+    private IntegerTensor broadcastInPlace(IntegerTensor that, IntBinaryOperator operation) {
+        long[] thatShape = that.getShape();
+        int[] thatBuffer = getBuffer(that);
+
+        if (thatBuffer.length == 1 && thatShape.length <= shape.length) {
+            int thatValue = thatBuffer[0];
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operation.applyAsInt(buffer[i], thatValue);
+            }
+            return this;
+        }
+
+        if (Arrays.equals(shape, thatShape)) {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operation.applyAsInt(buffer[i], thatBuffer[i]);
+            }
+            return this;
+        }
+
+        long[] resultShape = getBroadcastResultShape(shape, thatShape);
+        int[] thatIndices = getBroadcastIndices(thatShape, resultShape);
+
+        if (Arrays.equals(resultShape, shape)) {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operation.applyAsInt(buffer[i], thatBuffer[thatIndices[i]]);
+            }
+            return this;
+        }
+
+        int[] thisIndices = getBroadcastIndices(shape, resultShape);
+        int[] result = new int[thatIndices.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = operation.applyAsInt(buffer[thisIndices[i]], thatBuffer[thatIndices[i]]);
+        }
+        return fromBuffer(result, resultShape);
+    }
+
+    @Override
+    public FlattenedView<Integer> getFlattenedView() {
+        return new JVMIntegerFlattenedView();
+    }
+
+    @Override
+    public double[] asFlatDoubleArray() {
+        double[] doubles = new double[buffer.length];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = buffer[i];
+        }
+        return doubles;
+    }
+
+    @Override
+    public int[] asFlatIntegerArray() {
+        return copyOf(buffer, buffer.length);
+    }
+
+    @Override
+    public Integer[] asFlatArray() {
+        return ArrayUtils.toObject(buffer);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof Tensor) {
+            Tensor that = (Tensor) o;
+            if (!Arrays.equals(that.getShape(), shape)) return false;
+            return Arrays.equals(
+                that.asFlatArray(),
+                this.asFlatArray()
+            );
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(buffer);
+        result = 31 * result + Arrays.hashCode(shape);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{\n" +
+            "shape = " + Arrays.toString(shape) +
+            "\ndata = " + Arrays.toString(buffer) +
+            "\n}";
+    }
+
+    private class JVMIntegerFlattenedView implements FlattenedView<Integer> {
+
+        @Override
+        public long size() {
+            return buffer.length;
+        }
+
+        @Override
+        public Integer get(long index) {
+            return buffer[checkedCast(index)];
+        }
+
+        @Override
+        public Integer getOrScalar(long index) {
+            if (buffer.length == 1) {
+                return get(0);
+            } else {
+                return get(index);
+            }
+        }
+
+        @Override
+        public void set(long index, Integer value) {
+            buffer[checkedCast(index)] = value;
+        }
+    }
+}
@@ -88,8 +88,10 @@ public class Nd4jIntegerTensor implements IntegerTensor {
     static INDArray unsafeGetNd4J(IntegerTensor that) {
         if (that.isLengthOne()) {
             return TypedINDArrayFactory.scalar(that.scalar(), BUFFER_TYPE).reshape(that.getShape());
+        } else if (that instanceof Nd4jIntegerTensor) {
+            return ((Nd4jIntegerTensor) that).tensor;
         }
-        return ((Nd4jIntegerTensor) that).tensor;
+        return TypedINDArrayFactory.create(toDoubles(JVMIntegerTensor.getBuffer(that)), that.getShape(), BUFFER_TYPE);
     }
 
     @Override
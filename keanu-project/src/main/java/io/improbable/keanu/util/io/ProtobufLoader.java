@@ -52,9 +52,28 @@ public class ProtobufLoader implements NetworkLoader {
         return loadNetwork(parsedModel.getGraph());
     }
 
-    protected BayesianNetwork loadNetwork(SavedBayesNet.Graph graph) {
+    /**
+     * Loads a network in the same way as {@link #loadNetwork(InputStream)}.
+     *
+     * @param input the saved network
+     * @return the vertex created for each vertex of the saved network, by the id it was saved with
+     * @throws IOException if the network cannot be read
+     */
+    public Map<String, Vertex> loadVerticesBySavedId(InputStream input) throws IOException {
+        KeanuSavedBayesNet.ProtoModel parsedModel = KeanuSavedBayesNet.ProtoModel.parseFrom(input);
         Map<SavedBayesNet.VertexID, Vertex> instantiatedVertices = new HashMap<>();
+        loadNetwork(parsedModel.getGraph(), instantiatedVertices);
+
+        Map<String, Vertex> verticesBySavedId = new HashMap<>();
+        instantiatedVertices.forEach((id, vertex) -> verticesBySavedId.put(id.getId(), vertex));
+        return verticesBySavedId;
+    }
+
+    protected BayesianNetwork loadNetwork(SavedBayesNet.Graph graph) {
+        return loadNetwork(graph, new HashMap<>());
+    }
 
+    private BayesianNetwork loadNetwork(SavedBayesNet.Graph graph, Map<SavedBayesNet.VertexID, Vertex> instantiatedVertices) {
         for (SavedBayesNet.Vertex vertex : graph.getVerticesList()) {
             Vertex newVertex = createVertexFromProtoBuf(vertex, instantiatedVertices);
             instantiatedVertices.put(vertex.getId(), newVertex);
@@ -0,0 +1,95 @@
+package io.improbable.keanu.vertices;
+
+import java.util.Collection;
+
+/**
+ * The slots that the states of a set of vertices, usually those of one model, are held at in each
+ * {@link EvaluationContext} created for them, and the context that each thread is currently running in.
+ * <p>
+ * Vertices are only given slots when the first context is created for them, so vertices that are never evaluated in a
+ * context read and write their own state without looking up a context.
+ */
+final class ContextSlots {
+
+    //Only taken when contexts are created, never when vertex states are read or written
+    private static final Object ASSIGN_LOCK = new Object();
+
+    private final ThreadLocal<EvaluationContext> current = new ThreadLocal<>();
+
+    private int size = 0;
+
+    private ContextSlots() {
+    }
+
+    /**
+     * @param vertices the vertices to give slots to
+     * @return the slots that the vertices already have, with a slot added for each vertex that has none, or new slots
+     * if none of the vertices have any
+     * @throws IllegalArgumentException if the vertices have slots in more than one set of slots
+     */
+    static ContextSlots assign(Collection<? extends Vertex> vertices) {
+        synchronized (ASSIGN_LOCK) {
+            ContextSlots slots = null;
+            for (Vertex<?> vertex : vertices) {
+                ContextSlots existing = vertex.getContextSlots();
+                if (existing != null && slots != null && existing != slots) {
+                    throw new IllegalArgumentException(
+                        "Cannot create a context for vertices that are already held in the contexts of different models"
+                    );
+                } else if (existing != null) {
+                    slots = existing;
+                }
+            }
+
+            if (slots == null) {
+                slots = new ContextSlots();
+            }
+
+            for (Vertex<?> vertex : vertices) {
+                if (vertex.getContextSlots() == null) {
+                    vertex.setContextSlot(slots, slots.size++);
+                }
+            }
+
+            return slots;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    EvaluationContext current() {
+        return current.get();
+    }
+
+    void setCurrent(EvaluationContext context) {
+        if (context == null) {
+            current.remove();
+        } else {
+            current.set(context);
+        }
+    }
+
+    /**
+     * @return the state held at the slot in the context the current thread is running in, or null if the thread is not
+     * running in a context or the context holds no state at the slot
+     */
+    <T> VertexState<T> getState(int slot) {
+        EvaluationContext context = current.get();
+        return context == null ? null : context.getState(slot);
+    }
+
+    /**
+     * @return true if the state was written to the context the current thread is running in, or false if the thread
+     * is not running in a context
+     */
+    boolean setState(int slot, VertexState<?> state) {
+        EvaluationContext context = current.get();
+        if (context == null) {
+            return false;
+        }
+        context.setState(slot, state);
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package io.improbable.keanu.vertices;
+
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+
+/**
+ * A probabilistic vertex whose log prob is the sum of a log prob at each element of its value, where each of its
+ * parameters either holds a single value or has the shape of the vertex. Its log prob can then be calculated one
+ * element at a time on doubles, for example at every point of a batch in one pass.
+ */
+public interface ElementWiseLogProbSupplier {
+
+    /**
+     * @return the vertices whose values at an element are passed to {@link #elementLogProb(double, double[])} in
+     * order, or null if the log prob of this vertex cannot be calculated one element at a time
+     */
+    DoubleVertex[] getElementWiseLogProbParameters();
+
+    /**
+     * @param value      the value at an element
+     * @param parameters the values of the vertices returned by {@link #getElementWiseLogProbParameters()} at that
+     *                   element
+     * @return the log prob at that element
+     */
+    double elementLogProb(double value, double[] parameters);
+
+    /**
+     * @param value       the value at an element
+     * @param parameters  the values of the vertices returned by {@link #getElementWiseLogProbParameters()} at that
+     *                    element
+     * @param derivatives where to write the derivative of the log prob at that element with respect to the value,
+     *                    followed by its derivative with respect to each parameter
+     */
+    void dElementLogProb(double value, double[] parameters, double[] derivatives);
+}
@@ -0,0 +1,106 @@
+package io.improbable.keanu.vertices;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Holds the values of a set of vertices, usually those of one model, separately from the vertices themselves, so that
+ * several threads can evaluate the same graph at once. The graph structure is shared while each context has its own
+ * values.
+ * <p>
+ * Code run through {@link #run(Runnable)} or {@link #call(Supplier)} reads and writes the values of the vertices the
+ * context was created for in this context rather than in the vertices. A vertex that has not been written in the
+ * context reads the value it holds outside of any context, so a new context starts from the state the network was in,
+ * including its observations. Writes made in a context are only seen in that context. Vertices that the context was
+ * not created for, such as vertices added to the graph later, are read and written in the vertices as usual.
+ * <p>
+ * A context must only be used by one thread at a time, and the values held outside of any context should not be
+ * changed while contexts are in use.
+ * <p>
+ * The vertices of a context are given slots, in an array that each context of those vertices holds their states in,
+ * when the first context is created for them. Contexts created for the same vertices share their slots. Vertices
+ * that have never had a context created for them do not look up a context when their values are read or written.
+ */
+public class EvaluationContext {
+
+    private final ContextSlots slots;
+
+    //The states written in this context indexed by vertex slot
+    private VertexState[] states;
+
+    private EvaluationContext(ContextSlots slots) {
+        this.slots = slots;
+        this.states = new VertexState[slots.size()];
+    }
+
+    /**
+     * @param vertices the vertices to hold the values of, which should include every vertex that is written while
+     *                 evaluating in the context
+     * @return a new context for the vertices
+     * @throws IllegalArgumentException if some of the vertices are already held in the contexts of other vertices
+     *                                  that they were not connected to when those contexts were created
+     */
+    public static EvaluationContext forVertices(Collection<? extends Vertex> vertices) {
+        return new EvaluationContext(ContextSlots.assign(vertices));
+    }
+
+    /**
+     * Runs an action with vertex values read from and written to this context.
+     *
+     * @param action the action to run
+     */
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Calls a function with vertex values read from and written to this context.
+     *
+     * @param function the function to call
+     * @param <R>      the type of the result of the function
+     * @return the result of the function
+     */
+    public <R> R call(Supplier<R> function) {
+        EvaluationContext previous = slots.current();
+        if (previous == this) {
+            return function.get();
+        }
+
+        slots.setCurrent(this);
+        try {
+            return function.get();
+        } finally {
+            slots.setCurrent(previous);
+        }
+    }
+
+    /**
+     * @return true if the current thread is running in this context
+     */
+    public boolean isCurrent() {
+        return slots.current() == this;
+    }
+
+    /**
+     * Forgets every value written in this context so that vertices read their values from outside of it again.
+     */
+    public void clear() {
+        Arrays.fill(states, null);
+    }
+
+    <T> VertexState<T> getState(int slot) {
+        return slot < states.length ? (VertexState<T>) states[slot] : null;
+    }
+
+    void setState(int slot, VertexState<?> state) {
+        if (slot >= states.length) {
+            //Slots are added when a context is created for vertices that did not have any yet
+            states = Arrays.copyOf(states, Math.max(slot + 1, slots.size()));
+        }
+        states[slot] = state;
+    }
+}
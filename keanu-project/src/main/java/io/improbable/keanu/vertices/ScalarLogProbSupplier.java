@@ -0,0 +1,23 @@
+package io.improbable.keanu.vertices;
+
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+
+/**
+ * A probabilistic vertex whose log prob can be calculated directly on doubles when it and its parameters hold a
+ * single value, without creating any tensors.
+ */
+public interface ScalarLogProbSupplier {
+
+    /**
+     * @return the vertices whose values are passed to {@link #scalarLogProb(double, double[])} in order, or null if
+     * the log prob of this vertex cannot be calculated on scalars
+     */
+    DoubleVertex[] getScalarLogProbParameters();
+
+    /**
+     * @param value      the value to calculate the log prob of
+     * @param parameters the values of the vertices returned by {@link #getScalarLogProbParameters()}
+     * @return the same log prob as {@link Probabilistic#logProb(Object)} of a tensor holding value
+     */
+    double scalarLogProb(double value, double[] parameters);
+}
@@ -0,0 +1,57 @@
+package io.improbable.keanu.vertices;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The structure versions of the graphs that a set of vertices belong to at some point in time. Anything derived from
+ * the structure of the graphs of those vertices, such as a cascade order, can keep a stamp taken when it was built
+ * and check {@link #isStale()} to find out whether an edge has since been added or removed in any of
+ * those graphs.
+ * Changes to unrelated graphs do not make the stamp stale.
+ * <p>
+ * Checking a stamp reads one vertex per distinct graph rather than every vertex it was taken from.
+ */
+public final class StructureStamp {
+
+    private final Vertex<?>[] representatives;
+    private final long[] versions;
+
+    private StructureStamp(Vertex<?>[] representatives, long[] versions) {
+        this.representatives = representatives;
+        this.versions = versions;
+    }
+
+    /**
+     * @param vertices the vertices to take the stamp of
+     * @return a stamp of the current structure versions of the graphs the vertices belong to
+     */
+    public static StructureStamp of(Collection<? extends Vertex> vertices) {
+        Map<StructureVersion, Vertex<?>> representativeOfGraph = new IdentityHashMap<>();
+        for (Vertex<?> vertex : vertices) {
+            representativeOfGraph.putIfAbsent(vertex.getStructure().root(), vertex);
+        }
+
+        Vertex<?>[] representatives = representativeOfGraph.values().toArray(new Vertex<?>[0]);
+        long[] versions = new long[representatives.length];
+        for (int i = 0; i < representatives.length; i++) {
+            versions[i] = representatives[i].getStructureVersion();
+        }
+
+        return new StructureStamp(representatives, versions);
+    }
+
+    /**
+     * @return true if an edge has been added or removed in the graph of any of the vertices since the stamp
+     * was taken
+     */
+    public boolean isStale() {
+        for (int i = 0; i < representatives.length; i++) {
+            if (representatives[i].getStructureVersion() != versions[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
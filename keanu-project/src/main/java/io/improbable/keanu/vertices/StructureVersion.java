@@ -0,0 +1,86 @@
+package io.improbable.keanu.vertices;
+
+/**
+ * The version of the structure of a connected graph of vertices. Each vertex starts in a graph of its own and the
+ * graphs of two vertices are merged when an edge is added between them. The version of a graph increases whenever an
+ * edge is added or removed in it, and merging two graphs gives a version greater than that of either. Changing the
+ * structure of one graph therefore leaves the version seen by the vertices of every other graph unchanged.
+ * <p>
+ * Graphs are never split, so the ends of a removed edge stay in the same graph.
+ */
+final class StructureVersion {
+
+    //Changes to the structure are rare compared to reads of the version, so only changes take the lock
+    private static final Object LOCK = new Object();
+
+    private volatile StructureVersion mergedInto;
+    private volatile long version;
+    private int size = 1;
+
+    /**
+     * @return the version of the graph this belongs to
+     */
+    long get() {
+        return root().version;
+    }
+
+    /**
+     * @return an object that is the same for every vertex in the graph this belongs to until it is merged into another
+     */
+    StructureVersion root() {
+        StructureVersion root = this;
+        StructureVersion next;
+        while ((next = root.mergedInto) != null) {
+            root = next;
+        }
+        return root;
+    }
+
+    void increment() {
+        synchronized (LOCK) {
+            StructureVersion root = compressedRoot();
+            root.version = root.version + 1;
+        }
+    }
+
+    /**
+     * Merges the graph of other into the graph of this and increases the version of the result.
+     *
+     * @param other the structure of a vertex that an edge has been added to
+     */
+    void merge(StructureVersion other) {
+        synchronized (LOCK) {
+            StructureVersion root = compressedRoot();
+            StructureVersion otherRoot = other.compressedRoot();
+
+            if (root == otherRoot) {
+                root.version = root.version + 1;
+                return;
+            }
+
+            //The smaller graph points at the larger so that the path from any vertex to its root stays short
+            if (root.size < otherRoot.size) {
+                StructureVersion swap = root;
+                root = otherRoot;
+                otherRoot = swap;
+            }
+
+            root.version = Math.max(root.version, otherRoot.version) + 1;
+            root.size += otherRoot.size;
+            otherRoot.mergedInto = root;
+        }
+    }
+
+    private StructureVersion compressedRoot() {
+        StructureVersion root = root();
+
+        StructureVersion current = this;
+        while (current != root) {
+            StructureVersion next = current.mergedInto;
+            current.mergedInto = root;
+            current = next;
+        }
+
+        return root;
+    }
+}
@@ -24,6 +24,14 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
     private final VertexId id = new VertexId();
     private final long[] initialShape;
 
+    //Where the state of this vertex is held in each EvaluationContext, once a context has been created for it
+    private ContextSlots contextSlots = null;
+    private int contextSlot;
+
+    //Changes whenever an edge is added or removed in the graph of this vertex, so that anything derived from its
+    //structure can tell it is stale
+    private final StructureVersion structure = new StructureVersion();
+
     private Set<Vertex> children = Collections.emptySet();
     private Set<Vertex> parents = Collections.emptySet();
     private VertexState<T> state;
@@ -110,27 +118,56 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
      * @param value the observed value
      */
     public void setValue(T value) {
-        if (!state.isObserved()) {
-            state = new VertexState<>(value, false);
+        if (!readState().isObserved()) {
+            writeState(new VertexState<>(value, false));
         }
     }
 
     @Override
     public T getValue() {
-        return hasValue() ? state.getValue() : lazyEval();
+        return hasValue() ? readState().getValue() : lazyEval();
     }
 
     @Override
     public VertexState<T> getState() {
-        return state;
+        return readState();
     }
 
     public void setState(VertexState<T> newState) {
-        state = newState;
+        writeState(newState);
+    }
+
+    /**
+     * @return the state in the {@link EvaluationContext} the current thread is running in if it holds one for this
+     * vertex and otherwise the state held by this vertex
+     */
+    private VertexState<T> readState() {
+        if (contextSlots != null) {
+            VertexState<T> contextState = contextSlots.getState(contextSlot);
+            if (contextState != null) {
+                return contextState;
+            }
+        }
+        return state;
+    }
+
+    private void writeState(VertexState<T> newState) {
+        if (contextSlots == null || !contextSlots.setState(contextSlot, newState)) {
+            state = newState;
+        }
+    }
+
+    ContextSlots getContextSlots() {
+        return contextSlots;
+    }
+
+    void setContextSlot(ContextSlots slots, int slot) {
+        this.contextSlot = slot;
+        this.contextSlots = slots;
     }
 
     public boolean hasValue() {
-        T value = state.getValue();
+        T value = readState().getValue();
         if (value instanceof Tensor) {
             return !((Tensor) value).isShapePlaceholder();
         } else {
@@ -140,8 +177,9 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
 
     @Override
     public long[] getShape() {
-        if (state.getValue() instanceof Tensor) {
-            return ((Tensor) state.getValue()).getShape();
+        T value = readState().getValue();
+        if (value instanceof Tensor) {
+            return ((Tensor) value).getShape();
         } else {
             return initialShape;
         }
@@ -188,7 +226,7 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
         if (!isObservable(this.getClass())) {
             throw new UnsupportedOperationException("This type of vertex does not support being observed");
         }
-        state = new VertexState<>(value, true);
+        writeState(new VertexState<>(value, true));
     }
 
     private static boolean isObservable(Class<? extends Vertex> v) {
@@ -207,17 +245,17 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
 
     @Override
     public void unobserve() {
-        state = new VertexState<>(state.getValue(), false);
+        writeState(new VertexState<>(readState().getValue(), false));
     }
 
     @Override
     public boolean isObserved() {
-        return state.isObserved();
+        return readState().isObserved();
     }
 
     @Override
     public Optional<T> getObservedValue() {
-        return state.getObservedValue();
+        return readState().getObservedValue();
     }
 
     @Override
@@ -239,10 +277,12 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
 
     public void addChild(Vertex<?> v) {
         children = ImmutableSet.<Vertex>builder().addAll(children).add(v).build();
+        structure.merge(v.structure);
     }
 
     public void setParents(Collection<? extends Vertex> parents) {
         this.parents = Collections.emptySet();
+        structure.increment();
         addParents(parents);
     }
 
@@ -252,6 +292,7 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
 
     public void addParents(Collection<? extends Vertex> parents) {
         this.parents = ImmutableSet.<Vertex>builder().addAll(this.getParents()).addAll(parents).build();
+        structure.increment();
         parents.forEach(p -> p.addChild(this));
     }
 
@@ -263,6 +304,19 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
         return parents;
     }
 
+    /**
+     * @return a number that increases whenever the parents or children of any vertex connected to this one change.
+     * Caches of graph traversals can compare it to the version they were built at to know when to rebuild, or keep a
+     * {@link StructureStamp} when they span several vertices.
+     */
+    public long getStructureVersion() {
+        return structure.get();
+    }
+
+    StructureVersion getStructure() {
+        return structure;
+    }
+
     public int getDegree() {
         return children.size() + parents.size();
     }
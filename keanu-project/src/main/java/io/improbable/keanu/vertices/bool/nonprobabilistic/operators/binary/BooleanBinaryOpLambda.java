@@ -2,11 +2,12 @@ package io.improbable.keanu.vertices.bool.nonprobabilistic.operators.binary;
 
 import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.vertices.NonSaveableVertex;
 import io.improbable.keanu.vertices.Vertex;
 
 import java.util.function.BiFunction;
 
-public abstract class BooleanBinaryOpLambda<A extends Tensor, B extends Tensor> extends BooleanBinaryOpVertex<A, B> {
+public abstract class BooleanBinaryOpLambda<A extends Tensor, B extends Tensor> extends BooleanBinaryOpVertex<A, B> implements NonSaveableVertex {
 
     private final BiFunction<A, B, BooleanTensor> boolOp;
 
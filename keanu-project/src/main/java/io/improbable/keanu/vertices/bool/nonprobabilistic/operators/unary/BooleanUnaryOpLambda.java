@@ -2,11 +2,12 @@ package io.improbable.keanu.vertices.bool.nonprobabilistic.operators.unary;
 
 import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.vertices.NonSaveableVertex;
 import io.improbable.keanu.vertices.Vertex;
 
 import java.util.function.Function;
 
-public abstract class BooleanUnaryOpLambda<A extends Tensor> extends BooleanUnaryOpVertex<A> {
+public abstract class BooleanUnaryOpLambda<A extends Tensor> extends BooleanUnaryOpVertex<A> implements NonSaveableVertex {
 
     private final Function<A, BooleanTensor> boolOp;
 
@@ -21,6 +21,7 @@ import java.util.Set;
 @UtilityClass
 public class Differentiator {
 
+    @SafeVarargs
     public static <V extends Vertex & Differentiable> PartialsWithRespectTo forwardModeAutoDiff(V wrt, V... of) {
         return forwardModeAutoDiff(wrt, new HashSet<>(Arrays.asList(of)));
     }
@@ -1,5 +1,6 @@
 package io.improbable.keanu.vertices.dbl;
 
+import io.improbable.keanu.algorithms.DoubleSampleColumn;
 import io.improbable.keanu.algorithms.Samples;
 import io.improbable.keanu.algorithms.statistics.Autocorrelation;
 import io.improbable.keanu.tensor.TensorShapeValidation;
@@ -16,12 +17,20 @@ public class DoubleVertexSamples extends Samples<DoubleTensor> {
     }
 
     public DoubleTensor getAverages() {
+        if (samples instanceof DoubleSampleColumn) {
+            return ((DoubleSampleColumn) samples).getAverages();
+        }
+
         return this.samples.stream()
             .reduce(DoubleTensor.zeros(sampleShape), DoubleTensor::plusInPlace)
             .divInPlace(samples.size());
     }
 
     public DoubleTensor getVariances() {
+        if (samples instanceof DoubleSampleColumn) {
+            return ((DoubleSampleColumn) samples).getVariances();
+        }
+
         DoubleTensor sumOfSquares = this.samples.stream()
             .reduce(DoubleTensor.zeros(sampleShape), (l, r) -> l.plusInPlace(r.pow(2)));
         return sumOfSquares
@@ -40,9 +49,11 @@ public class DoubleVertexSamples extends Samples<DoubleTensor> {
     public DoubleTensor getAutocorrelation(long... index) {
         TensorShapeValidation.checkIndexIsValid(sampleShape, index);
         long[] indexToGet = getCorrectIndexIfScalar(index);
-        double[] sampleValuesAtIndex = samples.stream()
-            .mapToDouble(x -> x.getValue(indexToGet))
-            .toArray();
+        double[] sampleValuesAtIndex = samples instanceof DoubleSampleColumn ?
+            ((DoubleSampleColumn) samples).getValuesAt(indexToGet) :
+            samples.stream()
+                .mapToDouble(x -> x.getValue(indexToGet))
+                .toArray();
         double[] autocorr = Autocorrelation.calculate(sampleValuesAtIndex);
         return DoubleTensor.create(autocorr);
     }
@@ -53,6 +64,10 @@ public class DoubleVertexSamples extends Samples<DoubleTensor> {
 
 
     public DoubleTensor asTensor() {
+        if (samples instanceof DoubleSampleColumn) {
+            return ((DoubleSampleColumn) samples).asTensor();
+        }
+
         return DoubleTensor.stack(0, samples.stream().toArray(DoubleTensor[]::new));
     }
 }
@@ -35,6 +35,13 @@ public class AutoDiffBroadcast {
 
         if (shouldCorrectPartialForBroadcast(partial, partialWrtShape, targetWrtShape)) {
 
+            //Summing the dense partial of an operand of length one over its wrt dimensions leaves only the diagonal
+            if (partial.isDiagonal() && TensorShape.getLength(targetWrtShape) == 1) {
+                return new PartialDerivative(
+                    partial.getDiagonal().reshape(TensorShape.concat(partialWrtShape, targetWrtShape))
+                );
+            }
+
             long[] partialShape = partial.get().getShape();
 
             int[] broadcastDimensions = dimensionsWithShapeChange(partialShape, partialWrtShape.length, targetWrtShape);
@@ -1,14 +1,23 @@
 package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
 
 import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.graphtraversal.GraphOptimisation;
+import io.improbable.keanu.network.JointLogProbGraph;
 import io.improbable.keanu.network.LambdaSection;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.Probabilistic;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
-import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
-
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.ElementWiseChain;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -16,6 +25,23 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Calculates the gradient of the joint log prob of a set of probabilistic vertices with respect to a set of latent
+ * vertices.
+ * <p>
+ * The non-probabilistic vertices between the log prob vertices and the latent vertices are found once, on
+ * construction, and recorded on a tape in reverse topological order. Each gradient calculation then seeds the tape
+ * with the dLogProb of every log prob vertex and makes a single backward pass over it, so shared upstream vertices are
+ * only differentiated once. The tape's adjoint buffers are reused between calls, which means a calculator must not be
+ * used from multiple threads at once.
+ * <p>
+ * A calculator created with {@link #withJointLogProbGraph(List, List)} seeds the tape from a {@link JointLogProbGraph}
+ * instead, which finds the dLogProb of every log prob vertex that supplies a log prob graph in one reverse mode pass.
+ * <p>
+ * A calculator created with {@link #withGraphOptimisation(List, List, GraphOptimisation)} puts each differentiable
+ * {@link ElementWiseChain} found by the optimisation on the tape as a single step, so the adjoints of the operators
+ * inside the chain are never created.
+ */
 public class LogProbGradientCalculator {
 
     private final Set<? extends Vertex<?>> logProbOfVertices;
@@ -24,28 +50,275 @@ public class LogProbGradientCalculator {
     private final Map<Vertex, Set<DoubleVertex>> parentToLatentLookup;
     private final Map<Vertex, Set<DoubleVertex>> verticesWithNonzeroDiffWrtLatent;
 
+    private final Probabilistic<?>[] ofVertices;
+    private final Set<DoubleVertex>[] ofVerticesNonzeroDiff;
+
+    //The vertices that adjoints are propagated through, ordered so that every vertex comes before its parents
+    private final Vertex<?>[] tape;
+    private final boolean[] tapeIsWrt;
+    //For each tape vertex, the chain ending at it that adjoints are propagated through in one step, or null
+    private final ElementWiseChain[] tapeChains;
+    private final Map<Vertex, Integer> tapeIndex;
+
+    //Preallocated adjoint buffers, one per tape vertex, that are cleared at the start of each calculation
+    private final PartialDerivative[] adjoints;
+    private final boolean[] adjointIsOwned;
+
+    //If not null, the graph that the dLogProbs of the log prob vertices in it are found from
+    private final JointLogProbGraph jointLogProbGraph;
+
+    //If not null, the optimisation that element-wise chains are taken from
+    private final GraphOptimisation graphOptimisation;
+
     public LogProbGradientCalculator(List<? extends Vertex> logProbOfVerticesList, List<? extends Vertex<?>> wrtVerticesList) {
+        this(logProbOfVerticesList, wrtVerticesList, null, null);
+    }
+
+    /**
+     * @param logProbOfVerticesList the probabilistic vertices whose joint log prob to take the gradient of
+     * @param wrtVerticesList       the vertices to take the gradient with respect to
+     * @return a calculator that finds the dLogProbs of the log prob vertices from a single {@link JointLogProbGraph}
+     */
+    public static LogProbGradientCalculator withJointLogProbGraph(List<? extends Vertex> logProbOfVerticesList,
+                                                                  List<? extends Vertex<?>> wrtVerticesList) {
+        return new LogProbGradientCalculator(logProbOfVerticesList, wrtVerticesList, JointLogProbGraph.of(logProbOfVerticesList), null);
+    }
+
+    /**
+     * @param logProbOfVerticesList the probabilistic vertices whose joint log prob to take the gradient of
+     * @param wrtVerticesList       the vertices to take the gradient with respect to
+     * @param graphOptimisation     an optimisation of the graph the vertices are in, or null
+     * @return a calculator that propagates adjoints through the element-wise chains of the optimisation in one step
+     */
+    public static LogProbGradientCalculator withGraphOptimisation(List<? extends Vertex> logProbOfVerticesList,
+                                                                  List<? extends Vertex<?>> wrtVerticesList,
+                                                                  GraphOptimisation graphOptimisation) {
+        return new LogProbGradientCalculator(logProbOfVerticesList, wrtVerticesList, null, graphOptimisation);
+    }
+
+    private LogProbGradientCalculator(List<? extends Vertex> logProbOfVerticesList,
+                                      List<? extends Vertex<?>> wrtVerticesList,
+                                      JointLogProbGraph jointLogProbGraph,
+                                      GraphOptimisation graphOptimisation) {
+        this.jointLogProbGraph = jointLogProbGraph;
+        this.graphOptimisation = graphOptimisation;
         this.logProbOfVertices = new HashSet<>((List<Vertex<?>>) logProbOfVerticesList);
         this.wrtVertices = new HashSet<>(wrtVerticesList);
 
         parentToLatentLookup = getParentsThatAreConnectedToWrtVertices(logProbOfVertices);
         verticesWithNonzeroDiffWrtLatent = getVerticesWithNonzeroDiffWrt(logProbOfVertices, parentToLatentLookup);
+
+        this.ofVertices = new Probabilistic<?>[logProbOfVertices.size()];
+        this.ofVerticesNonzeroDiff = new Set[logProbOfVertices.size()];
+
+        int i = 0;
+        for (Vertex<?> ofVertex : logProbOfVertices) {
+            Preconditions.checkArgument(
+                ofVertex instanceof Probabilistic<?>,
+                "Cannot get logProb gradient on non-probabilistic vertex %s", ofVertex
+            );
+            ofVertices[i] = (Probabilistic<?>) ofVertex;
+            ofVerticesNonzeroDiff[i] = verticesWithNonzeroDiffWrtLatent.get(ofVertex);
+            i++;
+        }
+
+        Map<Vertex, ElementWiseChain> chainsOnTape = new HashMap<>();
+        this.tape = recordTape(chainsOnTape);
+        this.tapeIsWrt = new boolean[tape.length];
+        this.tapeChains = new ElementWiseChain[tape.length];
+        this.tapeIndex = new HashMap<>();
+        for (int t = 0; t < tape.length; t++) {
+            tapeIsWrt[t] = isLatentDoubleVertexAndInWrtTo(tape[t]);
+            tapeChains[t] = chainsOnTape.get(tape[t]);
+            tapeIndex.put(tape[t], t);
+        }
+
+        this.adjoints = new PartialDerivative[tape.length];
+        this.adjointIsOwned = new boolean[tape.length];
     }
 
     /**
      * @return the partial derivatives with respect to a given set of latent vertices
      */
     public Map<VertexId, DoubleTensor> getJointLogProbGradientWrtLatents() {
+        Arrays.fill(adjoints, null);
+        Arrays.fill(adjointIsOwned, false);
+
         LogProbGradients totalLogProbGradients = new LogProbGradients();
 
-        for (final Vertex<?> ofVertex : logProbOfVertices) {
-            LogProbGradients logProbGradientOfVertex = reverseModeLogProbGradientWrtLatents(ofVertex);
-            totalLogProbGradients.add(logProbGradientOfVertex);
+        Map<Vertex, Map<Vertex, DoubleTensor>> graphDLogProbs = jointLogProbGraph == null ?
+            Collections.emptyMap() : jointLogProbGraph.dLogProbs();
+
+        for (int i = 0; i < ofVertices.length; i++) {
+            Vertex<?> ofVertex = (Vertex<?>) ofVertices[i];
+            if (jointLogProbGraph != null && jointLogProbGraph.isInGraph(ofVertex)) {
+                seedAdjointsFromGraph(ofVertex, graphDLogProbs.getOrDefault(ofVertex, Collections.emptyMap()), ofVerticesNonzeroDiff[i], totalLogProbGradients);
+            } else {
+                seedAdjoints(ofVertex, ofVertices[i].dLogProbAtValue(ofVerticesNonzeroDiff[i]), totalLogProbGradients);
+            }
+        }
+
+        for (int t = 0; t < tape.length; t++) {
+            PartialDerivative adjoint = adjoints[t];
+            if (adjoint == null) {
+                continue;
+            }
+
+            Vertex<?> visiting = tape[t];
+
+            if (tapeIsWrt[t]) {
+                totalLogProbGradients.add(visiting.getId(), adjoint.get());
+            } else if (!visiting.isProbabilistic() && visiting.isDifferentiable()) {
+                ElementWiseChain chain = tapeChains[t];
+                Map<Vertex, PartialDerivative> partialDerivatives = chain == null ?
+                    ((Differentiable) visiting).reverseModeAutoDifferentiation(adjoint) :
+                    chain.reverseModeAutoDifferentiation(adjoint);
+                for (Map.Entry<Vertex, PartialDerivative> partial : partialDerivatives.entrySet()) {
+                    accumulateAdjoint(partial.getKey(), partial.getValue());
+                }
+            }
         }
 
         return totalLogProbGradients.getPartials();
     }
 
+    private void seedAdjoints(Vertex<?> ofVertex,
+                              Map<Vertex, DoubleTensor> dlogProbOfVertexWrtVertices,
+                              LogProbGradients totalLogProbGradients) {
+
+        for (Map.Entry<Vertex, DoubleTensor> dlogProbWrtVertex : dlogProbOfVertexWrtVertices.entrySet()) {
+
+            Vertex<?> vertexWithDiff = dlogProbWrtVertex.getKey();
+            DoubleTensor dLogProbOfWrtVertexWithDiff = dlogProbWrtVertex.getValue();
+
+            if (vertexWithDiff.equals(ofVertex)) {
+                totalLogProbGradients.add(vertexWithDiff.getId(), dLogProbOfWrtVertexWithDiff);
+            } else {
+                PartialDerivative partialWrtVertexWithDiff = new PartialDerivative(dLogProbOfWrtVertexWithDiff);
+
+                PartialDerivative correctForScalarReverse = AutoDiffBroadcast.correctForBroadcastPartialReverse(
+                    partialWrtVertexWithDiff, ofVertex.getShape(), vertexWithDiff.getShape()
+                );
+
+                accumulateAdjoint(vertexWithDiff, correctForScalarReverse);
+            }
+        }
+    }
+
+    /**
+     * The gradients from a joint log prob graph already have the shape of the vertex they are with respect to, so
+     * unlike the results of dLogProb they do not need correcting for broadcast.
+     */
+    private void seedAdjointsFromGraph(Vertex<?> ofVertex,
+                                       Map<Vertex, DoubleTensor> dlogProbOfVertexWrtVertices,
+                                       Set<DoubleVertex> nonzeroDiff,
+                                       LogProbGradients totalLogProbGradients) {
+
+        for (Map.Entry<Vertex, DoubleTensor> dlogProbWrtVertex : dlogProbOfVertexWrtVertices.entrySet()) {
+
+            Vertex<?> vertexWithDiff = dlogProbWrtVertex.getKey();
+            if (!nonzeroDiff.contains(vertexWithDiff)) {
+                continue;
+            }
+
+            if (vertexWithDiff.equals(ofVertex)) {
+                totalLogProbGradients.add(vertexWithDiff.getId(), dlogProbWrtVertex.getValue());
+            } else {
+                accumulateAdjoint(vertexWithDiff, new PartialDerivative(dlogProbWrtVertex.getValue()));
+            }
+        }
+    }
+
+    private void accumulateAdjoint(Vertex<?> vertex, PartialDerivative addition) {
+        Integer index = tapeIndex.get(vertex);
+        if (index == null || !addition.isPresent()) {
+            return;
+        }
+
+        PartialDerivative existing = adjoints[index];
+
+        if (existing == null) {
+            adjoints[index] = addition;
+        } else if (adjointIsOwned[index] && !existing.isDiagonal() && Arrays.equals(existing.getShape(), addition.getShape())) {
+            existing.get().plusInPlace(addition.get());
+        } else {
+            adjoints[index] = existing.add(addition);
+            adjointIsOwned[index] = true;
+        }
+    }
+
+    /**
+     * Finds every vertex that an adjoint can flow through on its way from the log prob vertices to the wrt vertices,
+     * following the same rules as {@link io.improbable.keanu.vertices.dbl.Differentiator#reverseModeAutoDiff}.
+     * A vertex that ends a chain that can be propagated through in one step is followed by the inputs of the chain
+     * rather than by its parents.
+     *
+     * @param chainsOnTape filled with the chains that are propagated through in one step, by their last vertex
+     * @return the vertices in descending topological order
+     */
+    private Vertex<?>[] recordTape(Map<Vertex, ElementWiseChain> chainsOnTape) {
+        Set<Vertex<?>> onTape = new HashSet<>();
+        Deque<Vertex<?>> stack = new ArrayDeque<>();
+
+        for (Set<DoubleVertex> nonzeroDiff : ofVerticesNonzeroDiff) {
+            for (Vertex<?> vertexWithDiff : nonzeroDiff) {
+                if (onTape.add(vertexWithDiff)) {
+                    stack.push(vertexWithDiff);
+                }
+            }
+        }
+
+        Set<Vertex<?>> seeds = new HashSet<>(onTape);
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+
+            if (isLatentDoubleVertexAndInWrtTo(visiting) || visiting.isProbabilistic() || !visiting.isDifferentiable()) {
+                continue;
+            }
+
+            ElementWiseChain chain = chainToPropagateThrough(visiting, seeds);
+            Collection<? extends Vertex> parents = visiting.getParents();
+            if (chain != null) {
+                chainsOnTape.put(visiting, chain);
+                parents = chain.getInputs();
+            }
+
+            for (Vertex<?> parent : parents) {
+                if (parent.isDifferentiable() && onTape.add(parent)) {
+                    stack.push(parent);
+                }
+            }
+        }
+
+        Vertex<?>[] ordered = onTape.toArray(new Vertex<?>[0]);
+        Arrays.sort(ordered, Comparator.<Vertex<?>, VertexId>comparing(Vertex::getId, Comparator.naturalOrder()).reversed());
+        return ordered;
+    }
+
+    /**
+     * A chain can only be propagated through in one step if none of the vertices inside it need an adjoint of their own.
+     */
+    private ElementWiseChain chainToPropagateThrough(Vertex<?> vertex, Set<Vertex<?>> seeds) {
+        if (graphOptimisation == null || graphOptimisation.isStale()) {
+            return null;
+        }
+
+        ElementWiseChain chain = graphOptimisation.getChainEndingAt(vertex);
+        if (chain == null || !chain.isDifferentiable()) {
+            return null;
+        }
+
+        List<DoubleVertex> links = chain.getLinks();
+        for (Vertex<?> link : links.subList(0, links.size() - 1)) {
+            if (seeds.contains(link) || isLatentDoubleVertexAndInWrtTo(link)) {
+                return null;
+            }
+        }
+
+        return chain;
+    }
+
     /**
      * The dLogProb(x) method on Vertex returns a partial derivative of the Log Prob with respect to each
      * of its arguments and with respect to its value, x. This method searches these partials for any that
@@ -112,48 +385,4 @@ public class LogProbGradientCalculator {
     private boolean isLatentDoubleVertexAndInWrtTo(Vertex v) {
         return !v.isObserved() && wrtVertices.contains(v) && v instanceof DoubleVertex;
     }
-
-    /**
-     * @param ofVertex the vertex we are taking the derivative of
-     * @return partial derivatives of the "ofVertex" wrt to any "this.wrtVertices" that it descends.
-     */
-    private LogProbGradients reverseModeLogProbGradientWrtLatents(final Vertex ofVertex) {
-        Preconditions.checkArgument(
-            ofVertex instanceof Probabilistic<?>,
-            "Cannot get logProb gradient on non-probabilistic vertex %s", ofVertex
-        );
-
-        Set<DoubleVertex> verticesWithNonzeroDiff = verticesWithNonzeroDiffWrtLatent.get(ofVertex);
-        final Map<Vertex, DoubleTensor> dlogProbOfVertexWrtVertices = ((Probabilistic<?>) ofVertex).dLogProbAtValue(verticesWithNonzeroDiff);
-
-        LogProbGradients dOfWrtLatentsAccumulated = new LogProbGradients();
-
-        for (Map.Entry<Vertex, DoubleTensor> dlogProbWrtVertex : dlogProbOfVertexWrtVertices.entrySet()) {
-
-            DoubleVertex vertexWithDiff = (DoubleVertex) dlogProbWrtVertex.getKey();
-            DoubleTensor dLogProbOfWrtVertexWithDiff = dlogProbWrtVertex.getValue();
-
-            if (vertexWithDiff.equals(ofVertex)) {
-                dOfWrtLatentsAccumulated.putWithRespectTo(vertexWithDiff.getId(), dLogProbOfWrtVertexWithDiff);
-            } else {
-
-                PartialDerivative partialWrtVertexWithDiff = new PartialDerivative(dLogProbOfWrtVertexWithDiff);
-
-                PartialDerivative correctForScalarReverse = AutoDiffBroadcast.correctForBroadcastPartialReverse(partialWrtVertexWithDiff, ofVertex.getShape(), vertexWithDiff.getShape());
-
-                PartialsOf dOfWrtLatentsContributionFromParent = Differentiator
-                    .reverseModeAutoDiff(
-                        vertexWithDiff,
-                        correctForScalarReverse,
-                        this.parentToLatentLookup.get(vertexWithDiff)
-                    );
-
-                dOfWrtLatentsAccumulated = dOfWrtLatentsAccumulated.add(dOfWrtLatentsContributionFromParent);
-            }
-
-        }
-
-        return dOfWrtLatentsAccumulated;
-    }
-
 }
@@ -40,6 +40,11 @@ public class LogProbGradients {
         return this;
     }
 
+    public LogProbGradients add(VertexId id, DoubleTensor addition) {
+        putPartial(id, addition);
+        return this;
+    }
+
     private void putPartial(VertexId id, DoubleTensor value) {
         final DoubleTensor existingPartialDerivative = partials.get(id);
 
@@ -5,40 +5,102 @@ import io.improbable.keanu.tensor.dbl.DoubleTensor;
 
 import java.util.Arrays;
 
+/**
+ * The partial derivative of a tensor with respect to a tensor, which has the shape [of, wrt].
+ * <p>
+ * The partial of an element-wise operation is zero everywhere except where the of and wrt indices are equal, so it is
+ * held as a diagonal of the same shape as the operation. A dense partial of an n element vertex with respect to itself
+ * takes O(n^2) memory whereas its diagonal takes O(n), or O(1) while every value on the diagonal is the same. The
+ * operations that keep a partial diagonal do so and the rest work on the dense partial, which {@link #get()} returns.
+ */
 public class PartialDerivative {
 
     public static final PartialDerivative EMPTY = new PartialDerivative(null);
 
     private final DoubleTensor partial;
 
+    //If not null, the values on the diagonal of a partial with of and wrt shape diagonalShape. The values can have
+    //any shape that broadcasts to diagonalShape, so a scalar stands for the same value all along the diagonal.
+    private final DoubleTensor diagonal;
+    private final long[] diagonalShape;
+
     public PartialDerivative(DoubleTensor partial) {
+        this(partial, null, null);
+    }
+
+    private PartialDerivative(DoubleTensor partial, DoubleTensor diagonal, long[] diagonalShape) {
         this.partial = partial;
+        this.diagonal = diagonal;
+        this.diagonalShape = diagonalShape;
+    }
+
+    /**
+     * @param shape the shape of the tensor
+     * @return the partial derivative of a tensor with respect to itself
+     */
+    public static PartialDerivative identity(long[] shape) {
+        return new PartialDerivative(null, DoubleTensor.scalar(1.0), shape);
+    }
+
+    /**
+     * @param values the values on the diagonal
+     * @return a partial with of and wrt shapes that are the shape of the values and that is zero off the diagonal
+     */
+    public static PartialDerivative diagonal(DoubleTensor values) {
+        return new PartialDerivative(null, values, values.getShape());
     }
 
     public boolean isPresent() {
-        return partial != null;
+        return partial != null || diagonal != null;
     }
 
+    /**
+     * @return true if the partial is held as its diagonal
+     */
+    public boolean isDiagonal() {
+        return diagonal != null;
+    }
+
+    /**
+     * @return the values on the diagonal of a diagonal partial, which have the shape of its of and wrt dimensions
+     */
+    public DoubleTensor getDiagonal() {
+        if (!isDiagonal()) {
+            throw new IllegalStateException("Partial derivative is not diagonal");
+        }
+        return broadcastDiagonal();
+    }
+
+    /**
+     * @return the partial as a dense tensor of shape [of, wrt]. For a diagonal partial this creates a new tensor on
+     * every call, so changing the result does not change the partial.
+     */
     public DoubleTensor get() {
-        return partial;
+        return isDiagonal() ? densify() : partial;
     }
 
     public long[] getOfShape(long[] wrtShape) {
-        return Arrays.copyOfRange(partial.getShape(), 0, partial.getRank() - wrtShape.length);
+        long[] shape = getShape();
+        return Arrays.copyOfRange(shape, 0, shape.length - wrtShape.length);
     }
 
     public long[] getWrtShape(long[] ofShape) {
-        return Arrays.copyOfRange(partial.getShape(), ofShape.length, partial.getRank());
+        long[] shape = getShape();
+        return Arrays.copyOfRange(shape, ofShape.length, shape.length);
     }
 
     public PartialDerivative add(PartialDerivative addition) {
 
+        if (isDiagonalLike(addition)) {
+            return new PartialDerivative(null, diagonal.plus(addition.diagonal), diagonalShape);
+        }
+
         if (this.isPresent() && addition.isPresent()) {
-            return new PartialDerivative(partial.plus(addition.partial));
+            return new PartialDerivative(get().plus(addition.get()));
         } else if (this.isPresent() && !addition.isPresent()) {
-            return new PartialDerivative(get());
+            return this;
         } else if (!this.isPresent() && addition.isPresent()) {
-            return new PartialDerivative(addition.partial);
+            return addition;
         } else {
             return PartialDerivative.EMPTY;
         }
@@ -46,12 +108,16 @@ public class PartialDerivative {
 
     public PartialDerivative subtract(PartialDerivative subtraction) {
 
+        if (isDiagonalLike(subtraction)) {
+            return new PartialDerivative(null, diagonal.minus(subtraction.diagonal), diagonalShape);
+        }
+
         if (this.isPresent() && subtraction.isPresent()) {
-            return new PartialDerivative(partial.minus(subtraction.partial));
+            return new PartialDerivative(get().minus(subtraction.get()));
         } else if (this.isPresent() && !subtraction.isPresent()) {
-            return new PartialDerivative(get());
+            return this;
         } else if (!this.isPresent() && subtraction.isPresent()) {
-            return new PartialDerivative(subtraction.partial.unaryMinus());
+            return subtraction.multiplyBy(-1.0);
         } else {
             return PartialDerivative.EMPTY;
         }
@@ -63,6 +129,10 @@ public class PartialDerivative {
             return this;
         }
 
+        if (isDiagonal()) {
+            return new PartialDerivative(null, diagonal.times(multiplier), diagonalShape);
+        }
+
         return new PartialDerivative(partial.times(multiplier));
     }
 
@@ -89,8 +159,13 @@ public class PartialDerivative {
             return this;
         }
 
-        DoubleTensor multiplierAlignedAlongOf = alignAlongOf(multiplier, partial.getShape(), partialOfRank);
-        DoubleTensor result = partial.times(multiplierAlignedAlongOf);
+        if (canScaleDiagonalAlongOf(multiplier, partialOfRank)) {
+            DoubleTensor scaled = multiplier.getLength() == 1 ? diagonal.times(multiplier.scalar()) : diagonal.times(multiplier);
+            return new PartialDerivative(null, scaled, diagonalShape);
+        }
+
+        DoubleTensor multiplierAlignedAlongOf = alignAlongOf(multiplier, getShape(), partialOfRank);
+        DoubleTensor result = get().times(multiplierAlignedAlongOf);
 
         return new PartialDerivative(result);
     }
@@ -105,8 +180,13 @@ public class PartialDerivative {
             return this;
         }
 
-        DoubleTensor divisorAlignedAlongOf = alignAlongOf(divisor, partial.getShape(), partialOfRank);
-        DoubleTensor result = partial.div(divisorAlignedAlongOf);
+        if (canScaleDiagonalAlongOf(divisor, partialOfRank)) {
+            DoubleTensor scaled = divisor.getLength() == 1 ? diagonal.div(divisor.scalar()) : diagonal.div(divisor);
+            return new PartialDerivative(null, scaled, diagonalShape);
+        }
+
+        DoubleTensor divisorAlignedAlongOf = alignAlongOf(divisor, getShape(), partialOfRank);
+        DoubleTensor result = get().div(divisorAlignedAlongOf);
 
         return new PartialDerivative(result);
     }
@@ -117,8 +197,13 @@ public class PartialDerivative {
             return this;
         }
 
-        DoubleTensor multiplierAlignedAlongWrt = alignAlongWrt(multiplier, partial.getRank());
-        DoubleTensor result = partial.times(multiplierAlignedAlongWrt);
+        //The wrt dimensions of a diagonal partial are its diagonal, which the multiplier is aligned to the end of
+        if (isDiagonal() && broadcastsWithin(multiplier.getShape(), diagonalShape)) {
+            return new PartialDerivative(null, diagonal.times(multiplier), diagonalShape);
+        }
+
+        DoubleTensor multiplierAlignedAlongWrt = alignAlongWrt(multiplier, getShape().length);
+        DoubleTensor result = get().times(multiplierAlignedAlongWrt);
 
         return new PartialDerivative(result);
     }
@@ -129,6 +214,16 @@ public class PartialDerivative {
             return partial;
         }
 
+        if (partial.isDiagonalMatrix() && multiplier.getRank() == 2) {
+            PartialDerivative result = partialIsLeft ?
+                partial.diagonalTimesMatrixAlongOf(multiplier) :
+                partial.matrixTimesDiagonalAlongOf(multiplier);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         final DoubleTensor partialValue = partial.get();
         final int partialRank = partialValue.getRank();
 
@@ -155,6 +250,16 @@ public class PartialDerivative {
             return partial;
         }
 
+        if (partial.isDiagonalMatrix() && multiplier.getRank() == 2) {
+            PartialDerivative result = partialIsLeft ?
+                partial.diagonalTimesMatrixAlongWrt(multiplier) :
+                partial.matrixTimesDiagonalAlongWrt(multiplier);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         final DoubleTensor partialValue = partial.get();
         final int partialRank = partialValue.getRank();
         final int wrtRightDimension = partialRank - 1;
@@ -177,6 +282,171 @@ public class PartialDerivative {
         return new PartialDerivative(result);
     }
 
+    /**
+     * @return the shape of the dense partial, which for a diagonal partial is found without creating it
+     */
+    long[] getShape() {
+        return isDiagonal() ? TensorShape.concat(diagonalShape, diagonalShape) : partial.getShape();
+    }
+
+    private boolean isDiagonalLike(PartialDerivative other) {
+        return isDiagonal() && other.isDiagonal() && Arrays.equals(diagonalShape, other.diagonalShape);
+    }
+
+    private boolean isDiagonalMatrix() {
+        return isDiagonal() && diagonalShape.length == 2;
+    }
+
+    /**
+     * A multiplier of length one scales every element. Otherwise it is aligned to the end of the of dimensions, which
+     * for a diagonal partial are its diagonal.
+     */
+    private boolean canScaleDiagonalAlongOf(DoubleTensor multiplier, int partialOfRank) {
+        if (!isDiagonal()) {
+            return false;
+        }
+        return multiplier.getLength() == 1 ||
+            (partialOfRank == diagonalShape.length && broadcastsWithin(multiplier.getShape(), diagonalShape));
+    }
+
+    private static boolean broadcastsWithin(long[] shape, long[] targetShape) {
+        if (shape.length > targetShape.length) {
+            return false;
+        }
+        for (int i = 1; i <= shape.length; i++) {
+            long dimension = shape[shape.length - i];
+            if (dimension != 1 && dimension != targetShape[targetShape.length - i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private DoubleTensor broadcastDiagonal() {
+        if (Arrays.equals(diagonal.getShape(), diagonalShape)) {
+            return diagonal;
+        }
+        return DoubleTensor.zeros(diagonalShape).plusInPlace(diagonal);
+    }
+
+    private DoubleTensor densify() {
+        long length = TensorShape.getLength(diagonalShape);
+        DoubleTensor values = broadcastDiagonal().reshape(1, length);
+        return DoubleTensor.eye(length).times(values).reshape(TensorShape.concat(diagonalShape, diagonalShape));
+    }
+
+    /**
+     * For a diagonal D of shape [a, b, a, b] with values d and a multiplier M of shape [b, q], the result R of shape
+     * [a, q, a, b] is only nonzero at R[i, q, i, l] = d[i, l] * M[l, q].
+     */
+    private PartialDerivative diagonalTimesMatrixAlongOf(DoubleTensor multiplier) {
+        long a = diagonalShape[0];
+        long b = diagonalShape[1];
+        long[] multiplierShape = multiplier.getShape();
+        if (multiplierShape[0] != b) {
+            return null;
+        }
+        long q = multiplierShape[1];
+
+        double[] d = broadcastDiagonal().asFlatDoubleArray();
+        double[] m = multiplier.asFlatDoubleArray();
+        double[] result = new double[Math.toIntExact(a * q * a * b)];
+
+        for (long i = 0; i < a; i++) {
+            for (long l = 0; l < b; l++) {
+                for (long k = 0; k < q; k++) {
+                    result[(int) (((i * q + k) * a + i) * b + l)] = d[(int) (i * b + l)] * m[(int) (l * q + k)];
+                }
+            }
+        }
+
+        return new PartialDerivative(DoubleTensor.create(result, a, q, a, b));
+    }
+
+    /**
+     * For a multiplier M of shape [p, a] and a diagonal D of shape [a, b, a, b] with values d, the result R of shape
+     * [p, b, a, b] is only nonzero at R[p, j, k, j] = M[p, k] * d[k, j].
+     */
+    private PartialDerivative matrixTimesDiagonalAlongOf(DoubleTensor multiplier) {
+        long a = diagonalShape[0];
+        long b = diagonalShape[1];
+        long[] multiplierShape = multiplier.getShape();
+        if (multiplierShape[1] != a) {
+            return null;
+        }
+        long p = multiplierShape[0];
+
+        double[] d = broadcastDiagonal().asFlatDoubleArray();
+        double[] m = multiplier.asFlatDoubleArray();
+        double[] result = new double[Math.toIntExact(p * b * a * b)];
+
+        for (long r = 0; r < p; r++) {
+            for (long k = 0; k < a; k++) {
+                for (long j = 0; j < b; j++) {
+                    result[(int) (((r * b + j) * a + k) * b + j)] = m[(int) (r * a + k)] * d[(int) (k * b + j)];
+                }
+            }
+        }
+
+        return new PartialDerivative(DoubleTensor.create(result, p, b, a, b));
+    }
+
+    /**
+     * For a diagonal D of shape [a, b, a, b] with values d and a multiplier M of shape [q, b], the result R of shape
+     * [a, b, a, q] is only nonzero at R[i, j, i, k] = d[i, j] * M[k, j].
+     */
+    private PartialDerivative diagonalTimesMatrixAlongWrt(DoubleTensor multiplier) {
+        long a = diagonalShape[0];
+        long b = diagonalShape[1];
+        long[] multiplierShape = multiplier.getShape();
+        if (multiplierShape[1] != b) {
+            return null;
+        }
+        long q = multiplierShape[0];
+
+        double[] d = broadcastDiagonal().asFlatDoubleArray();
+        double[] m = multiplier.asFlatDoubleArray();
+        double[] result = new double[Math.toIntExact(a * b * a * q)];
+
+        for (long i = 0; i < a; i++) {
+            for (long j = 0; j < b; j++) {
+                for (long k = 0; k < q; k++) {
+                    result[(int) (((i * b + j) * a + i) * q + k)] = d[(int) (i * b + j)] * m[(int) (k * b + j)];
+                }
+            }
+        }
+
+        return new PartialDerivative(DoubleTensor.create(result, a, b, a, q));
+    }
+
+    /**
+     * For a diagonal D of shape [a, b, a, b] with values d and a multiplier M of shape [a, p], the result R of shape
+     * [a, b, p, b] is only nonzero at R[i, j, k, j] = d[i, j] * M[i, k].
+     */
+    private PartialDerivative matrixTimesDiagonalAlongWrt(DoubleTensor multiplier) {
+        long a = diagonalShape[0];
+        long b = diagonalShape[1];
+        long[] multiplierShape = multiplier.getShape();
+        if (multiplierShape[0] != a) {
+            return null;
+        }
+        long p = multiplierShape[1];
+
+        double[] d = broadcastDiagonal().asFlatDoubleArray();
+        double[] m = multiplier.asFlatDoubleArray();
+        double[] result = new double[Math.toIntExact(a * b * p * b)];
+
+        for (long i = 0; i < a; i++) {
+            for (long j = 0; j < b; j++) {
+                for (long k = 0; k < p; k++) {
+                    result[(int) (((i * b + j) * p + k) * b + j)] = d[(int) (i * b + j)] * m[(int) (i * p + k)];
+                }
+            }
+        }
+
+        return new PartialDerivative(DoubleTensor.create(result, a, b, p, b));
+    }
+
     /**
      * This is important for the case where the partial 'of' and the tensor are different ranks but are
      * still broadcastable.
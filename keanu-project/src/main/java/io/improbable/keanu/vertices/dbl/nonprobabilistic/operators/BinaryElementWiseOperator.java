@@ -0,0 +1,31 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+/**
+ * An element-wise operator with two inputs that can be calculated one element at a time, so that it can be fused
+ * with other element-wise operators in an {@link ElementWiseChain}.
+ */
+public interface BinaryElementWiseOperator extends ElementWiseOperator {
+
+    /**
+     * @param left  the value of the left input at an element
+     * @param right the value of the right input at that element
+     * @return the value of the operator at that element
+     */
+    double calculateElement(double left, double right);
+
+    /**
+     * @param left   the value of the left input at an element
+     * @param right  the value of the right input at that element
+     * @param result the value of the operator at that element
+     * @return the derivative of the operator with respect to its left input at that element
+     */
+    double dCalculateElementWrtLeft(double left, double right, double result);
+
+    /**
+     * @param left   the value of the left input at an element
+     * @param right  the value of the right input at that element
+     * @param result the value of the operator at that element
+     * @return the derivative of the operator with respect to its right input at that element
+     */
+    double dCalculateElementWrtRight(double left, double right, double result);
+}
@@ -0,0 +1,367 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.Differentiable;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.DoubleBinaryOpVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.DoubleUnaryOpVertex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A chain of element-wise operators where each operator after the first takes the result of the one before it as one
+ * of its inputs, e.g. x.minus(mu).pow(2).div(s).times(-0.5). The values of the operators are calculated in a single
+ * pass over the elements rather than one pass per operator, and the derivative of the last operator with respect to
+ * each input of the chain is found in a single pass in the same way.
+ * <p>
+ * The result of each operator in the chain has the same shape. Each input to the chain that the result of an
+ * operator is not taken from has either that shape or length one.
+ */
+public class ElementWiseChain {
+
+    private final DoubleVertex[] links;
+
+    //The input of the first operator that the chain starts from
+    private final DoubleVertex start;
+
+    //For each operator, its other input or null if it only has one input
+    private final DoubleVertex[] others;
+
+    //For each operator with two inputs, whether the result of the chain so far is its left input
+    private final boolean[] chainIsLeft;
+
+    private final UnaryElementWiseOperator[] unaryOperators;
+    private final BinaryElementWiseOperator[] binaryOperators;
+
+    private ElementWiseChain(DoubleVertex[] links, DoubleVertex start, DoubleVertex[] others, boolean[] chainIsLeft) {
+        this.links = links;
+        this.start = start;
+        this.others = others;
+        this.chainIsLeft = chainIsLeft;
+        this.unaryOperators = new UnaryElementWiseOperator[links.length];
+        this.binaryOperators = new BinaryElementWiseOperator[links.length];
+
+        for (int i = 0; i < links.length; i++) {
+            if (links[i] instanceof UnaryElementWiseOperator) {
+                unaryOperators[i] = (UnaryElementWiseOperator) links[i];
+            } else {
+                binaryOperators[i] = (BinaryElementWiseOperator) links[i];
+            }
+        }
+    }
+
+    /**
+     * @param links the operators of the chain from first to last
+     * @return the chain
+     * @throws IllegalArgumentException if the operators do not form a chain
+     */
+    public static ElementWiseChain of(List<? extends DoubleVertex> links) {
+        Preconditions.checkArgument(!links.isEmpty(), "A chain needs at least one operator");
+        Preconditions.checkArgument(canStart(links.get(0)), "%s cannot start a chain", links.get(0));
+
+        int length = links.size();
+        DoubleVertex[] chainLinks = links.toArray(new DoubleVertex[0]);
+        DoubleVertex[] others = new DoubleVertex[length];
+        boolean[] chainIsLeft = new boolean[length];
+
+        DoubleVertex start = startOperand(chainLinks[0]);
+        DoubleVertex previous = start;
+
+        for (int i = 0; i < length; i++) {
+            DoubleVertex link = chainLinks[i];
+            Preconditions.checkArgument(
+                i == 0 || canFollow(link, previous),
+                "%s cannot follow %s in a chain", link, previous
+            );
+
+            if (link instanceof DoubleBinaryOpVertex) {
+                DoubleBinaryOpVertex binary = (DoubleBinaryOpVertex) link;
+                chainIsLeft[i] = binary.getLeft() == previous;
+                others[i] = chainIsLeft[i] ? binary.getRight() : binary.getLeft();
+            }
+
+            previous = link;
+        }
+
+        return new ElementWiseChain(chainLinks, start, others, chainIsLeft);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return true if the vertex is an element-wise operator with an input of the same shape as itself that a chain
+     * can start from
+     */
+    public static boolean canStart(Vertex<?> vertex) {
+        return isLink(vertex) && startOperand((DoubleVertex) vertex) != null;
+    }
+
+    /**
+     * @param vertex   a vertex
+     * @param previous another vertex
+     * @return true if the vertex is an element-wise operator that takes the result of previous as exactly one of its
+     * inputs and can follow it in a chain
+     */
+    public static boolean canFollow(Vertex<?> vertex, Vertex<?> previous) {
+        if (!isLink(vertex)) {
+            return false;
+        }
+
+        if (vertex instanceof DoubleUnaryOpVertex) {
+            DoubleVertex input = ((DoubleUnaryOpVertex) vertex).getInputVertex();
+            return input == previous && canTakeChainFrom(vertex, input, null);
+        }
+
+        DoubleBinaryOpVertex binary = (DoubleBinaryOpVertex) vertex;
+        if (binary.getLeft() == previous && binary.getRight() != previous) {
+            return canTakeChainFrom(vertex, binary.getLeft(), binary.getRight());
+        } else if (binary.getRight() == previous && binary.getLeft() != previous) {
+            return canTakeChainFrom(vertex, binary.getRight(), binary.getLeft());
+        }
+        return false;
+    }
+
+    private static boolean isLink(Vertex<?> vertex) {
+        return (vertex instanceof DoubleUnaryOpVertex && vertex instanceof UnaryElementWiseOperator) ||
+            (vertex instanceof DoubleBinaryOpVertex && vertex instanceof BinaryElementWiseOperator);
+    }
+
+    private static DoubleVertex startOperand(DoubleVertex link) {
+        if (link instanceof DoubleUnaryOpVertex) {
+            DoubleVertex input = ((DoubleUnaryOpVertex) link).getInputVertex();
+            return canTakeChainFrom(link, input, null) ? input : null;
+        }
+
+        DoubleBinaryOpVertex binary = (DoubleBinaryOpVertex) link;
+        if (canTakeChainFrom(link, binary.getLeft(), binary.getRight())) {
+            return binary.getLeft();
+        } else if (canTakeChainFrom(link, binary.getRight(), binary.getLeft())) {
+            return binary.getRight();
+        }
+        return null;
+    }
+
+    private static boolean canTakeChainFrom(Vertex<?> link, Vertex<?> chainInput, Vertex<?> otherInput) {
+        long[] shape = link.getShape();
+        if (!Arrays.equals(chainInput.getShape(), shape)) {
+            return false;
+        }
+        return otherInput == null ||
+            Arrays.equals(otherInput.getShape(), shape) ||
+            TensorShape.getLength(otherInput.getShape()) == 1;
+    }
+
+    public List<DoubleVertex> getLinks() {
+        return Collections.unmodifiableList(Arrays.asList(links));
+    }
+
+    public DoubleVertex getFirst() {
+        return links[0];
+    }
+
+    public DoubleVertex getLast() {
+        return links[links.length - 1];
+    }
+
+    /**
+     * @return the inputs of the operators of the chain that are not themselves in the chain
+     */
+    public Set<DoubleVertex> getInputs() {
+        Set<DoubleVertex> inputs = new LinkedHashSet<>();
+        inputs.add(start);
+        for (DoubleVertex other : others) {
+            if (other != null) {
+                inputs.add(other);
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * @return true if every operator of the chain is {@link Differentiable}
+     */
+    public boolean isDifferentiable() {
+        for (DoubleVertex link : links) {
+            if (!(link instanceof Differentiable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the last operator of the chain at the current values of the inputs of the chain. The values
+     * of the operators are neither read nor changed.
+     */
+    public DoubleTensor calculate() {
+        double[] values = start.getValue().asFlatDoubleArray();
+        double[][] otherValues = otherValues();
+
+        for (int i = 0; i < values.length; i++) {
+            double value = values[i];
+            for (int k = 0; k < links.length; k++) {
+                value = calculateLink(k, value, otherValues[k], i);
+            }
+            values[i] = value;
+        }
+
+        return DoubleTensor.create(values, getLast().getShape());
+    }
+
+    /**
+     * @return the value of each operator of the chain, from first to last, at the current values of the inputs of the
+     * chain. The values are calculated in a single pass over the elements and the values of the operators are neither
+     * read nor changed.
+     */
+    public DoubleTensor[] calculateEachLink() {
+        long[] shape = getLast().getShape();
+        if (TensorShape.isLengthOne(shape)) {
+            return calculateEachLinkOfLengthOne(shape);
+        }
+
+        double[] startValues = start.getValue().asFlatDoubleArray();
+        double[][] otherValues = otherValues();
+        double[][] linkValues = new double[links.length][startValues.length];
+
+        for (int i = 0; i < startValues.length; i++) {
+            double value = startValues[i];
+            for (int k = 0; k < links.length; k++) {
+                value = calculateLink(k, value, otherValues[k], i);
+                linkValues[k][i] = value;
+            }
+        }
+
+        DoubleTensor[] results = new DoubleTensor[links.length];
+        for (int k = 0; k < links.length; k++) {
+            results[k] = DoubleTensor.create(linkValues[k], shape);
+        }
+        return results;
+    }
+
+    /**
+     * Reads the single value of each input directly, as copying it into an array costs more than calculating it
+     */
+    private DoubleTensor[] calculateEachLinkOfLengthOne(long[] shape) {
+        DoubleTensor[] results = new DoubleTensor[links.length];
+
+        double value = start.getValue().scalar();
+        for (int k = 0; k < links.length; k++) {
+            if (unaryOperators[k] != null) {
+                value = unaryOperators[k].calculateElement(value);
+            } else {
+                double other = others[k].getValue().scalar();
+                value = chainIsLeft[k] ?
+                    binaryOperators[k].calculateElement(value, other) :
+                    binaryOperators[k].calculateElement(other, value);
+            }
+            results[k] = DoubleTensor.create(value, shape);
+        }
+        return results;
+    }
+
+    /**
+     * Equivalent to reverse mode auto diff through every operator of the chain in turn, but the derivative of the last
+     * operator with respect to each input of the chain is found in one pass and no partial derivative is created for
+     * the operators in between.
+     *
+     * @param derivativeOfOutputWithRespectToSelf the partial derivative of some output with respect to the last operator
+     * @return the partial derivative of the output with respect to each input of the chain
+     */
+    public Map<Vertex, PartialDerivative> reverseModeAutoDifferentiation(PartialDerivative derivativeOfOutputWithRespectToSelf) {
+        double[] startValues = start.getValue().asFlatDoubleArray();
+        double[][] otherValues = otherValues();
+
+        int length = startValues.length;
+        double[] dWrtStart = new double[length];
+        double[][] dWrtOthers = new double[links.length][];
+        for (int k = 0; k < links.length; k++) {
+            if (others[k] != null) {
+                dWrtOthers[k] = new double[length];
+            }
+        }
+
+        double[] linkInputs = new double[links.length];
+        double[] linkResults = new double[links.length];
+
+        for (int i = 0; i < length; i++) {
+            double value = startValues[i];
+            for (int k = 0; k < links.length; k++) {
+                linkInputs[k] = value;
+                value = calculateLink(k, value, otherValues[k], i);
+                linkResults[k] = value;
+            }
+
+            //The derivative of the last operator with respect to the result of the chain so far, working backwards
+            double dLastWrtChain = 1.0;
+            for (int k = links.length - 1; k >= 0; k--) {
+                if (unaryOperators[k] != null) {
+                    dLastWrtChain *= unaryOperators[k].dCalculateElement(linkInputs[k], linkResults[k]);
+                } else {
+                    double other = elementOf(otherValues[k], i);
+                    double left = chainIsLeft[k] ? linkInputs[k] : other;
+                    double right = chainIsLeft[k] ? other : linkInputs[k];
+                    double dWrtLeft = binaryOperators[k].dCalculateElementWrtLeft(left, right, linkResults[k]);
+                    double dWrtRight = binaryOperators[k].dCalculateElementWrtRight(left, right, linkResults[k]);
+
+                    dWrtOthers[k][i] = dLastWrtChain * (chainIsLeft[k] ? dWrtRight : dWrtLeft);
+                    dLastWrtChain *= chainIsLeft[k] ? dWrtLeft : dWrtRight;
+                }
+            }
+            dWrtStart[i] = dLastWrtChain;
+        }
+
+        long[] shape = getLast().getShape();
+        Map<Vertex, PartialDerivative> partials = new HashMap<>();
+        addPartial(partials, start, derivativeOfOutputWithRespectToSelf.multiplyAlongWrtDimensions(DoubleTensor.create(dWrtStart, shape)));
+
+        for (int k = 0; k < links.length; k++) {
+            if (others[k] != null) {
+                PartialDerivative dOutputsWrtOther = derivativeOfOutputWithRespectToSelf.multiplyAlongWrtDimensions(
+                    DoubleTensor.create(dWrtOthers[k], shape)
+                );
+                addPartial(partials, others[k], AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtOther, shape, others[k].getShape()));
+            }
+        }
+
+        return partials;
+    }
+
+    private double calculateLink(int k, double chainValue, double[] otherValues, int index) {
+        if (unaryOperators[k] != null) {
+            return unaryOperators[k].calculateElement(chainValue);
+        }
+
+        double other = elementOf(otherValues, index);
+        return chainIsLeft[k] ?
+            binaryOperators[k].calculateElement(chainValue, other) :
+            binaryOperators[k].calculateElement(other, chainValue);
+    }
+
+    private double[][] otherValues() {
+        double[][] otherValues = new double[links.length][];
+        for (int k = 0; k < links.length; k++) {
+            if (others[k] != null) {
+                otherValues[k] = others[k].getValue().asFlatDoubleArray();
+            }
+        }
+        return otherValues;
+    }
+
+    private static double elementOf(double[] values, int index) {
+        return values.length == 1 ? values[0] : values[index];
+    }
+
+    private static void addPartial(Map<Vertex, PartialDerivative> partials, Vertex<?> vertex, PartialDerivative partial) {
+        partials.merge(vertex, partial, PartialDerivative::add);
+    }
+}
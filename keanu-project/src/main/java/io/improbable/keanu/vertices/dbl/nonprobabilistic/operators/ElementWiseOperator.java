@@ -0,0 +1,9 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+/**
+ * Marks an operator vertex whose value at each element depends only on the values of its inputs at that element, once
+ * they have been broadcast to the same shape. Chains of these can be evaluated without keeping the values between
+ * them.
+ */
+public interface ElementWiseOperator {
+}
@@ -0,0 +1,21 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+/**
+ * An element-wise operator with a single input that can be calculated one element at a time, so that it can be
+ * fused with other element-wise operators in an {@link ElementWiseChain}.
+ */
+public interface UnaryElementWiseOperator extends ElementWiseOperator {
+
+    /**
+     * @param input the value of the input at an element
+     * @return the value of the operator at that element
+     */
+    double calculateElement(double input);
+
+    /**
+     * @param input  the value of the input at an element
+     * @param result the value of the operator at that element
+     * @return the derivative of the operator with respect to its input at that element
+     */
+    double dCalculateElement(double input, double result);
+}
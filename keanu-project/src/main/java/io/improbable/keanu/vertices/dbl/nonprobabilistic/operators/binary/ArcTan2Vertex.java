@@ -8,11 +8,12 @@ import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.BinaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class ArcTan2Vertex extends DoubleBinaryOpVertex implements Differentiable {
+public class ArcTan2Vertex extends DoubleBinaryOpVertex implements Differentiable, BinaryElementWiseOperator {
 
     private static final String X_NAME = LEFT_NAME;
     private static final String Y_NAME = RIGHT_NAME;
@@ -34,6 +35,21 @@ public class ArcTan2Vertex extends DoubleBinaryOpVertex implements Differentiabl
         return x.atan2(y);
     }
 
+    @Override
+    public double calculateElement(double left, double right) {
+        return Math.atan2(right, left);
+    }
+
+    @Override
+    public double dCalculateElementWrtLeft(double left, double right, double result) {
+        return -right / (left * left + right * right);
+    }
+
+    @Override
+    public double dCalculateElementWrtRight(double left, double right, double result) {
+        return left / (left * left + right * right);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dxWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
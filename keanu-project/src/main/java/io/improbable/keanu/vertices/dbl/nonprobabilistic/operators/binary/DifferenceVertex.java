@@ -9,6 +9,7 @@ import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.BinaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -17,7 +18,7 @@ import static io.improbable.keanu.tensor.TensorShapeValidation.checkIsBroadcasta
 
 
 @DisplayInformationForOutput(displayName = "-")
-public class DifferenceVertex extends DoubleBinaryOpVertex implements Differentiable {
+public class DifferenceVertex extends DoubleBinaryOpVertex implements Differentiable, BinaryElementWiseOperator {
 
     /**
      * Subtracts one vertex from another
@@ -36,6 +37,21 @@ public class DifferenceVertex extends DoubleBinaryOpVertex implements Differenti
         return l.minus(r);
     }
 
+    @Override
+    public double calculateElement(double left, double right) {
+        return left - right;
+    }
+
+    @Override
+    public double dCalculateElementWrtLeft(double left, double right, double result) {
+        return 1.0;
+    }
+
+    @Override
+    public double dCalculateElementWrtRight(double left, double right, double result) {
+        return -1.0;
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dLeftWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
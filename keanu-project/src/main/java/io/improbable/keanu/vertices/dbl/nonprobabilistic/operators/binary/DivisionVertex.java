@@ -9,6 +9,7 @@ import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.BinaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -16,7 +17,7 @@ import java.util.Map;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkIsBroadcastable;
 
 @DisplayInformationForOutput(displayName = "/")
-public class DivisionVertex extends DoubleBinaryOpVertex implements Differentiable {
+public class DivisionVertex extends DoubleBinaryOpVertex implements Differentiable, BinaryElementWiseOperator {
     /**
      * Divides one vertex by another
      *
@@ -34,6 +35,21 @@ public class DivisionVertex extends DoubleBinaryOpVertex implements Differentiab
         return l.div(r);
     }
 
+    @Override
+    public double calculateElement(double left, double right) {
+        return left / right;
+    }
+
+    @Override
+    public double dCalculateElementWrtLeft(double left, double right, double result) {
+        return 1.0 / right;
+    }
+
+    @Override
+    public double dCalculateElementWrtRight(double left, double right, double result) {
+        return -left / (right * right);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dLeftWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
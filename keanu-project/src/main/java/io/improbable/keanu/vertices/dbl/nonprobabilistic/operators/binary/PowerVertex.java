@@ -8,11 +8,12 @@ import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.BinaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class PowerVertex extends DoubleBinaryOpVertex implements Differentiable {
+public class PowerVertex extends DoubleBinaryOpVertex implements Differentiable, BinaryElementWiseOperator {
 
     private static final String BASE_NAME = LEFT_NAME;
     private static final String EXPONENT_NAME = RIGHT_NAME;
@@ -42,6 +43,21 @@ public class PowerVertex extends DoubleBinaryOpVertex implements Differentiable
         return base.pow(exponent);
     }
 
+    @Override
+    public double calculateElement(double left, double right) {
+        return Math.pow(left, right);
+    }
+
+    @Override
+    public double dCalculateElementWrtLeft(double left, double right, double result) {
+        return right / left * result;
+    }
+
+    @Override
+    public double dCalculateElementWrtRight(double left, double right, double result) {
+        return result * Math.log(left);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dBaseWrtInput = derivativeOfParentsWithRespectToInput.getOrDefault(left, PartialDerivative.EMPTY);
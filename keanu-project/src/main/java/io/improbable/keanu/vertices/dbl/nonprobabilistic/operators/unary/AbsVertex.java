@@ -5,9 +5,10 @@ import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 
-public class AbsVertex extends DoubleUnaryOpVertex {
+public class AbsVertex extends DoubleUnaryOpVertex implements UnaryElementWiseOperator {
 
     /**
      * Takes the absolute of a vertex
@@ -23,4 +24,14 @@ public class AbsVertex extends DoubleUnaryOpVertex {
     protected DoubleTensor op(DoubleTensor value) {
         return value.abs();
     }
+
+    @Override
+    public double calculateElement(double input) {
+        return Math.abs(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return Math.signum(input);
+    }
 }
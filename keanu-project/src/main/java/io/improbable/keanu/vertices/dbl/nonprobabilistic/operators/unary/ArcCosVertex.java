@@ -7,11 +7,12 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class ArcCosVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class ArcCosVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Takes the inverse cosine of a vertex, Arccos(vertex)
@@ -28,6 +29,16 @@ public class ArcCosVertex extends DoubleUnaryOpVertex implements Differentiable
         return value.acos();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return Math.acos(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return -1.0 / Math.sqrt(1.0 - input * input);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
@@ -7,11 +7,12 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class ArcTanVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class ArcTanVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Takes the inverse tan of a vertex, Arctan(vertex)
@@ -28,6 +29,16 @@ public class ArcTanVertex extends DoubleUnaryOpVertex implements Differentiable
         return value.atan();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return Math.atan(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return 1.0 / (1.0 + input * input);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
@@ -4,9 +4,10 @@ import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 
-public class CeilVertex extends DoubleUnaryOpVertex {
+public class CeilVertex extends DoubleUnaryOpVertex implements UnaryElementWiseOperator {
 
     /**
      * Applies the Ceiling operator to a vertex.
@@ -23,4 +24,14 @@ public class CeilVertex extends DoubleUnaryOpVertex {
     protected DoubleTensor op(DoubleTensor value) {
         return value.ceil();
     }
+
+    @Override
+    public double calculateElement(double input) {
+        return Math.ceil(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return 0.0;
+    }
 }
@@ -7,11 +7,12 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class CosVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class CosVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Takes the cosine of a vertex, Cos(vertex)
@@ -28,6 +29,16 @@ public class CosVertex extends DoubleUnaryOpVertex implements Differentiable {
         return value.cos();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return Math.cos(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return -Math.sin(input);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
@@ -7,11 +7,13 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
+import org.apache.commons.math3.special.Gamma;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class LogGammaVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class LogGammaVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Returns the log of the gamma of the inputVertex
@@ -28,6 +30,16 @@ public class LogGammaVertex extends DoubleUnaryOpVertex implements Differentiabl
         return value.logGamma();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return Gamma.logGamma(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return Gamma.digamma(input);
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
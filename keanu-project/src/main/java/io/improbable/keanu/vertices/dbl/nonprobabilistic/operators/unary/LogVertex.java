@@ -7,11 +7,12 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class LogVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class LogVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Returns the natural logarithm, base e, of a vertex
@@ -28,6 +29,16 @@ public class LogVertex extends DoubleUnaryOpVertex implements Differentiable {
         return value.log();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return Math.log(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return 1.0 / input;
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
@@ -4,9 +4,10 @@ import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 
-public class RoundVertex extends DoubleUnaryOpVertex {
+public class RoundVertex extends DoubleUnaryOpVertex implements UnaryElementWiseOperator {
 
     /**
      * Applies the Rounding operator to a vertex.
@@ -23,4 +24,19 @@ public class RoundVertex extends DoubleUnaryOpVertex {
     protected DoubleTensor op(DoubleTensor value) {
         return value.round();
     }
+
+    @Override
+    public double calculateElement(double input) {
+        //Rounds halves away from zero like DoubleTensor.round()
+        double valueToRound = input;
+        if (valueToRound < 0. && valueToRound + 0.5 == (double) (long) valueToRound) {
+            valueToRound -= 1.;
+        }
+        return (double) Math.round(valueToRound);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return 0.0;
+    }
 }
@@ -7,11 +7,12 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class SigmoidVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class SigmoidVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Applies the sigmoid function to a vertex.
@@ -29,6 +30,16 @@ public class SigmoidVertex extends DoubleUnaryOpVertex implements Differentiable
         return value.unaryMinus().expInPlace().plusInPlace(1).reciprocalInPlace();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return 1.0 / (1.0 + Math.exp(-input));
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return result - result * result;
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
@@ -7,11 +7,12 @@ import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.UnaryElementWiseOperator;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class TanVertex extends DoubleUnaryOpVertex implements Differentiable {
+public class TanVertex extends DoubleUnaryOpVertex implements Differentiable, UnaryElementWiseOperator {
 
     /**
      * Takes the tangent of a vertex. Tan(vertex).
@@ -28,6 +29,16 @@ public class TanVertex extends DoubleUnaryOpVertex implements Differentiable {
         return value.tan();
     }
 
+    @Override
+    public double calculateElement(double input) {
+        return Math.tan(input);
+    }
+
+    @Override
+    public double dCalculateElement(double input, double result) {
+        return 1.0 / (Math.cos(input) * Math.cos(input));
+    }
+
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative derivativeOfParentWithRespectToInputs = derivativeOfParentsWithRespectToInput.get(inputVertex);
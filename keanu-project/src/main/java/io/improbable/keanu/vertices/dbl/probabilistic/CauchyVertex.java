@@ -4,6 +4,7 @@ import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.distributions.continuous.Cauchy;
 import io.improbable.keanu.distributions.hyperparam.Diffs;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.LoadShape;
 import io.improbable.keanu.vertices.LoadVertexParam;
@@ -12,6 +13,7 @@ import io.improbable.keanu.vertices.LogProbGraph.DoublePlaceholderVertex;
 import io.improbable.keanu.vertices.LogProbGraphSupplier;
 import io.improbable.keanu.vertices.SamplableWithManyScalars;
 import io.improbable.keanu.vertices.SaveVertexParam;
+import io.improbable.keanu.vertices.ScalarLogProbSupplier;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
@@ -27,7 +29,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class CauchyVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class CauchyVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier, ScalarLogProbSupplier {
 
     private final DoubleVertex location;
     private final DoubleVertex scale;
@@ -104,6 +106,22 @@ public class CauchyVertex extends DoubleVertex implements Differentiable, Probab
         return logPdfs.sum();
     }
 
+    @Override
+    public DoubleVertex[] getScalarLogProbParameters() {
+        //A subclass may calculate its log prob differently so only a plain Cauchy is calculated on scalars
+        boolean isScalar = getClass() == CauchyVertex.class
+            && TensorShape.isLengthOne(getShape())
+            && TensorShape.isLengthOne(location.getShape())
+            && TensorShape.isLengthOne(scale.getShape());
+
+        return isScalar ? new DoubleVertex[]{location, scale} : null;
+    }
+
+    @Override
+    public double scalarLogProb(double value, double[] parameters) {
+        return Cauchy.logProb(value, parameters[0], parameters[1]);
+    }
+
     @Override
     public LogProbGraph logProbGraph() {
         DoublePlaceholderVertex xPlaceHolder = new DoublePlaceholderVertex(this.getShape());
@@ -4,7 +4,9 @@ import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
 import io.improbable.keanu.distributions.continuous.Gaussian;
 import io.improbable.keanu.distributions.hyperparam.Diffs;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ElementWiseLogProbSupplier;
 import io.improbable.keanu.vertices.LoadShape;
 import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.LogProbGraph;
@@ -12,6 +14,7 @@ import io.improbable.keanu.vertices.LogProbGraph.DoublePlaceholderVertex;
 import io.improbable.keanu.vertices.LogProbGraphSupplier;
 import io.improbable.keanu.vertices.SamplableWithManyScalars;
 import io.improbable.keanu.vertices.SaveVertexParam;
+import io.improbable.keanu.vertices.ScalarLogProbSupplier;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
@@ -27,7 +30,7 @@ import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkTensorsMatchNonLengthOneShapeOrAreLengthOne;
 
-public class GaussianVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
+public class GaussianVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier, ScalarLogProbSupplier, ElementWiseLogProbSupplier {
 
     private final DoubleVertex mu;
     private final DoubleVertex sigma;
@@ -104,6 +107,38 @@ public class GaussianVertex extends DoubleVertex implements Differentiable, Prob
         return logPdfs.sum();
     }
 
+    @Override
+    public DoubleVertex[] getScalarLogProbParameters() {
+        //A subclass may calculate its log prob differently so only a plain Gaussian is calculated on scalars
+        boolean isScalar = getClass() == GaussianVertex.class
+            && TensorShape.isLengthOne(getShape())
+            && TensorShape.isLengthOne(mu.getShape())
+            && TensorShape.isLengthOne(sigma.getShape());
+
+        return isScalar ? new DoubleVertex[]{mu, sigma} : null;
+    }
+
+    @Override
+    public double scalarLogProb(double value, double[] parameters) {
+        return Gaussian.logProb(value, parameters[0], parameters[1]);
+    }
+
+    @Override
+    public DoubleVertex[] getElementWiseLogProbParameters() {
+        //The shapes of mu and sigma are checked on construction to be the shape of this vertex or length one
+        return getClass() == GaussianVertex.class ? new DoubleVertex[]{mu, sigma} : null;
+    }
+
+    @Override
+    public double elementLogProb(double value, double[] parameters) {
+        return Gaussian.logProb(value, parameters[0], parameters[1]);
+    }
+
+    @Override
+    public void dElementLogProb(double value, double[] parameters, double[] derivatives) {
+        Gaussian.dLogProb(value, parameters[0], parameters[1], derivatives);
+    }
+
     @Override
     public LogProbGraph logProbGraph() {
         final DoublePlaceholderVertex xPlaceholder = new DoublePlaceholderVertex(this.getShape());
@@ -2,7 +2,10 @@ package io.improbable.keanu.vertices.dbl.probabilistic;
 
 import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.annotation.ExportVertexToPythonBindings;
+import io.improbable.keanu.distributions.ContinuousDistribution;
+import io.improbable.keanu.distributions.continuous.CholeskyFactor;
 import io.improbable.keanu.distributions.continuous.MultivariateGaussian;
+import io.improbable.keanu.distributions.hyperparam.Diffs;
 import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.ConstantVertex;
@@ -14,14 +17,20 @@ import io.improbable.keanu.vertices.LogProbGraphSupplier;
 import io.improbable.keanu.vertices.SamplableWithManyScalars;
 import io.improbable.keanu.vertices.SaveVertexParam;
 import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexState;
 import io.improbable.keanu.vertices.dbl.Differentiable;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import static io.improbable.keanu.distributions.hyperparam.Diffs.MU;
+import static io.improbable.keanu.distributions.hyperparam.Diffs.SIGMA;
+import static io.improbable.keanu.distributions.hyperparam.Diffs.X;
+
 public class MultivariateGaussianVertex extends DoubleVertex implements Differentiable, ProbabilisticDouble, SamplableWithManyScalars<DoubleTensor>, LogProbGraphSupplier {
 
     private final DoubleVertex mu;
@@ -29,6 +38,9 @@ public class MultivariateGaussianVertex extends DoubleVertex implements Differen
     private static final String MU_NAME = "mu";
     private static final String COVARIANCE_NAME = "covariance";
 
+    //The Cholesky factor of the covariance, which is only recalculated when the state of the covariance changes
+    private CachedFactor cachedCovarianceFactor;
+
     /**
      * Multivariate gaussian distribution. The shape is driven from mu, which must be a vector.
      * The shape of the covariance (matrix) must be a square that is the same height as mu.
@@ -91,10 +103,7 @@ public class MultivariateGaussianVertex extends DoubleVertex implements Differen
 
     @Override
     public double logProb(DoubleTensor value) {
-        DoubleTensor muValues = mu.getValue();
-        DoubleTensor covarianceValues = covariance.getValue();
-
-        return MultivariateGaussian.withParameters(muValues, covarianceValues).logProb(value).scalar();
+        return distribution().logProb(value).scalar();
     }
 
     @Override
@@ -113,12 +122,58 @@ public class MultivariateGaussianVertex extends DoubleVertex implements Differen
 
     @Override
     public Map<Vertex, DoubleTensor> dLogProb(DoubleTensor value, Set<? extends Vertex> withRespectTo) {
-        throw new UnsupportedOperationException();
+        Diffs dlnP = distribution().dLogProb(value);
+
+        Map<Vertex, DoubleTensor> dLogProbWrtParameters = new HashMap<>();
+
+        if (withRespectTo.contains(mu)) {
+            dLogProbWrtParameters.put(mu, dlnP.get(MU).getValue());
+        }
+
+        if (withRespectTo.contains(covariance)) {
+            dLogProbWrtParameters.put(covariance, dlnP.get(SIGMA).getValue());
+        }
+
+        if (withRespectTo.contains(this)) {
+            dLogProbWrtParameters.put(this, dlnP.get(X).getValue());
+        }
+
+        return dLogProbWrtParameters;
     }
 
     @Override
     public DoubleTensor sampleWithShape(long[] shape, KeanuRandom random) {
-        return MultivariateGaussian.withParameters(mu.getValue(), covariance.getValue()).sample(shape, random);
+        return distribution().sample(shape, random);
+    }
+
+    private ContinuousDistribution distribution() {
+        return MultivariateGaussian.withCholeskyFactor(mu.getValue(), getCovarianceFactor());
+    }
+
+    private CholeskyFactor getCovarianceFactor() {
+        DoubleTensor covarianceValue = covariance.getValue();
+        VertexState<DoubleTensor> covarianceState = covariance.getState();
+
+        CachedFactor cached = cachedCovarianceFactor;
+        if (cached == null || cached.covarianceState != covarianceState) {
+            cached = new CachedFactor(covarianceState, CholeskyFactor.of(covarianceValue));
+            cachedCovarianceFactor = cached;
+        }
+        return cached.factor;
+    }
+
+    /**
+     * A factor and the state of the covariance it was calculated from. It is replaced as a whole so that threads
+     * evaluating this vertex in different contexts at once never see a factor paired with the wrong state.
+     */
+    private static class CachedFactor {
+        private final VertexState<DoubleTensor> covarianceState;
+        private final CholeskyFactor factor;
+
+        CachedFactor(VertexState<DoubleTensor> covarianceState, CholeskyFactor factor) {
+            this.covarianceState = covarianceState;
+            this.factor = factor;
+        }
     }
 
     private static long[] checkValidMultivariateShape(long[] muShape, long[] covarianceShape) {
@@ -1,12 +1,15 @@
 package io.improbable.keanu.vertices.intgr;
 
+import io.improbable.keanu.algorithms.IntegerSampleColumn;
 import io.improbable.keanu.algorithms.Samples;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.tensor.intgr.IntegerTensor;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
@@ -22,6 +25,10 @@ public class IntegerVertexSamples extends Samples<IntegerTensor> {
             throw new IllegalStateException("No samples exist for averaging.");
         }
 
+        if (samples instanceof IntegerSampleColumn) {
+            return ((IntegerSampleColumn) samples).getAverages();
+        }
+
         long[] shape = samples.iterator().next().getShape();
 
         return this.samples.stream()
@@ -40,8 +47,11 @@ public class IntegerVertexSamples extends Samples<IntegerTensor> {
             throw new IllegalStateException("Mode for empty samples is undefined");
         }
 
-        Map<Integer, List<Integer>> groupedByValue = samples.stream()
-            .map(v -> v.getValue(index))
+        Stream<Integer> valuesAtIndex = samples instanceof IntegerSampleColumn ?
+            Arrays.stream(((IntegerSampleColumn) samples).getValuesAt(Arrays.stream(index).asLongStream().toArray())).boxed() :
+            samples.stream().map(v -> v.getValue(index));
+
+        Map<Integer, List<Integer>> groupedByValue = valuesAtIndex
             .collect(groupingBy(v -> v));
 
         Optional<Integer> mode = groupedByValue.entrySet().stream()
@@ -57,6 +67,10 @@ public class IntegerVertexSamples extends Samples<IntegerTensor> {
     }
 
     public IntegerTensor asTensor() {
+        if (samples instanceof IntegerSampleColumn) {
+            return ((IntegerSampleColumn) samples).asTensor();
+        }
+
         return IntegerTensor.stack(0, samples.toArray(new IntegerTensor[0]));
     }
 }
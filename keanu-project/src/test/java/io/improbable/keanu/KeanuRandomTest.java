@@ -6,6 +6,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 
 public class KeanuRandomTest {
 
@@ -54,4 +55,70 @@ public class KeanuRandomTest {
         assertEquals(keanuRandom.nextDouble(), new MersenneTwister(1L).nextDouble());
         assertEquals(keanuRandom.nextDouble(), 0.41782887182714457, 1e-16);
     }
+
+    @Test
+    public void jvmGeneratorIsReproducible() {
+        KeanuRandom a = KeanuRandom.withJVMGenerator(1);
+        KeanuRandom b = KeanuRandom.withJVMGenerator(1);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a.nextDouble(), b.nextDouble());
+            assertEquals(a.nextGaussian(), b.nextGaussian());
+            assertEquals(a.nextInt(10), b.nextInt(10));
+        }
+    }
+
+    @Test
+    public void jvmGeneratorDrawsStandardGaussians() {
+        KeanuRandom jvmRandom = KeanuRandom.withJVMGenerator(1);
+        int sampleCount = 1000000;
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        int beyondTwoSigma = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            double x = jvmRandom.nextGaussian();
+            sum += x;
+            sumOfSquares += x * x;
+            if (Math.abs(x) > 2) {
+                beyondTwoSigma++;
+            }
+        }
+
+        assertEquals(0.0, sum / sampleCount, 0.01);
+        assertEquals(1.0, sumOfSquares / sampleCount, 0.01);
+        assertEquals(0.0455, beyondTwoSigma / (double) sampleCount, 0.002);
+    }
+
+    @Test
+    public void jvmGeneratorCanSampleShapes() {
+        KeanuRandom jvmRandom = KeanuRandom.withJVMGenerator(1);
+
+        assertEquals(0, jvmRandom.nextGaussian(new long[0]).getRank());
+        assertEquals(1, jvmRandom.nextGaussian(new long[]{1}).getRank());
+        assertEquals(2, jvmRandom.nextDouble(new long[]{1, 1}).getRank());
+        assertEquals(2, jvmRandom.nextDouble(new long[]{2, 3}).getRank());
+    }
+
+    @Test
+    public void splitsAreReproducibleAndDifferFromTheOriginal() {
+        KeanuRandom a = KeanuRandom.withJVMGenerator(1);
+        KeanuRandom b = KeanuRandom.withJVMGenerator(1);
+
+        KeanuRandom aSplit = a.split();
+        KeanuRandom bSplit = b.split();
+
+        double aSplitDraw = aSplit.nextDouble();
+        assertEquals(aSplitDraw, bSplit.nextDouble());
+        assertEquals(a.nextDouble(), b.nextDouble());
+        assertTrue(aSplitDraw != a.nextDouble());
+    }
+
+    @Test
+    public void splitOfNd4jRandomIsSeededFromTheOriginal() {
+        KeanuRandom original = new KeanuRandom(1);
+        long seed = new KeanuRandom(1).nextLong();
+
+        assertEquals(new KeanuRandom(seed).nextDouble(), original.split().nextDouble());
+    }
 }
@@ -0,0 +1,148 @@
+package io.improbable.keanu.algorithms;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.DoubleVertexSamples;
+import io.improbable.keanu.vertices.intgr.IntegerVertexSamples;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SampleColumnTest {
+
+    private final VertexId doubleId = new VertexId();
+    private final VertexId integerId = new VertexId();
+
+    private List<DoubleTensor> doubleSamples;
+    private List<IntegerTensor> integerSamples;
+    private NetworkSamples samples;
+
+    @Before
+    public void setup() {
+        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+        doubleSamples = new ArrayList<>();
+        integerSamples = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            DoubleTensor doubleSample = DoubleTensor.create(new double[]{i, i * i}, 2);
+            IntegerTensor integerSample = IntegerTensor.scalar(i % 3);
+
+            SampleColumns.addSample(samplesByVariable, doubleId, doubleSample);
+            SampleColumns.addSample(samplesByVariable, integerId, integerSample);
+            doubleSamples.add(doubleSample);
+            integerSamples.add(integerSample);
+        }
+
+        List<Double> logProbs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            logProbs.add((double) i);
+        }
+
+        samples = new NetworkSamples(samplesByVariable, logProbs, 10);
+    }
+
+    @Test
+    public void doubleAndIntegerTensorsAreStoredInColumns() {
+        assertTrue(samples.getSamplesByVariable().get(doubleId) instanceof DoubleSampleColumn);
+        assertTrue(samples.getSamplesByVariable().get(integerId) instanceof IntegerSampleColumn);
+        assertEquals(doubleSamples, samples.get(doubleId).asList());
+        assertEquals(integerSamples, samples.get(integerId).asList());
+    }
+
+    @Test
+    public void canDropAndDownSampleColumns() {
+        NetworkSamples dropped = samples.drop(4).downSample(3);
+
+        List<DoubleTensor> expected = new ArrayList<>();
+        expected.add(doubleSamples.get(4));
+        expected.add(doubleSamples.get(7));
+
+        assertEquals(expected, dropped.get(doubleId).asList());
+        assertEquals(2, dropped.getIntegerTensorSamples(integerId).asList().size());
+        assertEquals(integerSamples.get(7), dropped.getIntegerTensorSamples(integerId).asList().get(1));
+    }
+
+    @Test
+    public void calculatesSameStatisticsAsListOfTensors() {
+        DoubleVertexSamples fromColumn = samples.getDoubleTensorSamples(doubleId);
+        DoubleVertexSamples fromList = new DoubleVertexSamples(doubleSamples);
+
+        assertArrayEquals(fromList.getAverages().asFlatDoubleArray(), fromColumn.getAverages().asFlatDoubleArray(), 1e-9);
+        assertArrayEquals(fromList.getVariances().asFlatDoubleArray(), fromColumn.getVariances().asFlatDoubleArray(), 1e-9);
+        assertArrayEquals(fromList.getAutocorrelation(1).asFlatDoubleArray(), fromColumn.getAutocorrelation(1).asFlatDoubleArray(), 1e-9);
+        assertEquals(fromList.asTensor(), fromColumn.asTensor());
+    }
+
+    @Test
+    public void calculatesSameIntegerStatisticsAsListOfTensors() {
+        IntegerVertexSamples fromColumn = samples.getIntegerTensorSamples(integerId);
+        IntegerVertexSamples fromList = new IntegerVertexSamples(integerSamples);
+
+        assertEquals(fromList.getAverages().scalar(), fromColumn.getAverages().scalar(), 1e-9);
+        assertEquals(fromList.getScalarMode(), fromColumn.getScalarMode());
+        assertEquals(fromList.asTensor(), fromColumn.asTensor());
+    }
+
+    @Test
+    public void viewsOfAColumnShareItsValues() {
+        DoubleSampleColumn column = (DoubleSampleColumn) samples.getSamplesByVariable().get(doubleId);
+        DoubleSampleColumn view = column.subList(2, 5);
+
+        assertEquals(3, view.size());
+        assertEquals(16.0, view.getValue(2, 1), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotAddToAViewOfAColumn() {
+        DoubleSampleColumn column = (DoubleSampleColumn) samples.getSamplesByVariable().get(doubleId);
+        column.subList(2, 5).add(DoubleTensor.create(1.0, 2.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotAddSampleOfDifferentShape() {
+        DoubleSampleColumn column = new DoubleSampleColumn(new long[]{2});
+        column.add(DoubleTensor.scalar(1.0));
+    }
+
+    @Test
+    public void samplesOfAVariableThatChangesShapeAreMovedToAList() {
+        Map<VariableReference, List<?>> samplesByVariable = new HashMap<>();
+        List<DoubleTensor> variableShapeSamples = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            DoubleTensor sample = DoubleTensor.arange(0, i + 1);
+            SampleColumns.addSample(samplesByVariable, doubleId, sample);
+            variableShapeSamples.add(sample);
+        }
+
+        List<?> samplesOfVariable = samplesByVariable.get(doubleId);
+        assertTrue(samplesOfVariable instanceof ArrayList);
+        assertEquals(variableShapeSamples, samplesOfVariable);
+    }
+
+    @Test
+    public void chainsWithSamplesOfDifferentShapesCanBeConcatenated() {
+        Map<VariableReference, List<?>> otherSamplesByVariable = new HashMap<>();
+        DoubleTensor otherSample = DoubleTensor.create(1.0, 2.0, 3.0);
+        SampleColumns.addSample(otherSamplesByVariable, doubleId, otherSample);
+        SampleColumns.addSample(otherSamplesByVariable, integerId, IntegerTensor.scalar(1));
+        NetworkSamples otherChain = new NetworkSamples(otherSamplesByVariable, Collections.singletonList(0.0), 1);
+
+        MultiChainNetworkSamples concatenated = new MultiChainNetworkSamples(Arrays.asList(samples, otherChain));
+
+        List<DoubleTensor> expected = new ArrayList<>(doubleSamples);
+        expected.add(otherSample);
+        assertEquals(expected, concatenated.get(doubleId).asList());
+        assertTrue(concatenated.getSamplesByVariable().get(integerId) instanceof IntegerSampleColumn);
+    }
+}
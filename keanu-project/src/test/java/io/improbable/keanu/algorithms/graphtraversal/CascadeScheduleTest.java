@@ -0,0 +1,137 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CascadeScheduleTest {
+
+    private GaussianVertex A;
+    private GaussianVertex B;
+    private DoubleVertex C;
+    private DoubleVertex D;
+    private GaussianVertex E;
+
+    @Before
+    public void setup() {
+        A = new GaussianVertex(0.0, 1.0);
+        B = new GaussianVertex(0.0, 1.0);
+        C = A.times(2.0);
+        D = C.plus(B);
+        E = new GaussianVertex(D, 1.0);
+
+        A.setValue(1.0);
+        B.setValue(2.0);
+        VertexValuePropagation.cascadeUpdate(A, B);
+    }
+
+    @Test
+    public void scheduleStopsAtProbabilisticVertices() {
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A));
+
+        //A, C and D but not E
+        assertEquals(3, schedule.size());
+    }
+
+    @Test
+    public void applyingScheduleUpdatesDownstreamValues() {
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A));
+
+        A.setValue(3.0);
+        schedule.apply();
+
+        assertEquals(6.0, C.getValue().scalar(), 0.0);
+        assertEquals(8.0, D.getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void scheduleIsStaleAfterGraphChanges() {
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A));
+        assertFalse(schedule.isStale());
+
+        A.plus(1.0);
+
+        assertTrue(schedule.isStale());
+    }
+
+    @Test
+    public void scheduleIsNotStaleAfterUnrelatedGraphIsBuilt() {
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A));
+
+        GaussianVertex unrelated = new GaussianVertex(0.0, 1.0);
+        new GaussianVertex(unrelated.times(2.0).plus(1.0), 1.0);
+
+        assertFalse(schedule.isStale());
+    }
+
+    @Test
+    public void scheduleIsStaleAfterGraphIsConnectedToAnotherGraph() {
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A));
+
+        GaussianVertex unrelated = new GaussianVertex(0.0, 1.0);
+        DoubleVertex unrelatedTimesTwo = unrelated.times(2.0);
+        assertFalse(schedule.isStale());
+
+        unrelatedTimesTwo.plus(C);
+
+        assertTrue(schedule.isStale());
+    }
+
+    @Test
+    public void cacheKeepsScheduleWhenUnrelatedGraphIsBuilt() {
+        CascadeScheduleCache cache = new CascadeScheduleCache();
+
+        CascadeSchedule first = cache.getSchedule(ImmutableList.of(A));
+        new GaussianVertex(0.0, 1.0).plus(1.0);
+        CascadeSchedule second = cache.getSchedule(ImmutableList.of(A));
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void cacheReusesScheduleForSameVertices() {
+        CascadeScheduleCache cache = new CascadeScheduleCache();
+
+        CascadeSchedule first = cache.getSchedule(ImmutableList.of(A, B));
+        CascadeSchedule second = cache.getSchedule(ImmutableList.of(B, A));
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void cacheRebuildsScheduleWhenGraphChanges() {
+        CascadeScheduleCache cache = new CascadeScheduleCache();
+
+        CascadeSchedule first = cache.getSchedule(ImmutableList.of(A));
+        DoubleVertex F = A.plus(1.0);
+        CascadeSchedule second = cache.getSchedule(ImmutableList.of(A));
+
+        assertNotSame(first, second);
+
+        A.setValue(5.0);
+        cache.cascadeUpdate(ImmutableList.of(A));
+
+        assertEquals(6.0, F.getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void cacheEvictsLeastRecentlyUsedSchedule() {
+        CascadeScheduleCache cache = new CascadeScheduleCache(1);
+
+        cache.getSchedule(ImmutableList.of(A));
+        cache.getSchedule(ImmutableList.of(B));
+
+        assertEquals(1, cache.size());
+    }
+}
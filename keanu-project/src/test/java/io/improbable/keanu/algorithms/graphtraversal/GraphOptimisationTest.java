@@ -0,0 +1,226 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GraphOptimisationTest {
+
+    @Test
+    public void matchesOperatorsWithTheSameInputs() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex first = A.times(2.0);
+        DoubleVertex second = A.times(new ConstantDoubleVertex(2.0));
+        DoubleVertex different = A.times(3.0);
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+
+        assertSame(first, optimisation.getDuplicateOf(second));
+        assertNull(optimisation.getDuplicateOf(first));
+        assertNull(optimisation.getDuplicateOf(different));
+    }
+
+    @Test
+    public void matchesOperatorsOfConstantsByTheirValues() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = A.times(new ConstantDoubleVertex(2.0).plus(3.0));
+        DoubleVertex C = A.times(5.0);
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+
+        assertSame(B, optimisation.getDuplicateOf(C));
+    }
+
+    @Test
+    public void settingAConstantMakesTheOptimisationStale() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        ConstantDoubleVertex two = new ConstantDoubleVertex(2.0);
+        DoubleVertex first = A.times(two);
+        DoubleVertex second = A.times(2.0);
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+        CascadeScheduleCache cache = new CascadeScheduleCache(optimisation);
+        cache.getSchedule(Collections.singletonList(A));
+        assertSame(first, optimisation.getDuplicateOf(second));
+
+        two.setValue(3.0);
+        assertTrue(optimisation.isStale());
+
+        A.setValue(1.5);
+        cache.cascadeUpdate(Collections.singletonList(A));
+
+        assertEquals(4.5, first.getValue().scalar(), 0.0);
+        assertEquals(3.0, second.getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void duplicatesTakeTheValueOfTheFirstOperatorWhenCascading() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex first = A.times(2.0);
+        DoubleVertex second = A.times(2.0);
+
+        CascadeSchedule schedule = CascadeSchedule.of(
+            Collections.singletonList(A),
+            GraphOptimisation.of(A.getConnectedGraph())
+        );
+
+        A.setValue(4.0);
+        schedule.apply();
+
+        assertEquals(8.0, first.getValue().scalar(), 0.0);
+        assertSame(first.getValue(), second.getValue());
+    }
+
+    @Test
+    public void calculatesUnaryChainsInOneStep() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex exp = A.exp();
+        DoubleVertex log = exp.log();
+        DoubleVertex sin = log.sin();
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+        assertTrue(optimisation.isChainInterior(exp));
+        assertTrue(optimisation.isChainInterior(log));
+        assertFalse(optimisation.isChainInterior(sin));
+        assertEquals(ImmutableList.of(exp, log, sin), optimisation.getChainEndingAt(sin).getLinks());
+
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A), optimisation);
+        assertEquals(2, schedule.size());
+
+        A.setValue(0.5);
+        schedule.apply();
+
+        assertEquals(Math.sin(0.5), sin.getValue().scalar(), 1e-12);
+        assertEquals(Math.exp(0.5), exp.getValue().scalar(), 1e-12);
+        assertEquals(0.5, log.getValue().scalar(), 1e-12);
+    }
+
+    @Test
+    public void calculatesChainsThroughBinaryOperatorsInOneStep() {
+        GaussianVertex x = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        GaussianVertex mu = new GaussianVertex(0.0, 1.0);
+        DoubleVertex difference = x.minus(mu);
+        DoubleVertex squared = difference.pow(2);
+        DoubleVertex result = squared.times(-0.5);
+
+        GraphOptimisation optimisation = GraphOptimisation.of(x.getConnectedGraph());
+        assertEquals(ImmutableList.of(difference, squared, result), optimisation.getChainEndingAt(result).getLinks());
+
+        CascadeSchedule schedule = CascadeSchedule.of(ImmutableList.of(x, mu), optimisation);
+
+        x.setValue(DoubleTensor.create(new double[]{1.0, 3.0}, 2));
+        mu.setValue(2.0);
+        schedule.apply();
+
+        assertArrayEquals(new double[]{-0.5, -0.5}, result.getValue().asFlatDoubleArray(), 1e-12);
+        assertArrayEquals(new double[]{1.0, 1.0}, squared.getValue().asFlatDoubleArray(), 1e-12);
+    }
+
+    @Test
+    public void keepsTheValuesOfVerticesInsideChains() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex exp = A.exp();
+        DoubleVertex log = exp.log().setLabel("log");
+        DoubleVertex sin = log.sin();
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+        assertTrue(optimisation.isChainInterior(log));
+
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A), optimisation);
+        for (double a : new double[]{0.5, -0.25}) {
+            A.setValue(a);
+            schedule.apply();
+
+            assertTrue(exp.hasValue());
+            assertTrue(log.hasValue());
+            assertEquals(Math.exp(a), exp.getState().getValue().scalar(), 1e-12);
+            assertEquals(a, log.getState().getValue().scalar(), 1e-12);
+            assertEquals(Math.sin(a), sin.getValue().scalar(), 1e-12);
+        }
+    }
+
+    @Test
+    public void doesNotChainOperatorsWithMoreThanOneChild() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex exp = A.exp();
+        DoubleVertex log = exp.log();
+        DoubleVertex other = exp.sin();
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+
+        assertFalse(optimisation.isChainInterior(exp));
+        assertNull(optimisation.getChainEndingAt(log));
+        assertNull(optimisation.getChainEndingAt(other));
+    }
+
+    @Test
+    public void optimisationIsIgnoredOnceStale() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex first = A.times(2.0);
+        A.times(2.0);
+
+        GraphOptimisation optimisation = GraphOptimisation.of(A.getConnectedGraph());
+        DoubleVertex third = A.times(2.0);
+
+        assertTrue(optimisation.isStale());
+        CascadeSchedule schedule = CascadeSchedule.of(Collections.singletonList(A), optimisation);
+
+        A.setValue(1.5);
+        schedule.apply();
+
+        assertEquals(3.0, first.getValue().scalar(), 0.0);
+        assertEquals(3.0, third.getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void optimisedModelHasTheSameLogProb() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex mu = A.times(2.0).exp().log().plus(A.times(2.0));
+        GaussianVertex B = new GaussianVertex(mu, new ConstantDoubleVertex(1.0).plus(1.0));
+        B.observe(1.0);
+
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        KeanuProbabilisticModel plain = new KeanuProbabilisticModel(network);
+        KeanuProbabilisticModel optimised = new KeanuProbabilisticModel(network, true);
+
+        for (double a : new double[]{-1.0, 0.3, 2.0}) {
+            DoubleTensor value = DoubleTensor.scalar(a);
+            double expected = plain.logProb(Collections.singletonMap(A.getId(), value));
+            assertEquals(expected, optimised.logProb(Collections.singletonMap(A.getId(), value)), 1e-12);
+            assertEquals(expected, optimised.logProbAfter(Collections.singletonMap(A.getId(), value), expected), 1e-12);
+        }
+    }
+
+    @Test
+    public void optimisedModelHasTheSameLogProbAfterAConstantIsChanged() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        ConstantDoubleVertex two = new ConstantDoubleVertex(2.0);
+        GaussianVertex B = new GaussianVertex(A.times(two).plus(A.times(2.0)), 1.0);
+        B.observe(1.0);
+
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        KeanuProbabilisticModel optimised = new KeanuProbabilisticModel(network, true);
+        optimised.logProb(Collections.singletonMap(A.getId(), DoubleTensor.scalar(0.3)));
+
+        two.setValue(3.0);
+        KeanuProbabilisticModel plain = new KeanuProbabilisticModel(network);
+
+        DoubleTensor value = DoubleTensor.scalar(0.7);
+        double expected = plain.logProb(Collections.singletonMap(A.getId(), value));
+        assertEquals(expected, optimised.logProb(Collections.singletonMap(A.getId(), value)), 1e-12);
+    }
+}
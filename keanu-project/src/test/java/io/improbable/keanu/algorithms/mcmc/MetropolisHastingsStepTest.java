@@ -78,6 +78,36 @@ public class MetropolisHastingsStepTest {
         assertEquals(model.logProb(), result.getLogProbabilityAfterStep(), 1e-10);
     }
 
+    @Test
+    public void doesCalculateCorrectLogProbAfterConsecutiveStepsThatReuseTheirProposal() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(1.0);
+        DoubleVertex B = A.times(2);
+        DoubleVertex observedB = new GaussianVertex(B, 1);
+        observedB.observe(5);
+
+        BayesianNetwork bayesNet = new BayesianNetwork(A.getConnectedGraph());
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(bayesNet);
+
+        MetropolisHastingsStep mhStep = new MetropolisHastingsStep(
+            model,
+            new PriorProposalDistribution(bayesNet.getAllVertices()),
+            new RollbackAndCascadeOnRejection(bayesNet.getLatentVertices()),
+            alwaysAccept
+        );
+
+        MetropolisHastingsStep.StepResult first = mhStep.step(Collections.singleton(A), model.logProb());
+        boolean firstAccepted = first.isAccepted();
+        double logProbAfterFirstStep = first.getLogProbabilityAfterStep();
+        assertEquals(model.logProb(), logProbAfterFirstStep, 1e-10);
+
+        MetropolisHastingsStep.StepResult second = mhStep.step(Collections.singleton(A), logProbAfterFirstStep);
+
+        assertTrue(firstAccepted);
+        assertTrue(second.isAccepted());
+        assertEquals(model.logProb(), second.getLogProbabilityAfterStep(), 1e-10);
+    }
+
     @Category(Slow.class)
     @Test
     public void doesAllowCustomProposalDistribution() {
@@ -159,8 +189,8 @@ public class MetropolisHastingsStepTest {
         }
 
         @Override
-        public Proposal getProposal(Set<Variable> variables, KeanuRandom random) {
-            Proposal proposal = new Proposal();
+        public Proposal getProposal(Set<Variable> variables, KeanuRandom random, Proposal proposal) {
+            proposal.clear();
             variables.forEach(variable -> proposal.setProposal(variable, DoubleTensor.scalar(constant)));
             return proposal;
         }
@@ -0,0 +1,118 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.MultiChainNetworkSamples;
+import io.improbable.keanu.algorithms.mcmc.proposal.PriorProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.testcases.MCMCTestCase;
+import io.improbable.keanu.algorithms.mcmc.testcases.SumGaussianTestCase;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.network.NetworkCopy;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class MultiChainSamplerTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static MultiChainSampler metropolisHastingsChains(int chainCount) {
+        return MultiChainSampler.builder()
+            .chainCount(chainCount)
+            .algorithmFactory((model, random) -> MetropolisHastings.builder()
+                .proposalDistribution(new PriorProposalDistribution(model.getLatentVertices()))
+                .rejectionStrategy(new RollBackToCachedValuesOnRejection(model.getLatentVertices()))
+                .random(random)
+                .build()
+            )
+            .build();
+    }
+
+    @Test
+    public void samplesFromPosteriorWithSeveralChains() {
+        MCMCTestCase testCase = new SumGaussianTestCase();
+
+        MultiChainNetworkSamples samples = metropolisHastingsChains(4)
+            .getPosteriorSamples(testCase.getModel(), 2000);
+
+        assertEquals(4, samples.getChainCount());
+        assertEquals(8000, samples.size());
+        testCase.assertExpected(samples);
+    }
+
+    @Test
+    public void remembersWhichChainEachSampleCameFrom() {
+        MCMCTestCase testCase = new SumGaussianTestCase();
+
+        MultiChainNetworkSamples samples = metropolisHastingsChains(3)
+            .getPosteriorSamples(testCase.getModel(), 100);
+
+        assertEquals(0, samples.getChainIndex(0));
+        assertEquals(0, samples.getChainIndex(99));
+        assertEquals(1, samples.getChainIndex(100));
+        assertEquals(2, samples.getChainIndex(299));
+    }
+
+    @Test
+    public void dropsAndDownSamplesEachChainSeparately() {
+        MCMCTestCase testCase = new SumGaussianTestCase();
+
+        MultiChainNetworkSamples samples = metropolisHastingsChains(2)
+            .getPosteriorSamples(testCase.getModel(), 100)
+            .drop(10)
+            .downSample(3);
+
+        assertEquals(2, samples.getChainCount());
+        assertEquals(30, samples.getChain(0).size());
+        assertEquals(60, samples.size());
+    }
+
+    @Test
+    public void chainsDoNotModifyTheOriginalNetwork() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.setValue(0.5);
+        DoubleVertex B = new GaussianVertex(A, 1.0);
+        B.observe(2.0);
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+
+        MultiChainNetworkSamples samples = metropolisHastingsChains(2)
+            .getPosteriorSamples(network, Arrays.asList(A), 100);
+
+        assertEquals(0.5, A.getValue().scalar(), 0.0);
+        assertEquals(200, samples.getDoubleTensorSamples(A).asList().size());
+    }
+
+    @Test
+    public void copiedNetworkHasIndependentState() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.setValue(0.5);
+        DoubleVertex B = new GaussianVertex(A.times(2.0), 1.0);
+        B.observe(2.0);
+        BayesianNetwork network = new BayesianNetwork(Arrays.asList(A, B));
+
+        NetworkCopy copy = NetworkCopy.of(network);
+        Vertex<DoubleTensor> copyOfA = copy.getCopyOf(A);
+        Vertex<DoubleTensor> copyOfB = copy.getCopyOf(B);
+
+        assertNotSame(A, copyOfA);
+        assertNotEquals(A.getId(), copyOfA.getId());
+        assertEquals(A.getId(), copy.getOriginalReference(copyOfA.getId()));
+        assertEquals(2, copy.getNetwork().getAllVertices().size());
+        assertEquals(2.0, copyOfB.getValue().scalar(), 0.0);
+
+        new KeanuProbabilisticModel(copy.getNetwork());
+        copyOfA.setValue(DoubleTensor.scalar(1.5));
+
+        assertEquals(0.5, A.getValue().scalar(), 0.0);
+    }
+}
@@ -3,6 +3,7 @@ package io.improbable.keanu.algorithms.mcmc;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.NetworkSamples;
 import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.mcmc.sink.InMemorySampleSink;
 import io.improbable.keanu.util.status.StatusBar;
 import lombok.Value;
 import org.junit.Test;
@@ -42,6 +43,26 @@ public class NetworkSamplesGeneratorTest {
         assertEquals(expectedCollected, samples.size());
     }
 
+    @Test
+    public void dropsAndSamplesExpectedNumberOfStepsWhenGeneratingIntoSink() {
+
+        AtomicInteger stepCount = new AtomicInteger(0);
+        AtomicInteger sampleCount = new AtomicInteger(0);
+
+        TestSamplingAlgorithm algorithm = new TestSamplingAlgorithm(stepCount, sampleCount);
+        NetworkSamplesGenerator unitUnderTest = new NetworkSamplesGenerator(algorithm, StatusBar::new);
+
+        int totalGenerated = 12;
+        int dropCount = 3;
+        int downSampleInterval = 2;
+        unitUnderTest.dropCount(dropCount).downSampleInterval(downSampleInterval);
+        InMemorySampleSink sink = unitUnderTest.generate(totalGenerated, new InMemorySampleSink());
+
+        int expectedCollected = (int) Math.ceil((totalGenerated - dropCount) / (double) downSampleInterval);
+        assertEquals(totalGenerated, algorithm.stepCount.get() + algorithm.sampleCount.get());
+        assertEquals(expectedCollected, sink.getNetworkSamples().size());
+    }
+
     @Test
     public void streamsExpectedNumberOfSamples() {
 
@@ -0,0 +1,77 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.mcmc.proposal.GaussianProposalDistribution;
+import io.improbable.keanu.algorithms.mcmc.testcases.MCMCTestCase;
+import io.improbable.keanu.algorithms.mcmc.testcases.SumGaussianTestCase;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.testcategory.Slow;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelTemperingTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    @Test
+    public void samplesContinuousPrior() {
+        MCMCTestCase testCase = new SumGaussianTestCase();
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(testCase.getModel());
+
+        NetworkSamples posteriorSamples = ParallelTempering.builder()
+            .random(new KeanuRandom(1))
+            .replicaCount(3)
+            .maxTemperature(4.0)
+            .threadCount(2)
+            .build()
+            .getPosteriorSamples(model, model.getLatentVertices(), 5000);
+
+        testCase.assertExpected(posteriorSamples);
+    }
+
+    @Category(Slow.class)
+    @Test
+    public void movesBetweenModesThatAreSeparatedByALowProbabilityRegion() {
+        DoubleVertex A = new GaussianVertex(0.0, 5.0);
+        A.setValue(0.5);
+        DoubleVertex C = new GaussianVertex(A.multiply(A), 0.5);
+        C.observe(4.0);
+
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(new BayesianNetwork(A.getConnectedGraph()));
+
+        NetworkSamples samples = ParallelTempering.builder()
+            .random(new KeanuRandom(1))
+            .proposalDistributionFactory(vertices -> new GaussianProposalDistribution(DoubleTensor.scalar(0.25)))
+            .replicaCount(6)
+            .maxTemperature(50.0)
+            .threadCount(4)
+            .build()
+            .generatePosteriorSamples(model, Collections.singletonList(A))
+            .dropCount(2000)
+            .generate(20000);
+
+        List<DoubleTensor> values = samples.getDoubleTensorSamples(A).asList();
+        double fractionInUpperMode = values.stream().filter(value -> value.scalar() > 0).count() / (double) values.size();
+        double meanDistanceFromZero = values.stream().mapToDouble(value -> Math.abs(value.scalar())).average().getAsDouble();
+
+        assertThat(fractionInUpperMode, both(greaterThan(0.3)).and(lessThan(0.7)));
+        assertEquals(2.0, meanDistanceFromZero, 0.05);
+    }
+}
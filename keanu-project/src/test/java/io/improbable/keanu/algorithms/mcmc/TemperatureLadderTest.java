@@ -0,0 +1,52 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+
+public class TemperatureLadderTest {
+
+    @Test
+    public void startsEvenlySpacedInLogTemperature() {
+        TemperatureLadder ladder = new TemperatureLadder(4, 8.0, 100);
+
+        assertEquals(1.0, ladder.getTemperature(0), 1e-12);
+        assertEquals(2.0, ladder.getTemperature(1), 1e-12);
+        assertEquals(4.0, ladder.getTemperature(2), 1e-12);
+        assertEquals(8.0, ladder.getTemperature(3), 1e-12);
+    }
+
+    @Test
+    public void widensGapsThatAcceptMoreSwapsAndKeepsTheMaxTemperature() {
+        TemperatureLadder ladder = new TemperatureLadder(3, 9.0, 100);
+
+        ladder.onSwapAttempted(0, 0.9);
+        ladder.onSwapAttempted(1, 0.1);
+        ladder.onRoundFinished();
+
+        assertThat(ladder.getTemperature(1), greaterThan(3.0));
+        assertEquals(9.0, ladder.getTemperature(2), 1e-9);
+        assertEquals(0.9, ladder.getSwapAcceptanceRate(0), 1e-12);
+    }
+
+    @Test
+    public void stopsAdaptingAfterTheAdaptationRounds() {
+        TemperatureLadder ladder = new TemperatureLadder(3, 9.0, 1);
+
+        ladder.onSwapAttempted(0, 0.1);
+        ladder.onSwapAttempted(1, 0.9);
+        ladder.onRoundFinished();
+        double adapted = ladder.getTemperature(1);
+        assertThat(adapted, lessThan(3.0));
+
+        ladder.onSwapAttempted(0, 0.9);
+        ladder.onSwapAttempted(1, 0.1);
+        ladder.onRoundFinished();
+
+        assertEquals(adapted, ladder.getTemperature(1), 0.0);
+        assertEquals(0.5, ladder.getSwapAcceptanceRate(0), 1e-12);
+    }
+}
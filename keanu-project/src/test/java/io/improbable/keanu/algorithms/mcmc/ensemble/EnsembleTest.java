@@ -0,0 +1,109 @@
+package io.improbable.keanu.algorithms.mcmc.ensemble;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.mcmc.testcases.MCMCTestCase;
+import io.improbable.keanu.algorithms.mcmc.testcases.SumGaussianTestCase;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.UniformIntVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class EnsembleTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static Ensemble ensemble(int threadCount, long seed) {
+        return Ensemble.builder()
+            .walkerCount(8)
+            .threadCount(threadCount)
+            .random(new KeanuRandom(seed))
+            .build();
+    }
+
+    @Test
+    public void samplesFromPosterior() {
+        MCMCTestCase testCase = new SumGaussianTestCase();
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(testCase.getModel());
+
+        NetworkSamples samples = ensemble(2, 1)
+            .generatePosteriorSamples(model, model.getLatentVariables())
+            .dropCount(2000)
+            .generate(20000);
+
+        testCase.assertExpected(samples);
+    }
+
+    @Test
+    public void samplesAreTheSameWhateverTheThreadCount() {
+        NetworkSamples singleThreaded = sample(1);
+        NetworkSamples multiThreaded = sample(3);
+
+        assertEquals(singleThreaded.size(), multiThreaded.size());
+        for (int i = 0; i < singleThreaded.size(); i++) {
+            assertEquals(singleThreaded.getLogOfMasterP(i), multiThreaded.getLogOfMasterP(i), 0.0);
+        }
+    }
+
+    private static NetworkSamples sample(int threadCount) {
+        BayesianNetwork network = new SumGaussianTestCase().getModel();
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(network);
+        return ensemble(threadCount, 42).getPosteriorSamples(model, 200);
+    }
+
+    @Test
+    public void canStreamWithDropAndDownSample() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(new SumGaussianTestCase().getModel());
+
+        List<NetworkSample> samples = ensemble(2, 1)
+            .generatePosteriorSamples(model, model.getLatentVariables())
+            .dropCount(10)
+            .downSampleInterval(3)
+            .stream()
+            .limit(5)
+            .collect(toList());
+
+        assertEquals(5, samples.size());
+    }
+
+    @Test
+    public void canSampleNonLatentVariables() {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        GaussianVertex B = new GaussianVertex(A.times(2.0), 1.0);
+        B.observe(1.0);
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(Arrays.asList(A, B));
+
+        NetworkSamples samples = ensemble(1, 1).getPosteriorSamples(model, Arrays.asList(A, B), 10);
+
+        assertEquals(10, samples.getDoubleTensorSamples(A).asList().size());
+        assertEquals(1.0, samples.getDoubleTensorSamples(B).getAverages().scalar(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDiscreteLatents() {
+        GaussianVertex A = new GaussianVertex(5.0, 1.0);
+        UniformIntVertex B = new UniformIntVertex(0, 10);
+        B.setValue(5);
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(Arrays.asList(A, B));
+
+        ensemble(1, 1).getPosteriorSamples(model, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnOddNumberOfWalkers() {
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(new SumGaussianTestCase().getModel());
+
+        Ensemble.builder().walkerCount(7).build().getPosteriorSamples(model, 10);
+    }
+}
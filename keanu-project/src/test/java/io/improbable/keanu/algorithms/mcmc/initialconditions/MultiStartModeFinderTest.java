@@ -0,0 +1,98 @@
+package io.improbable.keanu.algorithms.mcmc.initialconditions;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiStartModeFinderTest {
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    @Test
+    public void findsBothModesOnceEach() {
+        DoubleVertex A = new GaussianVertex(0.0, 5.0);
+        DoubleVertex C = new GaussianVertex(A.multiply(A), 1.5);
+        C.observe(4.0);
+
+        List<NetworkState> modes = MultiStartModeFinder.builder()
+            .random(new KeanuRandom(1))
+            .restarts(20)
+            .threadCount(4)
+            .build()
+            .findModes(new BayesianNetwork(A.getConnectedGraph()));
+
+        assertEquals(2, modes.size());
+
+        double first = modes.get(0).get(A).scalar();
+        double second = modes.get(1).get(A).scalar();
+        assertEquals(2.0, Math.abs(first), 0.1);
+        assertEquals(0.0, first + second, 1e-3);
+    }
+
+    @Test
+    public void ranksModesByLogProb() {
+        DoubleVertex A = new GaussianVertex(0.3, 2.0);
+        DoubleVertex C = new GaussianVertex(A.multiply(A), 1.0);
+        C.observe(4.0);
+
+        List<NetworkState> modes = MultiStartModeFinder.builder()
+            .random(new KeanuRandom(1))
+            .restarts(20)
+            .threadCount(2)
+            .build()
+            .findModes(new BayesianNetwork(A.getConnectedGraph()));
+
+        assertEquals(2, modes.size());
+        assertTrue(modes.get(0).get(A).scalar() > 0);
+        assertTrue(modes.get(1).get(A).scalar() < 0);
+    }
+
+    @Test
+    public void findsTheSameModesWithAnyNumberOfThreads() {
+        DoubleVertex A = new GaussianVertex(0.0, 5.0);
+        DoubleVertex C = new GaussianVertex(A.multiply(A), 1.5);
+        C.observe(4.0);
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+
+        MultiStartModeFinder.MultiStartModeFinderBuilder builder = MultiStartModeFinder.builder()
+            .modeSearch(ModeSearch.simulatedAnnealing(500))
+            .distinctnessTolerance(0.0)
+            .restarts(8);
+
+        List<NetworkState> onOneThread = builder.random(new KeanuRandom(1)).threadCount(1).build().findModes(network);
+        List<NetworkState> onFourThreads = builder.random(new KeanuRandom(1)).threadCount(4).build().findModes(network);
+
+        assertEquals(onOneThread.size(), onFourThreads.size());
+        for (int i = 0; i < onOneThread.size(); i++) {
+            assertEquals(onOneThread.get(i).get(A).scalar(), onFourThreads.get(i).get(A).scalar(), 0.0);
+        }
+    }
+
+    @Test
+    public void doesNotChangeTheNetwork() {
+        DoubleVertex A = new GaussianVertex(0.0, 5.0);
+        A.setValue(0.5);
+        DoubleVertex C = new GaussianVertex(A.multiply(A), 1.5);
+        C.observe(4.0);
+
+        MultiStartModeFinder.builder()
+            .random(new KeanuRandom(1))
+            .restarts(4)
+            .threadCount(2)
+            .build()
+            .findModes(new BayesianNetwork(A.getConnectedGraph()));
+
+        assertEquals(0.5, A.getValue().scalar(), 0.0);
+    }
+}
@@ -0,0 +1,146 @@
+package io.improbable.keanu.algorithms.mcmc.nuts;
+
+import io.improbable.keanu.KeanuRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class InverseMetricTest {
+
+    private KeanuRandom random = new KeanuRandom(1);
+
+    @Test
+    public void identityDiagonalMetricLeavesMomentumUnchanged() {
+        DiagonalInverseMetric metric = new DiagonalInverseMetric(2);
+        double[] momentum = new double[]{0.5, -2.0};
+
+        metric.scaleMomentum(momentum);
+
+        assertArrayEquals(new double[]{0.5, -2.0}, momentum, 0.0);
+        assertArrayEquals(momentum, metric.velocity(momentum), 0.0);
+        assertEquals(0.5 * (0.25 + 4.0), metric.kineticEnergy(momentum), 0.0);
+    }
+
+    @Test
+    public void diagonalMetricLearnsRegularisedVarianceOfSamples() {
+        DiagonalInverseMetric metric = new DiagonalInverseMetric(2);
+
+        int sampleCount = 10000;
+        for (int i = 0; i < sampleCount; i++) {
+            metric.addSample(new double[]{random.nextGaussian(0.0, 2.0), random.nextGaussian(5.0, 0.1)});
+        }
+        metric.adaptToSamples();
+
+        assertEquals(4.0, metric.getVariance()[0], 0.2);
+        assertEquals(0.01, metric.getVariance()[1], 0.001);
+    }
+
+    @Test
+    public void diagonalMetricSamplesMomentumWithInverseOfVariance() {
+        DiagonalInverseMetric metric = new DiagonalInverseMetric(1);
+        for (int i = 0; i < 1000; i++) {
+            metric.addSample(new double[]{random.nextGaussian(0.0, 3.0)});
+        }
+        metric.adaptToSamples();
+
+        double[] momentum = new double[]{2.0};
+        metric.scaleMomentum(momentum);
+
+        assertEquals(2.0 / Math.sqrt(metric.getVariance()[0]), momentum[0], 1e-12);
+    }
+
+    @Test
+    public void denseMetricLearnsCovarianceOfCorrelatedSamples() {
+        DenseInverseMetric metric = new DenseInverseMetric(2);
+
+        int sampleCount = 10000;
+        for (int i = 0; i < sampleCount; i++) {
+            double x = random.nextGaussian();
+            double y = x + random.nextGaussian(0.0, 0.5);
+            metric.addSample(new double[]{x, y});
+        }
+        metric.adaptToSamples();
+
+        double[][] covariance = metric.getCovariance();
+        assertEquals(1.0, covariance[0][0], 0.05);
+        assertEquals(1.25, covariance[1][1], 0.05);
+        assertEquals(1.0, covariance[0][1], 0.05);
+        assertEquals(covariance[0][1], covariance[1][0], 0.0);
+    }
+
+    @Test
+    public void denseMetricSamplesMomentumWithInverseOfCovariance() {
+        DenseInverseMetric metric = new DenseInverseMetric(2);
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextGaussian();
+            metric.addSample(new double[]{x, x + random.nextGaussian(0.0, 0.5)});
+        }
+        metric.adaptToSamples();
+
+        int sampleCount = 20000;
+        double[] sumOfProducts = new double[3];
+        for (int i = 0; i < sampleCount; i++) {
+            double[] momentum = new double[]{random.nextGaussian(), random.nextGaussian()};
+            metric.scaleMomentum(momentum);
+            sumOfProducts[0] += momentum[0] * momentum[0];
+            sumOfProducts[1] += momentum[0] * momentum[1];
+            sumOfProducts[2] += momentum[1] * momentum[1];
+        }
+
+        //The momentum covariance times the metric covariance should be the identity
+        double[][] covariance = metric.getCovariance();
+        double m00 = sumOfProducts[0] / sampleCount;
+        double m01 = sumOfProducts[1] / sampleCount;
+        double m11 = sumOfProducts[2] / sampleCount;
+
+        assertEquals(1.0, m00 * covariance[0][0] + m01 * covariance[1][0], 0.1);
+        assertEquals(0.0, m00 * covariance[0][1] + m01 * covariance[1][1], 0.1);
+        assertEquals(1.0, m01 * covariance[0][1] + m11 * covariance[1][1], 0.1);
+    }
+
+    @Test
+    public void denseMetricKineticEnergyUsesCovariance() {
+        DenseInverseMetric metric = new DenseInverseMetric(2);
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextGaussian();
+            metric.addSample(new double[]{x, 2.0 * x + random.nextGaussian()});
+        }
+        metric.adaptToSamples();
+
+        double[][] covariance = metric.getCovariance();
+        double[] momentum = new double[]{1.0, -1.0};
+        double expected = 0.5 * (covariance[0][0] - 2 * covariance[0][1] + covariance[1][1]);
+
+        assertEquals(expected, metric.kineticEnergy(momentum), 1e-12);
+    }
+
+    @Test
+    public void windowsAdaptMetricAtEndOfEachSlowWindow() {
+        MetricAdaptationWindows windows = new MetricAdaptationWindows(1000);
+        DiagonalInverseMetric metric = new DiagonalInverseMetric(1);
+
+        int adaptations = 0;
+        int lastAdaptation = -1;
+        for (int i = 0; i < 1000; i++) {
+            if (windows.learn(metric, new double[]{random.nextGaussian()})) {
+                adaptations++;
+                lastAdaptation = i;
+            }
+        }
+
+        //Windows of 25, 50, 100, 200 and a final window stretched to 500, ending before the terminal buffer of 50
+        assertEquals(5, adaptations);
+        assertEquals(949, lastAdaptation);
+    }
+
+    @Test
+    public void windowsDoNotAdaptMetricForVeryShortWarmup() {
+        MetricAdaptationWindows windows = new MetricAdaptationWindows(10);
+        DiagonalInverseMetric metric = new DiagonalInverseMetric(1);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(false, windows.learn(metric, new double[]{random.nextGaussian()}));
+        }
+    }
+}
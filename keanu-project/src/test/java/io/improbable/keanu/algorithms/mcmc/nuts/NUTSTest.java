@@ -96,6 +96,42 @@ public class NUTSTest {
         MCMCTestDistributions.samplesMatchSimpleGaussian(mu, sigma, posteriorSamples.get(vertex).asList(), 0.1);
     }
 
+    @Category(Slow.class)
+    @Test
+    public void samplesGaussianWithDiagonalMassMatrix() {
+        samplesGaussianWithMassMatrix(NUTS.MassMatrixAdaptation.DIAGONAL);
+    }
+
+    @Category(Slow.class)
+    @Test
+    public void samplesGaussianWithDenseMassMatrix() {
+        samplesGaussianWithMassMatrix(NUTS.MassMatrixAdaptation.DENSE);
+    }
+
+    private void samplesGaussianWithMassMatrix(NUTS.MassMatrixAdaptation massMatrixAdaptation) {
+        double mu = 0.0;
+        double sigma = 1.0;
+        BayesianNetwork simpleGaussian = MCMCTestDistributions.createSimpleGaussian(mu, sigma, 3, random);
+        ProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(simpleGaussian);
+
+        int sampleCount = 2000;
+        NUTS nuts = NUTS.builder()
+            .adaptCount(sampleCount / 4)
+            .random(random)
+            .massMatrixAdaptation(massMatrixAdaptation)
+            .build();
+
+        NetworkSamples posteriorSamples = nuts.getPosteriorSamples(
+            model,
+            model.getLatentVariables(),
+            sampleCount
+        ).drop(sampleCount / 4);
+
+        Vertex<DoubleTensor> vertex = simpleGaussian.getContinuousLatentVertices().get(0);
+
+        MCMCTestDistributions.samplesMatchSimpleGaussian(mu, sigma, posteriorSamples.get(vertex).asList(), 0.1);
+    }
+
     @Test
     public void samplesContinuousPrior() {
 
@@ -204,4 +240,37 @@ public class NUTSTest {
         Assert.assertEquals(0.9124861769925321, samples.get(19).scalar(), 1e-9);
 
     }
+
+    @Test
+    public void packedLatentsTakeTheSameSamplesAsUnpackedLatents() {
+        int sampleCount = 50;
+
+        List<DoubleTensor> unpacked = sampleSumOfGaussians(false, sampleCount);
+        List<DoubleTensor> packed = sampleSumOfGaussians(true, sampleCount);
+
+        for (int i = 0; i < sampleCount; i++) {
+            Assert.assertEquals(unpacked.get(i).scalar(), packed.get(i).scalar(), 1e-9);
+        }
+    }
+
+    private static List<DoubleTensor> sampleSumOfGaussians(boolean packLatents, int sampleCount) {
+        BayesianNetwork bayesNet = MCMCTestDistributions.createSumOfGaussianDistribution(20.0, 1.0, 46., 15.0);
+        ProbabilisticModelWithGradient model = new KeanuProbabilisticModelWithGradient(bayesNet);
+
+        NUTS nuts = NUTS.builder()
+            .adaptCount(sampleCount / 2)
+            .maxTreeHeight(4)
+            .random(new KeanuRandom(1))
+            .packLatents(packLatents)
+            .build();
+
+        NetworkSamples posteriorSamples = nuts.getPosteriorSamples(
+            model,
+            model.getLatentVariables(),
+            sampleCount
+        );
+
+        Vertex<DoubleTensor> A = bayesNet.getContinuousLatentVertices().get(0);
+        return posteriorSamples.get(A).asList();
+    }
 }
@@ -0,0 +1,120 @@
+package io.improbable.keanu.algorithms.mcmc.sink;
+
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.VertexId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SampleSinkTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final KeanuRandom random = new KeanuRandom(1);
+    private final VariableReference doubleReference = new VertexId();
+    private final VariableReference integerReference = new VertexId();
+
+    @Test
+    public void inMemorySinkKeepsEverySample() {
+        InMemorySampleSink sink = new InMemorySampleSink();
+        sink.accept(sample(1.0, 2));
+        sink.accept(sample(3.0, 4));
+
+        NetworkSamples samples = sink.getNetworkSamples();
+
+        assertEquals(2, samples.size());
+        assertEquals(3.0, samples.getDoubleTensorSamples(doubleReference).asList().get(1).getValue(0, 1), 0.0);
+        assertEquals(-3.0, samples.getLogOfMasterP(1), 0.0);
+    }
+
+    @Test
+    public void memoryMappedSinkReadsBackSamplesAcrossChunks() throws IOException {
+        Path path = temporaryFolder.newFile().toPath();
+        int sampleCount = 25;
+
+        try (MemoryMappedSampleSink sink = new MemoryMappedSampleSink(path, 4)) {
+            for (int i = 0; i < sampleCount; i++) {
+                sink.accept(sample(i, i * 10));
+            }
+
+            NetworkSamples samples = sink.getNetworkSamples();
+            assertEquals(sampleCount, samples.size());
+
+            for (int i = 0; i < sampleCount; i++) {
+                DoubleTensor doubleSample = samples.getDoubleTensorSamples(doubleReference).asList().get(i);
+                IntegerTensor integerSample = samples.getIntegerTensorSamples(integerReference).asList().get(i);
+
+                assertArrayEquals(new long[]{2, 2}, doubleSample.getShape());
+                assertArrayEquals(new double[]{0, i, 2 * i, 3 * i}, doubleSample.asFlatDoubleArray(), 0.0);
+                assertEquals(i * 10, integerSample.scalar().intValue());
+                assertEquals(-i, samples.getLogOfMasterP(i), 0.0);
+            }
+
+            NetworkSamples dropped = samples.drop(20);
+            assertEquals(5, dropped.size());
+            assertEquals(20.0, dropped.getDoubleTensorSamples(doubleReference).asList().get(0).getValue(0, 1), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void memoryMappedSinkRejectsSamplesThatChangeShape() throws IOException {
+        try (MemoryMappedSampleSink sink = new MemoryMappedSampleSink(temporaryFolder.newFile().toPath())) {
+            sink.accept(sample(1.0, 1));
+            sink.accept(new NetworkSample(ImmutableMap.of(
+                doubleReference, DoubleTensor.create(1.0, 2.0),
+                integerReference, IntegerTensor.scalar(1)
+            ), 0.0));
+        }
+    }
+
+    @Test
+    public void summarySinkTracksMeanVarianceAndQuantiles() {
+        SummarySampleSink sink = new SummarySampleSink(0.1, 0.5, 0.9);
+
+        int sampleCount = 20000;
+        for (int i = 0; i < sampleCount; i++) {
+            sink.accept(new NetworkSample(ImmutableMap.of(
+                doubleReference, DoubleTensor.create(new double[]{random.nextGaussian(), random.nextGaussian(10.0, 2.0)}, 2),
+                integerReference, IntegerTensor.scalar(i % 2)
+            ), -1.0));
+        }
+
+        SampleSummary summary = sink.getSummary(doubleReference);
+        assertEquals(sampleCount, summary.getCount());
+        assertArrayEquals(new double[]{0.0, 10.0}, summary.getMean().asFlatDoubleArray(), 0.05);
+        assertArrayEquals(new double[]{1.0, 4.0}, summary.getVariance().asFlatDoubleArray(), 0.1);
+        assertArrayEquals(new double[]{-1.2816, 10.0 - 2 * 1.2816}, summary.getQuantile(0.1).asFlatDoubleArray(), 0.1);
+        assertArrayEquals(new double[]{0.0, 10.0}, summary.getQuantile(0.5).asFlatDoubleArray(), 0.1);
+        assertArrayEquals(new double[]{1.2816, 10.0 + 2 * 1.2816}, summary.getQuantile(0.9).asFlatDoubleArray(), 0.1);
+
+        assertEquals(0.5, sink.getSummary(integerReference).getMean().scalar(), 1e-9);
+        assertEquals(-1.0, sink.getLogOfMasterPSummary().getMean().scalar(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void summaryRejectsQuantileThatIsNotTracked() {
+        SummarySampleSink sink = new SummarySampleSink(0.5);
+        sink.accept(sample(1.0, 1));
+        sink.getSummary(doubleReference).getQuantile(0.25);
+    }
+
+    private NetworkSample sample(double value, int integerValue) {
+        return new NetworkSample(ImmutableMap.of(
+            doubleReference, DoubleTensor.create(new double[]{0, value, 2 * value, 3 * value}, 2, 2),
+            integerReference, IntegerTensor.scalar(integerValue)
+        ), -value);
+    }
+}
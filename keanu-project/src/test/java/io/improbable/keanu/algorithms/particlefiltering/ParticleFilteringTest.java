@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.Rule;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 @Slf4j
@@ -18,6 +19,20 @@ public class ParticleFilteringTest {
 
     @Test
     public void findsCorrectTemp() {
+        findsCorrectTemp(1, ResamplingScheme.SYSTEMATIC);
+    }
+
+    @Test
+    public void findsCorrectTempWithSeveralThreads() {
+        findsCorrectTemp(4, ResamplingScheme.SYSTEMATIC);
+    }
+
+    @Test
+    public void findsCorrectTempWithStratifiedResampling() {
+        findsCorrectTemp(1, ResamplingScheme.STRATIFIED);
+    }
+
+    private void findsCorrectTemp(int threadCount, ResamplingScheme resamplingScheme) {
 
         DoubleVertex temperature = new UniformVertex(0.0, 100.0);
         DoubleVertex noiseAMu = new GaussianVertex(0.0, 2.0);
@@ -44,6 +59,8 @@ public class ParticleFilteringTest {
                 .withNumParticles(numParticles)
                 .withResamplingCycles(resamplingCycles)
                 .withResamplingProportion(resamplingProportion)
+                .withResamplingScheme(resamplingScheme)
+                .withThreadCount(threadCount)
                 .build();
 
         Particle mostProbableParticle = particleFilter.getMostProbableParticle();
@@ -55,5 +72,6 @@ public class ParticleFilteringTest {
 
         assertTrue(estimatedTemp > 18.0);
         assertTrue(estimatedTemp < 22.0);
+        assertEquals(numParticles, particleFilter.getMostProbableParticles().size());
     }
 }
@@ -0,0 +1,51 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.KeanuRandom;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ResamplingSchemeTest {
+
+    private final KeanuRandom random = new KeanuRandom(1);
+
+    @Test
+    public void systematicResamplingChoosesParticlesInProportionToTheirWeight() {
+        double[] logWeights = new double[]{0.0, Math.log(3.0)};
+
+        int[] chosen = ResamplingScheme.SYSTEMATIC.resample(logWeights, 4, random);
+
+        assertArrayEquals(new int[]{0, 1, 1, 1}, chosen);
+    }
+
+    @Test
+    public void stratifiedResamplingChoosesParticlesInProportionToTheirWeight() {
+        double[] logWeights = new double[]{Math.log(0.2), Math.log(0.8)};
+
+        int[] chosen = ResamplingScheme.STRATIFIED.resample(logWeights, 1000, random);
+
+        long chosenFirst = Arrays.stream(chosen).filter(i -> i == 0).count();
+        assertEquals(200, chosenFirst, 20);
+    }
+
+    @Test
+    public void canResampleVerySmallWeights() {
+        double[] logWeights = new double[]{-2000.0, -1000.0, Double.NEGATIVE_INFINITY};
+
+        int[] chosen = ResamplingScheme.SYSTEMATIC.resample(logWeights, 3, random);
+
+        assertArrayEquals(new int[]{1, 1, 1}, chosen);
+    }
+
+    @Test
+    public void choosesEvenlyWhenEveryWeightIsZero() {
+        double[] logWeights = new double[]{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+        int[] chosen = ResamplingScheme.STRATIFIED.resample(logWeights, 3, random);
+
+        assertArrayEquals(new int[]{0, 1, 2}, chosen);
+    }
+}
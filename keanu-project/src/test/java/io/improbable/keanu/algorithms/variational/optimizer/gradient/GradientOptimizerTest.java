@@ -1,12 +1,15 @@
 package io.improbable.keanu.algorithms.variational.optimizer.gradient;
 
 import io.improbable.keanu.algorithms.variational.optimizer.KeanuOptimizer;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
 import org.junit.Test;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -55,4 +58,77 @@ public class GradientOptimizerTest {
         assertEquals(3.0, B.getValue().scalar(), 1e-5);
 
     }
+
+    @Test
+    public void findsMAPWithLBFGS() {
+        assertFindsMAP(GradientOptimizer.Algorithm.LBFGS, 0.01, 1e-4);
+    }
+
+    @Test
+    public void findsMAPWithAdam() {
+        assertFindsMAP(GradientOptimizer.Algorithm.ADAM, 0.1, 1e-2);
+    }
+
+    @Test
+    public void findsMAPWithAdaGrad() {
+        assertFindsMAP(GradientOptimizer.Algorithm.ADAGRAD, 0.5, 1e-2);
+    }
+
+    @Test
+    public void stopsAtTheBestPointFoundWhenAdamRunsOutOfEvaluations() {
+        GaussianVertex A = new GaussianVertex(20.0, 1.0);
+        GaussianVertex B = new GaussianVertex(A, 1.0);
+        B.observe(24.0);
+        A.setValue(19.0);
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        double startingLogProb = network.getLogOfMasterP();
+
+        AtomicInteger gradientTimesCalled = new AtomicInteger(0);
+        GradientOptimizer optimizer = KeanuOptimizer.Gradient.builderFor(network)
+            .algorithm(GradientOptimizer.Algorithm.ADAM)
+            .learningRate(0.1)
+            .maxEvaluations(5)
+            .build();
+        optimizer.addGradientCalculationHandler((point, gradient) -> gradientTimesCalled.incrementAndGet());
+
+        double fitness = optimizer.maxAPosteriori();
+
+        assertEquals(5, gradientTimesCalled.get());
+        assertTrue(fitness > startingLogProb);
+        assertEquals(network.getLogOfMasterP(), fitness, 1e-10);
+    }
+
+    private void assertFindsMAP(GradientOptimizer.Algorithm algorithm, double learningRate, double epsilon) {
+        GaussianVertex A = new GaussianVertex(20.0, 1.0);
+        GaussianVertex B = new GaussianVertex(A, 1.0);
+        GaussianVertex C = new GaussianVertex(B, 1.0);
+        C.observe(24.0);
+        A.setValue(19.0);
+        B.setAndCascade(21.0);
+
+        GradientOptimizer optimizer = KeanuOptimizer.Gradient.builderFor(new BayesianNetwork(A.getConnectedGraph()))
+            .algorithm(algorithm)
+            .learningRate(learningRate)
+            .build();
+
+        optimizer.maxAPosteriori();
+
+        assertEquals(64.0 / 3.0, A.getValue().scalar(), epsilon);
+        assertEquals(68.0 / 3.0, B.getValue().scalar(), epsilon);
+    }
+
+    @Test
+    public void findsMAPOfVectorLatentWithLBFGS() {
+        GaussianVertex A = new GaussianVertex(new long[]{2, 2}, 0.0, 1.0);
+        GaussianVertex B = new GaussianVertex(A, 1.0);
+        B.observe(DoubleTensor.create(new double[]{1, 2, 3, 4}, 2, 2));
+
+        GradientOptimizer optimizer = KeanuOptimizer.Gradient.builderFor(new BayesianNetwork(A.getConnectedGraph()))
+            .algorithm(GradientOptimizer.Algorithm.LBFGS)
+            .build();
+
+        optimizer.maxAPosteriori();
+
+        assertArrayEquals(new double[]{0.5, 1, 1.5, 2}, A.getValue().asFlatDoubleArray(), 1e-4);
+    }
 }
@@ -0,0 +1,155 @@
+package io.improbable.keanu.network;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class BatchedLogProbTest {
+
+    private GaussianVertex A;
+    private GaussianVertex B;
+    private GaussianVertex C;
+    private KeanuProbabilisticModelWithGradient model;
+
+    private DoubleTensor batchA;
+    private DoubleTensor batchB;
+
+    @Before
+    public void setup() {
+        A = new GaussianVertex(0.0, 1.0);
+        A.setValue(0.5);
+        B = new GaussianVertex(new long[]{2}, 1.0, 2.0);
+        B.setValue(DoubleTensor.create(0.3, -0.2));
+
+        DoubleVertex mu = A.times(B).plus(B.exp()).minus(1.0);
+        C = new GaussianVertex(mu, A.exp().plus(0.5));
+        C.observe(DoubleTensor.create(1.5, -0.5));
+
+        model = new KeanuProbabilisticModelWithGradient(new BayesianNetwork(C.getConnectedGraph()));
+
+        batchA = DoubleTensor.create(new double[]{0.1, -0.4, 1.2}, 3);
+        batchB = DoubleTensor.create(new double[]{0.3, 0.9, -0.7, 0.0, 2.1, -1.3}, 3, 2);
+    }
+
+    @Test
+    public void batchesElementWiseOperatorsAndGaussiansInOnePass() {
+        assertNotNull(BatchedLogProb.of(ImmutableList.of(A, B), model.getLatentOrObservedVertices(), new HashMap<>()));
+    }
+
+    @Test
+    public void logProbMatchesLogProbAtEachPoint() {
+        Map<VariableReference, DoubleTensor> batch = ImmutableMap.of(A.getId(), batchA, B.getId(), batchB);
+        double logProbBefore = model.logProb();
+
+        double[] logProbs = model.logProbBatch(batch);
+        double[] logLikelihoods = model.logLikelihoodBatch(batch);
+
+        assertEquals(logProbBefore, model.logProb(), 1e-10);
+        for (int i = 0; i < 3; i++) {
+            Map<VariableReference, DoubleTensor> point = pointOf(i);
+            assertEquals(model.logProb(point), logProbs[i], 1e-10);
+            assertEquals(model.logLikelihood(point), logLikelihoods[i], 1e-10);
+        }
+    }
+
+    @Test
+    public void logProbMatchesLogProbAtEachPointWhenOnlySomeLatentsAreBatched() {
+        double[] logProbs = model.logProbBatch(ImmutableMap.of(B.getId(), batchB));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(model.logProb(ImmutableMap.of(B.getId(), batchB.slice(0, i))), logProbs[i], 1e-10);
+        }
+    }
+
+    @Test
+    public void gradientsMatchGradientsAtEachPoint() {
+        Map<VariableReference, DoubleTensor> gradients = model.logProbGradientsBatch(
+            ImmutableMap.of(A.getId(), batchA, B.getId(), batchB)
+        );
+
+        assertArrayEquals(new long[]{3}, gradients.get(A.getId()).getShape());
+        assertArrayEquals(new long[]{3, 2}, gradients.get(B.getId()).getShape());
+        for (int i = 0; i < 3; i++) {
+            Map<? extends VariableReference, DoubleTensor> gradientsAtPoint = model.logProbGradients(pointOf(i));
+            assertEquals(gradientsAtPoint.get(A.getId()).scalar(), gradients.get(A.getId()).getValue(i), 1e-10);
+            assertArrayEquals(
+                gradientsAtPoint.get(B.getId()).asFlatDoubleArray(),
+                gradients.get(B.getId()).slice(0, i).asFlatDoubleArray(),
+                1e-10
+            );
+        }
+    }
+
+    @Test
+    public void logLikelihoodGradientsMatchGradientsAtEachPoint() {
+        Map<VariableReference, DoubleTensor> gradients = model.logLikelihoodGradientsBatch(
+            ImmutableMap.of(A.getId(), batchA, B.getId(), batchB)
+        );
+
+        for (int i = 0; i < 3; i++) {
+            Map<? extends VariableReference, DoubleTensor> gradientsAtPoint = model.logLikelihoodGradients(pointOf(i));
+            assertEquals(gradientsAtPoint.get(A.getId()).scalar(), gradients.get(A.getId()).getValue(i), 1e-10);
+            assertArrayEquals(
+                gradientsAtPoint.get(B.getId()).asFlatDoubleArray(),
+                gradients.get(B.getId()).slice(0, i).asFlatDoubleArray(),
+                1e-10
+            );
+        }
+    }
+
+    @Test
+    public void doesNotBatchOperatorsThatAreNotElementWise() {
+        GaussianVertex latent = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        GaussianVertex observed = new GaussianVertex(latent.sum(), 1.0);
+        observed.observe(0.5);
+
+        assertNull(BatchedLogProb.of(
+            Collections.singletonList(latent), ImmutableList.of(latent, observed), new HashMap<>()
+        ));
+    }
+
+    @Test
+    public void doesNotBatchLogProbsThatAreNotElementWise() {
+        GaussianVertex latent = new GaussianVertex(0.0, 1.0);
+        BernoulliVertex observed = new BernoulliVertex(latent.sigmoid());
+        observed.observe(true);
+
+        assertNull(BatchedLogProb.of(
+            Collections.singletonList(latent), ImmutableList.of(latent, observed), new HashMap<>()
+        ));
+    }
+
+    @Test
+    public void doesNotBatchGradientsThroughOperatorsThatAreNotDifferentiable() {
+        GaussianVertex latent = new GaussianVertex(0.0, 1.0);
+        GaussianVertex observed = new GaussianVertex(0.0, latent.abs().plus(0.5));
+        observed.observe(0.5);
+
+        BatchedLogProb batchedLogProb = BatchedLogProb.of(
+            Collections.singletonList(latent), ImmutableList.of(latent, observed), new HashMap<>()
+        );
+
+        assertNotNull(batchedLogProb);
+        assertFalse(batchedLogProb.canBatchGradientsWrt(Collections.singletonList(latent)));
+    }
+
+    private Map<VariableReference, DoubleTensor> pointOf(int i) {
+        return ImmutableMap.of(A.getId(), DoubleTensor.scalar(batchA.getValue(i)), B.getId(), batchB.slice(0, i));
+    }
+}
@@ -0,0 +1,241 @@
+package io.improbable.keanu.network;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.BooleanVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.CauchyVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.ExponentialVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.HalfCauchyVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.LaplaceVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.LogisticVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompiledLogProbTest {
+
+    private GaussianVertex A;
+    private DoubleVertex B;
+    private GaussianVertex C;
+    private BooleanVertex D;
+    private List<Vertex> vertices;
+
+    @Before
+    public void setup() {
+        A = new GaussianVertex(0.0, 1.0);
+        B = A.times(2.0);
+        C = new GaussianVertex(B, 1.0);
+        GaussianVertex E = new GaussianVertex(0.0, 1.0);
+        D = C.greaterThan(E);
+
+        A.setValue(0.5);
+        E.setValue(0.0);
+        C.observe(1.5);
+        D.observe(true);
+
+        vertices = ImmutableList.of(A, B, C, D);
+    }
+
+    @Test
+    public void evaluatesSameLogProbAsProbabilityCalculator() {
+        CompiledLogProb compiled = CompiledLogProb.of(vertices);
+
+        assertEquals(2, compiled.getProbabilisticVertexCount());
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(vertices), compiled.evaluate(), 1e-10);
+    }
+
+    @Test
+    public void lowersScalarGaussiansToScalarKernels() {
+        GaussianVertex vector = new GaussianVertex(new long[]{3}, A, 2.0);
+        vector.setValue(DoubleTensor.create(0.1, -0.2, 0.3));
+        List<Vertex> withVector = ImmutableList.of(A, B, C, D, vector);
+
+        CompiledLogProb compiled = CompiledLogProb.of(withVector);
+
+        assertEquals(3, compiled.getProbabilisticVertexCount());
+        assertEquals(2, compiled.getScalarVertexCount());
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(withVector), compiled.evaluate(), 1e-10);
+    }
+
+    @Test
+    public void scalarTermsThatReadTheSameVertexShareItsSlot() {
+        GaussianVertex mu = new GaussianVertex(0.0, 1.0);
+        ConstantDoubleVertex sigma = new ConstantDoubleVertex(2.0);
+        List<Vertex> thetas = ImmutableList.of(
+            new GaussianVertex(mu, sigma), new GaussianVertex(mu, sigma), new GaussianVertex(mu, sigma)
+        );
+        mu.setValue(0.5);
+        for (Vertex theta : thetas) {
+            ((GaussianVertex) theta).setValue(-0.25);
+        }
+
+        CompiledLogProb compiled = CompiledLogProb.of(thetas);
+
+        assertEquals(3, compiled.getScalarVertexCount());
+        assertEquals(5, compiled.getSlotCount());
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(thetas), compiled.evaluate(), 1e-10);
+    }
+
+    @Test
+    public void lowersScalarContinuousDistributionsToScalarKernels() {
+        DoubleVertex location = new ConstantDoubleVertex(0.5);
+        DoubleVertex scale = new ConstantDoubleVertex(2.0);
+        ExponentialVertex exponential = new ExponentialVertex(scale);
+        LaplaceVertex laplace = new LaplaceVertex(location, scale);
+        CauchyVertex cauchy = new CauchyVertex(location, scale);
+        LogisticVertex logistic = new LogisticVertex(location, scale);
+        HalfCauchyVertex halfCauchy = new HalfCauchyVertex(scale);
+        List<Vertex> scalars = ImmutableList.of(exponential, laplace, cauchy, logistic, halfCauchy);
+
+        CompiledLogProb compiled = CompiledLogProb.of(scalars);
+        assertEquals(4, compiled.getScalarVertexCount());
+
+        for (double value : new double[]{0.0, 0.3, 1.7, 25.0}) {
+            for (Vertex vertex : scalars) {
+                ((DoubleVertex) vertex).setValue(value);
+            }
+            assertEquals(ProbabilityCalculator.calculateLogProbFor(scalars), compiled.evaluate(), 1e-10);
+        }
+
+        exponential.setValue(-1.0);
+        assertEquals(Double.NEGATIVE_INFINITY, compiled.evaluate(), 0.0);
+    }
+
+    @Test
+    public void scalarKernelFallsBackIfValueIsNoLongerScalar() {
+        CompiledLogProb compiled = CompiledLogProb.of(vertices);
+
+        A.setValue(DoubleTensor.create(0.5, -0.5));
+
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(ImmutableList.of(A, C)), compiled.evaluate(), 1e-10);
+    }
+
+    @Test
+    public void reflectsChangesInVertexValues() {
+        CompiledLogProb compiled = CompiledLogProb.of(vertices);
+
+        A.setAndCascade(-0.5);
+
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(vertices), compiled.evaluate(), 1e-10);
+    }
+
+    @Test
+    public void isImpossibleIfObservationIsContradicted() {
+        CompiledLogProb compiled = CompiledLogProb.of(vertices);
+
+        D.observe(false);
+
+        assertEquals(Double.NEGATIVE_INFINITY, compiled.evaluate(), 0.0);
+    }
+
+    @Test
+    public void memoizedLogProbIsOnlyRecalculatedForVerticesWhoseInputsChanged() {
+        CountingGaussianVertex first = new CountingGaussianVertex(0.0, 1.0);
+        DoubleVertex doubled = first.times(2.0);
+        CountingGaussianVertex second = new CountingGaussianVertex(doubled, 1.0);
+        CountingGaussianVertex unrelated = new CountingGaussianVertex(0.0, 1.0);
+        first.setAndCascade(0.5);
+        second.observe(1.5);
+        unrelated.setValue(1.0);
+        List<Vertex> memoizedVertices = ImmutableList.of(first, doubled, second, unrelated);
+
+        CompiledLogProb compiled = CompiledLogProb.memoized(memoizedVertices, new HashMap<>());
+
+        double expected = ProbabilityCalculator.calculateLogProbFor(memoizedVertices);
+        resetCounts(first, second, unrelated);
+
+        assertEquals(expected, compiled.evaluate(), 1e-10);
+        assertEquals(expected, compiled.evaluate(), 1e-10);
+        assertLogProbCounts(first, 1, second, 1, unrelated, 1);
+
+        unrelated.setValue(-1.0);
+        compiled.evaluate();
+        assertLogProbCounts(first, 1, second, 1, unrelated, 2);
+
+        first.setAndCascade(-0.5);
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(memoizedVertices), compiled.evaluate(), 1e-10);
+    }
+
+    @Test
+    public void memoizedLogProbIsReusedWhenStatesAreRolledBack() {
+        CountingGaussianVertex latent = new CountingGaussianVertex(0.0, 1.0);
+        CountingGaussianVertex observed = new CountingGaussianVertex(latent, 1.0);
+        latent.setValue(0.5);
+        observed.observe(1.5);
+        List<Vertex> memoizedVertices = ImmutableList.of(latent, observed);
+
+        CompiledLogProb compiled = CompiledLogProb.memoized(memoizedVertices, new HashMap<>());
+        double before = compiled.evaluate();
+
+        NetworkSnapshot snapshot = NetworkSnapshot.create(ImmutableSet.of(latent, observed));
+        latent.setValue(2.0);
+        double after = compiled.evaluate();
+        snapshot.apply();
+        resetCounts(latent, observed);
+
+        assertEquals(before, compiled.evaluate(), 0.0);
+        assertEquals(0, latent.logProbCount);
+        assertEquals(0, observed.logProbCount);
+
+        latent.setValue(2.0);
+        assertEquals(after, compiled.evaluate(), 1e-10);
+        assertEquals(1, latent.logProbCount);
+    }
+
+    @Test
+    public void compiledLogProbsShareMemos() {
+        CountingGaussianVertex latent = new CountingGaussianVertex(0.0, 1.0);
+        latent.setValue(0.5);
+        Map<Vertex, LogProbMemo> memos = new HashMap<>();
+
+        CompiledLogProb.memoized(ImmutableList.of(latent), memos).evaluate();
+        CompiledLogProb.memoized(ImmutableList.of(latent), memos).evaluate();
+
+        assertEquals(1, memos.size());
+        assertEquals(1, latent.logProbCount);
+    }
+
+    private static void resetCounts(CountingGaussianVertex... vertices) {
+        for (CountingGaussianVertex vertex : vertices) {
+            vertex.logProbCount = 0;
+        }
+    }
+
+    private static void assertLogProbCounts(CountingGaussianVertex a, int aCount,
+                                            CountingGaussianVertex b, int bCount,
+                                            CountingGaussianVertex c, int cCount) {
+        assertEquals(aCount, a.logProbCount);
+        assertEquals(bCount, b.logProbCount);
+        assertEquals(cCount, c.logProbCount);
+    }
+
+    private static class CountingGaussianVertex extends GaussianVertex {
+
+        private int logProbCount = 0;
+
+        CountingGaussianVertex(double mu, double sigma) {
+            super(mu, sigma);
+        }
+
+        CountingGaussianVertex(DoubleVertex mu, double sigma) {
+            super(mu, sigma);
+        }
+
+        @Override
+        public double logProb(DoubleTensor value) {
+            logProbCount++;
+            return super.logProb(value);
+        }
+    }
+}
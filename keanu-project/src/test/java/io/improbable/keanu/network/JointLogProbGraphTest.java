@@ -0,0 +1,99 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JointLogProbGraphTest {
+
+    private DoubleVertex A;
+    private DoubleVertex B;
+    private DoubleVertex C;
+    private BernoulliVertex D;
+    private BayesianNetwork network;
+
+    @Before
+    public void setup() {
+        A = new GaussianVertex(new long[]{2}, 0.0, 1.0);
+        A.setValue(DoubleTensor.create(0.5, -0.25));
+        B = new GammaVertex(2.0, 3.0);
+        B.setValue(1.5);
+
+        C = new GaussianVertex(A.times(B).plus(1.0), B);
+        C.observe(DoubleTensor.create(1.0, 2.0));
+
+        D = new BernoulliVertex(0.3);
+        D.observe(true);
+
+        network = new BayesianNetwork(Arrays.asList(A, B, C, D));
+    }
+
+    @Test
+    public void logProbMatchesTheSumOfTheLogProbsOfTheVertices() {
+        JointLogProbGraph graph = network.getJointLogProbGraph();
+
+        assertEquals(network.getLogOfMasterP(), graph.logProb(), 1e-6);
+    }
+
+    @Test
+    public void logProbFollowsChangesToTheNetwork() {
+        JointLogProbGraph graph = network.getJointLogProbGraph();
+        graph.logProb();
+
+        A.setValue(DoubleTensor.create(-1.0, 2.0));
+        B.setAndCascade(DoubleTensor.scalar(0.5));
+
+        assertEquals(network.getLogOfMasterP(), graph.logProb(), 1e-6);
+    }
+
+    @Test
+    public void doesNotChangeTheNetwork() {
+        Set<Vertex> childrenOfA = A.getChildren();
+        int vertexCount = new BayesianNetwork(A.getConnectedGraph()).getVertexCount();
+
+        network.getJointLogProbGraph().logProb();
+
+        assertEquals(childrenOfA, A.getChildren());
+        assertEquals(vertexCount, new BayesianNetwork(A.getConnectedGraph()).getVertexCount());
+    }
+
+    @Test
+    public void gradientsMatchTheGradientsFromDLogProb() {
+        List<Vertex> logProbOf = Arrays.asList(A, B, C, D);
+        List<DoubleVertex> wrt = Arrays.asList(A, B);
+
+        Map<VertexId, DoubleTensor> expected = new LogProbGradientCalculator(logProbOf, wrt).getJointLogProbGradientWrtLatents();
+        Map<VertexId, DoubleTensor> actual = LogProbGradientCalculator.withJointLogProbGraph(logProbOf, wrt).getJointLogProbGradientWrtLatents();
+
+        assertEquals(expected.keySet(), actual.keySet());
+        for (VertexId id : expected.keySet()) {
+            assertArrayEquals(expected.get(id).asFlatDoubleArray(), actual.get(id).asFlatDoubleArray(), 1e-6);
+        }
+    }
+
+    @Test
+    public void dLogProbsHaveTheShapeOfTheVerticesTheyAreWithRespectTo() {
+        Map<Vertex, Map<Vertex, DoubleTensor>> dLogProbs = network.getJointLogProbGraph().dLogProbs();
+
+        Map<Vertex, DoubleTensor> dLogProbOfC = dLogProbs.get(C);
+        assertTrue(dLogProbOfC.containsKey(B));
+        assertArrayEquals(B.getShape(), dLogProbOfC.get(B).getShape());
+        assertArrayEquals(C.getShape(), dLogProbOfC.get(C).getShape());
+    }
+}
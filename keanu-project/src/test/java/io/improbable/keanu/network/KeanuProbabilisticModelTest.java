@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.algorithms.ProbabilisticModel;
+import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.network.KeanuProbabilisticModel;
 import io.improbable.keanu.network.KeanuProbabilisticModelWithGradient;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
@@ -15,6 +16,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import static junit.framework.TestCase.assertEquals;
 
@@ -78,6 +80,24 @@ public class KeanuProbabilisticModelTest {
         canCalculateLogLikelihood(probabilisticModel);
     }
 
+    @Test
+    public void logProbAfterIncludesVerticesAddedAfterTheProposalWasFirstMade() {
+        KeanuProbabilisticModel probabilisticModel = new KeanuProbabilisticModel(D.getConnectedGraph());
+        Map<VariableReference, Object> proposal = ImmutableMap.<VariableReference, Object>of(A.getId(), initialA.plus(1.0));
+
+        probabilisticModel.logProbAfter(proposal, 0.0);
+        probabilisticModel.logProb(ImmutableMap.of(A.getId(), initialA));
+
+        GaussianVertex E = new GaussianVertex(A, 1.0);
+        E.observe(initialA);
+
+        double logProbBefore = ProbabilityCalculator.calculateLogProbFor(ImmutableList.of(A, D, E));
+        double deltaLogProb = probabilisticModel.logProbAfter(proposal, 0.0);
+        double logProbAfter = ProbabilityCalculator.calculateLogProbFor(ImmutableList.of(A, D, E));
+
+        assertEquals(logProbAfter - logProbBefore, deltaLogProb, 1e-10);
+    }
+
     public void canCalculateLogProb(ProbabilisticModel probabilisticModel) {
 
         double defaultLogProb = probabilisticModel.logProb();
@@ -1,9 +1,11 @@
 package io.improbable.keanu.network;
 
+import com.google.common.collect.ImmutableMap;
 import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import org.junit.Before;
@@ -14,6 +16,7 @@ import java.util.Collections;
 import java.util.Map;
 
 import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 
 public class KeanuProbabilisticModelWithGradientTest {
 
@@ -71,4 +74,69 @@ public class KeanuProbabilisticModelWithGradientTest {
         assertEquals(expectedGradients.get(B.getId()), dLogProbWrtB);
     }
 
+    @Test
+    public void batchLogProbMatchesLogProbAtEachPoint() {
+        DoubleTensor batchA = DoubleTensor.create(0.1, -0.4, 1.2);
+        DoubleTensor batchB = DoubleTensor.create(0.3, 0.9, -0.7);
+        double logProbBefore = model.logProb();
+
+        double[] logProbs = model.logProbBatch(ImmutableMap.of(A.getId(), batchA, B.getId(), batchB));
+        double[] logLikelihoods = model.logLikelihoodBatch(ImmutableMap.of(A.getId(), batchA, B.getId(), batchB));
+
+        assertEquals(logProbBefore, model.logProb(), 1e-10);
+        assertEquals(0.5, A.getValue().scalar(), 0.0);
+
+        for (int i = 0; i < 3; i++) {
+            Map<VariableReference, DoubleTensor> point = ImmutableMap.of(
+                A.getId(), DoubleTensor.scalar(batchA.getValue(i)), B.getId(), DoubleTensor.scalar(batchB.getValue(i))
+            );
+            assertEquals(model.logProb(point), logProbs[i], 1e-10);
+            assertEquals(model.logLikelihood(point), logLikelihoods[i], 1e-10);
+        }
+    }
+
+    @Test
+    public void batchRestoresValuesInsideElementWiseChains() {
+        GaussianVertex latent = new GaussianVertex(0.0, 1.0);
+        latent.setValue(0.5);
+        DoubleVertex inside = latent.exp();
+        DoubleVertex end = inside.sin().cos();
+        GaussianVertex observed = new GaussianVertex(end, 1.0);
+        observed.observe(0.2);
+
+        KeanuProbabilisticModel optimisedModel = new KeanuProbabilisticModel(new BayesianNetwork(observed.getConnectedGraph()), true);
+        DoubleTensor insideBefore = inside.getValue();
+        DoubleTensor endBefore = end.getValue();
+
+        double[] logProbs = optimisedModel.logProbBatch(ImmutableMap.of(latent.getId(), DoubleTensor.create(0.1, -0.4)));
+
+        assertEquals(0.5, latent.getValue().scalar(), 0.0);
+        assertEquals(insideBefore.scalar(), inside.getValue().scalar(), 0.0);
+        assertEquals(endBefore.scalar(), end.getValue().scalar(), 0.0);
+        assertEquals(optimisedModel.logProb(ImmutableMap.of(latent.getId(), DoubleTensor.scalar(-0.4))), logProbs[1], 1e-10);
+    }
+
+    @Test
+    public void batchGradientsAreStackedAlongTheBatchDimension() {
+        DoubleTensor batchA = DoubleTensor.create(0.1, -0.4);
+        DoubleTensor batchB = DoubleTensor.create(0.3, 0.9);
+
+        Map<VariableReference, DoubleTensor> batchedGradients = model.logProbGradientsBatch(
+            ImmutableMap.of(A.getId(), batchA, B.getId(), batchB)
+        );
+
+        assertArrayEquals(new long[]{2}, batchedGradients.get(A.getId()).getShape());
+        for (int i = 0; i < 2; i++) {
+            Map<? extends VariableReference, DoubleTensor> gradients = model.logProbGradients(ImmutableMap.of(
+                A.getId(), DoubleTensor.scalar(batchA.getValue(i)), B.getId(), DoubleTensor.scalar(batchB.getValue(i))
+            ));
+            assertEquals(gradients.get(A.getId()).scalar(), batchedGradients.get(A.getId()).getValue(i), 1e-10);
+            assertEquals(gradients.get(B.getId()).scalar(), batchedGradients.get(B.getId()).getValue(i), 1e-10);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchInputsMustHaveTheSameBatchSize() {
+        model.logProbBatch(ImmutableMap.of(A.getId(), DoubleTensor.create(0.1, 0.2), B.getId(), DoubleTensor.create(0.1, 0.2, 0.3)));
+    }
 }
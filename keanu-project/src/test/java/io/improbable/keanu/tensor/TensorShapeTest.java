@@ -69,4 +69,23 @@ public class TensorShapeTest {
             assertEquals(i, tensor.getValue(indexOfi), 1e-10);
         }
     }
+
+    @Test
+    public void canGetBroadcastResultShape() {
+        assertArrayEquals(new long[]{2, 3}, TensorShape.getBroadcastResultShape(new long[]{2, 1}, new long[]{3}));
+        assertArrayEquals(new long[]{4, 2, 3}, TensorShape.getBroadcastResultShape(new long[]{2, 3}, new long[]{4, 1, 1}));
+        assertArrayEquals(new long[]{2, 3}, TensorShape.getBroadcastResultShape(new long[]{2, 3}, new long[]{}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesThrowOnIncompatibleBroadcastShapes() {
+        TensorShape.getBroadcastResultShape(new long[]{2, 3}, new long[]{2});
+    }
+
+    @Test
+    public void canGetBroadcastIndices() {
+        assertArrayEquals(new int[]{0, 0, 0, 1, 1, 1}, TensorShape.getBroadcastIndices(new long[]{2, 1}, new long[]{2, 3}));
+        assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2}, TensorShape.getBroadcastIndices(new long[]{3}, new long[]{2, 3}));
+        assertArrayEquals(new int[]{0, 0, 0}, TensorShape.getBroadcastIndices(new long[]{}, new long[]{3}));
+    }
 }
@@ -0,0 +1,237 @@
+package io.improbable.keanu.tensor.dbl;
+
+import io.improbable.keanu.tensor.JVMTensorThreshold;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JVMDoubleTensorTest {
+
+    private long previousMaxLength;
+
+    private final double[] matrixValues = new double[]{1, -2.5, 3, 0.5, 5, -6};
+    private final long[] matrixShape = new long[]{2, 3};
+
+    @Before
+    public void useJVMTensorsForSmallShapes() {
+        previousMaxLength = JVMTensorThreshold.getMaxLength();
+        JVMTensorThreshold.setMaxLength(100);
+    }
+
+    @After
+    public void restoreThreshold() {
+        JVMTensorThreshold.setMaxLength(previousMaxLength);
+    }
+
+    @Test
+    public void factoriesChooseImplementationByLength() {
+        assertThat(DoubleTensor.create(1.0, new long[]{2, 3}), instanceOf(JVMDoubleTensor.class));
+        assertThat(DoubleTensor.zeros(10, 10), instanceOf(JVMDoubleTensor.class));
+        assertThat(DoubleTensor.ones(11, 10), instanceOf(Nd4jDoubleTensor.class));
+        assertThat(DoubleTensor.scalar(1.0), instanceOf(ScalarDoubleTensor.class));
+
+        JVMTensorThreshold.setMaxLength(0);
+        assertThat(DoubleTensor.create(1.0, 2.0), instanceOf(Nd4jDoubleTensor.class));
+    }
+
+    @Test
+    public void growingPastTheThresholdPromotesToNd4j() {
+        DoubleTensor column = DoubleTensor.ones(20, 1);
+        DoubleTensor row = DoubleTensor.ones(20);
+
+        DoubleTensor result = column.times(row);
+
+        assertThat(result, instanceOf(Nd4jDoubleTensor.class));
+        assertArrayEquals(new long[]{20, 20}, result.getShape());
+    }
+
+    @Test
+    public void elementwiseOperationsMatchNd4j() {
+        assertMatchesNd4j(DoubleTensor::exp);
+        assertMatchesNd4j(DoubleTensor::abs);
+        assertMatchesNd4j(DoubleTensor::sigmoid);
+        assertMatchesNd4j(DoubleTensor::round);
+        assertMatchesNd4j(DoubleTensor::reciprocal);
+        assertMatchesNd4j(DoubleTensor::unaryMinus);
+        assertMatchesNd4j(t -> t.abs().log());
+        assertMatchesNd4j(t -> t.abs().sqrt());
+        assertMatchesNd4j(t -> t.abs().logGamma());
+        assertMatchesNd4j(t -> t.pow(2));
+        assertMatchesNd4j(t -> t.atan2(0.5));
+        assertMatchesNd4j(t -> t.plus(2.0).times(3.0).minus(1.0).div(4.0));
+    }
+
+    @Test
+    public void broadcastOperationsMatchNd4j() {
+        DoubleTensor row = DoubleTensor.create(2, -1, 0.5);
+        DoubleTensor column = DoubleTensor.create(new double[]{3, -4}, 2, 1);
+
+        assertMatchesNd4j(row, DoubleTensor::plus);
+        assertMatchesNd4j(row, DoubleTensor::minus);
+        assertMatchesNd4j(row, DoubleTensor::times);
+        assertMatchesNd4j(row, DoubleTensor::div);
+        assertMatchesNd4j(column, DoubleTensor::plus);
+        assertMatchesNd4j(column, DoubleTensor::times);
+        assertMatchesNd4j(row, DoubleTensor::atan2);
+        assertMatchesNd4j(row, (a, b) -> DoubleTensor.max(a, b));
+        assertMatchesNd4j(row, (a, b) -> DoubleTensor.min(a, b));
+    }
+
+    @Test
+    public void inPlaceOperationReturnsThisWhenShapeIsUnchanged() {
+        DoubleTensor matrix = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor row = DoubleTensor.create(2, -1, 0.5);
+
+        assertSame(matrix, matrix.plusInPlace(row));
+        assertSame(matrix, matrix.timesInPlace(DoubleTensor.scalar(2.0)));
+    }
+
+    @Test
+    public void reductionsMatchNd4j() {
+        DoubleTensor jvm = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(matrixValues, matrixShape);
+
+        assertEquals(nd4j.sum(), jvm.sum(), 1e-10);
+        assertEquals(nd4j.max(), jvm.max(), 1e-10);
+        assertEquals(nd4j.min(), jvm.min(), 1e-10);
+        assertEquals(nd4j.argMax(), jvm.argMax());
+        assertEquals(nd4j.average(), jvm.average(), 1e-10);
+        assertEquals(nd4j.standardDeviation(), jvm.standardDeviation(), 1e-10);
+        assertEquals(nd4j.product(), jvm.product(), 1e-10);
+        assertMatches(nd4j.sum(0), jvm.sum(0));
+        assertMatches(nd4j.sum(1), jvm.sum(-1));
+    }
+
+    @Test
+    public void shapeOperationsMatchNd4j() {
+        DoubleTensor jvm = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(matrixValues, matrixShape);
+
+        assertMatches(nd4j.transpose(), jvm.transpose());
+        assertMatches(nd4j.reshape(3, 2), jvm.reshape(3, 2));
+        assertMatches(nd4j.reshape(3, 2), jvm.reshape(-1, 2));
+        assertMatches(nd4j.slice(1, 2), jvm.slice(1, 2));
+
+        DoubleTensor cube = DoubleTensor.arange(0, 24).reshape(2, 3, 4);
+        DoubleTensor jvmCube = DoubleTensor.create(cube.asFlatDoubleArray(), cube.getShape());
+        assertMatches(cube.permute(2, 0, 1), jvmCube.permute(2, 0, 1));
+        assertMatches(cube.sum(1), jvmCube.sum(1));
+    }
+
+    @Test
+    public void matrixOperationsMatchNd4j() {
+        double[] squareValues = new double[]{4, 1, 0.5, 1, 3, 0.2, 0.5, 0.2, 2};
+        DoubleTensor jvm = DoubleTensor.create(squareValues, 3, 3);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(squareValues, new long[]{3, 3});
+        DoubleTensor other = DoubleTensor.create(matrixValues, matrixShape).transpose();
+
+        assertMatches(nd4j.matrixMultiply(other), jvm.matrixMultiply(other));
+        assertMatches(nd4j.matrixInverse(), jvm.matrixInverse());
+        assertMatches(nd4j.choleskyDecomposition(), jvm.choleskyDecomposition());
+        assertEquals(nd4j.determinant(), jvm.determinant(), 1e-10);
+    }
+
+    @Test
+    public void comparisonsMatchNd4j() {
+        DoubleTensor jvm = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor threshold = DoubleTensor.create(new double[]{0.5, 1, -6, 0.5, 1, -6}, matrixShape);
+
+        assertMatches(nd4j.getGreaterThanMask(threshold), jvm.getGreaterThanMask(threshold));
+        assertMatches(nd4j.getLessThanOrEqualToMask(threshold), jvm.getLessThanOrEqualToMask(threshold));
+        assertBooleansMatch(nd4j.lessThan(0.5), jvm.lessThan(0.5));
+        assertBooleansMatch(nd4j.greaterThanOrEqual(0.5), jvm.greaterThanOrEqual(0.5));
+        assertBooleansMatch(nd4j.elementwiseEquals(0.5), jvm.elementwiseEquals(0.5));
+    }
+
+    @Test
+    public void canSetWithMask() {
+        DoubleTensor jvm = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor mask = jvm.getGreaterThanMask(DoubleTensor.scalar(0.0));
+
+        DoubleTensor result = jvm.setWithMask(mask, -1.0);
+
+        assertArrayEquals(new double[]{-1, -2.5, -1, -1, -1, -6}, result.asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void nd4jTensorsAcceptJVMTensorOperands() {
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor row = DoubleTensor.create(2, -1, 0.5);
+
+        DoubleTensor result = nd4j.plus(row);
+
+        assertArrayEquals(new double[]{3, -3.5, 3.5, 2.5, 4, -5.5}, result.asFlatDoubleArray(), 1e-10);
+        assertTrue(nd4j.equals(DoubleTensor.create(matrixValues, matrixShape)));
+        assertFalse(nd4j.equals(row));
+    }
+
+    @Test
+    public void equalsMatchesNd4j() {
+        double[] nearlyMatrixValues = new double[]{1.000001, -2.5, 3, 0.5, 5, -0.0};
+        DoubleTensor jvm = DoubleTensor.create(new double[]{1, -2.5, 3, 0.5, 5, 0}, matrixShape);
+        DoubleTensor nearlyJvm = DoubleTensor.create(nearlyMatrixValues, matrixShape);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(new double[]{1, -2.5, 3, 0.5, 5, 0}, matrixShape);
+        DoubleTensor nearlyNd4j = Nd4jDoubleTensor.create(nearlyMatrixValues, matrixShape);
+        DoubleTensor different = DoubleTensor.create(new double[]{1.0001, -2.5, 3, 0.5, 5, 0}, matrixShape);
+
+        assertEquals(nd4j.equals(nearlyNd4j), jvm.equals(nearlyJvm));
+        assertTrue(jvm.equals(nearlyNd4j));
+        assertTrue(nearlyNd4j.equals(jvm));
+        assertFalse(jvm.equals(different));
+        assertFalse(nd4j.equals(different));
+        assertFalse(jvm.equals(jvm.reshape(3, 2)));
+    }
+
+    @Test
+    public void canIndexAVectorWithASingleIndex() {
+        DoubleTensor row = DoubleTensor.create(new double[]{1, 2, 3}, 1, 3);
+        DoubleTensor column = DoubleTensor.create(new double[]{1, 2, 3}, 3, 1);
+
+        row.setValue(4.0, 2);
+
+        assertEquals(2.0, row.getValue(1), 0.0);
+        assertEquals(4.0, row.getValue(0, 2), 0.0);
+        assertEquals(2.0, column.getValue(1), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotIndexAMatrixWithASingleIndex() {
+        DoubleTensor.create(matrixValues, matrixShape).getValue(4);
+    }
+
+    private void assertMatchesNd4j(UnaryOperator<DoubleTensor> operation) {
+        DoubleTensor jvm = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(matrixValues, matrixShape);
+        assertThat(jvm, instanceOf(JVMDoubleTensor.class));
+        assertMatches(operation.apply(nd4j), operation.apply(jvm));
+    }
+
+    private void assertMatchesNd4j(DoubleTensor right, BinaryOperator<DoubleTensor> operation) {
+        DoubleTensor jvm = DoubleTensor.create(matrixValues, matrixShape);
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(matrixValues, matrixShape);
+        assertMatches(operation.apply(nd4j, right), operation.apply(jvm, right));
+    }
+
+    private static void assertMatches(DoubleTensor expected, DoubleTensor actual) {
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertArrayEquals(expected.asFlatDoubleArray(), actual.asFlatDoubleArray(), 1e-6);
+    }
+
+    private static void assertBooleansMatch(BooleanTensor expected, BooleanTensor actual) {
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertArrayEquals(expected.asFlatArray(), actual.asFlatArray());
+    }
+}
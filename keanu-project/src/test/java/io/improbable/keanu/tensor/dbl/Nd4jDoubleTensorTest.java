@@ -593,7 +593,7 @@ public class Nd4jDoubleTensorTest {
 
         List<DoubleTensor> actual = A.split(1, new long[]{1, 3, 6});
 
-        DoubleTensor expected0 = DoubleTensor.create(new double[]{1, 7}, 1, 2);
+        DoubleTensor expected0 = DoubleTensor.create(new double[]{1, 7}, 2, 1);
         DoubleTensor expected1 = DoubleTensor.create(new double[]{2, 3, 8, 9}, 2, 2);
         DoubleTensor expected2 = DoubleTensor.create(new double[]{4, 5, 6, 1, 2, 3}, 2, 3);
 
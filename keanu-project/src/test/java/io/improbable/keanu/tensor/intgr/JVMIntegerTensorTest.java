@@ -0,0 +1,81 @@
+package io.improbable.keanu.tensor.intgr;
+
+import io.improbable.keanu.tensor.JVMTensorThreshold;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.function.UnaryOperator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JVMIntegerTensorTest {
+
+    private long previousMaxLength;
+
+    private final int[] matrixValues = new int[]{1, -2, 3, 4, 5, -6};
+    private final long[] matrixShape = new long[]{2, 3};
+
+    @Before
+    public void useJVMTensorsForSmallShapes() {
+        previousMaxLength = JVMTensorThreshold.getMaxLength();
+        JVMTensorThreshold.setMaxLength(100);
+    }
+
+    @After
+    public void restoreThreshold() {
+        JVMTensorThreshold.setMaxLength(previousMaxLength);
+    }
+
+    @Test
+    public void factoriesChooseImplementationByLength() {
+        assertThat(IntegerTensor.create(1, new long[]{2, 3}), instanceOf(JVMIntegerTensor.class));
+        assertThat(IntegerTensor.eye(10), instanceOf(JVMIntegerTensor.class));
+        assertThat(IntegerTensor.zeros(11, 10), instanceOf(Nd4jIntegerTensor.class));
+        assertThat(IntegerTensor.scalar(1), instanceOf(ScalarIntegerTensor.class));
+    }
+
+    @Test
+    public void operationsMatchNd4j() {
+        IntegerTensor row = IntegerTensor.create(2, -1, 3);
+
+        assertMatchesNd4j(IntegerTensor::abs);
+        assertMatchesNd4j(IntegerTensor::unaryMinus);
+        assertMatchesNd4j(t -> t.pow(2));
+        assertMatchesNd4j(t -> t.div(4));
+        assertMatchesNd4j(t -> t.plus(row));
+        assertMatchesNd4j(t -> t.times(row));
+        assertMatchesNd4j(t -> t.div(row));
+        assertMatchesNd4j(t -> t.minInPlace(row));
+        assertMatchesNd4j(t -> t.sum(0));
+        assertMatchesNd4j(IntegerTensor::transpose);
+        assertMatchesNd4j(t -> t.matrixMultiply(t.transpose()));
+        assertMatchesNd4j(t -> t.getGreaterThanMask(IntegerTensor.create(new int[]{0, 0, 3, 3, 6, 6}, matrixShape)));
+    }
+
+    @Test
+    public void reductionsMatchNd4j() {
+        IntegerTensor jvm = IntegerTensor.create(matrixValues, matrixShape);
+        IntegerTensor nd4j = Nd4jIntegerTensor.create(matrixValues, matrixShape);
+
+        assertEquals(nd4j.sum(), jvm.sum());
+        assertEquals(nd4j.max(), jvm.max());
+        assertEquals(nd4j.min(), jvm.min());
+        assertEquals(nd4j.argMax(), jvm.argMax());
+    }
+
+    private void assertMatchesNd4j(UnaryOperator<IntegerTensor> operation) {
+        IntegerTensor jvm = IntegerTensor.create(matrixValues, matrixShape);
+        IntegerTensor nd4j = Nd4jIntegerTensor.create(matrixValues, matrixShape);
+        assertThat(jvm, instanceOf(JVMIntegerTensor.class));
+
+        IntegerTensor expected = operation.apply(nd4j);
+        IntegerTensor actual = operation.apply(jvm);
+
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertArrayEquals(expected.asFlatIntegerArray(), actual.asFlatIntegerArray());
+    }
+}
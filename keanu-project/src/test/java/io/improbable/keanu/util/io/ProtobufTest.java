@@ -3,7 +3,9 @@ package io.improbable.keanu.util.io;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Longs;
 import io.improbable.keanu.KeanuRandom;
+import io.improbable.keanu.algorithms.VariableReference;
 import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.testcategory.Slow;
@@ -55,6 +57,7 @@ import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class ProtobufTest {
@@ -98,6 +101,41 @@ public class ProtobufTest {
         latentGaussianVertex.sample();
     }
 
+    @Test
+    public void savingAnOptimisedModelGivesTheSameOutputAsAPlainModel() throws IOException {
+        GaussianVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex chain = A.exp().log().sin().times(2.0);
+        GaussianVertex B = new GaussianVertex(chain, 1.0);
+        B.observe(0.5);
+        BayesianNetwork net = new BayesianNetwork(A.getConnectedGraph());
+        Map<VariableReference, DoubleTensor> inputs = ImmutableMap.of(A.getId(), DoubleTensor.scalar(0.3));
+
+        new KeanuProbabilisticModel(net).logProb(inputs);
+        byte[] plainOutput = saveWithValues(net);
+
+        new KeanuProbabilisticModel(net, true).logProb(inputs);
+        byte[] optimisedOutput = saveWithValues(net);
+
+        assertArrayEquals(plainOutput, optimisedOutput);
+    }
+
+    @Test
+    public void loadingVerticesGivesTheVertexCreatedForEachSavedId() throws IOException {
+        DoubleVertex mu = new ConstantDoubleVertex(2.0);
+        DoubleVertex gaussianVertex = new GaussianVertex(mu, 1.0);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ProtobufSaver(new BayesianNetwork(gaussianVertex.getConnectedGraph())).save(output, false);
+
+        ProtobufLoader loader = new ProtobufLoader();
+        Map<String, Vertex> first = loader.loadVerticesBySavedId(new ByteArrayInputStream(output.toByteArray()));
+        Map<String, Vertex> second = loader.loadVerticesBySavedId(new ByteArrayInputStream(output.toByteArray()));
+
+        Vertex loadedGaussian = first.get(gaussianVertex.getId().toString());
+        assertThat(loadedGaussian, instanceOf(GaussianVertex.class));
+        assertThat(((GaussianVertex) loadedGaussian).getMu(), equalTo(first.get(mu.getId().toString())));
+        assertThat(second.get(gaussianVertex.getId().toString()), not(equalTo(loadedGaussian)));
+    }
+
     @Test
     public void shapeIsCorrectlySavedAndLoaded() throws IOException {
         long[] shape1 = new long[]{2, 3};
@@ -558,4 +596,9 @@ public class ProtobufTest {
         return requiredParameters;
     }
 
+    private static byte[] saveWithValues(BayesianNetwork net) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ProtobufSaver(net).save(output, true);
+        return output.toByteArray();
+    }
 }
@@ -0,0 +1,208 @@
+package io.improbable.keanu.vertices;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.improbable.keanu.algorithms.VariableReference;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.network.KeanuProbabilisticModel;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationContextTest {
+
+    @Test
+    public void valuesWrittenInAContextAreOnlySeenInThatContext() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.setValue(1.0);
+
+        EvaluationContext first = EvaluationContext.forVertices(ImmutableList.of(A));
+        EvaluationContext second = EvaluationContext.forVertices(ImmutableList.of(A));
+
+        first.run(() -> A.setValue(2.0));
+        second.run(() -> A.setValue(3.0));
+
+        assertEquals(1.0, A.getValue().scalar(), 0.0);
+        assertEquals(2.0, first.call(() -> A.getValue().scalar()), 0.0);
+        assertEquals(3.0, second.call(() -> A.getValue().scalar()), 0.0);
+    }
+
+    @Test
+    public void aContextStartsFromTheValuesOutsideOfIt() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.observe(1.5);
+
+        EvaluationContext context = EvaluationContext.forVertices(ImmutableList.of(A));
+
+        context.run(() -> {
+            A.setValue(2.0);
+            assertTrue(A.isObserved());
+            assertEquals(1.5, A.getValue().scalar(), 0.0);
+        });
+    }
+
+    @Test
+    public void verticesAreOnlyGivenSlotsWhenAContextIsCreatedForThem() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = A.times(2.0);
+        Vertex<?> vertexA = A;
+        Vertex<?> vertexB = B;
+
+        assertNull(vertexA.getContextSlots());
+
+        EvaluationContext.forVertices(ImmutableList.of(A));
+        EvaluationContext.forVertices(ImmutableList.of(A, B));
+
+        assertSame(vertexA.getContextSlots(), vertexB.getContextSlots());
+        assertNotNull(vertexA.getContextSlots());
+    }
+
+    @Test
+    public void verticesThatAContextWasNotCreatedForAreWrittenOutsideOfIt() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(0.0, 1.0);
+        A.setValue(1.0);
+        B.setValue(1.0);
+
+        EvaluationContext context = EvaluationContext.forVertices(ImmutableList.of(A));
+        context.run(() -> {
+            A.setValue(2.0);
+            B.setValue(2.0);
+        });
+
+        assertEquals(1.0, A.getValue().scalar(), 0.0);
+        assertEquals(2.0, B.getValue().scalar(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotCreateAContextForVerticesHeldInTheContextsOfDifferentModels() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(0.0, 1.0);
+
+        EvaluationContext.forVertices(ImmutableList.of(A));
+        EvaluationContext.forVertices(ImmutableList.of(B));
+        EvaluationContext.forVertices(ImmutableList.of(A, B));
+    }
+
+    @Test
+    public void clearingAContextForgetsItsValues() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.setValue(1.0);
+
+        EvaluationContext context = EvaluationContext.forVertices(ImmutableList.of(A));
+        context.run(() -> A.setValue(2.0));
+        context.clear();
+
+        assertEquals(1.0, context.call(() -> A.getValue().scalar()), 0.0);
+    }
+
+    @Test
+    public void theContextIsRestoredAfterNestedCalls() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        EvaluationContext outer = EvaluationContext.forVertices(ImmutableList.of(A));
+        EvaluationContext inner = EvaluationContext.forVertices(ImmutableList.of(A));
+
+        outer.run(() -> {
+            inner.run(() -> {
+                assertTrue(inner.isCurrent());
+                assertFalse(outer.isCurrent());
+            });
+            assertTrue(outer.isCurrent());
+        });
+        assertFalse(outer.isCurrent());
+    }
+
+    @Test
+    public void canCascadeInAContext() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.setValue(1.0);
+        DoubleVertex B = A.times(2.0);
+        B.getValue();
+
+        EvaluationContext context = EvaluationContext.forVertices(ImmutableList.of(A, B));
+        context.run(() -> A.setValue(5.0));
+        VertexValuePropagation.cascadeUpdate(context, Collections.singletonList(A));
+
+        assertEquals(2.0, B.getValue().scalar(), 0.0);
+        assertEquals(10.0, context.call(() -> B.getValue().scalar()), 0.0);
+    }
+
+    @Test
+    public void modelViewsDoNotChangeTheValuesOfTheModel() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        A.setValue(0.5);
+        DoubleVertex C = new GaussianVertex(A.times(2.0), 1.0);
+        C.observe(1.0);
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+
+        KeanuProbabilisticModel view = model.inContext();
+        double logProbInView = view.logProb(ImmutableMap.of(A.getId(), DoubleTensor.scalar(3.0)));
+
+        assertEquals(0.5, A.getValue().scalar(), 0.0);
+        assertEquals(model.logProb(ImmutableMap.of(A.getId(), DoubleTensor.scalar(3.0))), logProbInView, 1e-10);
+        assertEquals(1.0, C.getValue().scalar(), 0.0);
+    }
+
+    @Test
+    public void manyThreadsCanEvaluateOneModelAtOnce() throws Exception {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(A.times(A), 2.0);
+        DoubleVertex C = new GaussianVertex(B.plus(A), 1.0);
+        C.observe(4.0);
+        KeanuProbabilisticModel model = new KeanuProbabilisticModel(A.getConnectedGraph());
+
+        int pointCount = 200;
+        List<Map<VariableReference, DoubleTensor>> points = new ArrayList<>();
+        double[] expected = new double[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            Map<VariableReference, DoubleTensor> point = ImmutableMap.of(
+                A.getId(), DoubleTensor.scalar(i * 0.01),
+                B.getId(), DoubleTensor.scalar(1.0 - i * 0.005)
+            );
+            points.add(point);
+            expected[i] = model.logProb(point);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    KeanuProbabilisticModel view = model.inContext();
+                    double[] logProbs = new double[pointCount];
+                    for (int repeat = 0; repeat < 5; repeat++) {
+                        for (int i = 0; i < pointCount; i++) {
+                            logProbs[i] = view.logProb(points.get(i));
+                        }
+                    }
+                    return logProbs;
+                }));
+            }
+
+            for (Future<double[]> future : futures) {
+                double[] actual = future.get();
+                for (int i = 0; i < pointCount; i++) {
+                    assertEquals(expected[i], actual[i], 1e-10);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
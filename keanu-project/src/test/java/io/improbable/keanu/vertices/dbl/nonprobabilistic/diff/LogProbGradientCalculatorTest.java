@@ -1,6 +1,7 @@
 package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
 
 import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.algorithms.graphtraversal.GraphOptimisation;
 import io.improbable.keanu.distributions.ContinuousDistribution;
 import io.improbable.keanu.distributions.continuous.Gaussian;
 import io.improbable.keanu.distributions.hyperparam.Diffs;
@@ -38,6 +39,31 @@ public class LogProbGradientCalculatorTest {
         assertThat(dALogProbWrtAValue, equalTo(expected));
     }
 
+    @Test
+    public void canFindGradientThroughUpstreamVerticesSharedByManyObservations() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        A.setValue(1.5);
+        DoubleVertex B = A.times(3.0);
+        GaussianVertex C = new GaussianVertex(B, 1);
+        GaussianVertex D = new GaussianVertex(B, 2);
+        C.observe(1.0);
+        D.observe(3.0);
+
+        LogProbGradientCalculator calculator = new LogProbGradientCalculator(ImmutableList.of(A, C, D), ImmutableList.of(A));
+
+        double a = 1.5;
+        double b = 3 * a;
+        double dLogPdfA = -a;
+        double dLogPdfCWrtB = (1.0 - b);
+        double dLogPdfDWrtB = (3.0 - b) / 4.0;
+        double expected = dLogPdfA + (dLogPdfCWrtB + dLogPdfDWrtB) * 3;
+
+        assertEquals(expected, calculator.getJointLogProbGradientWrtLatents().get(A.getId()).scalar(), 1e-10);
+
+        //the tape's buffers are reused so a second calculation must give the same result
+        assertEquals(expected, calculator.getJointLogProbGradientWrtLatents().get(A.getId()).scalar(), 1e-10);
+    }
+
     @Test
     public void canFindGradientOfSingleVariantGaussianWrtSingleVariateLatent() {
 
@@ -162,4 +188,30 @@ public class LogProbGradientCalculatorTest {
         assertEquals(expectedDJLogProbWrtBValue, dJLogProbWrtBValue);
     }
 
+
+    @Test
+    public void canFindGradientThroughElementWiseChainsInOneStep() {
+        GaussianVertex x = new GaussianVertex(new long[]{3}, 0, 1);
+        GaussianVertex mu = new GaussianVertex(0, 1);
+        x.setValue(DoubleTensor.create(new double[]{0.5, -1.0, 2.0}, 3));
+        mu.setValue(0.3);
+
+        DoubleVertex logLikelihood = x.minus(mu).pow(2).div(2.0).times(-0.5).exp();
+        GaussianVertex observed = new GaussianVertex(logLikelihood, 1);
+        observed.observe(DoubleTensor.create(new double[]{0.9, 0.1, 0.4}, 3));
+
+        GraphOptimisation optimisation = GraphOptimisation.of(x.getConnectedGraph());
+        assertEquals(4, optimisation.getChainInteriorCount());
+
+        LogProbGradientCalculator plain = new LogProbGradientCalculator(ImmutableList.of(x, mu, observed), ImmutableList.of(x, mu));
+        LogProbGradientCalculator fused = LogProbGradientCalculator.withGraphOptimisation(
+            ImmutableList.of(x, mu, observed), ImmutableList.of(x, mu), optimisation
+        );
+
+        Map<VertexId, DoubleTensor> expected = plain.getJointLogProbGradientWrtLatents();
+        Map<VertexId, DoubleTensor> actual = fused.getJointLogProbGradientWrtLatents();
+
+        assertArrayEquals(expected.get(x.getId()).asFlatDoubleArray(), actual.get(x.getId()).asFlatDoubleArray(), 1e-10);
+        assertEquals(expected.get(mu.getId()).scalar(), actual.get(mu.getId()).scalar(), 1e-10);
+    }
 }
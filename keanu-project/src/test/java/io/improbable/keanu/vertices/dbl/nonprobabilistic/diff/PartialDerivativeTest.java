@@ -0,0 +1,163 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
+
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.dbl.Differentiable;
+import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartialDerivativeTest {
+
+    private static final DoubleTensor VALUES = DoubleTensor.create(new double[]{1, -2, 3, 4, 0.5, -6}, 2, 3);
+
+    @Test
+    public void identityIsDiagonalWithDenseEquivalent() {
+        long[] shape = new long[]{2, 3};
+        PartialDerivative identity = PartialDerivative.identity(shape);
+
+        assertTrue(identity.isDiagonal());
+        assertMatches(dense(DoubleTensor.ones(shape)), identity);
+    }
+
+    @Test
+    public void staysDiagonalThroughElementWiseOperations() {
+        PartialDerivative diagonal = PartialDerivative.diagonal(VALUES);
+        DoubleTensor multiplier = DoubleTensor.create(new double[]{2, 3, 4}, 3);
+
+        PartialDerivative result = diagonal
+            .multiplyAlongOfDimensions(multiplier, VALUES.getRank())
+            .multiplyAlongWrtDimensions(VALUES)
+            .divideByAlongOfDimensions(DoubleTensor.scalar(2.0))
+            .multiplyBy(-1.0)
+            .add(PartialDerivative.identity(VALUES.getShape()));
+
+        assertTrue(result.isDiagonal());
+
+        DoubleTensor expected = dense(VALUES).reshape(6, 6)
+            .times(DoubleTensor.create(new double[]{2, 3, 4, 2, 3, 4}, 6, 1))
+            .times(VALUES.reshape(1, 6))
+            .div(2.0)
+            .times(-1.0)
+            .plus(DoubleTensor.eye(6))
+            .reshape(2, 3, 2, 3);
+
+        assertMatches(expected, result);
+    }
+
+    @Test
+    public void shapeOfDiagonalIsTheShapeOfItsDenseEquivalent() {
+        PartialDerivative diagonal = PartialDerivative.diagonal(DoubleTensor.scalar(2.0).reshape(1, 1));
+        PartialDerivative broadcast = PartialDerivative.identity(VALUES.getShape()).multiplyBy(2.0);
+
+        assertArrayEquals(diagonal.get().getShape(), diagonal.getShape());
+        assertArrayEquals(broadcast.get().getShape(), broadcast.getShape());
+    }
+
+    @Test
+    public void addingDenseToDiagonalGivesDense() {
+        PartialDerivative diagonal = PartialDerivative.diagonal(VALUES);
+        PartialDerivative denseOnes = new PartialDerivative(DoubleTensor.ones(2, 3, 2, 3));
+
+        PartialDerivative sum = diagonal.add(denseOnes);
+        PartialDerivative difference = diagonal.subtract(denseOnes);
+
+        assertFalse(sum.isDiagonal());
+        assertMatches(dense(VALUES).plus(1.0), sum);
+        assertMatches(dense(VALUES).minus(1.0), difference);
+    }
+
+    @Test
+    public void canMatrixMultiplyDiagonalAlongOf() {
+        PartialDerivative diagonal = PartialDerivative.diagonal(VALUES);
+        PartialDerivative denseEquivalent = new PartialDerivative(dense(VALUES));
+
+        DoubleTensor right = DoubleTensor.arange(0, 12).reshape(3, 4);
+        DoubleTensor left = DoubleTensor.arange(0, 10).reshape(5, 2);
+
+        assertMatches(
+            PartialDerivative.matrixMultiplyAlongOfDimensions(denseEquivalent, right, true).get(),
+            PartialDerivative.matrixMultiplyAlongOfDimensions(diagonal, right, true)
+        );
+        assertMatches(
+            PartialDerivative.matrixMultiplyAlongOfDimensions(denseEquivalent, left, false).get(),
+            PartialDerivative.matrixMultiplyAlongOfDimensions(diagonal, left, false)
+        );
+    }
+
+    @Test
+    public void canMatrixMultiplyDiagonalAlongWrt() {
+        PartialDerivative diagonal = PartialDerivative.diagonal(VALUES);
+        PartialDerivative denseEquivalent = new PartialDerivative(dense(VALUES));
+
+        DoubleTensor partialIsLeftMultiplier = DoubleTensor.arange(0, 12).reshape(4, 3);
+        DoubleTensor partialIsRightMultiplier = DoubleTensor.arange(0, 10).reshape(2, 5);
+
+        assertMatches(
+            PartialDerivative.matrixMultiplyAlongWrtDimensions(denseEquivalent, partialIsLeftMultiplier, true).get(),
+            PartialDerivative.matrixMultiplyAlongWrtDimensions(diagonal, partialIsLeftMultiplier, true)
+        );
+        assertMatches(
+            PartialDerivative.matrixMultiplyAlongWrtDimensions(denseEquivalent, partialIsRightMultiplier, false).get(),
+            PartialDerivative.matrixMultiplyAlongWrtDimensions(diagonal, partialIsRightMultiplier, false)
+        );
+    }
+
+    @Test
+    public void canCorrectDiagonalForBroadcastOfLengthOneOperand() {
+        PartialDerivative diagonal = PartialDerivative.diagonal(VALUES);
+        long[] shape = VALUES.getShape();
+
+        PartialDerivative fromDiagonal = AutoDiffBroadcast.correctForBroadcastPartialReverse(diagonal, shape, new long[]{1, 1});
+        PartialDerivative fromDense = AutoDiffBroadcast.correctForBroadcastPartialReverse(new PartialDerivative(dense(VALUES)), shape, new long[]{1, 1});
+
+        assertMatches(fromDense.get(), fromDiagonal);
+    }
+
+    @Test
+    public void reverseModeFromDiagonalMatchesReverseModeFromDense() {
+        DoubleVertex A = new UniformVertex(new long[]{2, 3}, 0, 1);
+        A.setValue(VALUES.abs());
+        DoubleVertex B = new UniformVertex(0, 1);
+        B.setValue(0.5);
+
+        DoubleVertex output = A.times(B).plus(A.exp()).div(B).matrixMultiply(ConstantVertex.of(DoubleTensor.arange(0, 12).reshape(3, 4))).sin();
+        Set<DoubleVertex> wrt = new HashSet<>(Arrays.asList(A, B));
+
+        PartialsOf fromDiagonal = Differentiator.reverseModeAutoDiff(output, wrt);
+        PartialsOf fromDense = Differentiator.reverseModeAutoDiff(
+            output,
+            new PartialDerivative(dense(DoubleTensor.ones(output.getShape()))),
+            wrt
+        );
+
+        assertMatches(fromDense.withRespectTo(A), new PartialDerivative(fromDiagonal.withRespectTo(A)));
+        assertMatches(fromDense.withRespectTo(B), new PartialDerivative(fromDiagonal.withRespectTo(B)));
+    }
+
+    @Test
+    public void withRespectToSelfIsDiagonal() {
+        assertTrue(Differentiable.withRespectToSelf(new long[]{4}).isDiagonal());
+    }
+
+    private static DoubleTensor dense(DoubleTensor diagonalValues) {
+        long[] shape = diagonalValues.getShape();
+        long length = TensorShape.getLength(shape);
+        return diagonalValues.reshape(length).diag().reshape(TensorShape.concat(shape, shape));
+    }
+
+    private static void assertMatches(DoubleTensor expected, PartialDerivative actual) {
+        assertArrayEquals(expected.getShape(), actual.get().getShape());
+        assertArrayEquals(expected.asFlatDoubleArray(), actual.get().asFlatDoubleArray(), 1e-10);
+    }
+}
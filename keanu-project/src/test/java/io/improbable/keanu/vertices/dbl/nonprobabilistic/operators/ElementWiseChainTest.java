@@ -0,0 +1,148 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.operators;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.Differentiable;
+import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialsOf;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ElementWiseChainTest {
+
+    private GaussianVertex x;
+    private GaussianVertex mu;
+    private GaussianVertex s;
+
+    @Before
+    public void setup() {
+        x = new GaussianVertex(new long[]{2, 3}, 0, 1);
+        mu = new GaussianVertex(new long[]{2, 3}, 0, 1);
+        s = new GaussianVertex(0, 1);
+
+        x.setValue(DoubleTensor.create(new double[]{0.5, -1.0, 2.0, 3.5, 0.1, -0.7}, 2, 3));
+        mu.setValue(DoubleTensor.create(new double[]{0.2, 0.4, -1.1, 1.0, 0.0, 2.2}, 2, 3));
+        s.setValue(1.7);
+    }
+
+    @Test
+    public void calculatesTheValueOfTheLastOperator() {
+        DoubleVertex difference = x.minus(mu);
+        DoubleVertex squared = difference.pow(2);
+        DoubleVertex scaled = squared.div(s);
+        DoubleVertex result = scaled.times(-0.5);
+
+        ElementWiseChain chain = ElementWiseChain.of(ImmutableList.of(difference, squared, scaled, result));
+
+        //x, mu, s and the constants 2 and -0.5
+        assertEquals(5, chain.getInputs().size());
+        assertTrue(chain.getInputs().containsAll(ImmutableList.of(x, mu, s)));
+        assertArrayEquals(result.getValue().asFlatDoubleArray(), chain.calculate().asFlatDoubleArray(), 1e-12);
+        assertArrayEquals(result.getShape(), chain.calculate().getShape());
+    }
+
+    @Test
+    public void calculatesChainsThroughTheRightInputOfAnOperator() {
+        DoubleVertex exp = x.exp();
+        DoubleVertex difference = mu.minus(exp);
+        DoubleVertex result = difference.sigmoid();
+
+        ElementWiseChain chain = ElementWiseChain.of(ImmutableList.of(exp, difference, result));
+
+        assertArrayEquals(result.getValue().asFlatDoubleArray(), chain.calculate().asFlatDoubleArray(), 1e-12);
+    }
+
+    @Test
+    public void calculatesTheValueOfEachOperator() {
+        DoubleVertex difference = x.minus(mu);
+        DoubleVertex squared = difference.pow(2);
+        DoubleVertex result = s.div(squared);
+        List<DoubleVertex> links = ImmutableList.of(difference, squared, result);
+
+        DoubleTensor[] values = ElementWiseChain.of(links).calculateEachLink();
+
+        assertEquals(3, values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertArrayEquals(links.get(i).getValue().asFlatDoubleArray(), values[i].asFlatDoubleArray(), 1e-12);
+            assertArrayEquals(links.get(i).getShape(), values[i].getShape());
+        }
+    }
+
+    @Test
+    public void calculatesTheValueOfEachOperatorOfALengthOneChain() {
+        DoubleVertex exp = s.exp();
+        DoubleVertex difference = exp.minus(mu.slice(0, 1).slice(0, 2));
+        DoubleVertex result = difference.abs();
+        List<DoubleVertex> links = ImmutableList.of(exp, difference, result);
+
+        DoubleTensor[] values = ElementWiseChain.of(links).calculateEachLink();
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(links.get(i).getValue().scalar(), values[i].scalar(), 1e-12);
+            assertArrayEquals(links.get(i).getShape(), values[i].getShape());
+        }
+    }
+
+    @Test
+    public void reverseModeMatchesDifferentiatingEachOperator() {
+        DoubleVertex difference = x.minus(mu);
+        DoubleVertex squared = difference.pow(2);
+        DoubleVertex scaled = squared.div(s);
+        DoubleVertex halved = scaled.times(-0.5);
+        DoubleVertex result = halved.sin();
+
+        ElementWiseChain chain = ElementWiseChain.of(ImmutableList.of(difference, squared, scaled, halved, result));
+        assertTrue(chain.isDifferentiable());
+
+        Map<Vertex, PartialDerivative> fused = chain.reverseModeAutoDifferentiation(Differentiable.withRespectToSelf(result.getShape()));
+        PartialsOf expected = Differentiator.reverseModeAutoDiff(result, x, mu, s);
+
+        for (DoubleVertex input : ImmutableList.of(x, mu, s)) {
+            DoubleTensor expectedPartial = expected.withRespectTo(input);
+            DoubleTensor fusedPartial = fused.get(input).get();
+
+            assertArrayEquals(expectedPartial.getShape(), fusedPartial.getShape());
+            assertArrayEquals(expectedPartial.asFlatDoubleArray(), fusedPartial.asFlatDoubleArray(), 1e-10);
+        }
+    }
+
+    @Test
+    public void reverseModeAddsThePartialsOfAnInputUsedTwice() {
+        DoubleVertex difference = x.minus(mu);
+        DoubleVertex result = difference.times(x);
+
+        ElementWiseChain chain = ElementWiseChain.of(ImmutableList.of(difference, result));
+
+        Map<Vertex, PartialDerivative> fused = chain.reverseModeAutoDifferentiation(Differentiable.withRespectToSelf(result.getShape()));
+        PartialsOf expected = Differentiator.reverseModeAutoDiff(result, x, mu);
+
+        assertArrayEquals(expected.withRespectTo(x).asFlatDoubleArray(), fused.get(x).get().asFlatDoubleArray(), 1e-10);
+        assertArrayEquals(expected.withRespectTo(mu).asFlatDoubleArray(), fused.get(mu).get().asFlatDoubleArray(), 1e-10);
+    }
+
+    @Test
+    public void operatorsThatBroadcastTheChainCannotFollowIt() {
+        DoubleVertex exp = s.exp();
+        DoubleVertex broadcast = exp.times(x);
+
+        assertTrue(ElementWiseChain.canStart(exp));
+        assertFalse(ElementWiseChain.canFollow(broadcast, exp));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOperatorsThatDoNotFormAChain() {
+        ElementWiseChain.of(ImmutableList.of(x.exp(), mu.log()));
+    }
+}
@@ -3,6 +3,7 @@ package io.improbable.keanu.vertices.dbl.probabilistic;
 import io.improbable.keanu.KeanuRandom;
 import io.improbable.keanu.distributions.ContinuousDistribution;
 import io.improbable.keanu.distributions.continuous.MultivariateGaussian;
+import io.improbable.keanu.distributions.hyperparam.Diffs;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.testcategory.Slow;
 import io.improbable.keanu.vertices.ConstantVertex;
@@ -20,7 +21,9 @@ import org.junit.rules.ExpectedException;
 
 import static io.improbable.keanu.vertices.dbl.probabilistic.ProbabilisticDoubleTensorContract.sampleMethodMatchesLogProbMethodMultiVariate;
 import static io.improbable.keanu.vertices.dbl.probabilistic.ProbabilisticDoubleTensorContract.sampleUnivariateMethodMatchesLogProbMethod;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 public class MultivariateGaussianTest {
@@ -244,6 +247,135 @@ public class MultivariateGaussianTest {
         sampleMethodMatchesLogProbMethodMultiVariate(mvg, from, to, bucketSize, 0.01, 100000, random, bucketSize * bucketSize, false);
     }
 
+    @Test
+    public void recalculatesLogProbWhenCovarianceChanges() {
+        DoubleVertex mu = ConstantVertex.of(new double[]{1, 2}, 2, 1);
+        DoubleVertex covarianceMatrix = new ConstantDoubleVertex(new double[]{1, 0.3, 0.3, 0.6}, new long[]{2, 2});
+        MultivariateGaussianVertex mvg = new MultivariateGaussianVertex(mu, covarianceMatrix);
+        DoubleTensor x = DoubleTensor.create(new double[]{0.5, 0.4}, 2, 1);
+
+        assertEquals(-3.6874792995813834, mvg.logPdf(x), 1e-6);
+
+        DoubleTensor newCovariance = DoubleTensor.create(new double[]{2, 0.5, 0.5, 1}, 2, 2);
+        covarianceMatrix.setValue(newCovariance);
+
+        double expected = MultivariateGaussian.withParameters(mu.getValue(), newCovariance).logProb(x).scalar();
+        assertEquals(expected, mvg.logPdf(x), 1e-10);
+    }
+
+    @Test
+    public void logProbIsNegativeInfinityIfCovarianceIsNotPositiveDefinite() {
+        DoubleVertex mu = ConstantVertex.of(new double[]{1, 2}, 2, 1);
+        DoubleVertex covarianceMatrix = ConstantVertex.of(new double[]{1, 2, 2, 1}, 2, 2);
+        MultivariateGaussianVertex mvg = new MultivariateGaussianVertex(mu, covarianceMatrix);
+
+        assertEquals(Double.NEGATIVE_INFINITY, mvg.logPdf(DoubleTensor.create(new double[]{0.5, 0.4}, 2, 1)), 0.0);
+    }
+
+    @Test
+    public void dLogProbIsNaNIfCovarianceIsNotPositiveDefinite() {
+        DoubleTensor mu = DoubleTensor.create(new double[]{1, 2}, 2, 1);
+        DoubleTensor covariance = DoubleTensor.create(new double[]{1, 2, 2, 1}, 2, 2);
+        DoubleTensor x = DoubleTensor.create(new double[]{0.5, 0.4}, 2, 1);
+
+        Diffs diffs = MultivariateGaussian.withParameters(mu, covariance).dLogProb(x);
+
+        assertArrayEquals(new long[]{2, 1}, diffs.get(Diffs.MU).getValue().getShape());
+        assertArrayEquals(new long[]{2, 2}, diffs.get(Diffs.SIGMA).getValue().getShape());
+        assertArrayEquals(new long[]{2, 1}, diffs.get(Diffs.X).getValue().getShape());
+        assertTrue(diffs.get(Diffs.MU).getValue().isNaN().allTrue());
+        assertTrue(diffs.get(Diffs.SIGMA).getValue().isNaN().allTrue());
+        assertTrue(diffs.get(Diffs.X).getValue().isNaN().allTrue());
+    }
+
+    @Test
+    public void dLogProbDoesNotChangeWhenCalculatedAgain() {
+        DoubleTensor mu = DoubleTensor.create(new double[]{1, 2}, 2, 1);
+        DoubleTensor covariance = DoubleTensor.create(new double[]{1.0, 0.3, 0.3, 0.8}, 2, 2);
+        DoubleTensor x = DoubleTensor.create(new double[]{0.5, 0.4}, 2, 1);
+        ContinuousDistribution distribution = MultivariateGaussian.withParameters(mu, covariance);
+
+        DoubleTensor first = distribution.dLogProb(x).get(Diffs.SIGMA).getValue();
+        DoubleTensor second = distribution.dLogProb(x).get(Diffs.SIGMA).getValue();
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void dLogProbMatchesFiniteDifferences() {
+        DoubleTensor mu = DoubleTensor.create(new double[]{1, 2, 3}, 3, 1);
+        DoubleTensor covariance = DoubleTensor.create(new double[]{
+            1.0, 0.3, 0.3,
+            0.3, 0.8, 0.3,
+            0.3, 0.3, 0.6
+        }, 3, 3);
+        DoubleTensor x = DoubleTensor.create(new double[]{0.2, 0.3, 0.4}, 3, 1);
+        double delta = 1e-6;
+
+        Diffs diffs = MultivariateGaussian.withParameters(mu, covariance).dLogProb(x);
+        double[] dLogPdmu = diffs.get(Diffs.MU).getValue().asFlatDoubleArray();
+        double[] dLogPdx = diffs.get(Diffs.X).getValue().asFlatDoubleArray();
+        double[] dLogPdcovariance = diffs.get(Diffs.SIGMA).getValue().asFlatDoubleArray();
+
+        for (int i = 0; i < 3; i++) {
+            DoubleTensor muPlus = mu.duplicate();
+            muPlus.setValue(mu.getValue(i, 0) + delta, i, 0);
+            double muDifference = (logProb(muPlus, covariance, x) - logProb(mu, covariance, x)) / delta;
+            assertEquals(muDifference, dLogPdmu[i], 1e-4);
+
+            DoubleTensor xPlus = x.duplicate();
+            xPlus.setValue(x.getValue(i, 0) + delta, i, 0);
+            double xDifference = (logProb(mu, covariance, xPlus) - logProb(mu, covariance, x)) / delta;
+            assertEquals(xDifference, dLogPdx[i], 1e-4);
+
+            //Only the diagonal can be perturbed on its own without making the covariance asymmetric
+            DoubleTensor covariancePlus = covariance.duplicate();
+            covariancePlus.setValue(covariance.getValue(i, i) + delta, i, i);
+            double covarianceDifference = (logProb(mu, covariancePlus, x) - logProb(mu, covariance, x)) / delta;
+            assertEquals(covarianceDifference, dLogPdcovariance[i * 3 + i], 1e-4);
+        }
+    }
+
+    @Test
+    public void dLogProbWrtOffDiagonalCovarianceMatchesFiniteDifferences() {
+        DoubleTensor mu = DoubleTensor.create(new double[]{1, 2, 3}, 3, 1);
+        DoubleTensor covariance = DoubleTensor.create(new double[]{
+            1.0, 0.3, 0.2,
+            0.3, 0.8, 0.1,
+            0.2, 0.1, 0.6
+        }, 3, 3);
+        DoubleTensor x = DoubleTensor.create(new double[]{0.2, 0.3, 0.4}, 3, 1);
+        double delta = 1e-6;
+
+        double[] dLogPdcovariance = MultivariateGaussian.withParameters(mu, covariance).dLogProb(x)
+            .get(Diffs.SIGMA).getValue().asFlatDoubleArray();
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (i == j) {
+                    continue;
+                }
+
+                //The log prob only reads the lower triangle, so perturbing one element shows its whole effect
+                DoubleTensor covariancePlus = covariance.duplicate();
+                covariancePlus.setValue(covariance.getValue(i, j) + delta, i, j);
+                double difference = (logProb(mu, covariancePlus, x) - logProb(mu, covariance, x)) / delta;
+                assertEquals(difference, dLogPdcovariance[i * 3 + j], 1e-4);
+            }
+        }
+
+        //Moving both mirrored elements together keeps the covariance symmetric and only the lower one has an effect
+        DoubleTensor symmetricPlus = covariance.duplicate();
+        symmetricPlus.setValue(covariance.getValue(2, 0) + delta, 2, 0);
+        symmetricPlus.setValue(covariance.getValue(0, 2) + delta, 0, 2);
+        double symmetricDifference = (logProb(mu, symmetricPlus, x) - logProb(mu, covariance, x)) / delta;
+        assertEquals(symmetricDifference, dLogPdcovariance[2 * 3] + dLogPdcovariance[2], 1e-4);
+    }
+
+    private static double logProb(DoubleTensor mu, DoubleTensor covariance, DoubleTensor x) {
+        return MultivariateGaussian.withParameters(mu, covariance).logProb(x).scalar();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void whenYouSampleYouMustMatchMusShape() {
         DoubleTensor mu = DoubleTensor.create(new double[]{0, 0}, 2, 1);